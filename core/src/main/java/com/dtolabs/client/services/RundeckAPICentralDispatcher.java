@@ -151,7 +151,12 @@ public class RundeckAPICentralDispatcher implements CentralDispatcher {
      * logger
      */
     public static final Logger logger = Logger.getLogger(RundeckAPICentralDispatcher.class);
+    /**
+     * Default maximum time in milliseconds for the server to wait for new output when following an execution
+     */
+    public static final long DEFAULT_FOLLOW_MAX_WAIT = 15000;
     private ServerService serverService;
+    private long followMaxWait = DEFAULT_FOLLOW_MAX_WAIT;
 
     /**
      * Create a RundeckCentralDispatcher
@@ -807,6 +812,9 @@ public class RundeckAPICentralDispatcher implements CentralDispatcher {
             }else{
                 params.put("offset", offset.toString());
                 params.put("lastmod", rlastmod.toString());
+                if (followMaxWait > 0) {
+                    params.put("maxWait", Long.toString(followMaxWait));
+                }
             }
 
             logger.debug("request" + rundeckApiExecOutputJobPath + " params: " + params);
@@ -839,6 +847,8 @@ public class RundeckAPICentralDispatcher implements CentralDispatcher {
 
             final Double percentLoaded = floatNodeValue(result1, "percentLoaded", 0.0);
             final Long dataoffset = longNodeValue(result1, "offset", -1L);
+            //if present, the server waited for new output before responding
+            final Long waited = longNodeValue(result1, "maxWait", 0);
 
             if (dataoffset > 0 && dataoffset > offset) {
                 offset = dataoffset;
@@ -882,11 +892,15 @@ public class RundeckAPICentralDispatcher implements CentralDispatcher {
                     break;
                 }
             }
-            //sleep delay
-            try {
-                Thread.sleep(delay);
-            } catch (InterruptedException e) {
-                interrupt = true;
+            //sleep delay, unless the server has already waited for output
+            if (waited > 0) {
+                delay = BASE_DELAY;
+            } else {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    interrupt = true;
+                }
             }
         }
         final boolean finalComplete = complete;
@@ -914,6 +928,21 @@ public class RundeckAPICentralDispatcher implements CentralDispatcher {
         };
     }
 
+    /**
+     * Return the maximum time in milliseconds the server is asked to wait for new output when following an execution
+     */
+    public long getFollowMaxWait() {
+        return followMaxWait;
+    }
+
+    /**
+     * Set the maximum time in milliseconds the server is asked to wait for new output when following an execution,
+     * or 0 to poll for output with a delay between requests
+     */
+    public void setFollowMaxWait(final long followMaxWait) {
+        this.followMaxWait = followMaxWait;
+    }
+
     private String stringNodeValue(Node result1, final String path, final String defValue) {
         return null != result1.selectSingleNode(path) ? result1.selectSingleNode(path)
             .getStringValue() : defValue;
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.authorization;
+
+import com.dtolabs.rundeck.core.authorization.providers.PoliciesParseException;
+import com.dtolabs.rundeck.core.authorization.providers.SAREAuthorization;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * AclsAuthorizationCache retains authorization instances for a directory of aclpolicy files, keyed by username and
+ * role set, so that the policy files are not parsed again for every request.  All cached instances share a single
+ * {@link SAREAuthorization} for the directory, behind a {@link CachingAuthorization} decision cache.  The cache is
+ * cleared when the set of aclpolicy files in the directory, or the modification time or size of any of them, changes.
+ */
+public class AclsAuthorizationCache {
+    static final Logger logger = Logger.getLogger(AclsAuthorizationCache.class);
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    static final FilenameFilter filenameFilter = new FilenameFilter() {
+        public boolean accept(final File dir, final String name) {
+            return name.endsWith(".aclpolicy");
+        }
+    };
+
+    /**
+     * Creates an authorization for a user, using the shared policy authorization
+     */
+    public static interface AuthorizationFactory {
+        public LegacyAuthorization createAuthorization(Authorization policies) throws IOException,
+            PoliciesParseException;
+    }
+
+    private final File aclBasedir;
+    private final LinkedHashMap<String, LegacyAuthorization> cache;
+    private CachingAuthorization policies;
+    private String signature;
+    private long hitCount;
+    private long missCount;
+    private long invalidationCount;
+
+    public AclsAuthorizationCache(final File aclBasedir) {
+        this(aclBasedir, DEFAULT_MAX_SIZE);
+    }
+
+    public AclsAuthorizationCache(final File aclBasedir, final int maxSize) {
+        this.aclBasedir = aclBasedir;
+        this.cache = new LinkedHashMap<String, LegacyAuthorization>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, LegacyAuthorization> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Return the cached authorization for the user and roles, or create it with the factory
+     *
+     * @param username username
+     * @param roles    the user's roles
+     * @param factory  factory to create the authorization if it is not cached
+     *
+     * @return the authorization
+     *
+     * @throws IOException            if the factory throws it
+     * @throws PoliciesParseException if the factory throws it
+     */
+    public synchronized LegacyAuthorization getAuthorization(final String username, final Collection<String> roles,
+                                                             final AuthorizationFactory factory) throws IOException,
+        PoliciesParseException {
+        checkPolicyFiles();
+        final String key = createKey(username, roles);
+        LegacyAuthorization authorization = cache.get(key);
+        if (null != authorization) {
+            hitCount++;
+            return authorization;
+        }
+        missCount++;
+        if (null == policies) {
+            policies = new CachingAuthorization(new SAREAuthorization(aclBasedir));
+        }
+        authorization = factory.createAuthorization(policies);
+        cache.put(key, authorization);
+        return authorization;
+    }
+
+    /**
+     * Return the shared policy authorization for the directory
+     */
+    public synchronized CachingAuthorization getPolicies() throws IOException, PoliciesParseException {
+        checkPolicyFiles();
+        if (null == policies) {
+            policies = new CachingAuthorization(new SAREAuthorization(aclBasedir));
+        }
+        return policies;
+    }
+
+    /**
+     * Remove all cached authorizations
+     */
+    public synchronized void invalidate() {
+        cache.clear();
+        policies = null;
+        invalidationCount++;
+    }
+
+    /**
+     * Return a cache key for the username and the sorted set of roles
+     */
+    static String createKey(final String username, final Collection<String> roles) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(username);
+        if (null != roles) {
+            for (final String role : new TreeSet<String>(roles)) {
+                sb.append('\n').append(role);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Invalidate the cache if the aclpolicy files have changed since the last check
+     */
+    private void checkPolicyFiles() {
+        final String current = createSignature(aclBasedir);
+        if (null != signature && !signature.equals(current)) {
+            logger.debug("aclpolicy files changed in " + aclBasedir + ", invalidating cached authorizations");
+            invalidate();
+        }
+        signature = current;
+    }
+
+    /**
+     * Return a string identifying the names, modification times and sizes of the aclpolicy files in the directory
+     */
+    static String createSignature(final File dir) {
+        final File[] files = dir.listFiles(filenameFilter);
+        if (null == files) {
+            return "";
+        }
+        Arrays.sort(files);
+        final StringBuilder sb = new StringBuilder();
+        for (final File file : files) {
+            sb.append(file.getName()).append(':').append(file.lastModified()).append(':').append(file.length()).append(
+                '\n');
+        }
+        return sb.toString();
+    }
+
+    public File getAclBasedir() {
+        return aclBasedir;
+    }
+
+    public synchronized int getSize() {
+        return cache.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * Return a map of the cache statistics, including the statistics of the shared decision cache prefixed with
+     * "decisions."
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        final HashMap<String, Object> stats = new HashMap<String, Object>();
+        stats.put("size", cache.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("invalidations", invalidationCount);
+        if (null != policies) {
+            for (final Map.Entry<String, Object> entry : policies.getStatistics().entrySet()) {
+                stats.put("decisions." + entry.getKey(), entry.getValue());
+            }
+        }
+        return stats;
+    }
+}
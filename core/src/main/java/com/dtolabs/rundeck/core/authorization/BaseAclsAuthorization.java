@@ -52,7 +52,7 @@ public abstract class BaseAclsAuthorization implements Authorization, LegacyAuth
     static Logger logger = Logger.getLogger(BaseAclsAuthorization.class);
     private final File aclBasedir;
     
-    private final SAREAuthorization authorization;
+    private final Authorization authorization;
     private String[] matchedRoles = new String[]{};
     
     
@@ -70,6 +70,18 @@ public abstract class BaseAclsAuthorization implements Authorization, LegacyAuth
         
         authorization = new SAREAuthorization(aclBasedir);
     }
+
+    /**
+     * Constructor using an existing policy authorization, which may be shared between instances
+     *
+     * @param aclBasedir    acl base directory
+     * @param authorization the policy authorization for the directory
+     */
+    public BaseAclsAuthorization(final Framework framework, final File aclBasedir,
+                                 final Authorization authorization) {
+        this.aclBasedir = aclBasedir;
+        this.authorization = authorization;
+    }
     
     /**
      * 
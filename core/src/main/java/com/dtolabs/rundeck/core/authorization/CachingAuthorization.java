@@ -0,0 +1,297 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.authorization;
+
+import com.dtolabs.rundeck.core.authorization.providers.SAREAuthorization;
+
+import javax.security.auth.Subject;
+import java.security.Principal;
+import java.util.*;
+
+/**
+ * CachingAuthorization retains the decisions made by another {@link Authorization} for a limited time, keyed by the
+ * resource, subject principals, action and environment, so that repeated identical requests do not re-evaluate the
+ * policies.  The number of cached decisions is bounded, with the least recently used decisions removed first.
+ * <p/>
+ * If the delegate is a {@link SAREAuthorization}, the policy files are checked for changes at most once per policy
+ * check interval, and all cached decisions are discarded when any policy file is loaded or removed.
+ */
+public class CachingAuthorization implements Authorization {
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    public static final long DEFAULT_TTL = 30 * 1000;
+    public static final long DEFAULT_POLICY_CHECK_INTERVAL = 1000;
+
+    private final Authorization authorization;
+    private final long ttl;
+    private final LinkedHashMap<String, CachedDecision> cache;
+    private long policyCheckInterval = DEFAULT_POLICY_CHECK_INTERVAL;
+    private long lastPolicyCheck;
+    private long policyVersion = -1;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long invalidationCount;
+
+    private static class CachedDecision {
+        final Decision decision;
+        final long expires;
+
+        CachedDecision(final Decision decision, final long expires) {
+            this.decision = decision;
+            this.expires = expires;
+        }
+    }
+
+    public CachingAuthorization(final Authorization authorization) {
+        this(authorization, DEFAULT_MAX_SIZE, DEFAULT_TTL);
+    }
+
+    /**
+     * @param authorization the authorization to delegate to
+     * @param maxSize       the maximum number of decisions to cache
+     * @param ttl           the time in milliseconds to retain each decision
+     */
+    public CachingAuthorization(final Authorization authorization, final int maxSize, final long ttl) {
+        this.authorization = authorization;
+        this.ttl = ttl;
+        this.cache = new LinkedHashMap<String, CachedDecision>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CachedDecision> eldest) {
+                if (size() > maxSize) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Decision evaluate(final Map<String, String> resource, final Subject subject, final String action,
+                             final Set<Attribute> environment) {
+        final String key = createKey(resource, subject, action, environment);
+        Decision decision = get(key);
+        if (null == decision) {
+            decision = authorization.evaluate(resource, subject, action, environment);
+            put(key, decision);
+        }
+        return decision;
+    }
+
+    public Set<Decision> evaluate(final Set<Map<String, String>> resources, final Subject subject,
+                                  final Set<String> actions, final Set<Attribute> environment) {
+        final String subjectKey = createSubjectKey(subject);
+        final String environmentKey = createEnvironmentKey(environment);
+        final Set<Decision> decisions = new HashSet<Decision>();
+        final Set<Map<String, String>> uncached = new HashSet<Map<String, String>>();
+        for (final Map<String, String> resource : resources) {
+            final String resourceKey = createResourceKey(resource);
+            final ArrayList<Decision> found = new ArrayList<Decision>(actions.size());
+            for (final String action : actions) {
+                final Decision decision = get(createKey(resourceKey, subjectKey, action, environmentKey));
+                if (null == decision) {
+                    break;
+                }
+                found.add(decision);
+            }
+            if (found.size() == actions.size()) {
+                decisions.addAll(found);
+            } else {
+                uncached.add(resource);
+            }
+        }
+        if (uncached.size() > 0) {
+            for (final Decision decision : authorization.evaluate(uncached, subject, actions, environment)) {
+                put(createKey(createResourceKey(decision.getResource()), subjectKey, decision.getAction(),
+                    environmentKey), decision);
+                decisions.add(decision);
+            }
+        }
+        return decisions;
+    }
+
+    private synchronized Decision get(final String key) {
+        checkPolicies();
+        final CachedDecision entry = cache.get(key);
+        if (null != entry && entry.expires > System.currentTimeMillis()) {
+            hitCount++;
+            return entry.decision;
+        }
+        if (null != entry) {
+            cache.remove(key);
+        }
+        missCount++;
+        return null;
+    }
+
+    private synchronized void put(final String key, final Decision decision) {
+        cache.put(key, new CachedDecision(decision, System.currentTimeMillis() + ttl));
+    }
+
+    /**
+     * Discard all cached decisions if the policy files have changed
+     */
+    private void checkPolicies() {
+        if (!(authorization instanceof SAREAuthorization)) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        if (now - lastPolicyCheck < policyCheckInterval) {
+            return;
+        }
+        lastPolicyCheck = now;
+        final long version = ((SAREAuthorization) authorization).refreshPolicies();
+        if (version != policyVersion) {
+            if (policyVersion >= 0) {
+                invalidate();
+            }
+            policyVersion = version;
+        }
+    }
+
+    /**
+     * Discard all cached decisions
+     */
+    public synchronized void invalidate() {
+        cache.clear();
+        invalidationCount++;
+    }
+
+    static String createKey(final Map<String, String> resource, final Subject subject, final String action,
+                            final Set<Attribute> environment) {
+        return createKey(createResourceKey(resource), createSubjectKey(subject), action, createEnvironmentKey(
+            environment));
+    }
+
+    private static String createKey(final String resourceKey, final String subjectKey, final String action,
+                                    final String environmentKey) {
+        final StringBuilder sb = new StringBuilder();
+        append(sb, resourceKey);
+        append(sb, subjectKey);
+        append(sb, action);
+        append(sb, environmentKey);
+        return sb.toString();
+    }
+
+    /**
+     * Return a key for the resource map, independent of the map entry order
+     */
+    static String createResourceKey(final Map<String, String> resource) {
+        if (null == resource) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (final Map.Entry<String, String> entry : new TreeMap<String, String>(resource).entrySet()) {
+            append(sb, entry.getKey());
+            append(sb, entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return a key for the sorted set of principals of the subject
+     */
+    static String createSubjectKey(final Subject subject) {
+        if (null == subject) {
+            return null;
+        }
+        final TreeSet<String> principals = new TreeSet<String>();
+        for (final Principal principal : subject.getPrincipals()) {
+            principals.add(principal.getClass().getName() + ":" + principal.getName());
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (final String principal : principals) {
+            append(sb, principal);
+        }
+        return sb.toString();
+    }
+
+    static String createEnvironmentKey(final Set<Attribute> environment) {
+        if (null == environment) {
+            return null;
+        }
+        final TreeSet<String> attributes = new TreeSet<String>();
+        for (final Attribute attribute : environment) {
+            attributes.add(attribute.property + "=" + attribute.value);
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (final String attribute : attributes) {
+            append(sb, attribute);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Append a length-prefixed value, so that keys cannot be ambiguous
+     */
+    private static void append(final StringBuilder sb, final String value) {
+        if (null == value) {
+            sb.append("-1:");
+        } else {
+            sb.append(value.length()).append(':').append(value);
+        }
+    }
+
+    public Authorization getAuthorization() {
+        return authorization;
+    }
+
+    public synchronized void setPolicyCheckInterval(final long policyCheckInterval) {
+        this.policyCheckInterval = policyCheckInterval;
+    }
+
+    public synchronized int getSize() {
+        return cache.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Return the ratio of hits to all lookups, or 0 if there have been no lookups
+     */
+    public synchronized double getHitRatio() {
+        final long total = hitCount + missCount;
+        return total > 0 ? (double) hitCount / total : 0;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * Return a map of the cache statistics
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        final HashMap<String, Object> stats = new HashMap<String, Object>();
+        stats.put("size", getSize());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", getHitRatio());
+        stats.put("evictions", evictionCount);
+        stats.put("invalidations", invalidationCount);
+        return stats;
+    }
+}
@@ -40,6 +40,15 @@ public class Policies {
         this.cache = cache;
     }
 
+    /**
+     * Reload any changed policy files
+     *
+     * @return the version of the loaded policies, which changes whenever a policy file is loaded or removed
+     */
+    public long refresh() {
+        return cache.refresh();
+    }
+
     public int count() {
         int count = 0;
         for (PolicyCollection f : cache) {
@@ -51,10 +51,12 @@ public class PoliciesCache implements Iterable<PolicyCollection> {
     };
     
     private Set<File> warned = new HashSet<File>();
+    private Set<File> parseWarned = new HashSet<File>();
     private HashMap<File, PolicyCollection> cache = new HashMap<File, PolicyCollection>();
     private HashMap<File, Long> expiry = new HashMap<File, Long>();
     private DocumentBuilder builder;
     private File rootDir;
+    private long version;
 
     public PoliciesCache(File rootDir) throws ParserConfigurationException {
         this.rootDir = rootDir;
@@ -94,7 +96,9 @@ public class PoliciesCache implements Iterable<PolicyCollection> {
     public synchronized PolicyCollection getDocument(final File file) throws PoliciesParseException {
         if(!file.exists()) {
             expiry.remove(file);
-            cache.remove(file);
+            if (null != cache.remove(file)) {
+                version++;
+            }
             return null;
         }
         final long lastmod = file.lastModified();
@@ -105,6 +109,7 @@ public class PoliciesCache implements Iterable<PolicyCollection> {
             if (null != entry) {
                 expiry.put(file, lastmod);
                 cache.put(file, entry);
+                version++;
             }
         } else {
             entry = cache.get(file);
@@ -112,6 +117,44 @@ public class PoliciesCache implements Iterable<PolicyCollection> {
         return entry;
     }
 
+    /**
+     * Reload any policy files in the directory which have been added or modified, and forget any which have been
+     * removed.
+     *
+     * @return the version of the cache, which changes whenever a policy file is loaded or removed
+     */
+    public synchronized long refresh() {
+        final File[] files = listDirFiles();
+        final HashSet<File> current = new HashSet<File>();
+        if (null != files) {
+            for (final File file : files) {
+                current.add(file);
+                try {
+                    getDocument(file);
+                } catch (PoliciesParseException e) {
+                    if (parseWarned.add(file)) {
+                        logger.warn("Unable to parse aclpolicy: " + file + ". Reason " + e.getMessage());
+                    }
+                }
+            }
+        }
+        for (final File file : new ArrayList<File>(cache.keySet())) {
+            if (!current.contains(file)) {
+                cache.remove(file);
+                expiry.remove(file);
+                version++;
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Return the version of the cache, which changes whenever a policy file is loaded or removed
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
     public Iterator<PolicyCollection> iterator() {
         final File[] files = listDirFiles();
         return new cacheIterator(null!=files?Arrays.asList(files).iterator(): new ArrayList<File>().iterator());
@@ -84,18 +84,7 @@ public class SAREAuthorization implements Authorization {
         
         long start = System.currentTimeMillis();
         
-        if(resource == null) {
-            throw new IllegalArgumentException("Resource does not identify any resource because it's an empty resource property or null.");
-        } else {
-            for(Map.Entry<String, String> entry : resource.entrySet()) {
-                if(entry.getKey() == null) {
-                    throw new IllegalArgumentException("Resource definition cannot contain null property name.");
-                }
-                if(entry.getValue() == null) {
-                    throw new IllegalArgumentException("Resource definition cannot contain null value.  Corresponding key: " + entry.getKey());
-                }
-            }
-        }
+        validateResource(resource);
         
         if(subject == null) throw new IllegalArgumentException("Invalid subject, subject is null.");
         if(action == null || action.length() <= 0) {
@@ -112,6 +101,31 @@ public class SAREAuthorization implements Authorization {
         List<AclContext> contexts = policies.narrowContext(subject, environment);
         //long narrowDuration = System.currentTimeMillis() - narrowStart;
         
+        return evaluateContexts(contexts, resource, subject, action, environment, start);
+    }
+
+    private static void validateResource(final Map<String, String> resource) {
+        if(resource == null) {
+            throw new IllegalArgumentException("Resource does not identify any resource because it's an empty resource property or null.");
+        } else {
+            for(Map.Entry<String, String> entry : resource.entrySet()) {
+                if(entry.getKey() == null) {
+                    throw new IllegalArgumentException("Resource definition cannot contain null property name.");
+                }
+                if(entry.getValue() == null) {
+                    throw new IllegalArgumentException("Resource definition cannot contain null value.  Corresponding key: " + entry.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Produce a decision for the resource and action from the contexts already narrowed for the subject and
+     * environment.
+     */
+    private static Decision evaluateContexts(final List<AclContext> contexts, final Map<String, String> resource,
+                                             final Subject subject, final String action,
+                                             final Set<Attribute> environment, final long start) {
         if(contexts.size() <= 0) {
             return authorize(false, "No context matches subject or environment", Code.REJECTED_NO_SUBJECT_OR_ENV_FOUND, resource, subject, action, environment, System.currentTimeMillis() - start);
         }
@@ -121,12 +135,10 @@ public class SAREAuthorization implements Authorization {
 
         //long contextIncludeStart = System.currentTimeMillis();
         boolean granted=false;
-        boolean denied=false;
         for(AclContext ctx : contexts) {
             final ContextDecision includes = ctx.includes(resource, action);
             if (Code.REJECTED_DENIED == includes.getCode()) {
                 contextDecision = includes;
-                denied=true;
                 return createAuthorize(false, contextDecision, resource, subject, action, environment,
                     System.currentTimeMillis() - start);
             }else if (includes.granted()) {
@@ -162,18 +174,49 @@ public class SAREAuthorization implements Authorization {
         return decision;
     }
 
+    /**
+     * Evaluate all of the resources and actions for the subject.  The policy contexts are narrowed once for the subject
+     * and environment, and then applied to each resource and action.  Individual decisions are logged at DEBUG level,
+     * and a summary is logged at INFO level.
+     */
     public Set<Decision> evaluate(Set<Map<String, String>> resources, Subject subject, Set<String> actions,
             Set<Attribute> environment) {
         
-        Set<Decision> decisions = new HashSet<Decision>();
-        long duration=0;
+        final long start = System.currentTimeMillis();
+        if(subject == null) throw new IllegalArgumentException("Invalid subject, subject is null.");
+        if(environment == null) {
+            environment = Collections.emptySet();
+        }
+        final List<AclContext> contexts = policies.narrowContext(subject, environment);
+
+        final Set<Decision> decisions = new HashSet<Decision>();
+        int granted = 0;
         for(Map<String, String> resource: resources) {
+            validateResource(resource);
             for(String action: actions) {
-                final Decision decision = evaluate(resource, subject, action, environment);
-                duration += decision.evaluationDuration();
+                final long decisionStart = System.currentTimeMillis();
+                final Decision decision;
+                if (action == null || action.length() <= 0) {
+                    decision = authorize(false, "No action provided.", Code.REJECTED_NO_ACTION_PROVIDED, resource,
+                        subject, action, environment, 0);
+                } else {
+                    this.decisionsMade++;
+                    decision = evaluateContexts(contexts, resource, subject, action, environment, decisionStart);
+                }
+                if (decision.isAuthorized()) {
+                    granted++;
+                }
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Evaluating " + decision + " (" + decision.evaluationDuration() + "ms)");
+                }
                 decisions.add(decision);
             }
         }
+        if (logger.isInfoEnabled()) {
+            logger.info("Evaluated " + decisions.size() + " decisions for " + resources.size() + " resources and "
+                        + actions.size() + " actions, " + granted + " authorized ("
+                        + (System.currentTimeMillis() - start) + "ms)");
+        }
         return decisions;
     }
     
@@ -266,6 +309,15 @@ public class SAREAuthorization implements Authorization {
         };
     }  
 
+    /**
+     * Reload any changed policy files
+     *
+     * @return the version of the loaded policies, which changes whenever a policy file is loaded or removed
+     */
+    public long refreshPolicies() {
+        return policies.refresh();
+    }
+
     @Override
     public String toString() {
         return getClass().getName() + " (" + this.policies.count() + ") [" + this.baseDirectory.toString() + "]";
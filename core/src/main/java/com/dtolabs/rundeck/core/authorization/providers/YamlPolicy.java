@@ -310,12 +310,86 @@ final class YamlPolicy implements Policy {
      * Produces decision for a resource, from a list of context matcher rules. if any matching rule produces a
      * REJECTED_DENIED result, then the decision is REJECTED_DENIED.  Otherwise if any rule produces a GRANTED decision,
      * the decision is GRANTED. Otherwise the decision is REJECTED.
+     * <p/>
+     * Rules which require an exact value for a resource attribute in their "equals" section are indexed by that value,
+     * using the attribute key shared by the most rules, so that only rules which could match a resource are evaluated.
      */
     static class TypeContext implements AclContext {
         private final List<ContextMatcher> typeRules;
+        private String indexKey;
+        private final Map<String, List<Integer>> indexedRules = new HashMap<String, List<Integer>>();
+        private final List<Integer> unindexedRules = new ArrayList<Integer>();
 
         public TypeContext(final List<ContextMatcher> typeRules) {
             this.typeRules = typeRules;
+            createIndex();
+        }
+
+        private void createIndex() {
+            final HashMap<String, Integer> keyCounts = new HashMap<String, Integer>();
+            for (final ContextMatcher matcher : typeRules) {
+                if (matcher instanceof TypeRuleContextMatcher) {
+                    for (final String key : ((TypeRuleContextMatcher) matcher).getEqualsValues().keySet()) {
+                        final Integer count = keyCounts.get(key);
+                        keyCounts.put(key, null == count ? 1 : count + 1);
+                    }
+                }
+            }
+            int max = 0;
+            for (final Map.Entry<String, Integer> entry : keyCounts.entrySet()) {
+                if (entry.getValue() > max) {
+                    max = entry.getValue();
+                    indexKey = entry.getKey();
+                }
+            }
+            for (int i = 0; i < typeRules.size(); i++) {
+                final ContextMatcher matcher = typeRules.get(i);
+                final String value = null != indexKey && matcher instanceof TypeRuleContextMatcher
+                                     ? ((TypeRuleContextMatcher) matcher).getEqualsValues().get(indexKey) : null;
+                if (null != value) {
+                    if (null == indexedRules.get(value)) {
+                        indexedRules.put(value, new ArrayList<Integer>());
+                    }
+                    indexedRules.get(value).add(i);
+                } else {
+                    unindexedRules.add(i);
+                }
+            }
+        }
+
+        /**
+         * Return the rules which could match the resource, in their declared order
+         */
+        List<ContextMatcher> candidateRules(final Map<String, String> resource) {
+            if (null == indexKey) {
+                return typeRules;
+            }
+            final String value = resource.get(indexKey);
+            final List<Integer> indexed = null != value ? indexedRules.get(value) : null;
+            if (null == indexed) {
+                return rulesAt(unindexedRules);
+            }
+            //merge the two ordered lists of rule positions
+            final ArrayList<ContextMatcher> rules = new ArrayList<ContextMatcher>(unindexedRules.size()
+                                                                                  + indexed.size());
+            int a = 0;
+            int b = 0;
+            while (a < unindexedRules.size() || b < indexed.size()) {
+                if (b >= indexed.size() || (a < unindexedRules.size() && unindexedRules.get(a) < indexed.get(b))) {
+                    rules.add(typeRules.get(unindexedRules.get(a++)));
+                } else {
+                    rules.add(typeRules.get(indexed.get(b++)));
+                }
+            }
+            return rules;
+        }
+
+        private List<ContextMatcher> rulesAt(final List<Integer> positions) {
+            final ArrayList<ContextMatcher> rules = new ArrayList<ContextMatcher>(positions.size());
+            for (final Integer position : positions) {
+                rules.add(typeRules.get(position));
+            }
+            return rules;
         }
 
         public ContextDecision includes(final Map<String, String> resource, final String action) {
@@ -323,7 +397,7 @@ final class YamlPolicy implements Policy {
             boolean allowed = false;
             boolean denied = false;
             ContextEvaluation deniedEvaluation;
-            for (final ContextMatcher matcher : typeRules) {
+            for (final ContextMatcher matcher : candidateRules(resource)) {
                 final MatchedContext matched = matcher.includes(resource, action);
                 if (!matched.isMatched()) {
                     //indicates the section did not match
@@ -410,6 +484,13 @@ final class YamlPolicy implements Policy {
         Map ruleSection;
         int index;
         YamlPolicy policy;
+        private String identity;
+        private final List<AttributeTest> matchTests;
+        private final List<AttributeTest> equalsTests;
+        private final List<AttributeTest> containsTests;
+        private final Map<String, String> equalsValues = new HashMap<String, String>();
+        private final ActionsSection denyActions;
+        private final ActionsSection allowActions;
 
 
         TypeRuleContextMatcher(final Map ruleSection, final int index) {
@@ -419,6 +500,33 @@ final class YamlPolicy implements Policy {
             this.ruleSection = ruleSection;
             this.index = index;
             this.policy = policy;
+            matchTests = compileSection(MATCH_SECTION, true, new Converter<String, Predicate>() {
+                public Predicate convert(final String o) {
+                    return new RegexPredicate(patternForRegex(o));
+                }
+            });
+            equalsTests = compileSection(EQUALS_SECTION, false, new Converter<String, Predicate>() {
+                public Predicate convert(final String o) {
+                    return PredicateUtils.equalPredicate(o);
+                }
+            });
+            containsTests = compileSection(CONTAINS_SECTION, true, new Converter<String, Predicate>() {
+                public Predicate convert(final String o) {
+                    return new SetContainsPredicate(o);
+                }
+            });
+            if (null != equalsTests && ruleSection.get(EQUALS_SECTION) instanceof Map) {
+                for (final Object o : ((Map) ruleSection.get(EQUALS_SECTION)).entrySet()) {
+                    final Map.Entry entry = (Map.Entry) o;
+                    if (entry.getValue() instanceof String) {
+                        equalsValues.put((String) entry.getKey(), (String) entry.getValue());
+                    }
+                }
+            }
+            denyActions = ruleSection.containsKey(DENY_ACTIONS) ? new ActionsSection(ruleSection.get(DENY_ACTIONS))
+                                                                : null;
+            allowActions = ruleSection.containsKey(ALLOW_ACTIONS) ? new ActionsSection(ruleSection.get(
+                ALLOW_ACTIONS)) : null;
         }
 
         @Override
@@ -427,7 +535,18 @@ final class YamlPolicy implements Policy {
         }
 
         private String identify() {
-            return (null!=policy?policy.identify():"(unknown policy)")+"[rule: " + index + ": " + ruleSection + "]";
+            if (null == identity) {
+                identity = (null != policy ? policy.identify() : "(unknown policy)") + "[rule: " + index + ": "
+                           + ruleSection + "]";
+            }
+            return identity;
+        }
+
+        /**
+         * Return the map of resource attribute keys to the exact values required by the "equals" section
+         */
+        Map<String, String> getEqualsValues() {
+            return equalsValues;
         }
 
         private static ConcurrentHashMap<String, Pattern> patternCache = new ConcurrentHashMap<String, Pattern>();
@@ -458,27 +577,45 @@ final class YamlPolicy implements Policy {
             return new MatchedContext(true, evaluateActions(action, evaluations));
         }
 
-        ContextDecision evaluateActions(final String action, final List<ContextEvaluation> evaluations) {
-            //evaluate actions
-            boolean denied = false;
+        /**
+         * The set of actions declared in an allow or deny section
+         */
+        private static class ActionsSection {
+            final HashSet<String> actions = new HashSet<String>();
+            final boolean valid;
+            String description;
 
-            if (ruleSection.containsKey(DENY_ACTIONS)) {
-                final HashSet<String> actions = new HashSet<String>();
-                final Object actionsObj = ruleSection.get(DENY_ACTIONS);
+            ActionsSection(final Object actionsObj) {
                 if (actionsObj instanceof String) {
-                    final String actionStr = (String) actionsObj;
-                    actions.add(actionStr);
+                    actions.add((String) actionsObj);
+                    valid = true;
                 } else if (actionsObj instanceof List) {
                     actions.addAll((List<String>) actionsObj);
+                    valid = true;
                 } else {
+                    valid = false;
+                }
+            }
+
+            boolean includes(final String action) {
+                return actions.contains("*") || actions.contains(action);
+            }
+        }
+
+        ContextDecision evaluateActions(final String action, final List<ContextEvaluation> evaluations) {
+            //evaluate actions
+            boolean denied = false;
+
+            if (null != denyActions) {
+                if (!denyActions.valid) {
                     evaluations.add(new ContextEvaluation(Explanation.Code.REJECTED_CONTEXT_EVALUATION_ERROR,
                         "Invalid action type."));
                 }
-                if (0 == actions.size()) {
+                if (0 == denyActions.actions.size()) {
                     logger.warn(identify() + ": No actions defined in Deny section");
-                } else if (actions.contains("*") || actions.contains(action)) {
+                } else if (denyActions.includes(action)) {
                     evaluations.add(new ContextEvaluation(Explanation.Code.REJECTED_DENIED,
-                        this + " for actions: " + actions));
+                        describeActions(denyActions)));
                     denied = true;
                 }
             }
@@ -486,23 +623,16 @@ final class YamlPolicy implements Policy {
                 return new ContextDecision(Explanation.Code.REJECTED_DENIED, false, evaluations);
             }
             boolean allowed = false;
-            if (ruleSection.containsKey(ALLOW_ACTIONS)) {
-                final HashSet<String> actions = new HashSet<String>();
-                final Object actionsObj = ruleSection.get(ALLOW_ACTIONS);
-                if (actionsObj instanceof String) {
-                    final String actionStr = (String) actionsObj;
-                    actions.add(actionStr);
-                } else if (actionsObj instanceof List) {
-                    actions.addAll((List<String>) actionsObj);
-                } else {
+            if (null != allowActions) {
+                if (!allowActions.valid) {
                     evaluations.add(new ContextEvaluation(Explanation.Code.REJECTED_CONTEXT_EVALUATION_ERROR,
                         "Invalid action type."));
                 }
-                if (0 == actions.size()) {
+                if (0 == allowActions.actions.size()) {
                     logger.warn(identify() + ": No actions defined in Allow section");
-                } else if (actions.contains("*") || actions.contains(action)) {
+                } else if (allowActions.includes(action)) {
                     evaluations.add(new ContextEvaluation(Explanation.Code.GRANTED_ACTIONS_AND_COMMANDS_MATCHED,
-                        this + " for actions: " + actions));
+                        describeActions(allowActions)));
                     allowed = true;
                 }
             }
@@ -514,6 +644,13 @@ final class YamlPolicy implements Policy {
             }
         }
 
+        private String describeActions(final ActionsSection section) {
+            if (null == section.description) {
+                section.description = this + " for actions: " + section.actions;
+            }
+            return section.description;
+        }
+
         /**
          * Return true if all of the defined rule sections match for the specified resource. If no rule sections exist,
          * then the result is true.
@@ -522,9 +659,9 @@ final class YamlPolicy implements Policy {
             int matchesRequired = 0;
             int matchesMet = 0;
             //evaluate match:
-            if (ruleSection.containsKey(MATCH_SECTION)) {
+            if (null != matchTests) {
                 matchesRequired++;
-                if (ruleMatchesMatchSection(resource, this.ruleSection)) {
+                if (applyTests(resource, matchTests)) {
                     matchesMet++;
                 } else {
                     evaluations.add(new ContextEvaluation(Explanation.Code.REJECTED,
@@ -532,9 +669,9 @@ final class YamlPolicy implements Policy {
                 }
             }
             //evaluate equals:
-            if (ruleSection.containsKey(EQUALS_SECTION)) {
+            if (null != equalsTests) {
                 matchesRequired++;
-                if (ruleMatchesEqualsSection(resource, this.ruleSection)) {
+                if (applyTests(resource, equalsTests)) {
                     matchesMet++;
                 } else {
                     evaluations.add(new ContextEvaluation(Explanation.Code.REJECTED,
@@ -543,9 +680,9 @@ final class YamlPolicy implements Policy {
             }
 
             //evaluate contains:
-            if (ruleSection.containsKey(CONTAINS_SECTION)) {
+            if (null != containsTests) {
                 matchesRequired++;
-                if (ruleMatchesContainsSection(resource, this.ruleSection)) {
+                if (applyTests(resource, containsTests)) {
                     matchesMet++;
                 } else {
                     evaluations.add(new ContextEvaluation(Explanation.Code.REJECTED,
@@ -555,6 +692,18 @@ final class YamlPolicy implements Policy {
             return matchesMet == matchesRequired;
         }
 
+        /**
+         * Return true if all of the tests pass for the resource
+         */
+        private static boolean applyTests(final Map<String, String> resource, final List<AttributeTest> tests) {
+            for (final AttributeTest test : tests) {
+                if (!test.evaluate(resource)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         boolean ruleMatchesContainsSection(final Map<String, String> resource, final Map ruleSection) {
             final Map section = (Map) ruleSection.get(CONTAINS_SECTION);
             return predicateMatchRules(section, resource, true, new Converter<String, Predicate>() {
@@ -620,6 +769,49 @@ final class YamlPolicy implements Policy {
         boolean applyTest(final Map<String, String> resource, final boolean allowListMatch,
                           final Converter<String, Predicate> predicateTransformer, final String key,
                           final Object test) {
+            return new AttributeTest(key, compileTest(allowListMatch, predicateTransformer, test)).evaluate(resource);
+        }
+
+        /**
+         * Compile the entries of a rule section into attribute tests, or return null if the section is not present
+         *
+         * @param sectionName          name of the section
+         * @param allowListMatch       if true, allow the match value to be a list of values which much all pass the
+         *                             test
+         * @param predicateTransformer transformer to convert a String into a Predicate check
+         */
+        @SuppressWarnings ("rawtypes")
+        private List<AttributeTest> compileSection(final String sectionName, final boolean allowListMatch,
+                                                   final Converter<String, Predicate> predicateTransformer) {
+            if (!ruleSection.containsKey(sectionName)) {
+                return null;
+            }
+            final ArrayList<AttributeTest> tests = new ArrayList<AttributeTest>();
+            final Object section = ruleSection.get(sectionName);
+            if (!(section instanceof Map)) {
+                logger.error(identify() + ": cannot evaluate unexpected type for " + sectionName + " section: "
+                             + (null != section ? section.getClass().getName() : null));
+                tests.add(new AttributeTest(sectionName, null));
+                return tests;
+            }
+            for (final Object o : ((Map) section).entrySet()) {
+                final Map.Entry entry = (Map.Entry) o;
+                final String key = (String) entry.getKey();
+                tests.add(new AttributeTest(key, compileTest(allowListMatch, predicateTransformer, entry.getValue())));
+            }
+            return tests;
+        }
+
+        /**
+         * Return the list of predicates for a test, or null if the test cannot be evaluated
+         *
+         * @param allowListMatch       if true, allow the test to be a list of strings
+         * @param predicateTransformer a Converter<S,Predicate> to convert String to Predicate test
+         * @param test                 test to apply, can be a String, or List of Strings if allowListMatch is true
+         */
+        private List<Predicate> compileTest(final boolean allowListMatch,
+                                            final Converter<String, Predicate> predicateTransformer,
+                                            final Object test) {
 
             final ArrayList<Predicate> tests = new ArrayList<Predicate>();
             if (allowListMatch && test instanceof List) {
@@ -633,11 +825,38 @@ final class YamlPolicy implements Policy {
                 tests.add(predicateTransformer.convert((String) test));
             } else {
                 //unexpected format, do not match
-                logger.error(identify() + ": cannot evaluate unexpected type: " + test.getClass().getName());
-                return false;
+                logger.error(identify() + ": cannot evaluate unexpected type: " + (null != test ? test.getClass()
+                    .getName() : null));
+                return null;
             }
+            return tests;
+        }
 
-            return PredicateUtils.allPredicate(tests).evaluate(resource.get(key));
+        /**
+         * A test of a resource attribute, which passes if all of the predicates evaluate to true for the attribute
+         * value.  A null list of predicates never passes.
+         */
+        static class AttributeTest {
+            final String key;
+            final List<Predicate> predicates;
+
+            AttributeTest(final String key, final List<Predicate> predicates) {
+                this.key = key;
+                this.predicates = predicates;
+            }
+
+            boolean evaluate(final Map<String, String> resource) {
+                if (null == predicates) {
+                    return false;
+                }
+                final String value = resource.get(key);
+                for (final Predicate predicate : predicates) {
+                    if (!predicate.evaluate(value)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
         }
 
     }
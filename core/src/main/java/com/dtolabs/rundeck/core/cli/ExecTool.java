@@ -31,6 +31,7 @@ import com.dtolabs.rundeck.core.execution.workflow.steps.node.impl.ExecCommandBa
 import com.dtolabs.rundeck.core.execution.workflow.steps.node.impl.ScriptURLCommandBase;
 import com.dtolabs.rundeck.core.execution.workflow.steps.node.impl.ScriptFileCommandBase;
 import com.dtolabs.rundeck.core.execution.script.ScriptfileUtils;
+import com.dtolabs.rundeck.core.execution.script.ScriptfileCache;
 import com.dtolabs.rundeck.core.plugins.configuration.ConfigurationException;
 import com.dtolabs.rundeck.core.resources.FileResourceModelSource;
 import com.dtolabs.rundeck.core.resources.ResourceModelSourceException;
@@ -1162,6 +1163,10 @@ public class ExecTool implements CLITool,IDispatchedScript,CLILoggerParams, Step
         return nodesFile;
     }
 
+    public ScriptfileCache getScriptfileCache() {
+        return null;
+    }
+
     /**
      * Return true if exclusion should have precedence in node filter args
      * @param args all commandline args
@@ -32,13 +32,14 @@ import java.util.*;
  */
 public class AdditiveListNodeSet implements INodeSet {
     List<INodeSet> nodeSetList;
-    TreeSet<String> nodeNames;
-    HashMap<String,INodeSet> nodeIndex;
+    /**
+     * The last node set containing each node name
+     */
+    TreeMap<String, INodeSet> nodeIndex;
 
     public AdditiveListNodeSet() {
         nodeSetList = new ArrayList<INodeSet>();
-        nodeNames = new TreeSet<String>();
-        nodeIndex=new HashMap<String, INodeSet>();
+        nodeIndex = new TreeMap<String, INodeSet>();
     }
 
     public void addNodeSet(final INodeSet nodeSet) {
@@ -46,33 +47,49 @@ public class AdditiveListNodeSet implements INodeSet {
             return;
         }
         nodeSetList.add(nodeSet);
-        nodeNames.addAll(nodeSet.getNodeNames());
         for (final String name : nodeSet.getNodeNames()) {
             nodeIndex.put(name, nodeSet);
         }
     }
 
+    /**
+     * Return a view of the nodes, ordered by name
+     */
     public Collection<INodeEntry> getNodes() {
-        final ArrayList<INodeEntry> nodes = new ArrayList<INodeEntry>();
-        for (final String nodeName : nodeNames) {
-            nodes.add(nodeIndex.get(nodeName).getNode(nodeName));
-        }
-        return nodes;
+        return new AbstractCollection<INodeEntry>() {
+            @Override
+            public Iterator<INodeEntry> iterator() {
+                final Iterator<Map.Entry<String, INodeSet>> entries = nodeIndex.entrySet().iterator();
+                return new Iterator<INodeEntry>() {
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    public INodeEntry next() {
+                        final Map.Entry<String, INodeSet> entry = entries.next();
+                        return entry.getValue().getNode(entry.getKey());
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return nodeIndex.size();
+            }
+        };
     }
 
     public INodeEntry getNode(final String name) {
-        INodeEntry result = null;
-        for (final INodeSet iNodeSet : nodeSetList) {
-            final INodeEntry node = iNodeSet.getNode(name);
-            if (null != node) {
-                result = node;
-            }
-        }
-        return result;
+        final INodeSet nodeSet = nodeIndex.get(name);
+        return null != nodeSet ? nodeSet.getNode(name) : null;
     }
 
     public Collection<String> getNodeNames() {
-        return nodeNames;
+        return nodeIndex.keySet();
     }
 
     @Override
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2011 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.common;
+
+import java.util.*;
+
+/**
+ * CompactNodeEntry is an immutable node entry which stores its attribute values in an array, indexed by a set of
+ * attribute names which is shared by all nodes with the same attribute names.  Nodes created by the same {@link
+ * CompactNodeFactory} also share equal attribute values and tag sets.
+ * <p/>
+ * The attributes and tags returned are unmodifiable.
+ */
+public class CompactNodeEntry implements INodeEntry, INodeDesc {
+    private final AttributeNames names;
+    private final String[] values;
+    private final Set tags;
+    private final String project;
+
+    CompactNodeEntry(final AttributeNames names, final String[] values, final Set tags, final String project) {
+        this.names = names;
+        this.values = values;
+        this.tags = tags;
+        this.project = project;
+    }
+
+    /**
+     * Return the value of an attribute
+     *
+     * @param name attribute name
+     *
+     * @return attribute value, or null if it is not set
+     */
+    public String getAttribute(final String name) {
+        final int index = names.indexOf(name);
+        return index >= 0 ? values[index] : null;
+    }
+
+    public Map<String, String> getAttributes() {
+        return new AttributeMap();
+    }
+
+    public Set getTags() {
+        return tags;
+    }
+
+    public String getNodename() {
+        return getAttribute(NodeEntryImpl.NAME);
+    }
+
+    public String getHostname() {
+        return getAttribute(NodeEntryImpl.HOSTNAME);
+    }
+
+    public String getOsFamily() {
+        return getAttribute(NodeEntryImpl.OS_FAMILY);
+    }
+
+    public String getOsArch() {
+        return getAttribute(NodeEntryImpl.OS_ARCH);
+    }
+
+    public String getOsVersion() {
+        return getAttribute(NodeEntryImpl.OS_VERSION);
+    }
+
+    public String getOsName() {
+        return getAttribute(NodeEntryImpl.OS_NAME);
+    }
+
+    public String getUsername() {
+        return getAttribute(NodeEntryImpl.USERNAME);
+    }
+
+    public String getDescription() {
+        return getAttribute(NodeEntryImpl.DESCRIPTION);
+    }
+
+    public String getFrameworkProject() {
+        return project;
+    }
+
+    public boolean containsUserName() {
+        return NodeEntryImpl.containsUserName(getHostname());
+    }
+
+    public boolean containsPort() {
+        return NodeEntryImpl.containsPort(getHostname());
+    }
+
+    public String extractUserName() {
+        final String username = getUsername();
+        if (null != username && !"".equals(username)) {
+            return username;
+        }
+        return NodeEntryImpl.extractUserName(getHostname());
+    }
+
+    public String extractHostname() {
+        return NodeEntryImpl.extractHostname(getHostname());
+    }
+
+    public String extractPort() {
+        return NodeEntryImpl.extractPort(getHostname());
+    }
+
+    public boolean equals(final INodeDesc node) {
+        return getNodename().equals(node.getNodename());
+    }
+
+    /**
+     * Equal to any {@link INodeBase} with the same node name, as for {@link NodeBaseImpl}
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof INodeBase)) {
+            return false;
+        }
+        final String nodename = getNodename();
+        final String other = ((INodeBase) o).getNodename();
+        return null != nodename ? nodename.equals(other) : null == other;
+    }
+
+    @Override
+    public int hashCode() {
+        final String nodename = getNodename();
+        return null != nodename ? nodename.hashCode() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactNodeEntry{" +
+               "tags=" + tags +
+               ", attributes=" + getAttributes() +
+               ", project='" + project + '\'' +
+               '}';
+    }
+
+    /**
+     * Unmodifiable view of the attributes
+     */
+    private class AttributeMap extends AbstractMap<String, String> {
+        @Override
+        public String get(final Object key) {
+            return key instanceof String ? getAttribute((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return null != get(key);
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<Entry<String, String>>() {
+                        int next;
+
+                        public boolean hasNext() {
+                            return next < values.length;
+                        }
+
+                        public Entry<String, String> next() {
+                            if (next >= values.length) {
+                                throw new NoSuchElementException();
+                            }
+                            return new AttributeEntry(next++);
+                        }
+
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return values.length;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    /**
+     * Unmodifiable attribute entry
+     */
+    private class AttributeEntry implements Map.Entry<String, String> {
+        private final int index;
+
+        private AttributeEntry(final int index) {
+            this.index = index;
+        }
+
+        public String getKey() {
+            return names.getName(index);
+        }
+
+        public String getValue() {
+            return values[index];
+        }
+
+        public String setValue(final String value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry entry = (Map.Entry) o;
+            return getKey().equals(entry.getKey()) && getValue().equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * An ordered set of attribute names, shared by nodes with the same attribute names
+     */
+    static class AttributeNames {
+        private final String[] names;
+        private final Map<String, Integer> indexes;
+
+        AttributeNames(final String[] names) {
+            this.names = names;
+            indexes = new HashMap<String, Integer>();
+            for (int i = 0; i < names.length; i++) {
+                indexes.put(names[i], i);
+            }
+        }
+
+        int indexOf(final String name) {
+            final Integer index = indexes.get(name);
+            return null != index ? index : -1;
+        }
+
+        String getName(final int index) {
+            return names[index];
+        }
+
+        int size() {
+            return names.length;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2011 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.common;
+
+import java.util.*;
+
+/**
+ * CompactNodeFactory creates {@link CompactNodeEntry} copies of node entries.  Attribute names, equal attribute values
+ * and equal tag sets of the nodes it creates are shared, so a factory should be used for all nodes of a node set, such
+ * as all nodes parsed from a document.  It is not thread safe.
+ */
+public class CompactNodeFactory {
+    private final HashMap<String, String> strings = new HashMap<String, String>();
+    private final HashMap<List<String>, CompactNodeEntry.AttributeNames> attributeNames =
+        new HashMap<List<String>, CompactNodeEntry.AttributeNames>();
+    private final HashMap<Set, Set> tagSets = new HashMap<Set, Set>();
+
+    /**
+     * Return an immutable copy of the node
+     *
+     * @param node the node
+     */
+    public CompactNodeEntry create(final INodeEntry node) {
+        final TreeMap<String, String> attributes = new TreeMap<String, String>();
+        if (null != node.getAttributes()) {
+            for (final Map.Entry<String, String> entry : node.getAttributes().entrySet()) {
+                if (null != entry.getKey() && null != entry.getValue()) {
+                    attributes.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        //include the properties of nodes which do not also store them as attributes
+        putIfAbsent(attributes, NodeEntryImpl.NAME, node.getNodename());
+        putIfAbsent(attributes, NodeEntryImpl.HOSTNAME, node.getHostname());
+        putIfAbsent(attributes, NodeEntryImpl.OS_NAME, node.getOsName());
+        putIfAbsent(attributes, NodeEntryImpl.OS_FAMILY, node.getOsFamily());
+        putIfAbsent(attributes, NodeEntryImpl.OS_ARCH, node.getOsArch());
+        putIfAbsent(attributes, NodeEntryImpl.OS_VERSION, node.getOsVersion());
+        putIfAbsent(attributes, NodeEntryImpl.USERNAME, node.getUsername());
+        putIfAbsent(attributes, NodeEntryImpl.DESCRIPTION, node.getDescription());
+
+        final String[] names = new String[attributes.size()];
+        final String[] values = new String[attributes.size()];
+        int i = 0;
+        for (final Map.Entry<String, String> entry : attributes.entrySet()) {
+            names[i] = intern(entry.getKey());
+            values[i] = intern(entry.getValue());
+            i++;
+        }
+        return new CompactNodeEntry(getAttributeNames(names), values, getTags(node.getTags()),
+            intern(node.getFrameworkProject()));
+    }
+
+    private static void putIfAbsent(final Map<String, String> attributes, final String name, final String value) {
+        if (null != value && !attributes.containsKey(name)) {
+            attributes.put(name, value);
+        }
+    }
+
+    /**
+     * Return an equal string previously returned, or the string
+     */
+    private String intern(final String value) {
+        if (null == value) {
+            return null;
+        }
+        final String existing = strings.get(value);
+        if (null != existing) {
+            return existing;
+        }
+        strings.put(value, value);
+        return value;
+    }
+
+    private CompactNodeEntry.AttributeNames getAttributeNames(final String[] names) {
+        final List<String> key = Arrays.asList(names);
+        CompactNodeEntry.AttributeNames existing = attributeNames.get(key);
+        if (null == existing) {
+            existing = new CompactNodeEntry.AttributeNames(names);
+            attributeNames.put(key, existing);
+        }
+        return existing;
+    }
+
+    /**
+     * Return an unmodifiable set equal to the tags, shared with other nodes with the same tags
+     */
+    private Set getTags(final Set tags) {
+        final HashSet<Object> copy = new HashSet<Object>();
+        if (null != tags) {
+            for (final Object tag : tags) {
+                copy.add(tag instanceof String ? intern((String) tag) : tag);
+            }
+        }
+        Set existing = tagSets.get(copy);
+        if (null == existing) {
+            existing = Collections.unmodifiableSet(copy);
+            tagSets.put(copy, existing);
+        }
+        return existing;
+    }
+}
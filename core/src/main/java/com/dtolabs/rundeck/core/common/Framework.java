@@ -90,7 +90,7 @@ public class Framework extends FrameworkResourceParent {
     private boolean allowUserInput = true;
     private static final String FRAMEWORK_USERINPUT_DISABLED = "framework.userinput.disabled";
 
-    final HashMap<String,FrameworkSupportService> services = new HashMap<String, FrameworkSupportService>();
+    final HashMap<String,FrameworkSupportService> services;
     /**
      * This is the root. Does not return a parent.
      *
@@ -271,6 +271,7 @@ public class Framework extends FrameworkResourceParent {
             homeDir = new File(ctlhome);
         }
 
+        services = new HashMap<String, FrameworkSupportService>();
         this.authenticationMgr = authentication;
         this.authorizationMgr=authorization;
         long start = System.currentTimeMillis();
@@ -280,11 +281,51 @@ public class Framework extends FrameworkResourceParent {
             logger.debug("Framework.initialize() time: " + (end - start) + "ms");
         }
     }
+    /**
+     * Names of services which do not depend on the authorization of the Framework that created them, and can be
+     * shared by Frameworks created with {@link #getInstanceWithAuthorization(Framework, Authenticator,
+     * LegacyAuthorization)}
+     */
+    private static final String[] SHARED_SERVICES = {
+        PluginManagerService.SERVICE_NAME,
+        ResourceFormatParserService.SERVICE_NAME,
+        ResourceFormatGeneratorService.SERVICE_NAME,
+    };
+    /**
+     * Create a Framework which shares the configuration and project manager of another Framework, but uses its own
+     * authentication and authorization. Only the services in {@link #SHARED_SERVICES} are shared, other services are
+     * created for this Framework when needed, so that node dispatch and execution use this Framework's authorization.
+     *
+     * @param framework     the shared framework
+     * @param authentication the authenticator
+     * @param authorization  the authorization
+     */
+    private Framework(final Framework framework,
+                      final Authenticator authentication,
+                      final LegacyAuthorization authorization) {
+        super("framework", framework.getBaseDir(), null);
+        this.lookup = framework.lookup;
+        this.projectsBase = framework.projectsBase;
+        this.homeDir = framework.homeDir;
+        this.projectResourceMgr = framework.projectResourceMgr;
+        this.centralDispatcherMgr = framework.centralDispatcherMgr;
+        this.services = new HashMap<String, FrameworkSupportService>();
+        for (final String name : SHARED_SERVICES) {
+            final FrameworkSupportService service = framework.getService(name);
+            if (null != service) {
+                services.put(name, service);
+            }
+        }
+        this.authenticationMgr = authentication;
+        this.authorizationMgr = authorization;
+    }
     /**
      * Return a service by name
      */
     public FrameworkSupportService getService(String name) {
-        return services.get(name);
+        synchronized (services) {
+            return services.get(name);
+        }
     }
     /**
      * Set a service by name
@@ -401,6 +442,26 @@ public class Framework extends FrameworkResourceParent {
         return instance;
     }
 
+    /**
+     * Returns a Framework that shares the initialized configuration, project manager, plugin manager and resource
+     * format services of the given framework, but uses the specified authentication and authorization.  This avoids
+     * reloading the framework properties and plugins for each user.  Services which use the authorization, such as
+     * node dispatch, are created for the returned Framework.
+     *
+     * @param framework      an initialized framework
+     * @param authenticator  the authenticator, or null to use the one from the framework
+     * @param authorization  the authorization, or null to use the one from the framework
+     *
+     * @return a Framework instance
+     */
+    public static Framework getInstanceWithAuthorization(final Framework framework,
+                                                         final Authenticator authenticator,
+                                                         final LegacyAuthorization authorization) {
+        return new Framework(framework,
+                             null != authenticator ? authenticator : framework.getAuthenticationMgr(),
+                             null != authorization ? authorization : framework.getAuthorizationMgr());
+    }
+
     /**
      * Factory method to getting the singleton instance of the Framework object. Info about the
      * rdeck.base, projects.base and modules.base are retrieved via {@link Constants}.
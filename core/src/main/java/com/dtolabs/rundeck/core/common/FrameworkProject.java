@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -50,6 +51,10 @@ public class FrameworkProject extends FrameworkResourceParent {
     public static final String PROJECT_RESOURCES_ALLOWED_URL_PREFIX = "project.resources.allowedURL.";
     public static final String FRAMEWORK_RESOURCES_ALLOWED_URL_PREFIX = "framework.resources.allowedURL.";
     public static final String RESOURCES_SOURCE_PROP_PREFIX = "resources.source";
+    public static final String PROJECT_RESOURCES_CACHE_TTL_PROPERTY = "project.resources.cache.ttl";
+    public static final String RESOURCES_SOURCE_CACHE_TTL_SUFFIX = ".cache.ttl";
+    public static final String PROJECT_RESOURCES_TIMEOUT_PROPERTY = "project.resources.timeout";
+    public static final String RESOURCES_SOURCE_TIMEOUT_SUFFIX = ".timeout";
     /**
      * Reference to deployments base directory
      */
@@ -69,6 +74,7 @@ public class FrameworkProject extends FrameworkResourceParent {
      */
     private PropertyLookup lookup;
     private List<ResourceModelSource> nodesSourceList;
+    private List<Long> nodesSourceTimeouts;
 
     /**
      * Constructor
@@ -104,6 +110,7 @@ public class FrameworkProject extends FrameworkResourceParent {
         loadProperties();
 
         nodesSourceList = new ArrayList<ResourceModelSource>();
+        nodesSourceTimeouts = new ArrayList<Long>();
 
         initialize();
     }
@@ -159,7 +166,8 @@ public class FrameworkProject extends FrameworkResourceParent {
             try {
                 final Properties config = createFileSourceConfiguration();
                 logger.info("Source (project.resources.file): loading with properties: " + config);
-                nodesSourceList.add(loadResourceModelSource("file", config));
+                addResourceModelSource(loadResourceModelSource("file", config, getDefaultCacheTTL()),
+                    getDefaultTimeout());
             } catch (ExecutionServiceException e) {
                 logger.error("Failed to load file resource model source: " + e.getMessage(), e);
                 nodesSourceExceptions.add(e);
@@ -169,7 +177,8 @@ public class FrameworkProject extends FrameworkResourceParent {
             try{
                 final Properties config = createURLSourceConfiguration();
                 logger.info("Source (project.resources.url): loading with properties: " + config);
-                nodesSourceList.add(loadResourceModelSource("url", config));
+                addResourceModelSource(loadResourceModelSource("url", config, getDefaultCacheTTL()),
+                    getDefaultTimeout());
             } catch (ExecutionServiceException e) {
                 logger.error("Failed to load file resource model source: " + e.getMessage(), e);
                 nodesSourceExceptions.add(e);
@@ -184,7 +193,10 @@ public class FrameworkProject extends FrameworkResourceParent {
 
             logger.info("Source #" + i + " (" + providerType + "): loading with properties: " + props);
             try {
-                nodesSourceList.add(loadResourceModelSource(providerType, props));
+                final String prefix = RESOURCES_SOURCE_PROP_PREFIX + "." + i;
+                addResourceModelSource(loadResourceModelSource(providerType, props, getCacheTTL(
+                    prefix + RESOURCES_SOURCE_CACHE_TTL_SUFFIX)), getMillisProperty(
+                    prefix + RESOURCES_SOURCE_TIMEOUT_SUFFIX, PROJECT_RESOURCES_TIMEOUT_PROPERTY));
             } catch (ExecutionServiceException e) {
                 logger.error("Failed loading resource model source #" + i + ", skipping: " + e.getMessage(), e);
                 nodesSourceExceptions.add(e);
@@ -194,6 +206,11 @@ public class FrameworkProject extends FrameworkResourceParent {
 
         nodesSourcesLastReload = getPropertyFile().lastModified();
     }
+
+    private void addResourceModelSource(final ResourceModelSource source, final long timeout) {
+        nodesSourceList.add(source);
+        nodesSourceTimeouts.add(timeout);
+    }
     /**
      * list the configurations of resource model providers.  Returns a list of maps containing:
      * <li>type - provider type name</li>
@@ -242,16 +259,63 @@ public class FrameworkProject extends FrameworkResourceParent {
         final long lastMod = getPropertyFile().lastModified();
         if(lastMod> nodesSourcesLastReload){
             nodesSourceList = new ArrayList<ResourceModelSource>();
+            nodesSourceTimeouts = new ArrayList<Long>();
             loadResourceModelSources();
         }
         return nodesSourceList;
     }
 
-    private ResourceModelSource loadResourceModelSource(String type, Properties configuration) throws ExecutionServiceException {
+    private ResourceModelSource loadResourceModelSource(String type, Properties configuration, final long cacheTTL)
+        throws ExecutionServiceException {
 
         final ResourceModelSourceService nodesSourceService =
             getFrameworkProjectMgr().getFramework().getResourceModelSourceService();
-        return nodesSourceService.getSourceForConfiguration(type, configuration);
+        final ResourceModelSource source = nodesSourceService.getSourceForConfiguration(type, configuration);
+        if (cacheTTL <= 0) {
+            return source;
+        }
+        final String key = getName() + ":" + type + ":" + new TreeMap<Object, Object>(configuration);
+        return new CachingResourceModelSource(ResourceModelSourceCache.getInstance(), key, cacheTTL, source);
+    }
+
+    /**
+     * Return the cache time-to-live in milliseconds of the project resource model sources, or 0 if they are not
+     * cached
+     */
+    private long getDefaultCacheTTL() {
+        return getCacheTTL(PROJECT_RESOURCES_CACHE_TTL_PROPERTY);
+    }
+
+    /**
+     * Return the cache time-to-live in milliseconds configured in seconds by the property, or the project default
+     */
+    private long getCacheTTL(final String property) {
+        return getMillisProperty(property, PROJECT_RESOURCES_CACHE_TTL_PROPERTY);
+    }
+
+    /**
+     * Return the time in milliseconds to wait for the project resource model sources, or 0 to wait until they finish
+     */
+    private long getDefaultTimeout() {
+        return getMillisProperty(PROJECT_RESOURCES_TIMEOUT_PROPERTY, PROJECT_RESOURCES_TIMEOUT_PROPERTY);
+    }
+
+    /**
+     * Return a time in milliseconds configured in seconds by the property, or the default property, or 0 if neither
+     * is defined
+     */
+    private long getMillisProperty(final String property, final String defaultProperty) {
+        final String value = hasProperty(property) ? getProperty(property) : hasProperty(
+            defaultProperty) ? getProperty(defaultProperty) : null;
+        if (null == value) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value for " + property + ": " + value);
+            return 0;
+        }
     }
 
     private Properties createFileSourceConfiguration() {
@@ -371,25 +435,159 @@ public class FrameworkProject extends FrameworkResourceParent {
         }
     }
     /**
-     * Returns the set of nodes for the project
+     * Returns the set of nodes for the project.  The result is an {@link IndexedNodeSet}, which is rebuilt only when a
+     * resource model source returns a different set of nodes, and is shared by all callers.
+     * <p/>
+     * The resource model sources are invoked concurrently, and their nodes are merged in the configured order.  If a
+     * timeout is configured for a source with {@link #PROJECT_RESOURCES_TIMEOUT_PROPERTY} or
+     * "resources.source.N.timeout", its nodes are not used if it does not finish within the timeout.  Errors are
+     * available from {@link #getResourceModelSourceExceptions()}.
+     * <p/>
+     * If a cache time-to-live is configured for a source with {@link #PROJECT_RESOURCES_CACHE_TTL_PROPERTY}, or
+     * "resources.source.N.cache.ttl", its nodes are cached by the {@link ResourceModelSourceCache}.
      *
      * @return an instance of {@link INodeSet}
      */
     public INodeSet getNodeSet() throws NodeFileParserException {
-        //iterate through sources, and add nodes
+        final List<ResourceModelSource> sources;
+        final List<Long> timeouts;
+        final ArrayList<Exception> exceptions;
+        synchronized (this) {
+            nodesSourceExceptions = new ArrayList<Exception>();
+            sources = new ArrayList<ResourceModelSource>(getResourceModelSources());
+            timeouts = new ArrayList<Long>(nodesSourceTimeouts);
+            exceptions = nodesSourceExceptions;
+        }
+        //start all sources, then add the nodes in order
+        final long start = System.currentTimeMillis();
+        final List<FutureTask<INodeSet>> tasks = new ArrayList<FutureTask<INodeSet>>();
+        for (final ResourceModelSource nodesSource : sources) {
+            final FutureTask<INodeSet> task = new FutureTask<INodeSet>(new Callable<INodeSet>() {
+                public INodeSet call() throws Exception {
+                    final INodeSet nodes = nodesSource.getNodes();
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Got " + nodes.getNodes().size() + " nodes from [" + nodesSource + "] in "
+                                     + (System.currentTimeMillis() - start) + "ms");
+                    }
+                    return nodes;
+                }
+            });
+            if (sources.size() == 1 && timeouts.get(0) <= 0) {
+                task.run();
+            } else {
+                getSourceExecutor().execute(task);
+            }
+            tasks.add(task);
+        }
         final AdditiveListNodeSet list = new AdditiveListNodeSet();
-        nodesSourceExceptions = new ArrayList<Exception>();
-        for (final ResourceModelSource nodesSource : getResourceModelSources()) {
+        final ArrayList<INodeSet> sourceNodes = new ArrayList<INodeSet>();
+        for (int i = 0; i < sources.size(); i++) {
+            final ResourceModelSource nodesSource = sources.get(i);
+            final FutureTask<INodeSet> task = tasks.get(i);
+            final long timeout = timeouts.get(i);
             try {
-                list.addNodeSet(nodesSource.getNodes());
-            } catch (ResourceModelSourceException e) {
-                logger.error("Cannot get nodes from ["+nodesSource.toString()+"]: "+e.getMessage(), e);
-                nodesSourceExceptions.add(new ResourceModelSourceException(
-                    "Cannot get nodes from [" + nodesSource.toString() + "]: " + e.getMessage(), e));
+                final INodeSet nodes;
+                if (timeout > 0) {
+                    nodes = task.get(Math.max(0, start + timeout - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                } else {
+                    nodes = task.get();
+                }
+                list.addNodeSet(nodes);
+                sourceNodes.add(nodes);
+                if (nodesSource instanceof CachingResourceModelSource) {
+                    final Exception e = ((CachingResourceModelSource) nodesSource).getLastError();
+                    if (null != e) {
+                        exceptions.add(new ResourceModelSourceException(
+                            "Using cached nodes from [" + nodesSource.toString() + "], refresh failed: "
+                            + e.getMessage(), e));
+                    }
+                }
+            } catch (TimeoutException e) {
+                task.cancel(true);
+                logger.error("Timed out getting nodes from [" + nodesSource.toString() + "] after " + timeout + "ms");
+                exceptions.add(new ResourceModelSourceException(
+                    "Timed out getting nodes from [" + nodesSource.toString() + "] after " + timeout + "ms"));
+            } catch (InterruptedException e) {
+                task.cancel(true);
+                Thread.currentThread().interrupt();
+                exceptions.add(new ResourceModelSourceException(
+                    "Interrupted getting nodes from [" + nodesSource.toString() + "]", e));
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                final long duration = System.currentTimeMillis() - start;
+                logger.error("Cannot get nodes from [" + nodesSource.toString() + "] after " + duration + "ms: "
+                             + cause.getMessage(), cause);
+                exceptions.add(new ResourceModelSourceException(
+                    "Cannot get nodes from [" + nodesSource.toString() + "]: " + cause.getMessage(),
+                    (Exception) cause));
             }
         }
-        return list;
+        final String indexKey = getBaseDir().getAbsolutePath();
+        final IndexedNodes cached = indexedNodes.get(indexKey);
+        if (null != cached && cached.isFrom(sourceNodes)) {
+            return cached.nodes;
+        }
+        final IndexedNodes indexed = new IndexedNodes(sourceNodes, new IndexedNodeSet(list));
+        indexedNodes.put(indexKey, indexed);
+        return indexed.nodes;
+    }
+
+    private static ExecutorService sourceExecutor;
+
+    /**
+     * Return the executor which invokes resource model sources
+     */
+    private static synchronized ExecutorService getSourceExecutor() {
+        if (null == sourceExecutor) {
+            sourceExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "FrameworkProject resource model source");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sourceExecutor;
+    }
 
+    /**
+     * The last indexed nodes of each project, by project directory, shared by all instances so that cached resource
+     * model sources are not indexed again
+     */
+    private static final Map<String, IndexedNodes> indexedNodes =
+        Collections.synchronizedMap(new HashMap<String, IndexedNodes>());
+
+    /**
+     * The indexed nodes built from the node sets returned by the resource model sources
+     */
+    private static class IndexedNodes {
+        private final List<INodeSet> sources;
+        private final IndexedNodeSet nodes;
+
+        private IndexedNodes(final List<INodeSet> sources, final IndexedNodeSet nodes) {
+            this.sources = sources;
+            this.nodes = nodes;
+        }
+
+        /**
+         * Return true if the sources returned the same node set instances
+         */
+        private boolean isFrom(final List<INodeSet> sourceNodes) {
+            if (sourceNodes.size() != sources.size()) {
+                return false;
+            }
+            for (int i = 0; i < sources.size(); i++) {
+                if (sources.get(i) != sourceNodes.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 
     /**
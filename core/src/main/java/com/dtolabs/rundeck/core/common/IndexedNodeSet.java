@@ -0,0 +1,220 @@
+/*
+ * Copyright 2011 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.common;
+
+import com.dtolabs.rundeck.core.utils.NodeSet;
+
+import java.util.*;
+
+/**
+ * IndexedNodeSet is an immutable node set with inverted indexes of the node name, hostname, os properties, tags and
+ * attributes of its nodes, so that nodes with a given property value can be found without scanning the set.  The
+ * indexes contain the positions of the nodes in the set, which is sorted by node name, in ascending order.
+ * <p/>
+ * The nodes of the source set are indexed when it is created, and must not be modified afterward.  It can be shared by
+ * multiple threads.
+ */
+public class IndexedNodeSet implements INodeSet {
+    private final INodeEntry[] nodes;
+    private final List<INodeEntry> nodeList;
+    private final Map<String, Integer> positions;
+    private final Set<String> nodeNames;
+    private final Map<String, Map<String, Postings>> propertyIndex = new HashMap<String, Map<String, Postings>>();
+    private final Map<String, Map<String, Postings>> attributeIndex = new HashMap<String, Map<String, Postings>>();
+    private final Map<String, Postings> tagIndex = new HashMap<String, Postings>();
+
+    /**
+     * Create an index of the nodes of the set
+     *
+     * @param source the nodes
+     */
+    public IndexedNodeSet(final INodeSet source) {
+        final TreeMap<String, INodeEntry> sorted = new TreeMap<String, INodeEntry>();
+        for (final INodeEntry node : source.getNodes()) {
+            sorted.put(node.getNodename(), node);
+        }
+        nodes = sorted.values().toArray(new INodeEntry[sorted.size()]);
+        nodeList = Collections.unmodifiableList(Arrays.asList(nodes));
+        nodeNames = Collections.unmodifiableSet(sorted.keySet());
+        positions = new HashMap<String, Integer>();
+        for (int i = 0; i < nodes.length; i++) {
+            final INodeEntry node = nodes[i];
+            positions.put(node.getNodename(), i);
+            addPosting(propertyIndex, NodeSet.NAME, node.getNodename(), i);
+            addPosting(propertyIndex, NodeSet.HOSTNAME, node.getHostname(), i);
+            addPosting(propertyIndex, NodeSet.OS_NAME, node.getOsName(), i);
+            addPosting(propertyIndex, NodeSet.OS_FAMILY, node.getOsFamily(), i);
+            addPosting(propertyIndex, NodeSet.OS_ARCH, node.getOsArch(), i);
+            addPosting(propertyIndex, NodeSet.OS_VERSION, node.getOsVersion(), i);
+            if (null != node.getAttributes()) {
+                for (final Map.Entry<String, String> attr : node.getAttributes().entrySet()) {
+                    addPosting(attributeIndex, attr.getKey(), attr.getValue(), i);
+                }
+            }
+            if (null != node.getTags()) {
+                for (final Object tag : node.getTags()) {
+                    if (null != tag) {
+                        addPosting(tagIndex, tag.toString(), i);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addPosting(final Map<String, Map<String, Postings>> index, final String key,
+                                   final String value, final int position) {
+        if (null == value) {
+            return;
+        }
+        Map<String, Postings> values = index.get(key);
+        if (null == values) {
+            values = new HashMap<String, Postings>();
+            index.put(key, values);
+        }
+        addPosting(values, value, position);
+    }
+
+    private static void addPosting(final Map<String, Postings> values, final String value, final int position) {
+        Postings postings = values.get(value);
+        if (null == postings) {
+            postings = new Postings();
+            values.put(value, postings);
+        }
+        postings.add(position);
+    }
+
+    private static BitSet find(final Map<String, Map<String, Postings>> index, final String key, final String value) {
+        final Map<String, Postings> values = index.get(key);
+        return find(null != values ? values.get(value) : null);
+    }
+
+    private static BitSet find(final Postings postings) {
+        final BitSet result = new BitSet();
+        if (null != postings) {
+            for (int i = 0; i < postings.size; i++) {
+                result.set(postings.positions[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The ascending positions of the nodes with a value
+     */
+    private static class Postings {
+        private int[] positions = new int[1];
+        private int size;
+
+        private void add(final int position) {
+            if (size == positions.length) {
+                final int[] npositions = new int[size * 2];
+                System.arraycopy(positions, 0, npositions, 0, size);
+                positions = npositions;
+            }
+            positions[size++] = position;
+        }
+    }
+
+    /**
+     * Return a new set of the positions of nodes with the property value
+     *
+     * @param filterKey the property, one of the filter keys of {@link NodeSet}, other than {@link NodeSet#TAGS}
+     * @param value     the value
+     */
+    public BitSet findProperty(final String filterKey, final String value) {
+        return find(propertyIndex, filterKey, value);
+    }
+
+    /**
+     * Return a new set of the positions of nodes with the attribute value
+     *
+     * @param attribute the attribute name
+     * @param value     the value
+     */
+    public BitSet findAttribute(final String attribute, final String value) {
+        return find(attributeIndex, attribute, value);
+    }
+
+    /**
+     * Return a new set of the positions of nodes with the tag
+     *
+     * @param tag the tag
+     */
+    public BitSet findTag(final String tag) {
+        return find(tagIndex.get(tag));
+    }
+
+    /**
+     * Return the number of nodes
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Return the node at the position
+     */
+    public INodeEntry getNode(final int position) {
+        return nodes[position];
+    }
+
+    /**
+     * Return a new set of the positions of all nodes
+     */
+    public BitSet allNodes() {
+        final BitSet all = new BitSet(nodes.length);
+        all.set(0, nodes.length);
+        return all;
+    }
+
+    /**
+     * Return a new node set containing the nodes at the positions
+     *
+     * @param selected positions of the nodes
+     */
+    public INodeSet select(final BitSet selected) {
+        final NodeSetImpl result = new NodeSetImpl();
+        for (int i = selected.nextSetBit(0); i >= 0 && i < nodes.length; i = selected.nextSetBit(i + 1)) {
+            result.putNode(nodes[i]);
+        }
+        return result;
+    }
+
+    public Collection<INodeEntry> getNodes() {
+        return nodeList;
+    }
+
+    public INodeEntry getNode(final String name) {
+        final Integer position = positions.get(name);
+        return null != position ? nodes[position] : null;
+    }
+
+    public Collection<String> getNodeNames() {
+        return nodeNames;
+    }
+
+    public Iterator<INodeEntry> iterator() {
+        return nodeList.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return "IndexedNodeSet{" +
+               "nodes=" + nodeNames +
+               '}';
+    }
+}
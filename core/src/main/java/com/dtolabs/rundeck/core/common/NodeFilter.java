@@ -23,6 +23,8 @@
 */
 package com.dtolabs.rundeck.core.common;
 
+import com.dtolabs.rundeck.core.utils.NodeSet;
+
 /**
  * NodeFilter is ...
  *
@@ -30,6 +32,9 @@ package com.dtolabs.rundeck.core.common;
  */
 public class NodeFilter {
     public static INodeSet filterNodes(final NodesSelector selector, final INodeSet nodeSet) {
+        if (selector instanceof NodeSet && nodeSet instanceof IndexedNodeSet) {
+            return ((NodeSet) selector).getCompiledFilter().filter((IndexedNodeSet) nodeSet);
+        }
         final NodeSetImpl nodeSet1 = new NodeSetImpl();
         for (final INodeEntry iNodeEntry : nodeSet.getNodes()) {
             if(selector.acceptNode(iNodeEntry)) {
@@ -30,6 +30,7 @@ import com.dtolabs.shared.resources.ResourceXMLParser;
 import com.dtolabs.shared.resources.ResourceXMLParserException;
 import com.dtolabs.shared.resources.ResourceXMLReceiver;
 import com.dtolabs.utils.Mapper;
+import org.apache.log4j.Logger;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -38,18 +39,30 @@ import java.io.InputStream;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
 
 /**
  * NodesXmlParser invokes the ResourceXmlParser to collate the Node entries, and sends the parsed nodes to the {@link
- * NodeReceiver} object with the parsed node entities.
+ * NodeReceiver} object with the parsed node entities.  The nodes are immutable {@link CompactNodeEntry} instances.
+ * <p/>
+ * Each node is sent to the receiver as soon as it is parsed, and parsed entities are not retained, so memory use does
+ * not depend on the size of the document.  A node declared more than once is merged with its earlier declaration,
+ * the later values replacing earlier ones, and sent to the receiver again.
  *
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  * @version $Revision$
  */
 public class NodesXMLParser implements NodeFileParser, ResourceXMLReceiver {
+    static final Logger logger = Logger.getLogger(NodesXMLParser.class.getName());
     final File file;
     final InputStream input;
     final NodeReceiver nodeReceiver;
+    private CompactNodeFactory factory;
+    /**
+     * Nodes sent to the receiver by name, used to merge a node declared more than once
+     */
+    private HashMap<String, INodeEntry> parsedNodes;
 
     /**
      * Create NodesXmlParser
@@ -84,8 +97,10 @@ public class NodesXMLParser implements NodeFileParser, ResourceXMLReceiver {
         }else{
             resourceXMLParser = new ResourceXMLParser(input);
         }
-        //parse both node and settings
         resourceXMLParser.setReceiver(this);
+        resourceXMLParser.setRetainEntities(false);
+        factory = new CompactNodeFactory();
+        parsedNodes = new HashMap<String, INodeEntry>();
 //        long start = System.currentTimeMillis();
         try {
             resourceXMLParser.parse();
@@ -93,11 +108,35 @@ public class NodesXMLParser implements NodeFileParser, ResourceXMLReceiver {
             throw new NodeFileParserException(e);
         } catch (IOException e) {
             throw new NodeFileParserException(e);
+        } finally {
+            factory = null;
+            parsedNodes = null;
         }
 //        System.err.println("parse: " + (System.currentTimeMillis() - start));
     }
 
     public boolean resourceParsed(final ResourceXMLParser.Entity entity) {
+        if (NODE_ENTITY_TAG.equals(entity.getResourceType())) {
+            /*
+            * Create a INodeEntry from the parsed entity and put it into the Nodes object
+            */
+            final Properties properties;
+            final INodeEntry previous = parsedNodes.get(entity.getName());
+            if (null != previous) {
+                logger.warn("Node declared more than once, merging its attributes: " + entity.getName());
+                properties = getProperties(previous);
+                properties.putAll(entity.getProperties());
+            } else {
+                properties = entity.getProperties();
+            }
+            final NodeEntryImpl node = new NodeEntryImpl(properties.getProperty("hostname"), entity.getName());
+            fillNode(properties, node);
+            final CompactNodeEntry created = factory.create(node);
+            parsedNodes.put(entity.getName(), created);
+            if (null != nodeReceiver) {
+                nodeReceiver.putNode(created);
+            }
+        }
         //continue parsing entities until the end
         return true;
     }
@@ -108,15 +147,15 @@ public class NodesXMLParser implements NodeFileParser, ResourceXMLReceiver {
      * @param entity
      * @param node
      */
-    private void fillNode(final ResourceXMLParser.Entity entity, final NodeEntryImpl node) {
-        node.setUsername(entity.getProperty(NODE_USERNAME));
-        node.setHostname(entity.getProperty(NODE_HOSTNAME));
-        node.setOsArch(entity.getProperty(NODE_OS_ARCH));
-        node.setOsFamily(entity.getProperty(NODE_OS_FAMILY));
-        node.setOsName(entity.getProperty(NODE_OS_NAME));
-        node.setOsVersion(entity.getProperty(NODE_OS_VERSION));
-        node.setDescription(entity.getProperty(COMMON_DESCRIPTION));
-        final String tags = entity.getProperty(COMMON_TAGS);
+    private void fillNode(final Properties properties, final NodeEntryImpl node) {
+        node.setUsername(properties.getProperty(NODE_USERNAME));
+        node.setHostname(properties.getProperty(NODE_HOSTNAME));
+        node.setOsArch(properties.getProperty(NODE_OS_ARCH));
+        node.setOsFamily(properties.getProperty(NODE_OS_FAMILY));
+        node.setOsName(properties.getProperty(NODE_OS_NAME));
+        node.setOsVersion(properties.getProperty(NODE_OS_VERSION));
+        node.setDescription(properties.getProperty(COMMON_DESCRIPTION));
+        final String tags = properties.getProperty(COMMON_TAGS);
         final HashSet<String> tags1;
         if (null != tags && !"".equals(tags)) {
             tags1 = new HashSet<String>();
@@ -131,32 +170,36 @@ public class NodesXMLParser implements NodeFileParser, ResourceXMLReceiver {
         if (null == node.getAttributes()) {
             node.setAttributes(new HashMap<String, String>());
         }
-        if (null != entity.getProperties()) {
-            for (String key : entity.getProperties().stringPropertyNames()) {
-                if (!ResourceXMLConstants.allPropSet.contains(key)) {
-                    node.getAttributes().put(key, entity.getProperty(key));
-                }
+        for (String key : properties.stringPropertyNames()) {
+            if (!ResourceXMLConstants.allPropSet.contains(key)) {
+                node.getAttributes().put(key, properties.getProperty(key));
             }
-
         }
         //parse embedded attribute elements
     }
 
-    public void resourcesParsed(final ResourceXMLParser.EntitySet entities) {
-        //all entities are parsed, now process the nodes
-        for (final ResourceXMLParser.Entity entity : entities.getEntities()) {
-            if (!NODE_ENTITY_TAG.equals(entity.getResourceType())) {
-                continue;
+    /**
+     * Return the attributes and tags of a parsed node as entity properties
+     */
+    private static Properties getProperties(final INodeEntry node) {
+        final Properties properties = new Properties();
+        for (final Map.Entry<String, String> entry : node.getAttributes().entrySet()) {
+            if (null != entry.getValue() && !NodeEntryImpl.NAME.equals(entry.getKey())) {
+                properties.setProperty(entry.getKey(), entry.getValue());
             }
-
-            /*
-            * Create a INodeEntry from the parsed entity and put it into the Nodes object
-            */
-            final NodeEntryImpl node = new NodeEntryImpl(entity.getProperty("hostname"), entity.getName());
-            fillNode(entity, node);
-            if (null != nodeReceiver) {
-                nodeReceiver.putNode(node);
+        }
+        final StringBuilder tags = new StringBuilder();
+        for (final Object tag : node.getTags()) {
+            if (tags.length() > 0) {
+                tags.append(",");
             }
+            tags.append(tag);
         }
+        properties.setProperty(COMMON_TAGS, tags.toString());
+        return properties;
+    }
+
+    public void resourcesParsed(final ResourceXMLParser.EntitySet entities) {
+        //nodes were sent to the receiver as they were parsed
     }
 }
@@ -31,7 +31,8 @@ import java.io.*;
 
 /**
  * NodesYamlGenerator produces YAML formatted output from a set of {@link INodeEntry} data.  Nodes should be added with
- * the {@link #addNode(INodeEntry)} method, then {@link #generate()} called.
+ * the {@link #addNode(INodeEntry)} method, then {@link #generate()} called.  A large set of nodes can be written with
+ * {@link #generate(java.util.Collection)} instead, without adding them first.
  *
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  */
@@ -87,29 +88,37 @@ public class NodesYamlGenerator implements NodesFileGenerator {
     }
 
     public void generate() throws IOException, NodesGeneratorException {
+        generate(null);
+    }
+
+    /**
+     * Generate the output for the added nodes followed by the given nodes.  Each node is serialized and written
+     * separately, and the given nodes are not retained, so a large set of nodes can be written without building the
+     * whole document in memory.
+     *
+     * @param nodes the nodes to write after the added nodes, or null
+     */
+    public void generate(final Collection<? extends INodeEntry> nodes) throws IOException, NodesGeneratorException {
         if (null == destfile && null == outputStream && null == writer) {
             throw new NullPointerException("destfile or outputstream was not set");
         }
-        if (null == maps || maps.size() < 1) {
+        if ((null == maps || maps.size() < 1) && (null == nodes || nodes.size() < 1)) {
             throw new NodesGeneratorException("Node set is empty");
         }
-        final DumperOptions dumperOptions = new DumperOptions();
-        dumperOptions.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-        Yaml yaml = new Yaml(dumperOptions);
 
         if (null != writer) {
-            yaml.dump(maps, writer);
+            generate(writer, nodes);
         } else if (null != destfile) {
-            final Writer writeout = new FileWriter(destfile);
+            final Writer writeout = new BufferedWriter(new FileWriter(destfile));
             try {
-                yaml.dump(maps, writeout);
+                generate(writeout, nodes);
             } finally {
                 writeout.close();
             }
         } else {
-            final Writer writeout = new OutputStreamWriter(outputStream);
+            final Writer writeout = new BufferedWriter(new OutputStreamWriter(outputStream));
             try {
-                yaml.dump(maps, writeout);
+                generate(writeout, nodes);
             } finally {
                 writeout.close();
 
@@ -118,4 +127,23 @@ public class NodesYamlGenerator implements NodesFileGenerator {
 
 
     }
+
+    /**
+     * Write each node as a separate single entry map, the concatenated output is a single name->{node data} map
+     */
+    private void generate(final Writer out, final Collection<? extends INodeEntry> nodes) throws IOException {
+        final DumperOptions dumperOptions = new DumperOptions();
+        dumperOptions.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        final Yaml yaml = new Yaml(dumperOptions);
+
+        for (final Map.Entry<String, Map> entry : maps.entrySet()) {
+            yaml.dump(Collections.singletonMap(entry.getKey(), entry.getValue()), out);
+        }
+        if (null != nodes) {
+            for (final INodeEntry node : nodes) {
+                yaml.dump(Collections.singletonMap(node.getNodename(), NodeEntryFactory.toMap(node)), out);
+            }
+        }
+        out.flush();
+    }
 }
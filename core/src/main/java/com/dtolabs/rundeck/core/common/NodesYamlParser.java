@@ -24,20 +24,36 @@
 package com.dtolabs.rundeck.core.common;
 
 
-import com.dtolabs.rundeck.core.resources.format.ResourceFormatParser;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.error.YAMLException;
-import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.events.*;
+import org.yaml.snakeyaml.nodes.Tag;
 
 import java.util.*;
 import java.io.*;
+import java.util.regex.Pattern;
 
 /**
- * NodesYamlParser imports Node data from a YAML formatted input file or datastream.
+ * NodesYamlParser imports Node data from a YAML formatted input file or datastream.  The nodes are immutable {@link
+ * CompactNodeEntry} instances.
+ * <p/>
+ * The document is read as a stream of YAML parser events, and only the data of the node currently being read is held
+ * in memory, so each node is sent to the receiver as soon as it has been read.  Scalar values are read as strings, and
+ * only the standard YAML tags are allowed.  Anchored values are retained for the rest of the document, so that they can
+ * be referenced by aliases and merge keys.
  *
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  */
 public class NodesYamlParser implements NodeFileParser {
+    private static final Pattern NULL_VALUE = Pattern.compile("^(?:~|null|Null|NULL|)$");
+    private static final Set<String> SCALAR_TAGS = new HashSet<String>(Arrays.asList(
+        Tag.STR.getValue(),
+        Tag.INT.getValue(),
+        Tag.FLOAT.getValue(),
+        Tag.BOOL.getValue(),
+        Tag.TIMESTAMP.getValue(),
+        Tag.NULL.getValue()
+    ));
     private File file;
     private InputStream inputStream;
     private NodeReceiver nodes;
@@ -64,61 +80,20 @@ public class NodesYamlParser implements NodeFileParser {
         this.nodes = nodes;
     }
 
-    @SuppressWarnings("unchecked")
     public void parse() throws NodeFileParserException {
         if (null == file && null == inputStream) {
             throw new NullPointerException("file or inputStream was not set");
         }
         final Reader reader;
-        final Yaml yaml = new Yaml(new SafeConstructor());
+        final Yaml yaml = new Yaml();
         try {
             if (null != file) {
-                reader = new FileReader(file);
+                reader = new BufferedReader(new FileReader(file));
             } else {
                 reader = new InputStreamReader(inputStream);
             }
             try {
-                for (final Object o : yaml.loadAll(reader)) {
-                    if (o instanceof Map) {
-
-                        //name->{node data} map
-                        final Map<String, Map<String, Object>> map = (Map<String, Map<String, Object>>) o;
-                        for (final Map.Entry<String, Map<String, Object>> entry : map.entrySet()) {
-                            final String nodename = entry.getKey();
-                            if (null == entry.getValue()) {
-                                throw new NodeFileParserException("Empty node entry for: " + nodename);
-                            }
-                            if(!(entry.getValue() instanceof Map)) {
-                                throw new NodeFileParserException(
-                                    "Expected map data for node entry '" + nodename + "', but saw: " + entry.getValue().getClass()
-                                        .getName());
-                            }
-                            final HashMap<String, Object> newmap = new HashMap<String, Object>(entry.getValue());
-                            newmap.put("nodename", nodename);
-                            final NodeEntryImpl iNodeEntry;
-                            try {
-                                iNodeEntry = NodeEntryFactory.createFromMap(newmap);
-                            } catch (IllegalArgumentException e) {
-                                throw new NodeFileParserException(e);
-                            }
-
-                            nodes.putNode(iNodeEntry);
-                        }
-                    } else if (o instanceof Collection) {
-
-                        //list of {node data} maps
-                        final Collection<Map<String, Object>> map = (Collection<Map<String, Object>>) o;
-                        for (final Map<String, Object> nodemap : map) {
-                            final NodeEntryImpl iNodeEntry;
-                            try {
-                                iNodeEntry = NodeEntryFactory.createFromMap(nodemap);
-                            } catch (IllegalArgumentException e) {
-                                throw new NodeFileParserException(e);
-                            }
-                            nodes.putNode(iNodeEntry);
-                        }
-                    }
-                }
+                new EventReader(yaml.parse(reader).iterator()).read();
             } finally {
                 reader.close();
             }
@@ -130,4 +105,212 @@ public class NodesYamlParser implements NodeFileParser {
             throw new NodeFileParserException(e);
         }
     }
+
+    /**
+     * Reads the documents from the parser events, and sends each node to the receiver as it is read
+     */
+    private class EventReader {
+        private final Iterator<Event> events;
+        private final HashMap<String, Object> anchors = new HashMap<String, Object>();
+        private final CompactNodeFactory factory = new CompactNodeFactory();
+
+        EventReader(final Iterator<Event> events) {
+            this.events = events;
+        }
+
+        void read() throws NodeFileParserException {
+            while (events.hasNext()) {
+                if (events.next() instanceof DocumentStartEvent) {
+                    anchors.clear();
+                    readDocument(events.next());
+                }
+            }
+        }
+
+        /**
+         * Read the content of a document, which is either a name->{node data} map, or a list of {node data} maps
+         */
+        private void readDocument(final Event root) throws NodeFileParserException {
+            if (root instanceof MappingStartEvent) {
+                checkTag((MappingStartEvent) root, Tag.MAP);
+                Event event;
+                while (!((event = events.next()) instanceof MappingEndEvent)) {
+                    final Object key = readValue(event);
+                    final Object value = readValue(events.next());
+                    if (isMergeKey(event)) {
+                        for (final Map<?, ?> merged : mergeMaps(value)) {
+                            for (final Map.Entry<?, ?> entry : merged.entrySet()) {
+                                putNode(entry.getKey(), entry.getValue());
+                            }
+                        }
+                    } else {
+                        putNode(key, value);
+                    }
+                }
+            } else if (root instanceof SequenceStartEvent) {
+                checkTag((SequenceStartEvent) root, Tag.SEQ);
+                Event event;
+                while (!((event = events.next()) instanceof SequenceEndEvent)) {
+                    final Object value = readValue(event);
+                    if (!(value instanceof Map)) {
+                        throw new NodeFileParserException(
+                            "Expected map data for node entry, but saw: " + (null != value ? value.getClass().getName()
+                                                                                            : null));
+                    }
+                    putNode(createNode(asNodeMap((Map<?, ?>) value)));
+                }
+            } else {
+                readValue(root);
+            }
+        }
+
+        /**
+         * Put the node data for a name->{node data} entry
+         */
+        private void putNode(final Object key, final Object value) throws NodeFileParserException {
+            if (null != key && !(key instanceof String)) {
+                throw new NodeFileParserException(
+                    "Expected a node name, but saw: " + key.getClass().getName());
+            }
+            final String nodename = (String) key;
+            if (null == value) {
+                throw new NodeFileParserException("Empty node entry for: " + nodename);
+            }
+            if (!(value instanceof Map)) {
+                throw new NodeFileParserException(
+                    "Expected map data for node entry '" + nodename + "', but saw: " + value.getClass().getName());
+            }
+            final Map<String, Object> newmap = asNodeMap((Map<?, ?>) value);
+            newmap.put("nodename", nodename);
+            putNode(createNode(newmap));
+        }
+
+        private void putNode(final NodeEntryImpl iNodeEntry) {
+            nodes.putNode(factory.create(iNodeEntry));
+        }
+
+        private NodeEntryImpl createNode(final Map<String, Object> map) throws NodeFileParserException {
+            try {
+                return NodeEntryFactory.createFromMap(map);
+            } catch (IllegalArgumentException e) {
+                throw new NodeFileParserException(e);
+            }
+        }
+
+        private Map<String, Object> asNodeMap(final Map<?, ?> map) {
+            final HashMap<String, Object> newmap = new HashMap<String, Object>();
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                newmap.put(null != entry.getKey() ? entry.getKey().toString() : null, entry.getValue());
+            }
+            return newmap;
+        }
+
+        /**
+         * Read the complete value starting with the event: a String, null, List or Map
+         */
+        private Object readValue(final Event event) {
+            if (event instanceof AliasEvent) {
+                final String anchor = ((AliasEvent) event).getAnchor();
+                if (!anchors.containsKey(anchor)) {
+                    throw new YAMLException("found undefined alias " + anchor);
+                }
+                return anchors.get(anchor);
+            }
+            final Object value;
+            if (event instanceof ScalarEvent) {
+                value = scalarValue((ScalarEvent) event);
+            } else if (event instanceof SequenceStartEvent) {
+                checkTag((SequenceStartEvent) event, Tag.SEQ);
+                final ArrayList<Object> list = new ArrayList<Object>();
+                Event next;
+                while (!((next = events.next()) instanceof SequenceEndEvent)) {
+                    list.add(readValue(next));
+                }
+                value = list;
+            } else if (event instanceof MappingStartEvent) {
+                checkTag((MappingStartEvent) event, Tag.MAP);
+                final LinkedHashMap<Object, Object> map = new LinkedHashMap<Object, Object>();
+                final ArrayList<Map<?, ?>> merges = new ArrayList<Map<?, ?>>();
+                Event next;
+                while (!((next = events.next()) instanceof MappingEndEvent)) {
+                    final Object key = readValue(next);
+                    final Object mapValue = readValue(events.next());
+                    if (isMergeKey(next)) {
+                        merges.addAll(mergeMaps(mapValue));
+                    } else {
+                        map.put(key, mapValue);
+                    }
+                }
+                //explicit keys override merged keys, and earlier merged maps override later ones
+                for (final Map<?, ?> merged : merges) {
+                    for (final Map.Entry<?, ?> entry : merged.entrySet()) {
+                        if (!map.containsKey(entry.getKey())) {
+                            map.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+                value = map;
+            } else {
+                throw new YAMLException("unexpected event: " + event);
+            }
+            final String anchor = ((NodeEvent) event).getAnchor();
+            if (null != anchor) {
+                anchors.put(anchor, value);
+            }
+            return value;
+        }
+
+        private Object scalarValue(final ScalarEvent event) {
+            final String tag = event.getTag();
+            if (null == tag || "!".equals(tag)) {
+                if (event.getImplicit().canOmitTagInPlainScalar() && NULL_VALUE.matcher(event.getValue()).matches()) {
+                    return null;
+                }
+                return event.getValue();
+            }
+            if (!SCALAR_TAGS.contains(tag)) {
+                throw new YAMLException("could not determine a constructor for the tag " + tag);
+            }
+            if (Tag.NULL.getValue().equals(tag)) {
+                return null;
+            }
+            return event.getValue();
+        }
+
+        private void checkTag(final CollectionStartEvent event, final Tag allowed) {
+            if (null != event.getTag() && !"!".equals(event.getTag()) && !allowed.getValue().equals(event.getTag())) {
+                throw new YAMLException("could not determine a constructor for the tag " + event.getTag());
+            }
+        }
+
+        private boolean isMergeKey(final Event event) {
+            if (!(event instanceof ScalarEvent)) {
+                return false;
+            }
+            final ScalarEvent scalar = (ScalarEvent) event;
+            return "<<".equals(scalar.getValue()) && (Tag.MERGE.getValue().equals(scalar.getTag())
+                                                      || null == scalar.getTag()
+                                                         && scalar.getImplicit().canOmitTagInPlainScalar());
+        }
+
+        /**
+         * Return the maps to merge for the value of a merge key, which is a map or a list of maps
+         */
+        private List<Map<?, ?>> mergeMaps(final Object value) {
+            final ArrayList<Map<?, ?>> maps = new ArrayList<Map<?, ?>>();
+            if (value instanceof Map) {
+                maps.add((Map<?, ?>) value);
+            } else if (value instanceof List) {
+                for (final Object o : (List<?>) value) {
+                    if (!(o instanceof Map)) {
+                        throw new YAMLException("expected a mapping for merging, but found " + o);
+                    }
+                    maps.add((Map<?, ?>) o);
+                }
+            } else {
+                throw new YAMLException("expected a mapping or list of mappings for merging, but found " + value);
+            }
+            return maps;
+        }
+    }
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.dispatcher;
+
+import com.dtolabs.rundeck.core.utils.Converter;
+
+import java.util.*;
+
+/**
+ * DataContextTemplate is a string containing embedded property references of the form '${key.name}', parsed once into
+ * literal and reference segments so that it can be rendered against many data contexts, such as the data context for
+ * each node, without matching it again.  Compiled templates are cached by their input string, because the same
+ * commands and arguments are rendered for every node of a step.
+ */
+public class DataContextTemplate {
+    /**
+     * Maximum number of compiled templates to cache
+     */
+    public static final int CACHE_SIZE = 1000;
+    private static final Map<String, DataContextTemplate> cache =
+        new LinkedHashMap<String, DataContextTemplate>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(final Map.Entry<String, DataContextTemplate> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+
+    private final String template;
+    /**
+     * literal segments are Strings, references are Reference objects
+     */
+    private final Object[] segments;
+    private final int literalLength;
+
+    private DataContextTemplate(final String template, final Object[] segments, final int literalLength) {
+        this.template = template;
+        this.segments = segments;
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * A '${key.name}' reference
+     */
+    private static class Reference {
+        private final String key;
+        private final String name;
+        private final String text;
+
+        private Reference(final String key, final String name, final String text) {
+            this.key = key;
+            this.name = name;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Return the compiled template for the input string, from the cache if possible
+     *
+     * @param input template string
+     */
+    public static DataContextTemplate compile(final String input) {
+        if (input.indexOf("${") < 0) {
+            //nothing to parse
+            return new DataContextTemplate(input, new Object[]{input}, input.length());
+        }
+        synchronized (cache) {
+            final DataContextTemplate template = cache.get(input);
+            if (null != template) {
+                return template;
+            }
+        }
+        final DataContextTemplate template = parse(input);
+        synchronized (cache) {
+            cache.put(input, template);
+        }
+        return template;
+    }
+
+    /**
+     * Parse the input string without caching it
+     *
+     * @param input template string
+     */
+    static DataContextTemplate parse(final String input) {
+        final List<Object> segments = new ArrayList<Object>();
+        int literalLength = 0;
+        int start = 0;
+        int i = input.indexOf("${");
+        while (i >= 0) {
+            //key: one or more chars other than whitespace and '.'
+            int dot = i + 2;
+            while (dot < input.length() && input.charAt(dot) != '.' && !isSpace(input.charAt(dot))) {
+                dot++;
+            }
+            //name: one or more chars other than whitespace and '}'
+            int end = dot + 1;
+            if (dot > i + 2 && dot < input.length() && input.charAt(dot) == '.') {
+                while (end < input.length() && input.charAt(end) != '}' && !isSpace(input.charAt(end))) {
+                    end++;
+                }
+            }
+            if (dot > i + 2 && dot < input.length() && input.charAt(dot) == '.'
+                && end > dot + 1 && end < input.length() && input.charAt(end) == '}') {
+                if (i > start) {
+                    segments.add(input.substring(start, i));
+                    literalLength += i - start;
+                }
+                segments.add(new Reference(input.substring(i + 2, dot), input.substring(dot + 1, end),
+                    input.substring(i, end + 1)));
+                start = end + 1;
+                i = input.indexOf("${", start);
+            } else {
+                i = input.indexOf("${", i + 1);
+            }
+        }
+        if (start < input.length()) {
+            segments.add(input.substring(start));
+            literalLength += input.length() - start;
+        }
+        return new DataContextTemplate(input, segments.toArray(), literalLength);
+    }
+
+    /**
+     * Return true if the char is whitespace, as matched by the regular expression "\\s"
+     */
+    private static boolean isSpace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Return true if the template contains any references
+     */
+    public boolean hasReferences() {
+        return segments.length > 1 || segments.length == 1 && segments[0] instanceof Reference;
+    }
+
+    /**
+     * Return the template string with references replaced by the values from the data context. References without a
+     * value are left unchanged.
+     *
+     * @param data data context map
+     */
+    public String render(final Map<String, Map<String, String>> data) {
+        return render(data, null, false);
+    }
+
+    /**
+     * Return the template string with references replaced by the values from the data context.
+     *
+     * @param data             data context map
+     * @param converter        converter to encode/convert the expanded values, or null
+     * @param failOnUnexpanded if true, throw an exception for a reference without a value, otherwise leave the
+     *                         reference unchanged
+     *
+     * @throws DataContextUtils.UnresolvedDataReferenceException
+     *          if failOnUnexpanded is true and a reference has no value
+     */
+    public String render(final Map<String, Map<String, String>> data, final Converter<String, String> converter,
+                         final boolean failOnUnexpanded) {
+        if (!hasReferences()) {
+            return template;
+        }
+        final StringBuilder sb = new StringBuilder(literalLength + 16 * segments.length);
+        for (final Object segment : segments) {
+            if (segment instanceof String) {
+                sb.append((String) segment);
+                continue;
+            }
+            final Reference ref = (Reference) segment;
+            final Map<String, String> values = null != data ? data.get(ref.key) : null;
+            String value = null != values ? values.get(ref.name) : null;
+            if (null == value) {
+                if (failOnUnexpanded) {
+                    throw new DataContextUtils.UnresolvedDataReferenceException(template, ref.text);
+                }
+                value = ref.text;
+            }
+            if (null != converter) {
+                value = converter.convert(value);
+            }
+            sb.append(value);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return the template string
+     */
+    public String getTemplate() {
+        return template;
+    }
+}
@@ -33,8 +33,6 @@ import org.apache.tools.ant.types.Environment;
 
 import java.io.*;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * DataContextUtils provides methods for using a set of context data to substitute property references, generate
@@ -163,31 +161,7 @@ public class DataContextUtils {
         if(null==data){
             return input;
         }
-        final Pattern p = Pattern.compile("\\$\\{([^\\s.]+)\\.([^\\s}]+)\\}");
-        final Matcher m = p.matcher(input);
-        final StringBuffer sb = new StringBuffer();
-        while (m.find()) {
-            final String key = m.group(1);
-            final String nm = m.group(2);
-            if (null!=key && null!=nm && null!=data.get(key) && null!= data.get(key).get(nm)) {
-                String value = data.get(key).get(nm);
-                if (null != converter) {
-                    value = converter.convert(value);
-                }
-                m.appendReplacement(sb, Matcher.quoteReplacement(value));
-            }else if (failOnUnexpanded && null != key && null != nm && (null == data.get(key) || null == data.get(key)
-                .get(nm))) {
-                throw new UnresolvedDataReferenceException(input, m.group());
-            } else {
-                String value = m.group(0);
-                if (null != converter) {
-                    value = converter.convert(value);
-                }
-                m.appendReplacement(sb, Matcher.quoteReplacement(value));
-            }
-        }
-        m.appendTail(sb);
-        return sb.toString();
+        return DataContextTemplate.compile(input).render(data, converter, failOnUnexpanded);
     }
 
 
@@ -304,6 +278,40 @@ public class DataContextUtils {
         return temp;
     }
 
+    /**
+     * Return the script content with the @key.X@ tokens replaced with the values from the data context.  Line
+     * endings are converted to the system line separator, as for the temp files written by the replaceTokens methods.
+     *
+     * @param script      script content
+     * @param dataContext input data context
+     *
+     * @return the token replaced content
+     */
+    public static String replaceTokensInString(final String script,
+                                               final Map<String, Map<String, String>> dataContext) throws IOException {
+        final ReplaceTokens replaceTokens = new ReplaceTokens(new StringReader(script));
+        configureReplaceTokens(flattenDataContext(dataContext), replaceTokens);
+        final BufferedReader inbuff = new BufferedReader(replaceTokens);
+        final StringBuilder sb = new StringBuilder();
+        final String linesep = System.getProperty("line.separator");
+        String inData;
+        while ((inData = inbuff.readLine()) != null) {
+            sb.append(inData).append(linesep);
+        }
+        inbuff.close();
+        return sb.toString();
+    }
+
+    /**
+     * Return true if the script content may contain a @key.X@ token for the given context key
+     *
+     * @param script script content
+     * @param key    context key, e.g. "node"
+     */
+    public static boolean hasTokensForContext(final String script, final String key) {
+        return null != script && script.indexOf("@" + key + ".") >= 0;
+    }
+
     /**
      * Flattens the data context into a simple key/value pair, using a "." separator for keys.
      *
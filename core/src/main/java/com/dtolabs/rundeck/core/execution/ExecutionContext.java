@@ -26,6 +26,7 @@ package com.dtolabs.rundeck.core.execution;
 import com.dtolabs.rundeck.core.common.Framework;
 import com.dtolabs.rundeck.core.common.INodeSet;
 import com.dtolabs.rundeck.core.common.NodesSelector;
+import com.dtolabs.rundeck.core.execution.script.ScriptfileCache;
 
 import java.io.File;
 import java.util.Map;
@@ -111,4 +112,10 @@ public interface ExecutionContext {
      * Specific file to use for nodes source instead of project nodes
      */
     public File getNodesFile();
+
+    /**
+     * Return the cache of script temp files shared by the nodes of the execution, or null to write a separate temp
+     * file for each node
+     */
+    public ScriptfileCache getScriptfileCache();
 }
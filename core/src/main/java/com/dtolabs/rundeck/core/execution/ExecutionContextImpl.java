@@ -27,6 +27,7 @@ import com.dtolabs.rundeck.core.common.Framework;
 import com.dtolabs.rundeck.core.common.INodeSet;
 import com.dtolabs.rundeck.core.common.NodeSetImpl;
 import com.dtolabs.rundeck.core.common.NodesSelector;
+import com.dtolabs.rundeck.core.execution.script.ScriptfileCache;
 import com.dtolabs.rundeck.core.execution.workflow.StepExecutionContext;
 
 import java.io.File;
@@ -55,6 +56,7 @@ public class ExecutionContextImpl implements ExecutionContext, StepExecutionCont
     private boolean nodeRankOrderAscending = true;
     private int stepNumber = 1;
     private List<Integer> stepContext;
+    private ScriptfileCache scriptfileCache;
 
     private ExecutionContextImpl() {
         stepContext = new ArrayList<Integer>();
@@ -95,6 +97,7 @@ public class ExecutionContextImpl implements ExecutionContext, StepExecutionCont
                 ctx.keepgoing = original.isKeepgoing();
                 ctx.nodeRankAttribute = original.getNodeRankAttribute();
                 ctx.nodeRankOrderAscending = original.isNodeRankOrderAscending();
+                ctx.scriptfileCache = original.getScriptfileCache();
             }
         }
 
@@ -191,6 +194,11 @@ public class ExecutionContextImpl implements ExecutionContext, StepExecutionCont
             return this;
         }
 
+        public Builder scriptfileCache(final ScriptfileCache scriptfileCache) {
+            ctx.scriptfileCache = scriptfileCache;
+            return this;
+        }
+
         public ExecutionContextImpl build() {
             return ctx;
         }
@@ -252,6 +260,10 @@ public class ExecutionContextImpl implements ExecutionContext, StepExecutionCont
         return nodeRankOrderAscending;
     }
 
+    public ScriptfileCache getScriptfileCache() {
+        return scriptfileCache;
+    }
+
     @Override
     public int getStepNumber() {
         return stepNumber;
@@ -115,4 +115,14 @@ public interface ExecutionService extends FrameworkSupportService {
      */
     public NodeExecutorResult executeCommand(ExecutionContext context, String[] command, INodeEntry node) throws
         ExecutionException;
+
+    /**
+     * Execute a script file already copied to the node, within the context.  On unix nodes the file is made
+     * executable first, and if the node executor supports it the file is also removed afterwards, in the same command.
+     *
+     * @param command  script invocation
+     * @param filepath path of the script file on the node
+     */
+    public NodeExecutorResult executeRemoteScript(ExecutionContext context, String[] command, String filepath,
+                                                  INodeEntry node) throws ExecutionException;
 }
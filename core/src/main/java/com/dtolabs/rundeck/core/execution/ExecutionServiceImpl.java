@@ -276,16 +276,44 @@ class ExecutionServiceImpl implements ExecutionService {
 
     public NodeExecutorResult executeCommand(final ExecutionContext context, final String[] command,
                                              final INodeEntry node) throws ExecutionException {
+        return executeNodeCommand(context, command, null, node);
+    }
 
-        if (null != context.getExecutionListener()) {
-            context.getExecutionListener().beginNodeExecution(context, command, node);
+    public NodeExecutorResult executeRemoteScript(final ExecutionContext context, final String[] command,
+                                                  final String filepath, final INodeEntry node) throws
+        ExecutionException {
+        if ("windows".equalsIgnoreCase(node.getOsFamily())) {
+            return executeNodeCommand(context, command, null, node);
         }
+        return executeNodeCommand(context, command, filepath, node);
+    }
+
+    /**
+     * Execute the command on the node, or if filepath is not null, execute the script file at the path with the
+     * command
+     */
+    private NodeExecutorResult executeNodeCommand(final ExecutionContext context, final String[] command,
+                                                  final String filepath, final INodeEntry node) throws
+        ExecutionException {
+
         final NodeExecutor nodeExecutor;
         try {
             nodeExecutor = framework.getNodeExecutorForNodeAndProject(node, context.getFrameworkProject());
         } catch (ExecutionServiceException e) {
             throw new ExecutionException(e);
         }
+        if (null != filepath && !(nodeExecutor instanceof RemoteScriptNodeExecutor)) {
+            //perform chmod+x for the file with a separate command
+            final NodeExecutorResult chmodResult = executeNodeCommand(context, new String[]{"chmod", "+x", filepath},
+                null, node);
+            if (!chmodResult.isSuccess()) {
+                return chmodResult;
+            }
+            return executeNodeCommand(context, command, null, node);
+        }
+        if (null != context.getExecutionListener()) {
+            context.getExecutionListener().beginNodeExecution(context, command, node);
+        }
 
         //create node context for node and substitute data references in command
         final Map<String, Map<String, String>> nodeDataContext =
@@ -298,7 +326,12 @@ class ExecutionServiceImpl implements ExecutionService {
         try {
             final ExecutionContextImpl nodeContext = new ExecutionContextImpl.Builder(context).dataContext(
                 nodeDataContext).build();
-            result = nodeExecutor.executeCommand(nodeContext, nodeCommand, node);
+            if (null != filepath) {
+                result = ((RemoteScriptNodeExecutor) nodeExecutor).executeRemoteScript(nodeContext, nodeCommand,
+                    filepath, node);
+            } else {
+                result = nodeExecutor.executeCommand(nodeContext, nodeCommand, node);
+            }
         } finally {
             loggingReformatter.resetOutputStreams();
             if (null != context.getExecutionListener()) {
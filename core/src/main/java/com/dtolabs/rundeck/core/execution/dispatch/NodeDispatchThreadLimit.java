@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.execution.dispatch;
+
+/**
+ * NodeDispatchThreadLimit is a server-wide limit on the number of threads started for parallel node dispatch.  A
+ * dispatcher reserves the number of extra threads it would like to use, and receives as many as are available without
+ * blocking, so concurrent executions share a fixed thread budget rather than each starting its full thread count.
+ */
+public class NodeDispatchThreadLimit {
+    /**
+     * Framework property to configure the maximum number of node dispatch threads
+     */
+    public static final String FWK_PROP_MAX_THREADS = "framework.execution.dispatch.max-threads";
+    public static final int DEFAULT_MAX_THREADS = 200;
+    private static final NodeDispatchThreadLimit instance = new NodeDispatchThreadLimit(DEFAULT_MAX_THREADS);
+
+    private int maxThreads;
+    private int active;
+
+    NodeDispatchThreadLimit(final int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Return the server-wide limit
+     */
+    public static NodeDispatchThreadLimit getInstance() {
+        return instance;
+    }
+
+    /**
+     * Reserve up to the wanted number of threads, without blocking
+     *
+     * @param wanted number of threads wanted
+     *
+     * @return number of threads reserved, from 0 to wanted
+     */
+    public synchronized int reserve(final int wanted) {
+        final int count = Math.max(0, Math.min(wanted, maxThreads - active));
+        active += count;
+        return count;
+    }
+
+    /**
+     * Release reserved threads
+     */
+    public synchronized void release(final int count) {
+        active = Math.max(0, active - count);
+    }
+
+    /**
+     * Return the number of threads currently reserved
+     */
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    public synchronized int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public synchronized void setMaxThreads(final int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+}
@@ -24,22 +24,24 @@
 package com.dtolabs.rundeck.core.execution.dispatch;
 
 import com.dtolabs.rundeck.core.NodesetFailureException;
-import com.dtolabs.rundeck.core.cli.CallableWrapperTask;
 import com.dtolabs.rundeck.core.common.*;
 import com.dtolabs.rundeck.core.execution.ExecutionContext;
 import com.dtolabs.rundeck.core.execution.FailedNodesListener;
+import com.dtolabs.rundeck.core.execution.ServiceThreadBase;
 import com.dtolabs.rundeck.core.execution.workflow.StepExecutionContext;
 import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepExecutionItem;
 import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepResult;
 import com.dtolabs.rundeck.core.tasks.dispatch.NodeExecutionStatusTask;
+import org.apache.log4j.Logger;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.Task;
-import org.apache.tools.ant.taskdefs.Parallel;
 import org.apache.tools.ant.taskdefs.Sequential;
 
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * MultiNodeExecutor is ...
@@ -47,6 +49,7 @@ import java.util.concurrent.Callable;
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  */
 public class ParallelNodeDispatcher implements NodeDispatcher {
+    private static final Logger logger = Logger.getLogger(ParallelNodeDispatcher.class);
     public static final String STATUS_LISTENER_REF_ID = ParallelNodeDispatcher.class.getName() + ":status.listener";
     public static final String NODE_NAME_LOCAL_REF_ID = ParallelNodeDispatcher.class.getName() + ":node.name";
     public static final String NODE_USER_LOCAL_REF_ID = ParallelNodeDispatcher.class.getName() + ":node.user";
@@ -75,25 +78,18 @@ public class ParallelNodeDispatcher implements NodeDispatcher {
         INodeSet nodes = framework.filterAuthorizedNodes(context.getFrameworkProject(),
                                                          new HashSet<String>(Arrays.asList("read", "run")),
                                                          context.getNodes());
-        boolean keepgoing = context.isKeepgoing();
+        final boolean keepgoing = context.isKeepgoing();
 
         final HashSet<String> nodeNames = new HashSet<String>();
         FailedNodesListener failedListener = context.getExecutionListener().getFailedNodesListener();
 
-        Project project = new Project();
-
         context.getExecutionListener().log(3,
             "preparing for parallel execution...(keepgoing? " + keepgoing + ", threads: "
             + context.getThreadCount()
             + ")");
-        configureNodeContextThreadLocalsForProject(project);
-        final Parallel parallelTask = new Parallel();
-        parallelTask.setProject(project);
-        parallelTask.setThreadCount(context.getThreadCount());
-        parallelTask.setFailOnAny(!keepgoing);
-        boolean success = false;
-        final HashMap<String, NodeStepResult> resultMap = new HashMap<String, NodeStepResult>();
-        final HashMap<String, Object> failureMap = new HashMap<String, Object>();
+        final Map<String, NodeStepResult> resultMap = Collections.synchronizedMap(
+            new HashMap<String, NodeStepResult>());
+        final Map<String, Object> failureMap = Collections.synchronizedMap(new HashMap<String, Object>());
         final Collection<INodeEntry> nodes1 = nodes.getNodes();
         //reorder based on configured rank property and order
         final String rankProperty = null != context.getNodeRankAttribute() ? context.getNodeRankAttribute() : "nodename";
@@ -103,6 +99,7 @@ public class ParallelNodeDispatcher implements NodeDispatcher {
             rankAscending ? comparator : Collections.reverseOrder(comparator));
 
         orderedNodes.addAll(nodes1);
+        final Queue<Callable> queue = new ConcurrentLinkedQueue<Callable>();
         for (final INodeEntry node: orderedNodes) {
             final Callable tocall;
             if (null != item) {
@@ -112,24 +109,97 @@ public class ParallelNodeDispatcher implements NodeDispatcher {
             }
             nodeNames.add(node.getNodename());
             context.getExecutionListener().log(3, "Create task for node: " + node.getNodename());
-            final CallableWrapperTask callableWrapperTask1 = new CallableWrapperTask(tocall);
-            callableWrapperTask1.setProject(project);
-            parallelTask.addTask(callableWrapperTask1);
+            queue.add(tocall);
         }
         if (null != failedListener) {
             failedListener.matchedNodes(nodeNames);
         }
         context.getExecutionListener().log(3, "parallel dispatch to nodes: " + nodeNames);
-        BuildException buildException;
+
+        final AtomicBoolean cancelled = new AtomicBoolean(false);
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+        final Thread caller = Thread.currentThread();
+        final Runnable worker = new Runnable() {
+            public void run() {
+                Callable tocall;
+                while (!cancelled.get()) {
+                    if (Thread.currentThread().isInterrupted() || isAborted(caller)) {
+                        //execution was aborted, stop dispatching
+                        interrupted.set(true);
+                        cancelled.set(true);
+                        break;
+                    }
+                    if (null == (tocall = queue.poll())) {
+                        break;
+                    }
+                    try {
+                        tocall.call();
+                    } catch (Exception e) {
+                        //callables record their own failures
+                    }
+                    if (!keepgoing && !failureMap.isEmpty()) {
+                        //stop dispatching to remaining nodes
+                        cancelled.set(true);
+                    }
+                }
+            }
+        };
+
+        //the current thread acts as one worker, additional threads are limited server-wide
+        final NodeDispatchThreadLimit threadLimit = NodeDispatchThreadLimit.getInstance();
+        if (framework.hasProperty(NodeDispatchThreadLimit.FWK_PROP_MAX_THREADS)) {
+            try {
+                threadLimit.setMaxThreads(Integer.parseInt(framework.getProperty(
+                    NodeDispatchThreadLimit.FWK_PROP_MAX_THREADS)));
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid value for " + NodeDispatchThreadLimit.FWK_PROP_MAX_THREADS + ": " + e.getMessage());
+            }
+        }
+        final int wanted = Math.min(Math.max(1, context.getThreadCount()), queue.size()) - 1;
+        final int reserved = threadLimit.reserve(wanted);
+        if (reserved < wanted) {
+            context.getExecutionListener().log(3,
+                "parallel dispatch limited to " + (reserved + 1) + " threads (server limit: "
+                + threadLimit.getMaxThreads() + ")");
+        }
+        final List<Thread> threads = new ArrayList<Thread>();
         try {
-            parallelTask.execute();
-            success = true;
-        } catch (BuildException e) {
-            buildException=e;
-            context.getExecutionListener().log(0, e.getMessage());
-            if (!keepgoing) {
-                throw new DispatcherException(e);
+            for (int i = 0; i < reserved; i++) {
+                //threads are started from this thread so they inherit the execution's thread context
+                final Thread thread = new Thread(worker, Thread.currentThread().getName() + "-node-" + (i + 1));
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
             }
+            worker.run();
+            if (interrupted.get()) {
+                interruptAll(threads);
+            }
+            for (final Thread thread : threads) {
+                boolean joined = false;
+                while (!joined) {
+                    try {
+                        thread.join();
+                        joined = true;
+                    } catch (InterruptedException e) {
+                        //stop dispatching and interrupt running node threads
+                        interrupted.set(true);
+                        cancelled.set(true);
+                        interruptAll(threads);
+                    }
+                }
+            }
+        } finally {
+            threadLimit.release(reserved);
+        }
+        if (cancelled.get() && !queue.isEmpty()) {
+            context.getExecutionListener().log(0,
+                "Parallel dispatch cancelled, " + queue.size() + " node(s) were not executed");
+        }
+        if (interrupted.get()) {
+            //restore the interrupt status for the caller
+            Thread.currentThread().interrupt();
+            throw new DispatcherException("Node dispatch interrupted");
         }
         //evaluate the failed nodes
         if (failureMap.size() > 0) {
@@ -145,13 +215,24 @@ public class ParallelNodeDispatcher implements NodeDispatcher {
             failedListener.nodesSucceeded();
         }
 
-        final boolean status = success;
+        return new DispatcherResultImpl(resultMap, true, "Parallel dispatch: (true) " + resultMap);
+    }
+
+    /**
+     * Return true if the thread is an aborted execution thread
+     */
+    private static boolean isAborted(final Thread thread) {
+        return thread instanceof ServiceThreadBase && ((ServiceThreadBase) thread).isAborted();
+    }
 
-        return new DispatcherResultImpl(resultMap, status, "Parallel dispatch: (" + status + ") " + resultMap);
+    private static void interruptAll(final List<Thread> threads) {
+        for (final Thread thread : threads) {
+            thread.interrupt();
+        }
     }
 
     private Callable dispatchableCallable(final ExecutionContext context, final Dispatchable toDispatch,
-                                          final HashMap<String, NodeStepResult> resultMap, final INodeEntry node,
+                                          final Map<String, NodeStepResult> resultMap, final INodeEntry node,
                                           final Map<String, Object> failureMap) {
         return new Callable() {
             public Object call() throws Exception {
@@ -171,7 +252,7 @@ public class ParallelNodeDispatcher implements NodeDispatcher {
     }
 
     private Callable execItemCallable(final StepExecutionContext context, final NodeStepExecutionItem item,
-                                      final HashMap<String, NodeStepResult> resultMap, final INodeEntry node,
+                                      final Map<String, NodeStepResult> resultMap, final INodeEntry node,
                                       final Map<String, Object> failureMap) {
         return new Callable() {
             public Object call() throws Exception {
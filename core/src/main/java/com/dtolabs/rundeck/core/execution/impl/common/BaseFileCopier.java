@@ -27,6 +27,7 @@ import com.dtolabs.rundeck.core.common.Framework;
 import com.dtolabs.rundeck.core.common.INodeEntry;
 import com.dtolabs.rundeck.core.dispatcher.DataContextUtils;
 import com.dtolabs.rundeck.core.execution.ExecutionContext;
+import com.dtolabs.rundeck.core.execution.script.ScriptfileCache;
 import com.dtolabs.rundeck.core.execution.script.ScriptfileUtils;
 import com.dtolabs.rundeck.core.execution.service.FileCopierException;
 import com.dtolabs.utils.Streams;
@@ -45,7 +46,9 @@ public class BaseFileCopier {
     /**
      * Copy a script file, script source stream, or script string into a temp file, and replace \
      * embedded tokens with values from the dataContext for the latter two. Marks the file as executable and delete-on-exit. This will not
-     * rewrite any content if the input is originally a file.
+     * rewrite any content if the input is originally a file.  If the context has a {@link ScriptfileCache}, the temp
+     * file is shared with other nodes that have the same content, and it must not be modified or removed by the
+     * caller.
      *
      * @param context  execution context
      * @param original local system file, or null
@@ -62,6 +65,24 @@ public class BaseFileCopier {
                                            final String script, final INodeEntry node) throws
         FileCopierException {
         final Framework framework = context.getFramework();
+        final ScriptfileCache scriptfileCache = context.getScriptfileCache();
+        if (null != scriptfileCache) {
+            try {
+                if (null != original) {
+                    return scriptfileCache.getFileCopy(framework, original);
+                } else if (null != script) {
+                    return scriptfileCache.getScriptfile(framework, script, context.getDataContext(),
+                        DataContextUtils.nodeData(node));
+                } else if (null != input) {
+                    return scriptfileCache.getScriptfile(framework, readStream(input), context.getDataContext(),
+                        DataContextUtils.nodeData(node));
+                } else {
+                    return null;
+                }
+            } catch (IOException e) {
+                throw new FileCopierException("error writing script to tempfile: " + e.getMessage(), e);
+            }
+        }
 
         //create new dataContext with the node data, and write the script (file,content or strea) to a temp file
         //using the dataContext for substitution.
@@ -107,6 +128,21 @@ public class BaseFileCopier {
         return tempfile;
     }
 
+    private static String readStream(final InputStream input) throws IOException {
+        final Reader reader = new InputStreamReader(input);
+        try {
+            final StringWriter writer = new StringWriter();
+            final char[] buf = new char[8192];
+            int c;
+            while ((c = reader.read(buf)) > 0) {
+                writer.write(buf, 0, c);
+            }
+            return writer.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
     /**
      * Return a string with an appropriate script file extension appended if it is not already on the file path
      * provided. The OS-family of the node determines the appropriate extension to use.
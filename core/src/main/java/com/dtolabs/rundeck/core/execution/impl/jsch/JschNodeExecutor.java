@@ -33,9 +33,9 @@ import com.dtolabs.rundeck.core.execution.ExecutionContext;
 import com.dtolabs.rundeck.core.execution.ExecutionException;
 import com.dtolabs.rundeck.core.execution.ExecutionListener;
 import com.dtolabs.rundeck.core.execution.impl.common.AntSupport;
-import com.dtolabs.rundeck.core.execution.service.NodeExecutor;
 import com.dtolabs.rundeck.core.execution.service.NodeExecutorResult;
 import com.dtolabs.rundeck.core.execution.service.NodeExecutorResultImpl;
+import com.dtolabs.rundeck.core.execution.service.RemoteScriptNodeExecutor;
 import com.dtolabs.rundeck.core.execution.utils.LeadPipeOutputStream;
 import com.dtolabs.rundeck.core.execution.utils.Responder;
 import com.dtolabs.rundeck.core.execution.utils.ResponderTask;
@@ -43,6 +43,7 @@ import com.dtolabs.rundeck.core.plugins.configuration.Describable;
 import com.dtolabs.rundeck.core.plugins.configuration.Description;
 import com.dtolabs.rundeck.core.plugins.configuration.Property;
 import com.dtolabs.rundeck.core.tasks.net.ExtSSHExec;
+import com.dtolabs.rundeck.core.tasks.net.SSHSessionPool;
 import com.dtolabs.rundeck.core.tasks.net.SSHTaskBuilder;
 import com.dtolabs.rundeck.plugins.util.DescriptionBuilder;
 import com.jcraft.jsch.JSchException;
@@ -63,7 +64,7 @@ import java.util.regex.Pattern;
  *
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  */
-public class JschNodeExecutor implements NodeExecutor, Describable {
+public class JschNodeExecutor implements RemoteScriptNodeExecutor, Describable {
     public static final Logger logger = Logger.getLogger(JschNodeExecutor.class.getName());
     public static final String SERVICE_PROVIDER_TYPE = "jsch-ssh";
     public static final String FWK_PROP_AUTH_CANCEL_MSG = "framework.messages.error.ssh.authcancel";
@@ -120,6 +121,12 @@ public class JschNodeExecutor implements NodeExecutor, Describable {
     public static final String NODE_ATTR_SUDO_SUCCESS_ON_PROMPT_THRESHOLD = "success-on-prompt-threshold";
     public static final boolean DEFAULT_SUDO_SUCCESS_ON_PROMPT_THRESHOLD = true;
     public static final String PROJECT_SSH_USER = PROJ_PROP_PREFIX + "ssh.user";
+    public static final String NODE_ATTR_SSH_SESSION_POOL = "ssh-session-pool";
+    public static final String NODE_ATTR_SSH_SESSION_POOL_SHARED = "ssh-session-pool-shared";
+    public static final String FWK_PROP_SSH_SESSION_POOL_IDLE_TIMEOUT = FWK_PROP_PREFIX
+                                                                        + "ssh-session-pool-idle-timeout";
+    public static final String FWK_PROP_SSH_SESSION_POOL_MAX_PER_HOST = FWK_PROP_PREFIX
+                                                                        + "ssh-session-pool-max-per-host";
 
     private Framework framework;
 
@@ -147,6 +154,49 @@ public class JschNodeExecutor implements NodeExecutor, Describable {
     public NodeExecutorResult executeCommand(final ExecutionContext context, final String[] command,
                                              final INodeEntry node) throws
         ExecutionException {
+        return execute(context, command, command, node);
+    }
+
+    /**
+     * Execute the script file with a single command which makes the file executable, runs it, removes it, and exits
+     * with the result code of the script.
+     */
+    public NodeExecutorResult executeRemoteScript(final ExecutionContext context, final String[] command,
+                                                  final String filepath, final INodeEntry node) throws
+        ExecutionException {
+        return execute(context, command, buildRemoteScriptCommand(command, filepath), node);
+    }
+
+    /**
+     * Return the command to make the script file executable, run it, remove it, and exit with the result code of the
+     * script.  The sequence is run with "sh -c", so that it does not depend on the login shell of the remote user.
+     *
+     * @param command  the script invocation
+     * @param filepath remote path of the script file
+     */
+    static String[] buildRemoteScriptCommand(final String[] command, final String filepath) {
+        final String quotedPath = quoteShell(filepath);
+        final String script = "chmod +x " + quotedPath + " && " + CLIUtils.generateArgline(null, command)
+                              + " ; rc=$? ; rm -f " + quotedPath + " ; exit $rc";
+        return new String[]{"sh", "-c", quoteShell(script)};
+    }
+
+    /**
+     * Return the string in single quotes, with embedded single quotes escaped
+     */
+    static String quoteShell(final String arg) {
+        return "'" + arg.replaceAll("'", "'\\\\''") + "'";
+    }
+
+    /**
+     * Execute the remote command on the node
+     *
+     * @param command       the command requested, used to determine whether sudo responders are needed
+     * @param remoteCommand the command line to execute
+     */
+    private NodeExecutorResult execute(final ExecutionContext context, final String[] command,
+                                       final String[] remoteCommand, final INodeEntry node) throws
+        ExecutionException {
         if (null == node.getHostname() || null == node.extractHostname()) {
             throw new ExecutionException(
                 "Hostname must be set to connect to remote node '" + node.getNodename() + "'");
@@ -164,17 +214,21 @@ public class JschNodeExecutor implements NodeExecutor, Describable {
         final int timeout = nodeAuthentication.getSSHTimeout();
         try {
 
-            sshexec = SSHTaskBuilder.build(node, command, project, context.getDataContext(),
+            sshexec = SSHTaskBuilder.build(node, remoteCommand, project, context.getDataContext(),
                 nodeAuthentication, context.getLoglevel());
         } catch (SSHTaskBuilder.BuilderException e) {
             throw new ExecutionException(e);
         }
+        final SSHSessionPool sessionPool = nodeAuthentication.getSessionPool();
+        if (null != sessionPool) {
+            sshexec.setSessionPool(sessionPool);
+            sshexec.setSessionScope(nodeAuthentication.getSessionScope());
+        }
 
         //Sudo support
 
-        final ExecutorService executor = Executors.newFixedThreadPool(1);
-
         final Future<ResponderTask.ResponderResult> responderFuture;
+        final InterruptibleCallable<ResponderTask.ResponderResult> responderTask;
         final SudoResponder sudoResponder = SudoResponder.create(node, framework, context);
         if (sudoResponder.isSudoEnabled() && sudoResponder.matchesCommandPattern(command[0])) {
             final DisconnectResultHandler resultHandler = new DisconnectResultHandler();
@@ -225,8 +279,10 @@ public class JschNodeExecutor implements NodeExecutor, Describable {
             sshexec.setDisconnectHolder(resultHandler);
 
 
-            responderFuture = executor.submit(responderResultCallable);
+            responderTask = new InterruptibleCallable<ResponderTask.ResponderResult>(responderResultCallable);
+            responderFuture = getResponderExecutor().submit(responderTask);
         }else {
+            responderTask = null;
             responderFuture = null;
         }
         if (null != context.getExecutionListener()) {
@@ -269,13 +325,14 @@ public class JschNodeExecutor implements NodeExecutor, Describable {
             }
             context.getExecutionListener().log(0, errormsg);
         }
-        shutdownAndAwaitTermination(executor);
         if (null != responderFuture) {
+            //stop the responder if it is still waiting for input
+            responderTask.interrupt();
             try {
                 logger.debug("Waiting 5 seconds for responder future result");
                 final ResponderTask.ResponderResult result = responderFuture.get(5, TimeUnit.SECONDS);
                 logger.debug("Responder result: " + result);
-                if (!result.isSuccess() && !result.isInterrupted()) {
+                if (null != result && !result.isSuccess() && !result.isInterrupted()) {
                     context.getExecutionListener().log(0,
                                                        result.getResponder().toString() + " failed: "
                                                        + result.getFailureReason());
@@ -302,21 +359,78 @@ public class JschNodeExecutor implements NodeExecutor, Describable {
     }
 
     /**
-     * Shutdown the ExecutorService
+     * Maximum number of pooled threads for sudo responders.  Responders beyond this are run in a dedicated thread.
      */
-    void shutdownAndAwaitTermination(ExecutorService pool) {
-        pool.shutdownNow(); // Disable new tasks from being submitted
-        try {
-            logger.debug("Waiting up to 30 seconds for ExecutorService to shut down");
-            // Wait a while for existing tasks to terminate
-            if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
-                logger.debug("Pool did not terminate");
+    public static final int MAX_RESPONDER_THREADS = 50;
+    private static ExecutorService responderExecutor;
+
+    /**
+     * Return the executor shared by all executions for running sudo responders.  Idle threads are discarded after 60
+     * seconds.
+     */
+    static synchronized ExecutorService getResponderExecutor() {
+        if (null == responderExecutor) {
+            final ThreadFactory threadFactory = new ThreadFactory() {
+                private int count = 0;
+
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread;
+                    synchronized (this) {
+                        thread = new Thread(runnable, "jsch-ssh-responder-" + (++count));
+                    }
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            responderExecutor = new ThreadPoolExecutor(0, MAX_RESPONDER_THREADS, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), threadFactory, new RejectedExecutionHandler() {
+                public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+                    //responders block for the duration of the command, so never queue them
+                    threadFactory.newThread(runnable).start();
+                }
+            });
+        }
+        return responderExecutor;
+    }
+
+    /**
+     * Wraps a Callable so that the thread running it can be interrupted without shutting down the executor
+     */
+    static class InterruptibleCallable<T> implements Callable<T> {
+        private final Callable<T> callable;
+        private Thread thread;
+        private boolean interrupted;
+
+        InterruptibleCallable(final Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        public T call() throws Exception {
+            synchronized (this) {
+                if (interrupted) {
+                    return null;
+                }
+                thread = Thread.currentThread();
+            }
+            try {
+                return callable.call();
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                }
+                //clear the interrupt status before the thread is reused
+                Thread.interrupted();
+            }
+        }
+
+        /**
+         * Interrupt the thread if the callable is running, or prevent it from running if it has not started
+         */
+        public synchronized void interrupt() {
+            interrupted = true;
+            if (null != thread) {
+                thread.interrupt();
             }
-        } catch (InterruptedException ie) {
-            // (Re-)Cancel if current thread also interrupted
-            pool.shutdownNow();
-            // Preserve interrupt status
-            Thread.currentThread().interrupt();
         }
     }
 
@@ -421,6 +535,46 @@ public class JschNodeExecutor implements NodeExecutor, Describable {
             return timeout;
         }
 
+        /**
+         * Return the session pool if SSH session pooling is enabled for the node, otherwise null.  The pool limits are
+         * configured from the framework properties.
+         */
+        public SSHSessionPool getSessionPool() {
+            if (!resolveBooleanProperty(NODE_ATTR_SSH_SESSION_POOL, false, node, frameworkProject, framework)) {
+                return null;
+            }
+            final SSHSessionPool pool = SSHSessionPool.getInstance();
+            if (framework.hasProperty(FWK_PROP_SSH_SESSION_POOL_IDLE_TIMEOUT)) {
+                try {
+                    pool.setIdleTimeout(Long.parseLong(framework.getProperty(FWK_PROP_SSH_SESSION_POOL_IDLE_TIMEOUT)));
+                } catch (NumberFormatException e) {
+                }
+            }
+            if (framework.hasProperty(FWK_PROP_SSH_SESSION_POOL_MAX_PER_HOST)) {
+                try {
+                    pool.setMaxSessionsPerHost(Integer.parseInt(framework.getProperty(
+                        FWK_PROP_SSH_SESSION_POOL_MAX_PER_HOST)));
+                } catch (NumberFormatException e) {
+                }
+            }
+            return pool;
+        }
+
+        /**
+         * Return the scope for pooled sessions: the execution ID, unless sessions are shared across executions.
+         */
+        public String getSessionScope() {
+            if (resolveBooleanProperty(NODE_ATTR_SSH_SESSION_POOL_SHARED, false, node, frameworkProject, framework)) {
+                return SSHSessionPool.SHARED_SCOPE;
+            }
+            final Map<String, String> job = null != context.getDataContext() ? context.getDataContext().get("job")
+                                                                             : null;
+            if (null != job && null != job.get("execid")) {
+                return job.get("execid");
+            }
+            return SSHSessionPool.SHARED_SCOPE;
+        }
+
         /**
          * Return null if the input is null or empty or whitespace, otherwise return the input
          * string trimmed.
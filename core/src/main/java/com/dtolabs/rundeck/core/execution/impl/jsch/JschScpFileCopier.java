@@ -33,12 +33,13 @@ import com.dtolabs.rundeck.core.execution.service.FileCopierException;
 import com.dtolabs.rundeck.core.plugins.configuration.Describable;
 import com.dtolabs.rundeck.core.plugins.configuration.Description;
 import com.dtolabs.rundeck.core.plugins.configuration.Property;
+import com.dtolabs.rundeck.core.tasks.net.ExtScp;
+import com.dtolabs.rundeck.core.tasks.net.SSHSessionPool;
 import com.dtolabs.rundeck.core.tasks.net.SSHTaskBuilder;
 import com.dtolabs.rundeck.plugins.util.DescriptionBuilder;
 import com.jcraft.jsch.JSchException;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
-import org.apache.tools.ant.Task;
 import org.apache.tools.ant.taskdefs.Echo;
 import org.apache.tools.ant.taskdefs.Sequential;
 
@@ -107,7 +108,7 @@ public class JschScpFileCopier extends BaseFileCopier implements FileCopier, Des
 
 
 //        logger.debug("temp file for node " + node.getNodename() + ": " + temp.getAbsolutePath() + ", datacontext: " + dataContext);
-        final Task scp;
+        final ExtScp scp;
         final JschNodeExecutor.NodeSSHConnectionInfo nodeAuthentication = new JschNodeExecutor.NodeSSHConnectionInfo(node,
             framework, context);
         try {
@@ -117,6 +118,11 @@ public class JschScpFileCopier extends BaseFileCopier implements FileCopier, Des
         } catch (SSHTaskBuilder.BuilderException e) {
             throw new FileCopierException(e);
         }
+        final SSHSessionPool sessionPool = nodeAuthentication.getSessionPool();
+        if (null != sessionPool) {
+            scp.setSessionPool(sessionPool);
+            scp.setSessionScope(nodeAuthentication.getSessionScope());
+        }
 
         /**
          * Copy the file over
@@ -143,7 +149,8 @@ public class JschScpFileCopier extends BaseFileCopier implements FileCopier, Des
             context.getExecutionListener().log(0, errormsg);
             throw new FileCopierException("[jsch-scp] Failed copying the file: " + errormsg, e);
         }
-        if (!localTempfile.delete()) {
+        //temp files in the execution's script cache are shared with other nodes
+        if (null == context.getScriptfileCache() && !localTempfile.delete()) {
             context.getExecutionListener().log(Constants.WARN_LEVEL,
                 "Unable to remove local temp file: " + localTempfile.getAbsolutePath());
         }
@@ -23,78 +23,183 @@
 */
 package com.dtolabs.rundeck.core.execution.impl.local;
 
+import com.dtolabs.rundeck.core.Constants;
+import com.dtolabs.rundeck.core.cli.CLIUtils;
 import com.dtolabs.rundeck.core.common.Framework;
 import com.dtolabs.rundeck.core.common.INodeEntry;
 import com.dtolabs.rundeck.core.dispatcher.DataContextUtils;
 import com.dtolabs.rundeck.core.execution.ExecutionContext;
 import com.dtolabs.rundeck.core.execution.ExecutionException;
 import com.dtolabs.rundeck.core.execution.ExecutionListener;
-import com.dtolabs.rundeck.core.execution.dispatch.ParallelNodeDispatcher;
-import com.dtolabs.rundeck.core.execution.impl.common.AntSupport;
-import com.dtolabs.rundeck.core.execution.script.ExecTaskParameterGenerator;
-import com.dtolabs.rundeck.core.execution.script.ExecTaskParameterGeneratorImpl;
-import com.dtolabs.rundeck.core.execution.script.ExecTaskParameters;
 import com.dtolabs.rundeck.core.execution.service.NodeExecutor;
 import com.dtolabs.rundeck.core.execution.service.NodeExecutorResult;
 import com.dtolabs.rundeck.core.execution.service.NodeExecutorResultImpl;
-import org.apache.tools.ant.BuildException;
-import org.apache.tools.ant.Project;
-import org.apache.tools.ant.Task;
-import org.apache.tools.ant.taskdefs.ExecTask;
-import org.apache.tools.ant.taskdefs.Sequential;
-import org.apache.tools.ant.types.Commandline;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * LocalNodeExecutor is ...
+ * LocalNodeExecutor executes a command on the local server with a ProcessBuilder.  The command is run with "/bin/sh
+ * -c" (or "cmd.exe /c" on windows), with the data context added as environment variables.  The process output is
+ * logged to the execution listener line by line, at INFO level for stdout and WARN level for stderr, by threads
+ * started from the executing thread so that they inherit its logging context (node, user and workflow step).  If the
+ * executing thread is interrupted, or the timeout in the framework property {@value #FWK_PROP_LOCAL_TIMEOUT} is
+ * exceeded, the process is killed.
  *
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  */
 public class LocalNodeExecutor implements NodeExecutor {
     public static final String SERVICE_PROVIDER_TYPE = "local";
+    /**
+     * Framework property for the timeout in milliseconds for local command executions, 0 for no timeout
+     */
+    public static final String FWK_PROP_LOCAL_TIMEOUT = "framework.local.command.timeout";
+    /**
+     * Time to wait for the output to be consumed after the process exits
+     */
+    static final long OUTPUT_JOIN_TIMEOUT = 2000;
     private Framework framework;
-    private ExecTaskParameterGenerator parameterGenerator;
 
     public LocalNodeExecutor(final Framework framework) {
         this.framework = framework;
-        parameterGenerator = new ExecTaskParameterGeneratorImpl();
     }
 
     public NodeExecutorResult executeCommand(final ExecutionContext context, final String[] command,
                                              final INodeEntry node) throws
         ExecutionException {
-        final ExecutionListener listener = context.getExecutionListener();
-        final Project project = new Project();
-        AntSupport.addAntBuildListener(listener, project);
-
-        String propName = System.currentTimeMillis() + ".node." + node.getNodename() + ".LocalNodeExecutor.result";
+        return execute(context, command, node, getTimeout());
+    }
 
-        boolean success = false;
-        final ExecTask execTask;
-        //perform jsch sssh command
-        execTask = buildExecTask(project, parameterGenerator.generate(node, true, null, command),
-            context.getDataContext());
+    /**
+     * Execute the command, and kill the process if it exceeds the timeout
+     *
+     * @param timeout timeout in milliseconds, or 0 for no timeout
+     */
+    NodeExecutorResult execute(final ExecutionContext context, final String[] command, final INodeEntry node,
+                               final long timeout) {
+        final ExecutionListener listener = context.getExecutionListener();
+        final List<String> args = buildCommand(node, command);
+        log(listener, Constants.VERBOSE_LEVEL, "Executing: " + args);
+        final ProcessBuilder builder = new ProcessBuilder(args);
+        final Map<String, String> environment = builder.environment();
+        for (final Map.Entry<String, String> entry : DataContextUtils.generateEnvVarsFromContext(
+            context.getDataContext()).entrySet()) {
+            if (null != entry.getKey() && null != entry.getValue()) {
+                environment.put(entry.getKey(), entry.getValue());
+            }
+        }
 
-        execTask.setResultProperty(propName);
+        final Process process;
+        try {
+            process = builder.start();
+        } catch (IOException e) {
+            log(listener, Constants.ERR_LEVEL, e.getMessage());
+            return createResult(node, -1);
+        }
+        try {
+            process.getOutputStream().close();
+        } catch (IOException e) {
+            //ignore
+        }
+        final Thread stdout = startOutputThread(new OutputPumper(process.getInputStream(), listener,
+            Constants.INFO_LEVEL), "stdout");
+        final Thread stderr = startOutputThread(new OutputPumper(process.getErrorStream(), listener,
+            Constants.WARN_LEVEL), "stderr");
 
+        final AtomicBoolean timedOut = new AtomicBoolean(false);
+        ScheduledFuture<?> timeoutFuture = null;
+        if (timeout > 0) {
+            timeoutFuture = getTimeoutExecutor().schedule(new Runnable() {
+                public void run() {
+                    timedOut.set(true);
+                    process.destroy();
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+        }
+        int result;
         try {
-            execTask.execute();
-            success = true;
-        } catch (BuildException e) {
-            context.getExecutionListener().log(0, e.getMessage());
+            result = process.waitFor();
+            awaitOutput(stdout);
+            awaitOutput(stderr);
+        } catch (InterruptedException e) {
+            process.destroy();
+            stdout.interrupt();
+            stderr.interrupt();
+            Thread.currentThread().interrupt();
+            log(listener, Constants.ERR_LEVEL, "Execution interrupted, killed the local process");
+            return createResult(node, -1);
+        } finally {
+            if (null != timeoutFuture) {
+                timeoutFuture.cancel(false);
+            }
+        }
+        if (timedOut.get()) {
+            log(listener, Constants.ERR_LEVEL,
+                "Failed execution for node: " + node.getNodename() + ": Execution Timeout period exceeded (after "
+                + timeout + "ms), killed the local process");
+            return createResult(node, -1);
+        }
+        return createResult(node, result);
+    }
+
+    /**
+     * Return the command line to execute: the command joined into a string and run by the shell, or for windows
+     * nodes the command arguments passed to cmd.exe.
+     */
+    static List<String> buildCommand(final INodeEntry node, final String[] command) {
+        final List<String> args = new ArrayList<String>();
+        if ("windows".equals(node.getOsFamily())) {
+            args.add("cmd.exe");
+            args.add("/c");
+            args.addAll(Arrays.asList(command));
+        } else {
+            args.add("/bin/sh");
+            args.add("-c");
+            args.add(CLIUtils.generateArgline(null, command));
         }
+        return args;
+    }
 
-        int result = success ? 0 : -1;
-        if (project.getProperty(propName) != null) {
+    private long getTimeout() {
+        if (framework.getPropertyLookup().hasProperty(FWK_PROP_LOCAL_TIMEOUT)) {
             try {
-                result = Integer.parseInt(project.getProperty(propName));
+                return Long.parseLong(framework.getProperty(FWK_PROP_LOCAL_TIMEOUT));
             } catch (NumberFormatException e) {
-
             }
         }
-        final boolean status = 0==result;
-        return new NodeExecutorResultImpl(status,node,result) {
+        return 0;
+    }
+
+    /**
+     * Start a daemon thread reading the process output.  The thread is created by the executing thread, so it inherits
+     * the thread-local logging context of the execution listener.
+     */
+    private static Thread startOutputThread(final OutputPumper pumper, final String name) {
+        final Thread thread = new Thread(pumper, "LocalNodeExecutor " + name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitOutput(final Thread thread) throws InterruptedException {
+        thread.join(OUTPUT_JOIN_TIMEOUT);
+        if (thread.isAlive()) {
+            //output stream held open by a child process
+            thread.interrupt();
+        }
+    }
+
+    private static NodeExecutorResult createResult(final INodeEntry node, final int result) {
+        return new NodeExecutorResultImpl(0 == result, node, result) {
             @Override
             public String toString() {
                 return "[local node exec] result was " + (isSuccess() ? "success" : "failure") + ", resultcode: "
@@ -103,21 +208,91 @@ public class LocalNodeExecutor implements NodeExecutor {
         };
     }
 
-    private ExecTask buildExecTask(Project project, ExecTaskParameters taskParameters,
-                                   Map<String, Map<String, String>> dataContext) {
-        final ExecTask execTask = new ExecTask();
-        execTask.setTaskType("exec");
-        execTask.setFailonerror(false);
-        execTask.setProject(project);
-        final Commandline.Argument arg = execTask.createArg();
+    private static void log(final ExecutionListener listener, final int level, final String message) {
+        if (null != listener) {
+            listener.log(level, message);
+        }
+    }
 
-        execTask.setExecutable(taskParameters.getCommandexecutable());
-        arg.setLine(taskParameters.getCommandargline());
+    /**
+     * Reads the process output in blocks and logs each line to the listener
+     */
+    static class OutputPumper implements Runnable {
+        private final InputStream input;
+        private final ExecutionListener listener;
+        private final int level;
 
-        //add Env elements to pass environment variables to the exec
+        OutputPumper(final InputStream input, final ExecutionListener listener, final int level) {
+            this.input = input;
+            this.listener = listener;
+            this.level = level;
+        }
 
-        DataContextUtils.addEnvVarsFromContextForExec(execTask, dataContext);
-        return execTask;
+        public void run() {
+            final Reader reader = new InputStreamReader(input);
+            final StringBuilder line = new StringBuilder();
+            final char[] buf = new char[8192];
+            try {
+                int c;
+                while ((c = reader.read(buf)) > 0) {
+                    int start = 0;
+                    for (int i = 0; i < c; i++) {
+                        if (buf[i] == '\n') {
+                            line.append(buf, start, i - start);
+                            logLine(line);
+                            start = i + 1;
+                        }
+                    }
+                    line.append(buf, start, c - start);
+                }
+            } catch (IOException e) {
+                //stream closed
+            } finally {
+                if (line.length() > 0) {
+                    logLine(line);
+                }
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    //ignore
+                }
+            }
+        }
+
+        private void logLine(final StringBuilder line) {
+            if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+            }
+            log(listener, level, line.toString());
+            line.setLength(0);
+        }
+    }
+
+    private static ScheduledExecutorService timeoutExecutor;
+
+    /**
+     * Return the executor shared by all executions for killing processes which exceed the timeout
+     */
+    static synchronized ScheduledExecutorService getTimeoutExecutor() {
+        if (null == timeoutExecutor) {
+            timeoutExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory(
+                "LocalNodeExecutor timeout"));
+        }
+        return timeoutExecutor;
     }
 
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private DaemonThreadFactory(final String name) {
+            this.name = name;
+        }
+
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, name + " " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
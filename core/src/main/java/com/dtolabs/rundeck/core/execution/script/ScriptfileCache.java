@@ -0,0 +1,171 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.execution.script;
+
+import com.dtolabs.rundeck.core.common.Framework;
+import com.dtolabs.rundeck.core.dispatcher.DataContextUtils;
+import com.dtolabs.utils.Streams;
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * ScriptfileCache holds the script temp files written during a single execution, so that a script dispatched to many
+ * nodes is rendered and written once rather than once per node.  A script which does not reference any "@node.*@"
+ * token is rendered once for the data context, and a script which does is rendered for each node but written once
+ * for each distinct result.  The temp files are shared between nodes, so they must not be modified or removed by the
+ * caller, and are deleted when {@link #cleanup()} is called at the end of the execution.
+ */
+public class ScriptfileCache {
+    private static final Logger log = Logger.getLogger(ScriptfileCache.class.getName());
+    private final Map<String, File> files = new HashMap<String, File>();
+
+    /**
+     * Return a temp file containing a copy of the source file, without token replacement
+     *
+     * @param framework framework
+     * @param original  source file
+     *
+     * @return temp file
+     *
+     * @throws IOException if an error occurs
+     */
+    public File getFileCopy(final Framework framework, final File original) throws IOException {
+        final String key = "file:" + original.getAbsolutePath() + ":" + original.lastModified() + ":"
+                           + original.length();
+        synchronized (this) {
+            File tempfile = files.get(key);
+            if (null == tempfile) {
+                tempfile = ScriptfileUtils.createTempFile(framework, false);
+                final FileInputStream in = new FileInputStream(original);
+                try {
+                    final FileOutputStream out = new FileOutputStream(tempfile);
+                    try {
+                        Streams.copyStream(in, out);
+                    } finally {
+                        out.close();
+                    }
+                } finally {
+                    in.close();
+                }
+                stage(key, tempfile);
+            }
+            return tempfile;
+        }
+    }
+
+    /**
+     * Return a temp file containing the script with tokens replaced by values from the data context and the node data
+     *
+     * @param framework   framework
+     * @param script      script content
+     * @param dataContext data context, without node data
+     * @param nodeData    data for the "node" context
+     *
+     * @return temp file
+     *
+     * @throws IOException if an error occurs
+     */
+    public File getScriptfile(final Framework framework, final String script,
+                              final Map<String, Map<String, String>> dataContext, final Map<String, String> nodeData)
+        throws IOException {
+        if (!DataContextUtils.hasTokensForContext(script, "node")) {
+            //rendered content is the same for every node
+            final String key = "script:" + sha1(script + "\u0000" + new TreeMap<String, String>(
+                DataContextUtils.flattenDataContext(dataContext)));
+            synchronized (this) {
+                File tempfile = files.get(key);
+                if (null == tempfile) {
+                    tempfile = write(framework, DataContextUtils.replaceTokensInString(script, dataContext));
+                    stage(key, tempfile);
+                }
+                return tempfile;
+            }
+        }
+        final String content = DataContextUtils.replaceTokensInString(script,
+            DataContextUtils.addContext("node", nodeData, dataContext));
+        final String key = "content:" + sha1(content);
+        synchronized (this) {
+            File tempfile = files.get(key);
+            if (null == tempfile) {
+                tempfile = write(framework, content);
+                stage(key, tempfile);
+            }
+            return tempfile;
+        }
+    }
+
+    /**
+     * Delete all of the temp files
+     */
+    public synchronized void cleanup() {
+        for (final File file : files.values()) {
+            if (file.exists() && !file.delete()) {
+                log.warn("Unable to remove temp file: " + file.getAbsolutePath());
+                file.deleteOnExit();
+            }
+        }
+        files.clear();
+    }
+
+    /**
+     * Return the number of temp files written
+     */
+    public synchronized int size() {
+        return files.size();
+    }
+
+    private void stage(final String key, final File tempfile) {
+        try {
+            ScriptfileUtils.setExecutePermissions(tempfile);
+        } catch (IOException e) {
+            log.warn("Failed to set execute permissions on tempfile, execution may fail: "
+                     + tempfile.getAbsolutePath());
+        }
+        files.put(key, tempfile);
+    }
+
+    private static File write(final Framework framework, final String content) throws IOException {
+        final File tempfile = ScriptfileUtils.createTempFile(framework, false);
+        final FileWriter writer = new FileWriter(tempfile);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return tempfile;
+    }
+
+    private static String sha1(final String content) {
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-1");
+            final byte[] digest = md.digest(content.getBytes("UTF-8"));
+            final StringBuilder sb = new StringBuilder();
+            for (final byte b : digest) {
+                sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
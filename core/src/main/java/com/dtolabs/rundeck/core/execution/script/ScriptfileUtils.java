@@ -19,6 +19,8 @@ package com.dtolabs.rundeck.core.execution.script;
 import com.dtolabs.rundeck.core.common.Framework;
 
 import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 
 /**
  * Utility methods for writing temp files for scripts and setting file permissions.
@@ -156,44 +158,72 @@ public class ScriptfileUtils {
     }
 
     /**
-     * Create a temp file in the framework 
+     * Create a temp file in the framework, marked delete-on-exit
      */
     public static File createTempFile(final Framework framework) throws IOException {
+        return createTempFile(framework, true);
+    }
+
+    /**
+     * Create a temp file in the framework
+     *
+     * @param framework    framework
+     * @param deleteOnExit if true, mark the file delete-on-exit, otherwise the caller must remove it
+     */
+    public static File createTempFile(final Framework framework, final boolean deleteOnExit) throws IOException {
         final File dispatch = File.createTempFile("dispatch", ".tmp", new File(framework.getProperty(
             "framework.tmp.dir")));
-        dispatch.deleteOnExit();
+        if (deleteOnExit) {
+            dispatch.deleteOnExit();
+        }
         return dispatch;
     }
 
     /**
-     * Set the executable flag on a file if supported by the OS
+     * Set the executable flag on a file if supported by the OS.  Uses File.setExecutable when running on java 6, and
+     * falls back to "chmod +x" otherwise.
      *
      * @param scriptfile target file
      *
      * @throws IOException if an error occurs
      */
     public static void setExecutePermissions(final File scriptfile) throws IOException {
-        ////////////////////
-        // XXX: the following commented block is available in java 6 only
-        /*if (!scriptfile.setExecutable(true, true)) {
-            warn("Unable to set executable bit on temp script file, execution may fail: " + scriptfile
-                .getAbsolutePath());
-        }*/
-        ///////////////////
-
-        if (!System.getProperty("os.name").toLowerCase().contains("windows")) {
-            final Process process = Runtime.getRuntime().exec(
-                new String[]{"chmod", "+x", scriptfile.getAbsolutePath()});
-            int result=-1;
+        if (System.getProperty("os.name").toLowerCase().contains("windows")) {
+            return;
+        }
+        //File.setExecutable is available in java 6 only
+        if (null != setExecutable) {
             try {
-                result=process.waitFor();
-            } catch (InterruptedException e) {
-
-            }
-            if(result>0) {
-                throw new IOException("exec returned: " + result);
+                if (Boolean.TRUE.equals(setExecutable.invoke(scriptfile, true, true))) {
+                    return;
+                }
+            } catch (IllegalAccessException e) {
+                //fall back to chmod
+            } catch (InvocationTargetException e) {
+                //fall back to chmod
             }
         }
+        final Process process = Runtime.getRuntime().exec(
+            new String[]{"chmod", "+x", scriptfile.getAbsolutePath()});
+        int result=-1;
+        try {
+            result=process.waitFor();
+        } catch (InterruptedException e) {
+
+        }
+        if(result>0) {
+            throw new IOException("exec returned: " + result);
+        }
+    }
+
+    private static final Method setExecutable = findSetExecutable();
+
+    private static Method findSetExecutable() {
+        try {
+            return File.class.getMethod("setExecutable", Boolean.TYPE, Boolean.TYPE);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
     }
 
 
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.execution.service;
+
+import com.dtolabs.rundeck.core.common.INodeEntry;
+import com.dtolabs.rundeck.core.execution.ExecutionContext;
+import com.dtolabs.rundeck.core.execution.ExecutionException;
+
+/**
+ * RemoteScriptNodeExecutor is a NodeExecutor which can run a script file already copied to a unix node in a single
+ * command: the file is made executable, executed, and then removed, and the result code of the script is returned.
+ */
+public interface RemoteScriptNodeExecutor extends NodeExecutor {
+    /**
+     * Execute a script file on a node and return the result.
+     *
+     * @param context  the execution context
+     * @param command  the array of strings for the script invocation, with any necessary data context references
+     *                 replaced.
+     * @param filepath the path of the script file on the node
+     * @param node     the node
+     *
+     * @return the result
+     */
+    public NodeExecutorResult executeRemoteScript(ExecutionContext context, String[] command, String filepath,
+                                                  INodeEntry node) throws ExecutionException;
+}
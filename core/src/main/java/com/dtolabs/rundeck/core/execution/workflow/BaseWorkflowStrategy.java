@@ -30,6 +30,7 @@ import com.dtolabs.rundeck.core.common.SelectorUtils;
 import com.dtolabs.rundeck.core.execution.*;
 import com.dtolabs.rundeck.core.execution.dispatch.DispatcherException;
 import com.dtolabs.rundeck.core.execution.dispatch.DispatcherResult;
+import com.dtolabs.rundeck.core.execution.script.ScriptfileCache;
 import com.dtolabs.rundeck.core.execution.workflow.steps.StepExecutionResult;
 
 import java.util.*;
@@ -90,9 +91,16 @@ public abstract class BaseWorkflowStrategy implements WorkflowStrategy {
 
     }
 
-    public final WorkflowExecutionResult executeWorkflow(final StepExecutionContext executionContext,
+    public final WorkflowExecutionResult executeWorkflow(final StepExecutionContext context,
                                                          final WorkflowExecutionItem item) {
 
+        //share script temp files among the steps and nodes of the execution, and remove them when it finishes
+        ScriptfileCache scriptfileCache = null;
+        StepExecutionContext executionContext = context;
+        if (null == context.getScriptfileCache()) {
+            scriptfileCache = new ScriptfileCache();
+            executionContext = ExecutionContextImpl.builder(context).scriptfileCache(scriptfileCache).build();
+        }
         final WorkflowExecutionListener wlistener = getWorkflowListener(executionContext);
         if (null != wlistener && !StepFirstWorkflowStrategy.isInnerLoop(item)) {
             wlistener.beginWorkflowExecution(executionContext, item);
@@ -104,6 +112,9 @@ public abstract class BaseWorkflowStrategy implements WorkflowStrategy {
             if (null != wlistener && !StepFirstWorkflowStrategy.isInnerLoop(item)) {
                 wlistener.finishWorkflowExecution(result, executionContext, item);
             }
+            if (null != scriptfileCache) {
+                scriptfileCache.cleanup();
+            }
         }
         return result;
     }
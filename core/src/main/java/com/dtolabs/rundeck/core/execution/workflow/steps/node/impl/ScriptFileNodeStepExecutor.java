@@ -29,7 +29,6 @@ import com.dtolabs.rundeck.core.execution.ExecutionContext;
 import com.dtolabs.rundeck.core.execution.ExecutionException;
 import com.dtolabs.rundeck.core.execution.ExecutionService;
 import com.dtolabs.rundeck.core.execution.service.FileCopierException;
-import com.dtolabs.rundeck.core.execution.service.NodeExecutorResult;
 import com.dtolabs.rundeck.core.execution.workflow.StepExecutionContext;
 import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepException;
 import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepExecutionItem;
@@ -111,19 +110,6 @@ public class ScriptFileNodeStepExecutor implements NodeStepExecutor {
                                                      final String scriptInterpreter,
                                                      final boolean interpreterargsquoted) throws NodeStepException {
         try {
-            /**
-             * TODO: Avoid this horrific hack. Discover how to get SCP task to preserve the execute bit.
-             */
-            if (!"windows".equalsIgnoreCase(node.getOsFamily())) {
-                //perform chmod+x for the file
-
-                final NodeExecutorResult nodeExecutorResult = framework.getExecutionService().executeCommand(
-                    context, new String[]{"chmod", "+x", filepath}, node);
-                if (!nodeExecutorResult.isSuccess()) {
-                    return nodeExecutorResult;
-                }
-            }
-
             //replace data references
             final String[] newargs = BaseScriptPlugin.createScriptArgs(context.getDataContext(),
                                                                        null,
@@ -133,8 +119,8 @@ public class ScriptFileNodeStepExecutor implements NodeStepExecutor {
                                                                        filepath);
             //XXX: windows specific call?
 
-            return framework.getExecutionService().executeCommand(context, newargs, node);
-            //TODO: remove remote temp file after exec?
+            //make the file executable, execute it, and remove it if supported by the node executor
+            return framework.getExecutionService().executeRemoteScript(context, newargs, filepath, node);
         } catch (ExecutionException e) {
             throw new NodeStepException(e, node.getNodename());
         }
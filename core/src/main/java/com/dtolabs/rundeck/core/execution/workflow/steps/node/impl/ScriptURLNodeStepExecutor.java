@@ -33,7 +33,6 @@ import com.dtolabs.rundeck.core.dispatcher.DataContextUtils;
 import com.dtolabs.rundeck.core.execution.ExecutionException;
 import com.dtolabs.rundeck.core.execution.ExecutionService;
 import com.dtolabs.rundeck.core.execution.service.FileCopierException;
-import com.dtolabs.rundeck.core.execution.service.NodeExecutorResult;
 import com.dtolabs.rundeck.core.execution.workflow.StepExecutionContext;
 import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepException;
 import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepExecutionItem;
@@ -153,19 +152,6 @@ public class ScriptURLNodeStepExecutor implements NodeStepExecutor {
         }
 
         try {
-            /**
-             * TODO: Avoid this horrific hack. Discover how to get SCP task to preserve the execute bit.
-             */
-            if (!"windows".equalsIgnoreCase(node.getOsFamily())) {
-                //perform chmod+x for the file
-
-                final NodeExecutorResult nodeExecutorResult = framework.getExecutionService().executeCommand(
-                    context, new String[]{"chmod", "+x", filepath}, node);
-                if (!nodeExecutorResult.isSuccess()) {
-                    return nodeExecutorResult;
-                }
-            }
-
             final String[] args = script.getArgs();
             //replace data references
             String[] newargs = null;
@@ -178,7 +164,8 @@ public class ScriptURLNodeStepExecutor implements NodeStepExecutor {
                 newargs = new String[]{filepath};
             }
 
-            return framework.getExecutionService().executeCommand(context, newargs, node);
+            //make the file executable, execute it, and remove it if supported by the node executor
+            return framework.getExecutionService().executeRemoteScript(context, newargs, filepath, node);
         } catch (ExecutionException e) {
             throw new NodeStepException(e, node.getNodename());
         }
@@ -145,7 +145,12 @@ abstract class DirPluginScanner implements PluginScanner {
      * interval
      */
     public boolean shouldRescan() {
-        return shouldScanAll(extdir.listFiles(getFileFilter()));
+        if (lastScanAllCheckTime > 0 && lastScanAllCheckTime + scanintervalMs > System.currentTimeMillis()) {
+            //avoid listing the directory until the interval has passed
+            return false;
+        }
+        final File[] files = extdir.listFiles(getFileFilter());
+        return shouldScanAll(null != files ? files : new File[0]);
     }
 
     /**
@@ -29,13 +29,26 @@ import com.dtolabs.rundeck.core.utils.cache.FileCache;
 import org.apache.log4j.Logger;
 
 import java.io.File;
+import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * FilePluginCache uses a filecache and a set of {@link PluginScanner}s to cache and create {@link ProviderLoader}
  * instances associated with files.
  * <p/>
  * The instances are returned for {@link ProviderIdent} instances.
+ * <p/>
+ * Resolved loaders, and idents with no matching plugin, are published in an immutable map which is replaced as a
+ * whole, so that lookups of previously resolved idents are a single map read without locking or file access.  A
+ * background task checks the scanners for changes at the rescan interval, and if any plugin file was added, removed or
+ * modified it resolves all of the previously resolved idents again and replaces the map.  The rescan tasks of all caches
+ * run on a single shared daemon thread, and only weakly reference their cache, so a cache which is no longer used can
+ * be collected and its task is then cancelled.
  *
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  */
@@ -64,16 +77,35 @@ class FilePluginCache implements PluginCache {
      * Scanners to use
      */
     final List<PluginScanner> scanners;
+    /**
+     * Immutable map of resolved loaders, with a null value for idents which have no matching plugin
+     */
+    private volatile Map<ProviderIdent, ProviderLoader> loaders = Collections.emptyMap();
+    private final long rescanIntervalMs;
+    private ScheduledFuture<?> rescanTask;
+    private static ScheduledExecutorService rescanExecutor;
 
+    /**
+     * Create a cache which checks for plugin changes every 5 seconds
+     */
     FilePluginCache(final FileCache<ProviderLoader> filecache) {
+        this(filecache, 5000);
+    }
+
+    /**
+     * @param filecache        filecache of loaders
+     * @param rescanIntervalMs interval between checks for plugin changes
+     */
+    FilePluginCache(final FileCache<ProviderLoader> filecache, final long rescanIntervalMs) {
         this.filecache = filecache;
+        this.rescanIntervalMs = rescanIntervalMs;
         scanners = new ArrayList<PluginScanner>();
     }
 
     /**
      * Add a new scanner
      */
-    public void addScanner(final PluginScanner scanner) {
+    public synchronized void addScanner(final PluginScanner scanner) {
         scanners.add(scanner);
     }
 
@@ -95,7 +127,34 @@ class FilePluginCache implements PluginCache {
      *
      * @return loader for the provider
      */
-    public synchronized ProviderLoader getLoaderForIdent(final ProviderIdent ident) throws ProviderLoaderException {
+    public ProviderLoader getLoaderForIdent(final ProviderIdent ident) throws ProviderLoaderException {
+        final Map<ProviderIdent, ProviderLoader> resolved = loaders;
+        if (resolved.containsKey(ident)) {
+            return resolved.get(ident);
+        }
+        return resolveLoaderForIdent(ident);
+    }
+
+    /**
+     * Resolve the loader for an ident which has not been resolved, and publish the result
+     */
+    private synchronized ProviderLoader resolveLoaderForIdent(final ProviderIdent ident) throws
+        ProviderLoaderException {
+        if (loaders.containsKey(ident)) {
+            return loaders.get(ident);
+        }
+        final ProviderLoader loader = findLoaderForIdent(ident);
+        final HashMap<ProviderIdent, ProviderLoader> resolved = new HashMap<ProviderIdent, ProviderLoader>(loaders);
+        resolved.put(ident, loader);
+        loaders = Collections.unmodifiableMap(resolved);
+        scheduleRescan();
+        return loader;
+    }
+
+    /**
+     * Return the loader from the cache, or scan for it
+     */
+    private ProviderLoader findLoaderForIdent(final ProviderIdent ident) throws ProviderLoaderException {
         final cacheItem cacheItem = cache.get(ident);
         if (null == cacheItem) {
             log.debug("getLoaderForIdent! " + ident);
@@ -113,7 +172,90 @@ class FilePluginCache implements PluginCache {
         }
     }
 
-    public List<ProviderIdent> listProviders() {
+    /**
+     * Check the scanners for plugin changes, and if any have changed resolve the previously resolved idents again
+     */
+    synchronized void rescan() {
+        if (!shouldRescan()) {
+            return;
+        }
+        log.debug("rescan: plugins changed");
+        final HashMap<ProviderIdent, ProviderLoader> resolved = new HashMap<ProviderIdent, ProviderLoader>();
+        for (final ProviderIdent ident : loaders.keySet()) {
+            final cacheItem item = cache.get(ident);
+            if (null != item && !item.getFirst().exists()) {
+                remove(ident);
+            } else {
+                //filecache retains the loader if the file is unchanged
+                cache.remove(ident);
+            }
+            try {
+                resolved.put(ident, rescanForItem(ident));
+            } catch (ProviderLoaderException e) {
+                //leave unresolved, the error will be reported by the next lookup
+                log.warn("rescan: " + ident + ": " + e.getMessage());
+            }
+        }
+        loaders = Collections.unmodifiableMap(resolved);
+    }
+
+    /**
+     * Start the background rescan task if it is not running
+     */
+    private synchronized void scheduleRescan() {
+        if (null != rescanTask) {
+            return;
+        }
+        final RescanTask task = new RescanTask(this);
+        rescanTask = getRescanExecutor().scheduleWithFixedDelay(task, rescanIntervalMs, rescanIntervalMs,
+            TimeUnit.MILLISECONDS);
+        task.future = rescanTask;
+    }
+
+    /**
+     * Return the executor shared by all caches for the rescan tasks
+     */
+    private static synchronized ScheduledExecutorService getRescanExecutor() {
+        if (null == rescanExecutor) {
+            rescanExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "FilePluginCache rescan");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return rescanExecutor;
+    }
+
+    /**
+     * Rescans a cache while it is referenced elsewhere, and cancels itself once the cache has been collected
+     */
+    private static class RescanTask implements Runnable {
+        private final WeakReference<FilePluginCache> cache;
+        private volatile ScheduledFuture<?> future;
+
+        private RescanTask(final FilePluginCache cache) {
+            this.cache = new WeakReference<FilePluginCache>(cache);
+        }
+
+        public void run() {
+            final FilePluginCache pluginCache = cache.get();
+            if (null == pluginCache) {
+                if (null != future) {
+                    future.cancel(false);
+                }
+                return;
+            }
+            try {
+                pluginCache.rescan();
+            } catch (RuntimeException e) {
+                log.error("Error checking for plugin changes: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public synchronized List<ProviderIdent> listProviders() {
         final ArrayList<ProviderIdent> providerIdents = new ArrayList<ProviderIdent>();
         for (final PluginScanner scanner : scanners) {
             providerIdents.addAll(scanner.listProviders());
@@ -43,10 +43,13 @@ import java.util.jar.Manifest;
 
 /**
  * JarPluginProviderLoader can load jar plugin files as provider instances.
+ * <p/>
+ * The provider idents and extracted libs of the jar are recorded in the {@link PluginIndex} of the cache dir, so that
+ * after a restart the providers can be listed without loading the classes, and the libs are not extracted again.
  *
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  */
-class JarPluginProviderLoader implements ProviderLoader, FileCache.Expireable {
+class JarPluginProviderLoader implements PreloadableProviderLoader, FileCache.Expireable {
     private static Logger log = Logger.getLogger(JarPluginProviderLoader.class.getName());
     public static final String RUNDECK_PLUGIN_ARCHIVE = "Rundeck-Plugin-Archive";
     public static final String RUNDECK_PLUGIN_CLASSNAMES = "Rundeck-Plugin-Classnames";
@@ -59,6 +62,9 @@ class JarPluginProviderLoader implements ProviderLoader, FileCache.Expireable {
     private final File cachedir;
     private Map<ProviderIdent, Class> pluginProviderDefs =
         new HashMap<ProviderIdent, Class>();
+    private List<ProviderIdent> providerIdents;
+    private Collection<File> extractedLibs;
+    private ClassLoader classLoader;
 
     public JarPluginProviderLoader(final File file, final File cachedir) {
         if (null == file) {
@@ -243,41 +249,75 @@ class JarPluginProviderLoader implements ProviderLoader, FileCache.Expireable {
             return classCache.get(classname);
         }
         debug("loadClass! " + classname + ": " + file);
-        final ClassLoader parent = JarPluginProviderLoader.class.getClassLoader();
+        final ClassLoader loader = getClassLoader();
         final Class cls;
+        try {
+            cls = Class.forName(classname, true, loader);
+            classCache.put(classname, cls);
+        } catch (ClassNotFoundException e) {
+            throw new PluginException("Class not found: " + classname, e);
+        } catch (Throwable t) {
+            throw new PluginException("Error loading class: " + classname, t);
+        }
+        return cls;
+    }
+
+    /**
+     * Return the classloader for the jar and its dependent libs, creating it if necessary
+     */
+    private ClassLoader getClassLoader() throws PluginException {
+        if (null != classLoader) {
+            return classLoader;
+        }
+        final ClassLoader parent = JarPluginProviderLoader.class.getClassLoader();
 
         //if jar manifest declares secondary lib deps, expand lib into cachedir, and setup classloader to use the libs
-        Collection<File> extlibs=null;
+        final Collection<File> extlibs;
         try {
-            extlibs=extractDependentLibs();
+            extlibs = getDependentLibs();
         } catch (IOException e) {
-            throw new PluginException("Unable to expand plugin libs: "+e.getMessage(), e);
+            throw new PluginException("Unable to expand plugin libs: " + e.getMessage(), e);
         }
-
         try {
-            final URL url = file.toURI().toURL();
-            final URL[] urlarray;
-            if(null!=extlibs && extlibs.size()>0){
-                final ArrayList<URL> urls = new ArrayList<URL>();
-                urls.add(url);
+            final ArrayList<URL> urls = new ArrayList<URL>();
+            urls.add(file.toURI().toURL());
+            if (null != extlibs) {
                 for (final File extlib : extlibs) {
                     urls.add(extlib.toURI().toURL());
                 }
-                urlarray = urls.toArray(new URL[urls.size()]);
-            }else {
-                urlarray = new URL[]{url};
             }
-            final URLClassLoader urlClassLoader = URLClassLoader.newInstance(urlarray, parent);
-            cls = Class.forName(classname, true, urlClassLoader);
-            classCache.put(classname, cls);
-        } catch (ClassNotFoundException e) {
-            throw new PluginException("Class not found: " + classname, e);
+            classLoader = URLClassLoader.newInstance(urls.toArray(new URL[urls.size()]), parent);
         } catch (MalformedURLException e) {
-            throw new PluginException("Error loading class: " + classname, e);
-        } catch (Throwable t) {
-            throw new PluginException("Error loading class: " + classname, t);
+            throw new PluginException("Error loading plugin libs: " + e.getMessage(), e);
         }
-        return cls;
+        return classLoader;
+    }
+
+    /**
+     * Return the extracted dependent libs, using the libs recorded in the plugin index if it is valid, otherwise
+     * extracting them
+     */
+    private Collection<File> getDependentLibs() throws IOException {
+        if (null == extractedLibs) {
+            final PluginIndex.Entry entry = getIndexEntry();
+            if (null != entry) {
+                debug("indexed jar libs: " + entry.getFiles() + " for file: " + file);
+                extractedLibs = entry.getFiles();
+            } else {
+                extractedLibs = extractDependentLibs();
+            }
+        }
+        return extractedLibs;
+    }
+
+    /**
+     * Return the plugin index entry for the file, or null
+     */
+    private PluginIndex.Entry getIndexEntry() {
+        if (null == cachedir) {
+            return null;
+        }
+        return PluginIndex.forCacheDir(cachedir).get(file);
     }
 
     /**
@@ -354,30 +394,71 @@ class JarPluginProviderLoader implements ProviderLoader, FileCache.Expireable {
      * Return true if the file has a class that provides the ident.
      */
     public synchronized boolean isLoaderFor(final ProviderIdent ident) {
+        return getProviderIdents().contains(ident);
+    }
+
+    public synchronized List<ProviderIdent> listProviders() {
+        return new ArrayList<ProviderIdent>(getProviderIdents());
+    }
+
+    /**
+     * Return the provider idents declared by the classes in the jar, from the plugin index if it is valid, otherwise
+     * by loading the classes
+     */
+    private List<ProviderIdent> getProviderIdents() {
+        if (null == providerIdents) {
+            final PluginIndex.Entry entry = getIndexEntry();
+            if (null != entry) {
+                providerIdents = entry.getProviders();
+            } else {
+                providerIdents = loadProviderIdents();
+            }
+        }
+        return providerIdents;
+    }
+
+    /**
+     * Load the classes declared in the jar and return their provider idents.  If all of the classes were loaded, the
+     * idents and extracted libs are recorded in the plugin index.
+     */
+    private List<ProviderIdent> loadProviderIdents() {
+        final ArrayList<ProviderIdent> idents = new ArrayList<ProviderIdent>();
         final String[] strings = getClassnames();
+        if (null == strings) {
+            return idents;
+        }
+        boolean complete = true;
         for (final String classname : strings) {
             try {
-                if (matchesProviderDeclaration(ident, loadClass(classname, file))) {
-                    return true;
-                }
+                idents.add(getProviderDeclaration(loadClass(classname, file)));
             } catch (PluginException e) {
-                e.printStackTrace();
+                log.error("Failed to load class from " + file + ": classname: " + classname + ": " + e.getMessage());
+                complete = false;
             }
         }
-        return false;
+        if (complete && null != cachedir) {
+            PluginIndex.forCacheDir(cachedir).put(file, idents,
+                null != extractedLibs ? extractedLibs : Collections.<File>emptyList());
+        }
+        return idents;
     }
 
-    public List<ProviderIdent> listProviders() {
-        final ArrayList<ProviderIdent> providerIdents = new ArrayList<ProviderIdent>();
+    /**
+     * Extract the dependent libs and load the provider classes
+     */
+    public synchronized void preload() {
         final String[] strings = getClassnames();
+        if (null == strings) {
+            return;
+        }
         for (final String classname : strings) {
             try {
-                providerIdents.add(getProviderDeclaration(loadClass(classname, file)));
+                loadClass(classname, file);
             } catch (PluginException e) {
-                e.printStackTrace();
+                log.error("Failed to load class from " + file + ": classname: " + classname + ": " + e.getMessage());
             }
         }
-        return providerIdents;
+        getProviderIdents();
     }
 
     /**
@@ -396,6 +477,9 @@ class JarPluginProviderLoader implements ProviderLoader, FileCache.Expireable {
      */
     public void expire() {
         removeScriptPluginCache();
+        if (null != cachedir) {
+            PluginIndex.forCacheDir(cachedir).remove(file);
+        }
     }
 
     @Override
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.plugins;
+
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * PluginIndex records what was learned about each plugin file in the plugin cache dir, so that it is available after a
+ * restart: the checksum of the file, the provider idents it declares, and the files extracted from it into the cache
+ * dir.  An entry is only returned while the checksum matches the plugin file and the extracted files still exist.  The
+ * checksum is only recomputed when the size or modification time of the plugin file differs from the entry.
+ */
+class PluginIndex {
+    private static final Logger log = Logger.getLogger(PluginIndex.class.getName());
+    public static final String INDEX_FILE_NAME = "plugin-index.properties";
+    private static final String CHECKSUM = ".checksum";
+    private static final String MODIFIED = ".modified";
+    private static final String SIZE = ".size";
+    private static final String PROVIDERS = ".providers";
+    private static final String FILES = ".files";
+    private static final Map<File, PluginIndex> indexes = new HashMap<File, PluginIndex>();
+
+    private final File indexFile;
+    private final Properties properties = new Properties();
+
+    PluginIndex(final File cachedir) {
+        this.indexFile = new File(cachedir, INDEX_FILE_NAME);
+        if (indexFile.isFile()) {
+            try {
+                final FileInputStream in = new FileInputStream(indexFile);
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                log.warn("Unable to read plugin index: " + indexFile + ": " + e.getMessage());
+                properties.clear();
+            }
+        }
+    }
+
+    /**
+     * Return the shared index for the cache dir
+     */
+    static PluginIndex forCacheDir(final File cachedir) {
+        final File key = cachedir.getAbsoluteFile();
+        synchronized (indexes) {
+            if (null == indexes.get(key)) {
+                indexes.put(key, new PluginIndex(key));
+            }
+            return indexes.get(key);
+        }
+    }
+
+    /**
+     * An index entry for a plugin file
+     */
+    static class Entry {
+        private final List<ProviderIdent> providers;
+        private final List<File> files;
+
+        Entry(final List<ProviderIdent> providers, final List<File> files) {
+            this.providers = providers;
+            this.files = files;
+        }
+
+        /**
+         * Return the provider idents declared by the plugin
+         */
+        public List<ProviderIdent> getProviders() {
+            return providers;
+        }
+
+        /**
+         * Return the files extracted from the plugin into the cache dir
+         */
+        public List<File> getFiles() {
+            return files;
+        }
+    }
+
+    /**
+     * Return the entry for the plugin file, or null if there is none or it is no longer valid
+     */
+    public synchronized Entry get(final File file) {
+        final String name = file.getName();
+        final String checksum = properties.getProperty(name + CHECKSUM);
+        if (null == checksum || !file.isFile()) {
+            return null;
+        }
+        final String modified = Long.toString(file.lastModified());
+        final String size = Long.toString(file.length());
+        if (!modified.equals(properties.getProperty(name + MODIFIED))
+            || !size.equals(properties.getProperty(name + SIZE))) {
+            if (!checksum.equals(checksum(file))) {
+                debug("checksum changed: " + file);
+                remove(file);
+                return null;
+            }
+            properties.setProperty(name + MODIFIED, modified);
+            properties.setProperty(name + SIZE, size);
+            store();
+        }
+        final List<File> files = new ArrayList<File>();
+        for (final String path : split(properties.getProperty(name + FILES), File.pathSeparator)) {
+            final File extracted = new File(path);
+            if (!extracted.exists()) {
+                debug("extracted file missing: " + extracted);
+                remove(file);
+                return null;
+            }
+            files.add(extracted);
+        }
+        final List<ProviderIdent> providers = new ArrayList<ProviderIdent>();
+        for (final String provider : split(properties.getProperty(name + PROVIDERS), ",")) {
+            final String[] parts = provider.split(":", 2);
+            if (parts.length == 2) {
+                providers.add(new ProviderIdent(parts[0], parts[1]));
+            }
+        }
+        return new Entry(providers, files);
+    }
+
+    /**
+     * Store an entry for the plugin file
+     *
+     * @param file      plugin file
+     * @param providers provider idents declared by the plugin
+     * @param files     files extracted from the plugin into the cache dir
+     */
+    public synchronized void put(final File file, final Collection<ProviderIdent> providers,
+                                 final Collection<File> files) {
+        final String checksum = checksum(file);
+        if (null == checksum) {
+            return;
+        }
+        final String name = file.getName();
+        final StringBuilder providerList = new StringBuilder();
+        for (final ProviderIdent provider : providers) {
+            if (providerList.length() > 0) {
+                providerList.append(",");
+            }
+            providerList.append(provider.getService()).append(":").append(provider.getProviderName());
+        }
+        final StringBuilder fileList = new StringBuilder();
+        for (final File extracted : files) {
+            if (fileList.length() > 0) {
+                fileList.append(File.pathSeparator);
+            }
+            fileList.append(extracted.getAbsolutePath());
+        }
+        properties.setProperty(name + CHECKSUM, checksum);
+        properties.setProperty(name + MODIFIED, Long.toString(file.lastModified()));
+        properties.setProperty(name + SIZE, Long.toString(file.length()));
+        properties.setProperty(name + PROVIDERS, providerList.toString());
+        properties.setProperty(name + FILES, fileList.toString());
+        store();
+    }
+
+    /**
+     * Remove any entry for the plugin file
+     */
+    public synchronized void remove(final File file) {
+        final String name = file.getName();
+        if (null == properties.remove(name + CHECKSUM)) {
+            return;
+        }
+        properties.remove(name + MODIFIED);
+        properties.remove(name + SIZE);
+        properties.remove(name + PROVIDERS);
+        properties.remove(name + FILES);
+        store();
+    }
+
+    private static List<String> split(final String value, final String separator) {
+        if (null == value || "".equals(value)) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(value.split(Pattern.quote(separator)));
+    }
+
+    /**
+     * Write the index to a temp file and move it into place
+     */
+    private void store() {
+        final File dir = indexFile.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            log.warn("Unable to create cache dir: " + dir.getAbsolutePath());
+            return;
+        }
+        final File temp = new File(dir, INDEX_FILE_NAME + ".tmp");
+        try {
+            final FileOutputStream out = new FileOutputStream(temp);
+            try {
+                properties.store(out, "Rundeck plugin index. do not edit.");
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(indexFile) && !(indexFile.delete() && temp.renameTo(indexFile))) {
+                log.warn("Unable to write plugin index: " + indexFile.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            log.warn("Unable to write plugin index: " + indexFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Return the SHA-1 checksum of the file contents as a hex string, or null if it cannot be read
+     */
+    static String checksum(final File file) {
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-1");
+            final FileInputStream in = new FileInputStream(file);
+            try {
+                final byte[] buf = new byte[8192];
+                int c;
+                while ((c = in.read(buf)) > 0) {
+                    md.update(buf, 0, c);
+                }
+            } finally {
+                in.close();
+            }
+            final StringBuilder sb = new StringBuilder();
+            for (final byte b : md.digest()) {
+                sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            log.warn("Unable to read plugin file: " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void debug(final String s) {
+        if (log.isDebugEnabled()) {
+            log.debug(s);
+        }
+    }
+}
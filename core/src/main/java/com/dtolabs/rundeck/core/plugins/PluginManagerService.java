@@ -31,9 +31,13 @@ import com.dtolabs.rundeck.core.utils.cache.FileCache;
 import org.apache.log4j.Logger;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * PluginManagerService is ...
@@ -53,11 +57,61 @@ public class PluginManagerService implements FrameworkSupportService, ServicePro
         this.extdir = extdir;
         this.cachedir = cachedir;
         final FileCache<ProviderLoader> filecache = new FileCache<ProviderLoader>();
-        cache = new FilePluginCache(filecache);
         final int rescanInterval = 5000;//TODO: use framework property to set interval
-        cache.addScanner(new JarPluginScanner(extdir, cachedir, filecache, rescanInterval));
-        cache.addScanner(new ScriptPluginScanner(extdir, cachedir, filecache, rescanInterval));
+        cache = new FilePluginCache(filecache, rescanInterval);
+        final JarPluginScanner jarScanner = new JarPluginScanner(extdir, cachedir, filecache, rescanInterval);
+        final ScriptPluginScanner scriptScanner = new ScriptPluginScanner(extdir, cachedir, filecache,
+            rescanInterval);
+        cache.addScanner(jarScanner);
+        cache.addScanner(scriptScanner);
         log.debug("Create PluginManagerService");
+        preload(filecache, jarScanner, scriptScanner);
+    }
+
+    /**
+     * Create the loaders for the plugin files and preload them in parallel in the background, so that the plugin
+     * contents are extracted and the classes loaded before the first provider is requested.
+     */
+    private static void preload(final FileCache<ProviderLoader> filecache, final DirPluginScanner... scanners) {
+        final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+        for (final DirPluginScanner scanner : scanners) {
+            final File[] files = scanner.extdir.listFiles(scanner.getFileFilter());
+            if (null == files) {
+                continue;
+            }
+            for (final File file : files) {
+                tasks.add(new Runnable() {
+                    public void run() {
+                        try {
+                            if (!scanner.isValidPluginFile(file)) {
+                                return;
+                            }
+                            final ProviderLoader loader = filecache.get(file, scanner);
+                            if (loader instanceof PreloadableProviderLoader) {
+                                ((PreloadableProviderLoader) loader).preload();
+                            }
+                        } catch (RuntimeException e) {
+                            log.warn("Unable to preload plugin file: " + file + ": " + e.getMessage());
+                        }
+                    }
+                });
+            }
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+        final int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "PluginManagerService preload");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        for (final Runnable task : tasks) {
+            executor.execute(task);
+        }
+        executor.shutdown();
     }
 
 
@@ -85,11 +139,11 @@ public class PluginManagerService implements FrameworkSupportService, ServicePro
         return managerRegistry.get(libextDir);
     }
 
-    public synchronized List<ProviderIdent> listProviders() {
+    public List<ProviderIdent> listProviders() {
         return cache.listProviders();
     }
 
-    public synchronized <T> T loadProvider(final PluggableService<T> service, final String providerName) throws ProviderLoaderException {
+    public <T> T loadProvider(final PluggableService<T> service, final String providerName) throws ProviderLoaderException {
         final ProviderIdent ident = new ProviderIdent(service.getName(), providerName);
         final ProviderLoader loaderForIdent = cache.getLoaderForIdent(ident);
         if (null == loaderForIdent) {
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.plugins;
+
+/**
+ * PreloadableProviderLoader can prepare the plugin contents before any provider is loaded, so that the first load
+ * does not pay the cost.
+ */
+interface PreloadableProviderLoader extends ProviderLoader {
+    /**
+     * Extract the plugin contents and load the provider classes, if necessary
+     */
+    public void preload();
+}
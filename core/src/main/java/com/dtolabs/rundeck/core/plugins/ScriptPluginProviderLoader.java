@@ -44,10 +44,13 @@ import java.util.zip.ZipInputStream;
 
 /**
  * ScriptPluginProviderLoader can load a provider instance for a service from a script plugin zip file.
+ * <p/>
+ * The provider idents and expanded dir of the zip are recorded in the {@link PluginIndex} of the cache dir, so that
+ * after a restart the providers can be listed without reading the zip, and the zip is not expanded again.
  *
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  */
-class ScriptPluginProviderLoader implements ProviderLoader, FileCache.Expireable {
+class ScriptPluginProviderLoader implements PreloadableProviderLoader, FileCache.Expireable {
 
     private static final Logger log = Logger.getLogger(ScriptPluginProviderLoader.class.getName());
     public static final String SCRIPT_PLUGIN_VERSION = "1.0";
@@ -140,7 +143,12 @@ class ScriptPluginProviderLoader implements ProviderLoader, FileCache.Expireable
      */
     private ScriptPluginProvider getPlugin(final File file, final ProviderDef pluginDef, final ProviderIdent ident) throws
         ProviderLoaderException, PluginException {
-        if (null == fileExpandedDir) {
+        final PluginIndex.Entry entry;
+        if (null == fileExpandedDir && null != (entry = getIndexEntry())
+            && entry.getFiles().contains(getFileCacheDir())) {
+            fileExpandedDir = getFileCacheDir();
+            debug("indexed plugin dir: " + fileExpandedDir);
+        } else if (null == fileExpandedDir) {
             final File dir;
             try {
                 dir = expandScriptPlugin(file);
@@ -156,6 +164,9 @@ class ScriptPluginProviderLoader implements ProviderLoader, FileCache.Expireable
                 log.warn("Unable to set executable bit for script file: " + script + ": " + e.getMessage());
             }
             debug("expanded plugin dir! " + fileExpandedDir);
+            if (null != cachedir) {
+                PluginIndex.forCacheDir(cachedir).put(file, listProviders(), Collections.singleton(fileExpandedDir));
+            }
         } else {
             debug("expanded plugin dir: " + fileExpandedDir);
         }
@@ -178,6 +189,10 @@ class ScriptPluginProviderLoader implements ProviderLoader, FileCache.Expireable
      * Return true if the plugin file can loade a provider for the ident
      */
     public synchronized boolean isLoaderFor(final ProviderIdent ident) {
+        final PluginIndex.Entry entry = getIndexEntry();
+        if (null != entry) {
+            return entry.getProviders().contains(ident);
+        }
 
         final PluginMeta pluginMeta;
         try {
@@ -197,7 +212,11 @@ class ScriptPluginProviderLoader implements ProviderLoader, FileCache.Expireable
         return false;
     }
 
-    public List<ProviderIdent> listProviders() {
+    public synchronized List<ProviderIdent> listProviders() {
+        final PluginIndex.Entry entry = getIndexEntry();
+        if (null != entry) {
+            return new ArrayList<ProviderIdent>(entry.getProviders());
+        }
         final ArrayList<ProviderIdent> providerIdents = new ArrayList<ProviderIdent>();
         PluginMeta pluginMeta=null;
         try {
@@ -215,6 +234,39 @@ class ScriptPluginProviderLoader implements ProviderLoader, FileCache.Expireable
     }
 
 
+    /**
+     * Return the plugin index entry for the file, or null
+     */
+    private PluginIndex.Entry getIndexEntry() {
+        if (null == cachedir) {
+            return null;
+        }
+        return PluginIndex.forCacheDir(cachedir).get(file);
+    }
+
+    /**
+     * Expand the zip contents into the cache dir
+     */
+    public synchronized void preload() {
+        if (null != fileExpandedDir) {
+            return;
+        }
+        try {
+            final PluginMeta pluginMeta = getPluginMeta();
+            if (null == pluginMeta || pluginMeta.getPluginDefs().isEmpty()) {
+                return;
+            }
+            final ProviderDef pluginDef = pluginMeta.getPluginDefs().get(0);
+            getPlugin(file, pluginDef, new ProviderIdent(pluginDef.getService(), pluginDef.getName()));
+        } catch (IOException e) {
+            log.error("Unable to load plugin metadata for file: " + file + ": " + e.getMessage());
+        } catch (ProviderLoaderException e) {
+            log.error("Unable to expand plugin file: " + file + ": " + e.getMessage());
+        } catch (PluginException e) {
+            log.error("Unable to expand plugin file: " + file + ": " + e.getMessage());
+        }
+    }
+
     /**
      * Get plugin metadatat from a zip file
      */
@@ -435,6 +487,9 @@ class ScriptPluginProviderLoader implements ProviderLoader, FileCache.Expireable
      */
     public void expire() {
         removeScriptPluginCache();
+        if (null != cachedir) {
+            PluginIndex.forCacheDir(cachedir).remove(file);
+        }
     }
 
     @Override
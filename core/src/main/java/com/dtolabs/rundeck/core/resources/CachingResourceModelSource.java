@@ -0,0 +1,63 @@
+/*
+ * Copyright 2011 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.resources;
+
+import com.dtolabs.rundeck.core.common.INodeSet;
+
+/**
+ * CachingResourceModelSource returns the nodes of another source through a {@link ResourceModelSourceCache}.
+ */
+public class CachingResourceModelSource implements ResourceModelSource {
+    private final ResourceModelSourceCache cache;
+    private final String key;
+    private final long ttl;
+    private final ResourceModelSource source;
+
+    /**
+     * @param cache  the cache
+     * @param key    identifies the source in the cache
+     * @param ttl    time in milliseconds after which the cached nodes are refreshed
+     * @param source the source
+     */
+    public CachingResourceModelSource(final ResourceModelSourceCache cache, final String key, final long ttl,
+                                      final ResourceModelSource source) {
+        this.cache = cache;
+        this.key = key;
+        this.ttl = ttl;
+        this.source = source;
+    }
+
+    public INodeSet getNodes() throws ResourceModelSourceException {
+        return cache.getNodes(key, ttl, source);
+    }
+
+    /**
+     * Return the error of the most recent refresh of the source if it failed, while the last cached nodes are used
+     */
+    public Exception getLastError() {
+        return cache.getLastError(key);
+    }
+
+    public ResourceModelSource getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+}
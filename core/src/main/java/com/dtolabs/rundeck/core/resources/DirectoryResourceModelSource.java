@@ -26,9 +26,10 @@ package com.dtolabs.rundeck.core.resources;
 import com.dtolabs.rundeck.core.common.AdditiveListNodeSet;
 import com.dtolabs.rundeck.core.common.Framework;
 import com.dtolabs.rundeck.core.common.INodeSet;
-import com.dtolabs.rundeck.core.execution.service.ExecutionServiceException;
 import com.dtolabs.rundeck.core.plugins.configuration.*;
+import com.dtolabs.rundeck.core.resources.format.ResourceFormatParserException;
 import com.dtolabs.rundeck.core.resources.format.ResourceFormatParserService;
+import com.dtolabs.rundeck.core.resources.format.UnsupportedFormatException;
 import com.dtolabs.rundeck.plugins.util.DescriptionBuilder;
 import com.dtolabs.rundeck.plugins.util.PropertyBuilder;
 import org.apache.log4j.Logger;
@@ -38,7 +39,11 @@ import java.io.FilenameFilter;
 import java.util.*;
 
 /**
- * DirectoryResourceModelSource scans a directory for xml and yaml files, and loads all discovered files as nodes files
+ * DirectoryResourceModelSource scans a directory for xml and yaml files, and loads all discovered files as nodes files.
+ * <p/>
+ * The parsed nodes of each file are retained along with the modification time and size of the file, and a file is only
+ * parsed again when these change.  Files are ordered by name, and a node defined in more than one file is taken from
+ * the last file.
  *
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  */
@@ -50,11 +55,18 @@ public class DirectoryResourceModelSource implements ResourceModelSource, Config
         this.framework = framework;
     }
 
+    /**
+     * Time in milliseconds within which a modification may not change the modification time of a file or directory
+     */
+    static final long MODTIME_GRANULARITY = 2000;
     private Configuration configuration;
     long lastModTime = 0;
-    private AdditiveListNodeSet listNodeSet = new AdditiveListNodeSet();
-    private ArrayList<ResourceModelSource> fileSources = new ArrayList<ResourceModelSource>();
-    private HashMap<File, ResourceModelSource> sourceCache = new HashMap<File, ResourceModelSource>();
+    private long lastListTime;
+    private AdditiveListNodeSet listNodeSet;
+    /**
+     * File sources by file name, ordered by file name
+     */
+    private final TreeMap<String, FileSource> fileSources = new TreeMap<String, FileSource>();
 
     static ArrayList<Property> properties = new ArrayList<Property>();
 
@@ -124,29 +136,47 @@ public class DirectoryResourceModelSource implements ResourceModelSource, Config
 
     }
 
-    public INodeSet getNodes() throws ResourceModelSourceException {
-        loadFileSources(configuration.directory, configuration.project);
-        listNodeSet = new AdditiveListNodeSet();
-        loadNodeSets();
+    /**
+     * Return the nodes from all files in the directory.  Each call stats the files and only parses new or modified
+     * files, the directory is only listed again when its modification time changes.  If nothing has changed, the same
+     * node set is returned.
+     */
+    public synchronized INodeSet getNodes() throws ResourceModelSourceException {
+        final File directory = configuration.directory;
+        final long now = System.currentTimeMillis();
+        final long modTime = directory.lastModified();
+        boolean changed = null == listNodeSet;
+        if (null == listNodeSet || modTime != lastModTime || lastListTime - modTime < MODTIME_GRANULARITY) {
+            changed |= loadFileSources(directory);
+            lastModTime = modTime;
+            lastListTime = now;
+        }
+        for (final FileSource fileSource : fileSources.values()) {
+            if (fileSource.isModified()) {
+                fileSource.load();
+                changed = true;
+            }
+        }
+        if (changed) {
+            loadNodeSets();
+        }
         return listNodeSet;
     }
 
-    private void loadNodeSets() throws ResourceModelSourceException {
-        for (final ResourceModelSource fileSource: fileSources) {
-            try {
-                listNodeSet.addNodeSet(fileSource.getNodes());
-            } catch (ResourceModelSourceException e) {
-                e.printStackTrace();
-            }
+    private void loadNodeSets() {
+        final AdditiveListNodeSet nodeSet = new AdditiveListNodeSet();
+        for (final FileSource fileSource : fileSources.values()) {
+            nodeSet.addNodeSet(fileSource.nodes);
         }
+        listNodeSet = nodeSet;
     }
 
     /**
-     * Discover new files in the directory, and add file sources
+     * Discover new files in the directory, and remove files no longer present
+     *
+     * @return true if any files were added or removed
      */
-    private void loadFileSources(final File directory, final String project) {
-        //clear source sequence
-        fileSources.clear();
+    private boolean loadFileSources(final File directory) {
         if (!directory.isDirectory()) {
             logger.warn("Not a directory: " + directory);
         }
@@ -160,42 +190,65 @@ public class DirectoryResourceModelSource implements ResourceModelSource, Config
             }
         });
 
-        //set of previously cached file sources by file
-        final HashSet<File> trackedFiles = new HashSet<File>(sourceCache.keySet());
+        //set of previously tracked files by name
+        final HashSet<String> trackedFiles = new HashSet<String>(fileSources.keySet());
+        boolean changed = false;
         if (null != files) {
-            //sort on filename
-            Arrays.sort(files, new Comparator<File>() {
-                public int compare(final File file, final File file1) {
-                    return file.getName().compareTo(file1.getName());
-                }
-            });
             for (final File file : files) {
                 //remove file that we want to keep
-                trackedFiles.remove(file);
-                if (!sourceCache.containsKey(file)) {
-                    try {
-                        final ResourceModelSource source = framework.getResourceModelSourceService().getSourceForConfiguration(
-                            "file",
-                            FileResourceModelSource.Configuration.build()
-                                .project(project)
-                                .file(file)
-                                .generateFileAutomatically(false)
-                                .includeServerNode(false).getProperties()
-                        );
-                        fileSources.add(source);
-                        sourceCache.put(file, source);
-
-                    } catch (ExecutionServiceException e) {
-                        e.printStackTrace();
-                    }
-                } else {
-                    fileSources.add(sourceCache.get(file));
+                if (!trackedFiles.remove(file.getName())) {
+                    fileSources.put(file.getName(), new FileSource(file));
+                    changed = true;
                 }
             }
         }
         //remaining trackedFiles are files that have been removed from the dir
-        for (final File oldFile : trackedFiles) {
-            sourceCache.remove(oldFile);
+        for (final String oldFile : trackedFiles) {
+            fileSources.remove(oldFile);
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Parsed nodes of a file, with the modification time and size of the file when it was parsed
+     */
+    private class FileSource {
+        final File file;
+        long modTime = -1;
+        long size = -1;
+        long loadTime;
+        INodeSet nodes;
+
+        FileSource(final File file) {
+            this.file = file;
+        }
+
+        /**
+         * Return true if the file has changed since it was parsed, or if it was parsed so soon after it was modified
+         * that a later modification might not change the modification time
+         */
+        boolean isModified() {
+            return file.lastModified() != modTime || file.length() != size
+                   || loadTime - modTime < MODTIME_GRANULARITY;
+        }
+
+        void load() {
+            modTime = file.lastModified();
+            size = file.length();
+            loadTime = System.currentTimeMillis();
+            nodes = null;
+            if (!file.isFile()) {
+                return;
+            }
+            try {
+                nodes = framework.getResourceFormatParserService().getParserForFileExtension(file).parseDocument(
+                    file);
+            } catch (UnsupportedFormatException e) {
+                logger.warn("Unable to parse nodes file: " + file + ": " + e.getMessage());
+            } catch (ResourceFormatParserException e) {
+                logger.error("Unable to parse nodes file: " + file + ": " + e.getMessage(), e);
+            }
         }
     }
 
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2011 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.resources;
+
+import com.dtolabs.rundeck.core.common.INodeSet;
+import org.apache.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * ResourceModelSourceCache holds the last node set returned by each cached resource model source, shared by all
+ * framework instances in the process.  Sources are identified by a key, typically the project name, provider type and
+ * configuration of the source, so that a source created for each request uses the same entry.
+ * <p/>
+ * A cached node set is returned while it is younger than the time-to-live of the source.  Once it is older, it is
+ * still returned, and the source is refreshed by a background thread.  If the refresh fails, the last node set
+ * returned by the source continues to be used, and the error is available from {@link #getLastError(String)}.  Only
+ * the first request for a source, or the first after it has been evicted, waits for the source.
+ * <p/>
+ * Entries which have not been requested within the eviction period are removed.
+ */
+public class ResourceModelSourceCache {
+    static final Logger logger = Logger.getLogger(ResourceModelSourceCache.class.getName());
+    public static final int REFRESH_THREADS = 2;
+    public static final long DEFAULT_EVICTION_PERIOD = 60 * 60 * 1000;
+    private static ResourceModelSourceCache instance;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final long evictionPeriod;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param evictionPeriod time in milliseconds after which entries which have not been requested are removed
+     */
+    public ResourceModelSourceCache(final long evictionPeriod) {
+        this.evictionPeriod = evictionPeriod;
+    }
+
+    /**
+     * Return the shared cache
+     */
+    public static synchronized ResourceModelSourceCache getInstance() {
+        if (null == instance) {
+            instance = new ResourceModelSourceCache(DEFAULT_EVICTION_PERIOD);
+        }
+        return instance;
+    }
+
+    /**
+     * Return the nodes of the source, from the cache if available
+     *
+     * @param key    identifies the source
+     * @param ttl    time in milliseconds after which the cached nodes are refreshed
+     * @param source the source, which is used for the next refresh of the entry
+     *
+     * @return the nodes
+     *
+     * @throws ResourceModelSourceException if the source has no cached nodes and fails
+     */
+    public INodeSet getNodes(final String key, final long ttl, final ResourceModelSource source) throws
+        ResourceModelSourceException {
+        Entry entry = entries.get(key);
+        if (null == entry) {
+            final Entry created = new Entry(key);
+            entry = entries.putIfAbsent(key, created);
+            if (null == entry) {
+                entry = created;
+            }
+        }
+        return entry.getNodes(ttl, source);
+    }
+
+    /**
+     * Return the error of the most recent refresh of the source if it failed, or null
+     *
+     * @param key identifies the source
+     */
+    public Exception getLastError(final String key) {
+        final Entry entry = entries.get(key);
+        return null != entry ? entry.getLastError() : null;
+    }
+
+    /**
+     * Return the statistics of the cached sources, ordered by key
+     */
+    public List<Stats> getStats() {
+        final TreeMap<String, Stats> stats = new TreeMap<String, Stats>();
+        for (final Entry entry : entries.values()) {
+            stats.put(entry.key, entry.getStats());
+        }
+        return new ArrayList<Stats>(stats.values());
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (null == scheduler) {
+            scheduler = Executors.newScheduledThreadPool(REFRESH_THREADS, new ThreadFactory() {
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "ResourceModelSourceCache");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            final long interval = Math.max(1000, evictionPeriod / 4);
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    evict();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        return scheduler;
+    }
+
+    /**
+     * Remove entries which have not been requested within the eviction period
+     */
+    private void evict() {
+        final long limit = System.currentTimeMillis() - evictionPeriod;
+        for (final Entry entry : entries.values()) {
+            if (entry.getLastAccess() < limit) {
+                entries.remove(entry.key, entry);
+            }
+        }
+    }
+
+    /**
+     * The cached nodes of a source
+     */
+    private class Entry {
+        private final String key;
+        private INodeSet nodes;
+        private long loaded;
+        private long lastAccess;
+        private ResourceModelSource source;
+        private boolean refreshing;
+        private Exception lastError;
+        private long refreshCount;
+        private long failureCount;
+        private long lastDuration;
+        private long totalDuration;
+
+        private Entry(final String key) {
+            this.key = key;
+        }
+
+        private INodeSet getNodes(final long ttl, final ResourceModelSource source) throws
+            ResourceModelSourceException {
+            synchronized (this) {
+                this.source = source;
+                lastAccess = System.currentTimeMillis();
+                if (null == nodes) {
+                    //load the first node set while holding the lock, so that concurrent requests wait for it
+                    load(source);
+                    if (null == nodes) {
+                        throw asSourceException(lastError);
+                    }
+                } else if (lastAccess - loaded >= ttl && !refreshing) {
+                    refreshing = true;
+                    getScheduler().execute(new Runnable() {
+                        public void run() {
+                            refresh();
+                        }
+                    });
+                }
+                return nodes;
+            }
+        }
+
+        private void refresh() {
+            final ResourceModelSource current;
+            synchronized (this) {
+                current = source;
+            }
+            try {
+                load(current);
+            } finally {
+                synchronized (this) {
+                    refreshing = false;
+                }
+            }
+        }
+
+        /**
+         * Get the nodes from the source, and record the result
+         */
+        private void load(final ResourceModelSource source) {
+            final long start = System.currentTimeMillis();
+            INodeSet loadedNodes = null;
+            Exception error = null;
+            try {
+                loadedNodes = source.getNodes();
+            } catch (ResourceModelSourceException e) {
+                error = e;
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            final long duration = System.currentTimeMillis() - start;
+            synchronized (this) {
+                refreshCount++;
+                lastDuration = duration;
+                totalDuration += duration;
+                if (null != loadedNodes) {
+                    nodes = loadedNodes;
+                    loaded = System.currentTimeMillis();
+                    lastError = null;
+                } else {
+                    failureCount++;
+                    lastError = error;
+                }
+            }
+            if (null != error) {
+                logger.warn("Failed to refresh nodes for " + key + " in " + duration + "ms: " + error.getMessage(),
+                    error);
+            } else if (logger.isDebugEnabled()) {
+                logger.debug("Refreshed nodes for " + key + " in " + duration + "ms: " + loadedNodes.getNodes().size()
+                             + " nodes");
+            }
+        }
+
+        private synchronized long getLastAccess() {
+            return lastAccess;
+        }
+
+        private synchronized Exception getLastError() {
+            return lastError;
+        }
+
+        private synchronized Stats getStats() {
+            return new Stats(key, null != nodes ? nodes.getNodes().size() : -1, loaded, refreshCount, failureCount,
+                lastDuration, refreshCount > 0 ? totalDuration / refreshCount : 0,
+                null != lastError ? lastError.getMessage() : null);
+        }
+    }
+
+    private static ResourceModelSourceException asSourceException(final Exception e) {
+        if (e instanceof ResourceModelSourceException) {
+            return (ResourceModelSourceException) e;
+        }
+        return new ResourceModelSourceException(e);
+    }
+
+    /**
+     * Statistics of a cached source
+     */
+    public static class Stats {
+        private final String key;
+        private final int nodeCount;
+        private final long loadedTime;
+        private final long refreshCount;
+        private final long failureCount;
+        private final long lastRefreshDuration;
+        private final long averageRefreshDuration;
+        private final String lastError;
+
+        Stats(final String key, final int nodeCount, final long loadedTime, final long refreshCount,
+              final long failureCount, final long lastRefreshDuration, final long averageRefreshDuration,
+              final String lastError) {
+            this.key = key;
+            this.nodeCount = nodeCount;
+            this.loadedTime = loadedTime;
+            this.refreshCount = refreshCount;
+            this.failureCount = failureCount;
+            this.lastRefreshDuration = lastRefreshDuration;
+            this.averageRefreshDuration = averageRefreshDuration;
+            this.lastError = lastError;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Return the number of cached nodes, or -1 if the source has no cached nodes
+         */
+        public int getNodeCount() {
+            return nodeCount;
+        }
+
+        /**
+         * Return the time the cached nodes were loaded
+         */
+        public long getLoadedTime() {
+            return loadedTime;
+        }
+
+        /**
+         * Return the number of times the source has been requested for nodes, including failures
+         */
+        public long getRefreshCount() {
+            return refreshCount;
+        }
+
+        public long getFailureCount() {
+            return failureCount;
+        }
+
+        /**
+         * Return the duration in milliseconds of the most recent refresh
+         */
+        public long getLastRefreshDuration() {
+            return lastRefreshDuration;
+        }
+
+        public long getAverageRefreshDuration() {
+            return averageRefreshDuration;
+        }
+
+        /**
+         * Return the error message of the most recent refresh if it failed, or null
+         */
+        public String getLastError() {
+            return lastError;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                   "key='" + key + '\'' +
+                   ", nodeCount=" + nodeCount +
+                   ", loadedTime=" + loadedTime +
+                   ", refreshCount=" + refreshCount +
+                   ", failureCount=" + failureCount +
+                   ", lastRefreshDuration=" + lastRefreshDuration +
+                   ", averageRefreshDuration=" + averageRefreshDuration +
+                   ", lastError='" + lastError + '\'' +
+                   '}';
+        }
+    }
+}
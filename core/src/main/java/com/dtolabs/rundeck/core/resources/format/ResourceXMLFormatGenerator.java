@@ -57,8 +57,6 @@ public class ResourceXMLFormatGenerator implements ResourceFormatGenerator {
     public void generateDocument(final INodeSet nodeset, final OutputStream stream) throws
         ResourceFormatGeneratorException,
         IOException {
-        final ResourceXMLGenerator resourceXMLGenerator = new ResourceXMLGenerator(stream);
-        resourceXMLGenerator.addNodes(nodeset.getNodes());
-        resourceXMLGenerator.generate();
+        new ResourceXMLGenerator(stream).generate(nodeset.getNodes());
     }
 }
@@ -25,6 +25,7 @@ package com.dtolabs.rundeck.core.resources.format;
 
 import com.dtolabs.rundeck.core.common.INodeSet;
 import com.dtolabs.rundeck.core.common.NodeFileParserException;
+import com.dtolabs.rundeck.core.common.NodeReceiver;
 import com.dtolabs.rundeck.core.common.NodeSetImpl;
 import com.dtolabs.rundeck.core.common.NodesXMLParser;
 import com.dtolabs.rundeck.core.plugins.Plugin;
@@ -44,7 +45,7 @@ import java.util.*;
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  */
 @Plugin (name = "resourcexml", service = "ResourceFormatParser")
-public class ResourceXMLFormatParser implements ResourceFormatParser, Describable {
+public class ResourceXMLFormatParser implements StreamingResourceFormatParser, Describable {
 
     public static final String SERVICE_PROVIDER_TYPE = "resourcexml";
 
@@ -61,23 +62,32 @@ public class ResourceXMLFormatParser implements ResourceFormatParser, Describabl
     }
 
     public INodeSet parseDocument(final File file) throws ResourceFormatParserException {
-        final NodeSetImpl nodeReceiver = new NodeSetImpl();
+        final NodeSetImpl nodes = new NodeSetImpl();
+        parseDocument(file, nodes);
+        return nodes;
+    }
+
+    public INodeSet parseDocument(final InputStream input) throws ResourceFormatParserException {
+        final NodeSetImpl nodes = new NodeSetImpl();
+        parseDocument(input, nodes);
+        return nodes;
+    }
+
+    public void parseDocument(final File file, final NodeReceiver receiver) throws ResourceFormatParserException {
         try {
-            new NodesXMLParser(file, nodeReceiver).parse();
+            new NodesXMLParser(file, receiver).parse();
         } catch (NodeFileParserException e) {
             throw new ResourceFormatParserException(e);
         }
-        return nodeReceiver;
     }
 
-    public INodeSet parseDocument(final InputStream input) throws ResourceFormatParserException {
-        final NodeSetImpl nodeReceiver = new NodeSetImpl();
+    public void parseDocument(final InputStream input, final NodeReceiver receiver) throws
+        ResourceFormatParserException {
         try {
-            new NodesXMLParser(input, nodeReceiver).parse();
+            new NodesXMLParser(input, receiver).parse();
         } catch (NodeFileParserException e) {
             throw new ResourceFormatParserException(e);
         }
-        return nodeReceiver;
     }
 
     private static final Description DESCRIPTION = DescriptionBuilder.builder()
@@ -58,9 +58,8 @@ public class ResourceYamlFormatGenerator implements ResourceFormatGenerator {
         ResourceFormatGeneratorException,
         IOException {
         final NodesYamlGenerator nodesYamlGenerator = new NodesYamlGenerator(stream);
-        nodesYamlGenerator.addNodes(nodeset.getNodes());
         try {
-            nodesYamlGenerator.generate();
+            nodesYamlGenerator.generate(nodeset.getNodes());
         } catch (NodesGeneratorException e) {
             throw new ResourceFormatGeneratorException(e);
         }
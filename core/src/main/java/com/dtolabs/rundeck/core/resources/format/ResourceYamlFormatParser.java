@@ -25,6 +25,7 @@ package com.dtolabs.rundeck.core.resources.format;
 
 import com.dtolabs.rundeck.core.common.INodeSet;
 import com.dtolabs.rundeck.core.common.NodeFileParserException;
+import com.dtolabs.rundeck.core.common.NodeReceiver;
 import com.dtolabs.rundeck.core.common.NodeSetImpl;
 import com.dtolabs.rundeck.core.common.NodesYamlParser;
 import com.dtolabs.rundeck.core.plugins.Plugin;
@@ -44,7 +45,7 @@ import java.util.*;
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  */
 @Plugin (name = "resourceyaml", service = "ResourceFormatParser")
-public class ResourceYamlFormatParser implements ResourceFormatParser,Describable {
+public class ResourceYamlFormatParser implements StreamingResourceFormatParser, Describable {
     public static final String SERVICE_PROVIDER_TYPE = "resourceyaml";
 
     public static final Set<String> EXTENSIONS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("yaml","yml")));
@@ -61,22 +62,31 @@ public class ResourceYamlFormatParser implements ResourceFormatParser,Describabl
 
     public INodeSet parseDocument(final File file) throws ResourceFormatParserException {
         final NodeSetImpl nodes = new NodeSetImpl();
+        parseDocument(file, nodes);
+        return nodes;
+    }
+
+    public INodeSet parseDocument(final InputStream input) throws ResourceFormatParserException {
+        final NodeSetImpl nodes = new NodeSetImpl();
+        parseDocument(input, nodes);
+        return nodes;
+    }
+
+    public void parseDocument(final File file, final NodeReceiver receiver) throws ResourceFormatParserException {
         try {
-            new NodesYamlParser(file, nodes).parse();
+            new NodesYamlParser(file, receiver).parse();
         } catch (NodeFileParserException e) {
             throw new ResourceFormatParserException(e);
         }
-        return nodes;
     }
 
-    public INodeSet parseDocument(final InputStream input) throws ResourceFormatParserException {
-        final NodeSetImpl nodes = new NodeSetImpl();
+    public void parseDocument(final InputStream input, final NodeReceiver receiver) throws
+        ResourceFormatParserException {
         try {
-            new NodesYamlParser(input, nodes).parse();
+            new NodesYamlParser(input, receiver).parse();
         } catch (NodeFileParserException e) {
             throw new ResourceFormatParserException(e);
         }
-        return nodes;
     }
 
     private static final Description DESCRIPTION = DescriptionBuilder.builder()
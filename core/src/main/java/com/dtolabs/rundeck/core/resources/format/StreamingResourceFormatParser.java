@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.resources.format;
+
+import com.dtolabs.rundeck.core.common.NodeReceiver;
+
+import java.io.File;
+import java.io.InputStream;
+
+/**
+ * StreamingResourceFormatParser is a {@link ResourceFormatParser} which can send each node to a {@link NodeReceiver} as
+ * soon as it is parsed, without holding the document or the parsed nodes in memory.
+ */
+public interface StreamingResourceFormatParser extends ResourceFormatParser {
+    /**
+     * Parse a file, and send the nodes to the receiver
+     */
+    public void parseDocument(File file, NodeReceiver receiver) throws ResourceFormatParserException;
+
+    /**
+     * Parse an input stream, and send the nodes to the receiver
+     */
+    public void parseDocument(InputStream input, NodeReceiver receiver) throws ResourceFormatParserException;
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.tasks.net;
+
+import com.jcraft.jsch.Channel;
+
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * ChannelCompletionWatcher lets any number of threads wait for their JSch channel to close, using a single shared
+ * daemon thread to observe channel state rather than a watcher thread per channel.  JSch does not provide a close
+ * callback, so the shared thread checks the registered channels at a short fixed interval and releases the waiting
+ * thread as soon as its channel is closed.
+ */
+public class ChannelCompletionWatcher {
+    /**
+     * Interval in milliseconds between checks of the registered channels
+     */
+    public static final long POLL_INTERVAL = 20;
+    private static final ChannelCompletionWatcher instance = new ChannelCompletionWatcher();
+
+    private final ConcurrentHashMap<Channel, CountDownLatch> watched = new ConcurrentHashMap<Channel, CountDownLatch>();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Return the shared watcher
+     */
+    public static ChannelCompletionWatcher getInstance() {
+        return instance;
+    }
+
+    /**
+     * Wait for the channel to close.
+     *
+     * @param channel the channel
+     * @param maxwait maximum time to wait in milliseconds, or 0 to wait indefinitely
+     *
+     * @return true if the channel closed, false if the wait timed out
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public boolean awaitClosed(final Channel channel, final long maxwait) throws InterruptedException {
+        if (channel.isClosed()) {
+            return true;
+        }
+        final CountDownLatch latch = new CountDownLatch(1);
+        watched.put(channel, latch);
+        start();
+        try {
+            if (channel.isClosed()) {
+                return true;
+            }
+            if (maxwait > 0) {
+                return latch.await(maxwait, TimeUnit.MILLISECONDS);
+            }
+            latch.await();
+            return true;
+        } finally {
+            watched.remove(channel);
+        }
+    }
+
+    /**
+     * Return the number of channels currently being waited on
+     */
+    public int getWatchedCount() {
+        return watched.size();
+    }
+
+    private synchronized void start() {
+        if (null != scheduler) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "ChannelCompletionWatcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                poll();
+            }
+        }, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        for (final Map.Entry<Channel, CountDownLatch> entry : watched.entrySet()) {
+            if (entry.getKey().isClosed()) {
+                entry.getValue().countDown();
+            }
+        }
+    }
+}
@@ -47,7 +47,6 @@ import java.util.List;
 public class ExtSSHExec extends SSHBase {
 
     private static final int BUFFER_SIZE = 8192;
-    private static final int RETRY_INTERVAL = 500;
 
     /** the command to execute via ssh */
     private String command = null;
@@ -55,9 +54,6 @@ public class ExtSSHExec extends SSHBase {
     /** units are milliseconds, default is 0=infinite */
     private long maxwait = 0;
 
-    /** for waiting for the command to finish */
-    private Thread thread = null;
-
     private String outputProperty = null;   // like <exec>
     private File outputFile = null;   // like <exec>
     private String inputProperty = null;   // like <exec>
@@ -66,6 +62,9 @@ public class ExtSSHExec extends SSHBase {
     private InputStream inputStream=null;
     private OutputStream secondaryStream=null;
     private DisconnectHolder disconnectHolder=null;
+    private SSHSessionPool sessionPool=null;
+    private String sessionScope=null;
+    private volatile Channel currentChannel=null;
 
     private Resource commandResource = null;
     private List<Environment.Variable> envVars=null;
@@ -254,15 +253,24 @@ public class ExtSSHExec extends SSHBase {
         }
 
         Session session = null;
+        boolean sessionFailed = false;
         StringBuffer output = new StringBuffer();
         try {
-            session = openSession();
+            session = null != sessionPool ? acquirePooledSession() : openSession();
 
             if(null!=getDisconnectHolder()){
                 final Session sub=session;
                 getDisconnectHolder().setDisconnectable(new Disconnectable() {
                     public void disconnect() {
-                        sub.disconnect();
+                        if (null != sessionPool) {
+                            //only close our channel, the session may be shared
+                            final Channel channel = currentChannel;
+                            if (null != channel) {
+                                channel.disconnect();
+                            }
+                        } else {
+                            sub.disconnect();
+                        }
                     }
                 });
             }
@@ -290,21 +298,44 @@ public class ExtSSHExec extends SSHBase {
                 }
             }
         } catch (JSchException e) {
+            sessionFailed = true;
             if (getFailonerror()) {
                 throw new BuildException(e);
             } else {
                 log("Caught exception: " + e.getMessage(), Project.MSG_ERR);
             }
+        } catch (BuildException e) {
+            sessionFailed = null != e.getCause() && e.getCause() instanceof JSchException;
+            throw e;
         } finally {
             if (outputProperty != null) {
                 getProject().setNewProperty(outputProperty, output.toString());
             }
-            if (session != null && session.isConnected()) {
+            if (null != sessionPool && null != session) {
+                if (sessionFailed) {
+                    sessionPool.invalidate(session);
+                } else {
+                    sessionPool.release(session);
+                }
+            } else if (session != null && session.isConnected()) {
                 session.disconnect();
             }
         }
     }
 
+    /**
+     * Lease a session from the session pool, opening a new one if necessary
+     */
+    private Session acquirePooledSession() throws JSchException {
+        final String key = SSHSessionPool.createKey(sessionScope, getUserInfo().getName(), getHost(), getPort(),
+            getUserInfo().getKeyfile(), getUserInfo().getPassphrase(), getUserInfo().getPassword());
+        return sessionPool.acquire(key, getHost(), new SSHSessionPool.SessionFactory() {
+            public Session openSession() throws JSchException {
+                return ExtSSHExec.this.openSession();
+            }
+        });
+    }
+
     private void executeCommand(Session session, String cmd, StringBuffer sb)
         throws BuildException {
         final ByteArrayOutputStream out ;
@@ -358,6 +389,7 @@ public class ExtSSHExec extends SSHBase {
             session.setTimeout((int) maxwait);
             /* execute the command */
             channel = (ChannelExec) session.openChannel("exec");
+            currentChannel = channel;
             channel.setCommand(cmd);
             channel.setOutputStream(tee);
             channel.setExtOutputStream(new KeepAliveOutputStream(System.err), true);
@@ -375,28 +407,10 @@ public class ExtSSHExec extends SSHBase {
             
             channel.connect();
             // wait for it to finish
-            thread =
-                new Thread() {
-                    public void run() {
-                        while (!channel.isClosed()) {
-                            if (thread == null) {
-                                return;
-                            }
-                            try {
-                                sleep(RETRY_INTERVAL);
-                            } catch (Exception e) {
-                                // ignored
-                            }
-                        }
-                    }
-                };
-
-            thread.start();
-            thread.join(maxwait);
+            final boolean closed = ChannelCompletionWatcher.getInstance().awaitClosed(channel, maxwait);
 
-            if (thread.isAlive()) {
+            if (!closed) {
                 // ran out of time
-                thread = null;
                 if (getFailonerror()) {
                     throw new BuildException(TIMEOUT_MESSAGE);
                 } else {
@@ -449,6 +463,12 @@ public class ExtSSHExec extends SSHBase {
                 sb.append(out.toString());
             }
             FileUtils.close(istream);
+            final Channel channel = currentChannel;
+            currentChannel = null;
+            if (null != sessionPool && null != channel && channel.isConnected()) {
+                //release the channel so the session can be reused
+                channel.disconnect();
+            }
         }
     }
 
@@ -554,6 +574,28 @@ public class ExtSSHExec extends SSHBase {
         this.inputStream = inputStream;
     }
 
+    public SSHSessionPool getSessionPool() {
+        return sessionPool;
+    }
+
+    /**
+     * Set a session pool to lease the SSH session from, instead of opening and closing a new session
+     */
+    public void setSessionPool(final SSHSessionPool sessionPool) {
+        this.sessionPool = sessionPool;
+    }
+
+    public String getSessionScope() {
+        return sessionScope;
+    }
+
+    /**
+     * Set the scope used to key pooled sessions, such as the execution ID
+     */
+    public void setSessionScope(final String sessionScope) {
+        this.sessionScope = sessionScope;
+    }
+
     public OutputStream getSecondaryStream() {
         return secondaryStream;
     }
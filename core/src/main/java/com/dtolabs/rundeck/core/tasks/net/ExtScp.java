@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.tasks.net;
+
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.taskdefs.optional.ssh.Scp;
+import org.apache.tools.ant.taskdefs.optional.ssh.ScpToMessage;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * ExtScp extends the Ant Scp task to allow a single local file upload to use a session leased from a {@link
+ * SSHSessionPool}, so that it can share the connection used for subsequent commands on the same node.
+ */
+public class ExtScp extends Scp {
+    private String localFile;
+    private String remoteTofile;
+    private SSHSessionPool sessionPool;
+    private String sessionScope;
+
+    @Override
+    public void setLocalFile(final String localFile) {
+        super.setLocalFile(localFile);
+        this.localFile = localFile;
+    }
+
+    @Override
+    public void setRemoteTofile(final String remoteTofile) {
+        super.setRemoteTofile(remoteTofile);
+        this.remoteTofile = remoteTofile;
+    }
+
+    @Override
+    public void execute() throws BuildException {
+        if (null == sessionPool || null == localFile || null == remoteTofile) {
+            super.execute();
+            return;
+        }
+        //remote file is of the form user@host:path
+        final String remotePath = remoteTofile.substring(remoteTofile.indexOf(':', remoteTofile.lastIndexOf('@')) + 1);
+        final String key = SSHSessionPool.createKey(sessionScope, getUserInfo().getName(), getHost(), getPort(),
+            getUserInfo().getKeyfile(), getUserInfo().getPassphrase(), getUserInfo().getPassword());
+        Session session = null;
+        boolean sessionFailed = false;
+        try {
+            session = sessionPool.acquire(key, getHost(), new SSHSessionPool.SessionFactory() {
+                public Session openSession() throws JSchException {
+                    return ExtScp.this.openSession();
+                }
+            });
+            final ScpToMessage message = new ScpToMessage(getVerbose(), session, new File(localFile), remotePath);
+            message.setLogListener(this);
+            message.execute();
+        } catch (JSchException e) {
+            sessionFailed = true;
+            throw new BuildException(e);
+        } catch (IOException e) {
+            throw new BuildException(e);
+        } finally {
+            if (null != session) {
+                if (sessionFailed) {
+                    sessionPool.invalidate(session);
+                } else {
+                    sessionPool.release(session);
+                }
+            }
+        }
+    }
+
+    public SSHSessionPool getSessionPool() {
+        return sessionPool;
+    }
+
+    /**
+     * Set a session pool to lease the SSH session from, instead of opening and closing a new session
+     */
+    public void setSessionPool(final SSHSessionPool sessionPool) {
+        this.sessionPool = sessionPool;
+    }
+
+    public String getSessionScope() {
+        return sessionScope;
+    }
+
+    /**
+     * Set the scope used to key pooled sessions, such as the execution ID
+     */
+    public void setSessionScope(final String sessionScope) {
+        this.sessionScope = sessionScope;
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.tasks.net;
+
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import org.apache.log4j.Logger;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SSHSessionPool keeps authenticated JSch sessions open so that the file copy, chmod and command execution for a node
+ * can share a single session as separate channels, instead of each performing its own connection and key exchange.
+ * <p/>
+ * Sessions are keyed by {@link #createKey(String, String, String, int, String, String, String)}, which includes the
+ * connection scope (typically the execution ID), user, host, port and authentication identity.  A session may be
+ * leased by up to {@link #getMaxChannelsPerSession()} concurrent users, and at most {@link #getMaxSessionsPerHost()}
+ * sessions are opened to a single host.  At the host limit, idle sessions of other keys for the host are disconnected
+ * to make room, otherwise further requests wait for a lease to be released.  Sessions which are not
+ * leased are disconnected after the idle timeout, or when their scope is closed via {@link #closeScope(String)}.
+ */
+public class SSHSessionPool {
+    static final Logger logger = Logger.getLogger(SSHSessionPool.class.getName());
+    public static final long DEFAULT_IDLE_TIMEOUT = 30000;
+    public static final int DEFAULT_MAX_SESSIONS_PER_HOST = 4;
+    public static final int DEFAULT_MAX_CHANNELS_PER_SESSION = 8;
+    public static final long DEFAULT_ACQUIRE_TIMEOUT = 60000;
+    /**
+     * Scope name used for sessions shared across executions
+     */
+    public static final String SHARED_SCOPE = "*";
+
+    private static final SSHSessionPool instance = new SSHSessionPool();
+
+    /**
+     * Return the server-wide pool
+     */
+    public static SSHSessionPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * Opens a new connected session when the pool has none available
+     */
+    public static interface SessionFactory {
+        public Session openSession() throws JSchException;
+    }
+
+    private static class PooledSession {
+        final String key;
+        final String host;
+        final String scope;
+        final Session session;
+        int leases;
+        long lastUsed;
+        boolean invalid;
+
+        PooledSession(final String key, final String host, final String scope, final Session session) {
+            this.key = key;
+            this.host = host;
+            this.scope = scope;
+            this.session = session;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        boolean isUsable(final int maxChannels) {
+            return !invalid && leases < maxChannels && session.isConnected();
+        }
+    }
+
+    private final Map<String, List<PooledSession>> sessions = new HashMap<String, List<PooledSession>>();
+    private final Map<Session, PooledSession> leased = new IdentityHashMap<Session, PooledSession>();
+    private final Map<String, Integer> hostCounts = new HashMap<String, Integer>();
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private int maxSessionsPerHost = DEFAULT_MAX_SESSIONS_PER_HOST;
+    private int maxChannelsPerSession = DEFAULT_MAX_CHANNELS_PER_SESSION;
+    private long acquireTimeout = DEFAULT_ACQUIRE_TIMEOUT;
+    private Timer evictionTimer;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong handshakeTime = new AtomicLong();
+
+    /**
+     * Generate a pool key for the connection parameters.  Secret values are included only as a digest.
+     *
+     * @param scope      connection scope, such as an execution ID, or {@link #SHARED_SCOPE}
+     * @param username   username
+     * @param host       hostname
+     * @param port       port
+     * @param keyfile    private key path, or null
+     * @param passphrase private key passphrase, or null
+     * @param password   password, or null
+     */
+    public static String createKey(final String scope, final String username, final String host, final int port,
+                                   final String keyfile, final String passphrase, final String password) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(null != scope ? scope : SHARED_SCOPE).append('|');
+        sb.append(username).append('@').append(host).append(':').append(port).append('|');
+        if (null != keyfile) {
+            sb.append("key:").append(keyfile).append(':').append(digest(passphrase));
+        } else {
+            sb.append("password:").append(digest(password));
+        }
+        return sb.toString();
+    }
+
+    private static String digest(final String secret) {
+        if (null == secret) {
+            return "";
+        }
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-1");
+            final byte[] bytes = md.digest(secret.getBytes("UTF-8"));
+            final StringBuilder sb = new StringBuilder();
+            for (final byte b : bytes) {
+                sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String scopeOf(final String key) {
+        final int i = key.indexOf('|');
+        return i >= 0 ? key.substring(0, i) : SHARED_SCOPE;
+    }
+
+    /**
+     * Lease a connected session for the key, opening a new one with the factory if none is available.  The session
+     * must be returned with {@link #release(com.jcraft.jsch.Session)} or {@link #invalidate(com.jcraft.jsch.Session)}.
+     *
+     * @param key     pool key
+     * @param host    hostname used to enforce the per-host session limit
+     * @param factory factory to open a new session
+     *
+     * @return connected session
+     *
+     * @throws JSchException if opening the session fails, or a session is not available within the acquire timeout
+     */
+    public Session acquire(final String key, final String host, final SessionFactory factory) throws JSchException {
+        final long deadline = System.currentTimeMillis() + acquireTimeout;
+        synchronized (this) {
+            boolean waited = false;
+            while (true) {
+                final PooledSession found = findUsable(key);
+                if (null != found) {
+                    found.leases++;
+                    found.lastUsed = System.currentTimeMillis();
+                    leased.put(found.session, found);
+                    hits.incrementAndGet();
+                    return found.session;
+                }
+                if (getHostCount(host) < maxSessionsPerHost) {
+                    //reserve a slot for the new session
+                    hostCounts.put(host, getHostCount(host) + 1);
+                    break;
+                }
+                if (evictIdleForHost(host, key)) {
+                    //an idle session of another key freed a slot
+                    continue;
+                }
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new JSchException("timeout: no pooled SSH session available for host " + host + " after "
+                                            + acquireTimeout + "ms");
+                }
+                if (!waited) {
+                    waits.incrementAndGet();
+                    waited = true;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new JSchException("Interrupted waiting for pooled SSH session for host " + host);
+                }
+            }
+        }
+        misses.incrementAndGet();
+        final long start = System.currentTimeMillis();
+        final Session session;
+        try {
+            session = factory.openSession();
+        } catch (JSchException e) {
+            releaseHostSlot(host);
+            throw e;
+        } catch (RuntimeException e) {
+            releaseHostSlot(host);
+            throw e;
+        }
+        handshakeTime.addAndGet(System.currentTimeMillis() - start);
+        synchronized (this) {
+            final PooledSession pooled = new PooledSession(key, host, scopeOf(key), session);
+            pooled.leases = 1;
+            List<PooledSession> list = sessions.get(key);
+            if (null == list) {
+                list = new ArrayList<PooledSession>();
+                sessions.put(key, list);
+            }
+            list.add(pooled);
+            leased.put(session, pooled);
+            startEvictionTimer();
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Opened pooled SSH session: " + key + " in " + (System.currentTimeMillis() - start) + "ms");
+        }
+        return session;
+    }
+
+    private PooledSession findUsable(final String key) {
+        final List<PooledSession> list = sessions.get(key);
+        if (null == list) {
+            return null;
+        }
+        PooledSession best = null;
+        for (final PooledSession pooled : list) {
+            if (pooled.isUsable(maxChannelsPerSession) && (null == best || pooled.leases < best.leases)) {
+                best = pooled;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Disconnect the least recently used idle session of another key for the host
+     *
+     * @return true if a session was removed
+     */
+    private boolean evictIdleForHost(final String host, final String key) {
+        PooledSession oldest = null;
+        for (final PooledSession pooled : listAll()) {
+            if (pooled.leases <= 0 && pooled.host.equals(host) && !pooled.key.equals(key)
+                && (null == oldest || pooled.lastUsed < oldest.lastUsed)) {
+                oldest = pooled;
+            }
+        }
+        if (null == oldest) {
+            return false;
+        }
+        remove(oldest);
+        evictions.incrementAndGet();
+        return true;
+    }
+
+    private int getHostCount(final String host) {
+        final Integer count = hostCounts.get(host);
+        return null != count ? count : 0;
+    }
+
+    private synchronized void releaseHostSlot(final String host) {
+        final int count = getHostCount(host) - 1;
+        if (count > 0) {
+            hostCounts.put(host, count);
+        } else {
+            hostCounts.remove(host);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Return a leased session to the pool
+     */
+    public synchronized void release(final Session session) {
+        final PooledSession pooled = leased.get(session);
+        if (null == pooled) {
+            //not pooled
+            if (session.isConnected()) {
+                session.disconnect();
+            }
+            return;
+        }
+        pooled.leases--;
+        pooled.lastUsed = System.currentTimeMillis();
+        if (pooled.leases <= 0) {
+            leased.remove(session);
+            if (pooled.invalid || !session.isConnected()) {
+                remove(pooled);
+            }
+        }
+        notifyAll();
+    }
+
+    /**
+     * Return a leased session which should not be reused, e.g. after a connection error.  It is disconnected once no
+     * other leases remain.
+     */
+    public synchronized void invalidate(final Session session) {
+        final PooledSession pooled = leased.get(session);
+        if (null != pooled) {
+            pooled.invalid = true;
+        }
+        release(session);
+    }
+
+    private void remove(final PooledSession pooled) {
+        final List<PooledSession> list = sessions.get(pooled.key);
+        if (null != list && list.remove(pooled)) {
+            if (list.isEmpty()) {
+                sessions.remove(pooled.key);
+            }
+            final int count = getHostCount(pooled.host) - 1;
+            if (count > 0) {
+                hostCounts.put(pooled.host, count);
+            } else {
+                hostCounts.remove(pooled.host);
+            }
+        }
+        if (pooled.session.isConnected()) {
+            pooled.session.disconnect();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Disconnect all sessions for the scope, e.g. when an execution finishes.  Sessions currently leased are
+     * disconnected when released.
+     */
+    public synchronized void closeScope(final String scope) {
+        for (final PooledSession pooled : listAll()) {
+            if (pooled.scope.equals(scope)) {
+                pooled.invalid = true;
+                if (pooled.leases <= 0) {
+                    remove(pooled);
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Disconnect sessions which have been idle longer than the idle timeout, or are no longer connected.
+     */
+    public synchronized void evictIdle() {
+        final long now = System.currentTimeMillis();
+        for (final PooledSession pooled : listAll()) {
+            if (pooled.leases <= 0 && (now - pooled.lastUsed >= idleTimeout || !pooled.session.isConnected())) {
+                remove(pooled);
+                evictions.incrementAndGet();
+            }
+        }
+        if (sessions.isEmpty() && null != evictionTimer) {
+            evictionTimer.cancel();
+            evictionTimer = null;
+        }
+    }
+
+    private List<PooledSession> listAll() {
+        final List<PooledSession> all = new ArrayList<PooledSession>();
+        for (final List<PooledSession> list : sessions.values()) {
+            all.addAll(list);
+        }
+        return all;
+    }
+
+    private void startEvictionTimer() {
+        if (null != evictionTimer) {
+            return;
+        }
+        evictionTimer = new Timer("SSHSessionPool-evictor", true);
+        final long period = Math.max(1000, idleTimeout / 2);
+        evictionTimer.schedule(new TimerTask() {
+            public void run() {
+                evictIdle();
+            }
+        }, period, period);
+    }
+
+    /**
+     * Return the number of open sessions
+     */
+    public synchronized int getSessionCount() {
+        return listAll().size();
+    }
+
+    /**
+     * Return the number of times a pooled session was reused
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Return the number of times a new session had to be opened
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Return the number of acquire requests that waited for the per-host session limit
+     */
+    public long getWaitCount() {
+        return waits.get();
+    }
+
+    /**
+     * Return the number of sessions disconnected due to idle timeout, scope close, or the per-host limit
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Return the total time in milliseconds spent opening new sessions
+     */
+    public long getHandshakeTime() {
+        return handshakeTime.get();
+    }
+
+    /**
+     * Return a map of the pool statistics
+     */
+    public Map<String, Long> getStatistics() {
+        final HashMap<String, Long> stats = new HashMap<String, Long>();
+        stats.put("sessions", (long) getSessionCount());
+        stats.put("hits", getHitCount());
+        stats.put("misses", getMissCount());
+        stats.put("waits", getWaitCount());
+        stats.put("evictions", getEvictionCount());
+        stats.put("handshakeTime", getHandshakeTime());
+        return stats;
+    }
+
+    public synchronized long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public synchronized void setIdleTimeout(final long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public synchronized int getMaxSessionsPerHost() {
+        return maxSessionsPerHost;
+    }
+
+    public synchronized void setMaxSessionsPerHost(final int maxSessionsPerHost) {
+        this.maxSessionsPerHost = maxSessionsPerHost;
+    }
+
+    public synchronized int getMaxChannelsPerSession() {
+        return maxChannelsPerSession;
+    }
+
+    public synchronized void setMaxChannelsPerSession(final int maxChannelsPerSession) {
+        this.maxChannelsPerSession = maxChannelsPerSession;
+    }
+
+    public synchronized long getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public synchronized void setAcquireTimeout(final long acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    @Override
+    public String toString() {
+        return "SSHSessionPool" + getStatistics();
+    }
+}
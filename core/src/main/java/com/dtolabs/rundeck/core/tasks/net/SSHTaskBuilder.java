@@ -289,12 +289,13 @@ public class SSHTaskBuilder {
         }
     }
 
-    public static Scp buildScp(final INodeEntry nodeentry, final Project project,
-                               final String remotepath, final File sourceFile,
-                               final SSHConnectionInfo sshConnectionInfo, final int loglevel) throws BuilderException {
+    public static ExtScp buildScp(final INodeEntry nodeentry, final Project project,
+                                  final String remotepath, final File sourceFile,
+                                  final SSHConnectionInfo sshConnectionInfo, final int loglevel) throws
+        BuilderException {
 
 
-        final Scp scp = new Scp();
+        final ExtScp scp = new ExtScp();
         buildScp(new SCPImpl(scp), nodeentry, project, remotepath, sourceFile, sshConnectionInfo, loglevel);
         return scp;
     }
@@ -0,0 +1,375 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * BufferedLogFileWriter writes execution log entries to a file in the "^^^time|level|fields...|message^^^" format.
+ * Entries are encoded into a reusable buffer and written to the file channel when the buffer is full, when the flush
+ * interval has passed since the last write to the file, or when the writer is flushed or closed.  A shared background
+ * timer flushes buffered entries of idle writers, so that readers of the file see output within the flush interval.
+ * <p/>
+ * If an index file is given, the byte offset of each entry is also written to it, see {@link LogFileIndex}.  The index
+ * is always written after the log entries it refers to.
+ * <p/>
+ * Open writers are registered by file, so that readers in the same process can wait for new entries with {@link
+ * #awaitData(long, long)}.  While any reader is waiting, each entry is written to the file immediately.
+ */
+public class BufferedLogFileWriter implements LogEntryWriter {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+    public static final String DELIMITER = "^^^";
+    public static final String END_MARKER = "^^^END^^^";
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static final int INDEX_BUFFER_SIZE = 8 * 1024;
+    private static Timer flushTimer;
+    private static final Map<String, LogEntryWriter> activeWriters =
+        Collections.synchronizedMap(new HashMap<String, LogEntryWriter>());
+
+    private final FileOutputStream fileOutputStream;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final FileOutputStream indexOutputStream;
+    private final FileChannel indexChannel;
+    private final ByteBuffer indexBuffer;
+    private final CharsetEncoder encoder;
+    private final String[] fields;
+    private final long flushInterval;
+    private final StringBuilder entry = new StringBuilder();
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("hh:mm:ss");
+    private final TimerTask flushTask;
+    private long lastSecond = -1;
+    private String lastDate;
+    private long lastFlush;
+    private long written;
+    private boolean closed;
+    private int waiting;
+    private final String path;
+    private IOException flushError;
+
+    /**
+     * Create a writer with the default buffer size and flush interval
+     *
+     * @param file   the output file
+     * @param fields names of the context fields written for each entry that has context data
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    public BufferedLogFileWriter(final File file, final String[] fields) throws IOException {
+        this(file, null, fields, DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Create a writer with an entry index, and the default buffer size and flush interval
+     *
+     * @param file      the output file
+     * @param indexFile the index file
+     * @param fields    names of the context fields written for each entry that has context data
+     *
+     * @throws IOException if the files cannot be opened
+     */
+    public BufferedLogFileWriter(final File file, final File indexFile, final String[] fields) throws IOException {
+        this(file, indexFile, fields, DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * @param file          the output file
+     * @param indexFile     the index file, or null
+     * @param fields        names of the context fields written for each entry that has context data
+     * @param bufferSize    size of the output buffer in bytes
+     * @param flushInterval maximum time in milliseconds to retain entries in the buffer, or 0 to flush after every
+     *                      entry
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    public BufferedLogFileWriter(final File file, final File indexFile, final String[] fields, final int bufferSize,
+                                 final long flushInterval) throws IOException {
+        this.fields = fields;
+        this.flushInterval = flushInterval;
+        this.path = file.getAbsolutePath();
+        this.fileOutputStream = new FileOutputStream(file);
+        this.channel = fileOutputStream.getChannel();
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        if (null != indexFile) {
+            this.indexOutputStream = new FileOutputStream(indexFile);
+            this.indexChannel = indexOutputStream.getChannel();
+            this.indexBuffer = ByteBuffer.allocate(INDEX_BUFFER_SIZE);
+        } else {
+            this.indexOutputStream = null;
+            this.indexChannel = null;
+            this.indexBuffer = null;
+        }
+        this.encoder = Charset.defaultCharset().newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.lastFlush = System.currentTimeMillis();
+        if (flushInterval > 0) {
+            flushTask = new TimerTask() {
+                public void run() {
+                    flushIdle();
+                }
+            };
+            getFlushTimer().schedule(flushTask, flushInterval, flushInterval);
+        } else {
+            flushTask = null;
+        }
+        registerWriter(path, this);
+    }
+
+    /**
+     * Return the open writer for the file, or null if the file is not being written in this process
+     */
+    public static LogEntryWriter getActiveWriter(final File file) {
+        return activeWriters.get(file.getAbsolutePath());
+    }
+
+    static void registerWriter(final String path, final LogEntryWriter writer) {
+        activeWriters.put(path, writer);
+    }
+
+    static void unregisterWriter(final String path, final LogEntryWriter writer) {
+        synchronized (activeWriters) {
+            if (activeWriters.get(path) == writer) {
+                activeWriters.remove(path);
+            }
+        }
+    }
+
+    static synchronized Timer getFlushTimer() {
+        if (null == flushTimer) {
+            flushTimer = new Timer("BufferedLogFileWriter flush", true);
+        }
+        return flushTimer;
+    }
+
+    /**
+     * Write an entry with the context fields
+     *
+     * @param level   level name
+     * @param time    time of the entry
+     * @param data    context data containing the fields, or null to write the entry without the context fields
+     * @param message the message
+     *
+     * @throws IOException on io error
+     */
+    public synchronized void write(final String level, final long time, final Map<String, String> data,
+                                   final String message) throws IOException {
+        if (closed || null == message) {
+            return;
+        }
+        entry.setLength(0);
+        entry.append(DELIMITER).append(formatTime(time)).append('|').append(level).append('|');
+        if (null != data) {
+            for (final String field : fields) {
+                final String value = data.get(field);
+                if (null != value) {
+                    entry.append(value);
+                }
+                entry.append('|');
+            }
+        }
+        int len = message.length();
+        while (len > 0 && message.charAt(len - 1) == '\r') {
+            len--;
+        }
+        entry.append(message, 0, len);
+        entry.append(DELIMITER).append(LINE_SEPARATOR);
+        if (null != indexBuffer) {
+            if (!indexBuffer.hasRemaining()) {
+                drain();
+                drainIndex();
+            }
+            indexBuffer.putLong(written + buffer.position());
+        }
+        encode(entry);
+        if (waiting > 0 || flushInterval <= 0 || System.currentTimeMillis() - lastFlush >= flushInterval) {
+            flush();
+        }
+    }
+
+    /**
+     * Return the formatted time, reusing the previous result within the same second
+     */
+    private String formatTime(final long time) {
+        final long second = time / 1000;
+        if (second != lastSecond || null == lastDate) {
+            lastDate = dateFormat.format(new Date(time));
+            lastSecond = second;
+        }
+        return lastDate;
+    }
+
+    /**
+     * Encode the characters into the buffer, writing the buffer to the file whenever it fills
+     */
+    private void encode(final CharSequence chars) throws IOException {
+        final CharBuffer in = CharBuffer.wrap(chars);
+        encoder.reset();
+        while (encoder.encode(in, buffer, true).isOverflow()) {
+            drain();
+        }
+        CoderResult result;
+        while ((result = encoder.flush(buffer)).isOverflow()) {
+            drain();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        written += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        lastFlush = System.currentTimeMillis();
+        notifyAll();
+    }
+
+    /**
+     * Write the buffered index entries, which must only refer to entries already written to the file
+     */
+    private void drainIndex() throws IOException {
+        if (null == indexBuffer) {
+            return;
+        }
+        indexBuffer.flip();
+        while (indexBuffer.hasRemaining()) {
+            indexChannel.write(indexBuffer);
+        }
+        indexBuffer.clear();
+    }
+
+    /**
+     * Write any buffered entries to the file
+     *
+     * @throws IOException on io error
+     */
+    public synchronized void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (null != flushError) {
+            final IOException e = flushError;
+            flushError = null;
+            throw e;
+        }
+        drain();
+        drainIndex();
+    }
+
+    private synchronized void flushIdle() {
+        if (closed || buffer.position() < 1 && (null == indexBuffer || indexBuffer.position() < 1)) {
+            return;
+        }
+        try {
+            drain();
+            drainIndex();
+        } catch (IOException e) {
+            flushError = e;
+        }
+    }
+
+    /**
+     * Wait until the file contains data beyond the offset, the writer is closed, or the timeout elapses.  Any buffered
+     * entries are written to the file first, and while waiting each new entry is written immediately.
+     *
+     * @param offset  byte offset in the file
+     * @param timeout maximum time to wait in milliseconds
+     *
+     * @return true if data beyond the offset is available, or the writer is closed
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized boolean awaitData(final long offset, final long timeout) throws InterruptedException {
+        if (!closed && written <= offset && buffer.position() > 0) {
+            try {
+                flush();
+            } catch (IOException e) {
+                return true;
+            }
+        }
+        final long end = System.currentTimeMillis() + timeout;
+        waiting++;
+        try {
+            long remaining = timeout;
+            while (!closed && written <= offset && remaining > 0) {
+                wait(remaining);
+                remaining = end - System.currentTimeMillis();
+            }
+        } finally {
+            waiting--;
+        }
+        return closed || written > offset;
+    }
+
+    /**
+     * Return the number of bytes written to the file
+     */
+    public synchronized long getWrittenSize() {
+        return written;
+    }
+
+    /**
+     * Write the end marker, and close the file
+     *
+     * @throws IOException on io error
+     */
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (null != flushTask) {
+            flushTask.cancel();
+        }
+        try {
+            encode(END_MARKER + LINE_SEPARATOR);
+            flush();
+        } finally {
+            closed = true;
+            unregisterWriter(path, this);
+            notifyAll();
+            fileOutputStream.close();
+            if (null != indexOutputStream) {
+                indexOutputStream.close();
+            }
+        }
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,604 @@
+/*
+ * Copyright 2010 DTO Labs, Inc. (http://dtolabs.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import com.dtolabs.rundeck.core.common.INodeEntry;
+import com.dtolabs.rundeck.core.common.INodeSet;
+import com.dtolabs.rundeck.core.common.IndexedNodeSet;
+import com.dtolabs.rundeck.core.common.NodeSetImpl;
+import com.dtolabs.rundeck.core.common.NodesSelector;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * CompiledNodeFilter is an immutable node selector equivalent to the include and exclude filters of a {@link NodeSet}
+ * at the time it was compiled.  Selector strings are split into their tag and value clauses once, regular expressions
+ * are compiled once, and selectors containing no regular expression characters are matched by string equality.  It
+ * can be shared by multiple threads.
+ * <p/>
+ * An {@link IndexedNodeSet} can be filtered with {@link #filter(IndexedNodeSet)}, which resolves the literal
+ * selectors using the indexes of the set, and only tests the nodes remaining after that against the regular
+ * expression selectors.
+ */
+public class CompiledNodeFilter implements NodesSelector {
+    private static final String REGEX_CHARS = "\\^$.|?*+()[]{}";
+    private final String singleNodeName;
+    private final Matcher include;
+    private final Matcher exclude;
+    private final boolean includeDominant;
+
+    private CompiledNodeFilter(final String singleNodeName, final Matcher include, final Matcher exclude,
+                               final boolean includeDominant) {
+        this.singleNodeName = singleNodeName;
+        this.include = include;
+        this.exclude = exclude;
+        this.includeDominant = includeDominant;
+    }
+
+    /**
+     * Compile the filters of the nodeset
+     *
+     * @param nodeSet the nodeset
+     *
+     * @return a new selector which accepts the nodes not excluded by the nodeset
+     */
+    public static CompiledNodeFilter compile(final NodeSet nodeSet) {
+        final NodeSet.SetSelector includes = nodeSet.getInclude();
+        final NodeSet.SetSelector excludes = nodeSet.getExclude();
+        return new CompiledNodeFilter(nodeSet.getSingleNodeName(),
+            null == includes || includes.isBlank() ? null : compileSelector(includes),
+            null == excludes || excludes.isBlank() ? null : compileSelector(excludes),
+            null != includes && includes.isDominant());
+    }
+
+    public boolean acceptNode(final INodeEntry entry) {
+        return !shouldExclude(entry);
+    }
+
+    /**
+     * Return true if the node entry should be excluded, as defined by {@link NodeSet#shouldExclude(INodeEntry)}
+     */
+    public boolean shouldExclude(final INodeEntry entry) {
+        if (null != singleNodeName) {
+            return !singleNodeName.equals(entry.getNodename());
+        }
+        if (null == exclude) {
+            return null == include || !include.matches(entry);
+        } else if (null == include) {
+            return exclude.matches(entry);
+        } else if (includeDominant) {
+            return !include.matches(entry) && exclude.matches(entry);
+        } else {
+            return !include.matches(entry) || exclude.matches(entry);
+        }
+    }
+
+    /**
+     * Return the nodes of the indexed set which are not excluded
+     *
+     * @param nodes the indexed nodes
+     *
+     * @return a new node set
+     */
+    public INodeSet filter(final IndexedNodeSet nodes) {
+        if (null != singleNodeName) {
+            final NodeSetImpl result = new NodeSetImpl();
+            final INodeEntry node = nodes.getNode(singleNodeName);
+            if (null != node) {
+                result.putNode(node);
+            }
+            return result;
+        }
+        final BitSet selected;
+        if (null == exclude) {
+            selected = null == include ? new BitSet() : include.select(nodes);
+        } else if (null == include) {
+            selected = nodes.allNodes();
+            selected.andNot(exclude.select(nodes));
+        } else if (includeDominant) {
+            selected = nodes.allNodes();
+            selected.andNot(exclude.select(nodes));
+            selected.or(include.select(nodes));
+        } else {
+            selected = include.select(nodes);
+            selected.andNot(exclude.select(nodes));
+        }
+        return nodes.select(selected);
+    }
+
+    /**
+     * Matches a node entry
+     */
+    static abstract class Matcher {
+        abstract boolean matches(INodeEntry entry);
+
+        /**
+         * Return a new set of the positions of the matching nodes using the indexes of the set, or null if the
+         * matcher can not be resolved by the indexes
+         */
+        BitSet lookup(final IndexedNodeSet nodes) {
+            return null;
+        }
+
+        /**
+         * Return a new set of the positions of the matching nodes, using the indexes if possible, otherwise by testing
+         * each node
+         */
+        BitSet select(final IndexedNodeSet nodes) {
+            final BitSet found = lookup(nodes);
+            if (null != found) {
+                return found;
+            }
+            final BitSet selected = new BitSet();
+            for (int i = 0; i < nodes.size(); i++) {
+                if (matches(nodes.getNode(i))) {
+                    selected.set(i);
+                }
+            }
+            return selected;
+        }
+    }
+
+    /**
+     * Matches a property value
+     */
+    static abstract class ValueMatcher {
+        abstract boolean matches(String value);
+
+        /**
+         * Return the values which match, or null if the matched values are not a fixed set
+         */
+        Collection<String> getValues() {
+            return null;
+        }
+    }
+
+    /**
+     * Return the union of the postings of each value
+     */
+    private static BitSet union(final Collection<String> values, final Postings postings) {
+        final BitSet result = new BitSet();
+        for (final String value : values) {
+            result.or(postings.find(value));
+        }
+        return result;
+    }
+
+    /**
+     * Finds postings for a value in an index
+     */
+    private static interface Postings {
+        public BitSet find(String value);
+    }
+
+    /**
+     * Matches the value of a node property
+     */
+    static abstract class PropertyMatcher extends Matcher {
+        private final String key;
+        private final ValueMatcher matcher;
+
+        PropertyMatcher(final String key, final ValueMatcher matcher) {
+            this.key = key;
+            this.matcher = matcher;
+        }
+
+        abstract String value(INodeEntry entry);
+
+        boolean matches(final INodeEntry entry) {
+            return matcher.matches(value(entry));
+        }
+
+        BitSet lookup(final IndexedNodeSet nodes) {
+            final Collection<String> values = matcher.getValues();
+            if (null == values) {
+                return null;
+            }
+            return union(values, new Postings() {
+                public BitSet find(final String value) {
+                    return nodes.findProperty(key, value);
+                }
+            });
+        }
+    }
+
+    /**
+     * Matches if all of the attribute values match
+     */
+    static class AttributesMatcher extends Matcher {
+        private final String[] keys;
+        private final ValueMatcher[] values;
+
+        AttributesMatcher(final Map<String, String> selectors) {
+            keys = new String[selectors.size()];
+            values = new ValueMatcher[keys.length];
+            int i = 0;
+            for (final Map.Entry<String, String> attr : selectors.entrySet()) {
+                keys[i] = attr.getKey();
+                values[i] = compileInput(attr.getValue());
+                i++;
+            }
+        }
+
+        boolean matches(final INodeEntry entry) {
+            final Map<String, String> attributes = entry.getAttributes();
+            if (null == attributes) {
+                return false;
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (!values[i].matches(attributes.get(keys[i]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        BitSet lookup(final IndexedNodeSet nodes) {
+            BitSet result = null;
+            for (int i = 0; i < keys.length; i++) {
+                final Collection<String> matched = values[i].getValues();
+                if (null == matched) {
+                    return null;
+                }
+                final String key = keys[i];
+                final BitSet found = union(matched, new Postings() {
+                    public BitSet find(final String value) {
+                        return nodes.findAttribute(key, value);
+                    }
+                });
+                if (null == result) {
+                    result = found;
+                } else {
+                    result.and(found);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Matches if all of the matchers match
+     */
+    static class AllMatcher extends Matcher {
+        private final Matcher[] matchers;
+
+        AllMatcher(final Matcher[] matchers) {
+            this.matchers = matchers;
+        }
+
+        boolean matches(final INodeEntry entry) {
+            for (final Matcher matcher : matchers) {
+                if (!matcher.matches(entry)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Intersect the nodes found by the matchers resolved by the indexes, and test the remaining nodes against the
+         * other matchers
+         */
+        BitSet select(final IndexedNodeSet nodes) {
+            BitSet selected = null;
+            final ArrayList<Matcher> remaining = new ArrayList<Matcher>();
+            for (final Matcher matcher : matchers) {
+                final BitSet found = matcher.lookup(nodes);
+                if (null == found) {
+                    remaining.add(matcher);
+                } else if (null == selected) {
+                    selected = found;
+                } else {
+                    selected.and(found);
+                }
+            }
+            if (null == selected) {
+                selected = nodes.allNodes();
+            }
+            if (!remaining.isEmpty()) {
+                for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                    for (final Matcher matcher : remaining) {
+                        if (!matcher.matches(nodes.getNode(i))) {
+                            selected.clear(i);
+                            break;
+                        }
+                    }
+                }
+            }
+            return selected;
+        }
+    }
+
+    /**
+     * Return a matcher for a non-blank selector, which matches if all of the non-blank properties of the selector
+     * match
+     */
+    static Matcher compileSelector(final NodeSet.SetSelector selector) {
+        final ArrayList<Matcher> matchers = new ArrayList<Matcher>();
+        if (!selector.isBlank(selector.getHostname())) {
+            matchers.add(new PropertyMatcher(NodeSet.HOSTNAME, compileInput(selector.getHostname())) {
+                String value(final INodeEntry entry) {
+                    return entry.getHostname();
+                }
+            });
+        }
+        if (!selector.isBlank(selector.getName())) {
+            matchers.add(new PropertyMatcher(NodeSet.NAME, compileInput(selector.getName())) {
+                String value(final INodeEntry entry) {
+                    return entry.getNodename();
+                }
+            });
+        }
+        if (!selector.isBlank(selector.getTags())) {
+            matchers.add(compileInputSet(selector.getTags()));
+        }
+        if (!selector.isBlank(selector.getOsfamily())) {
+            matchers.add(new PropertyMatcher(NodeSet.OS_FAMILY, compileInput(selector.getOsfamily())) {
+                String value(final INodeEntry entry) {
+                    return entry.getOsFamily();
+                }
+            });
+        }
+        if (!selector.isBlank(selector.getOsarch())) {
+            matchers.add(new PropertyMatcher(NodeSet.OS_ARCH, compileInput(selector.getOsarch())) {
+                String value(final INodeEntry entry) {
+                    return entry.getOsArch();
+                }
+            });
+        }
+        if (!selector.isBlank(selector.getOsname())) {
+            matchers.add(new PropertyMatcher(NodeSet.OS_NAME, compileInput(selector.getOsname())) {
+                String value(final INodeEntry entry) {
+                    return entry.getOsName();
+                }
+            });
+        }
+        if (!selector.isBlank(selector.getOsversion())) {
+            matchers.add(new PropertyMatcher(NodeSet.OS_VERSION, compileInput(selector.getOsversion())) {
+                String value(final INodeEntry entry) {
+                    return entry.getOsVersion();
+                }
+            });
+        }
+        if (!selector.isBlank(selector.getAttributesMap())) {
+            matchers.add(new AttributesMatcher(selector.getAttributesMap()));
+        }
+        return new AllMatcher(matchers.toArray(new Matcher[matchers.size()]));
+    }
+
+    /**
+     * Return a matcher for a property value, as defined by {@link NodeSet#matchesInput(String, String)}
+     */
+    static ValueMatcher compileInput(final String inputSelector) {
+        if (null == inputSelector || "".equals(inputSelector.trim())) {
+            return new ValueMatcher() {
+                boolean matches(final String value) {
+                    return false;
+                }
+
+                Collection<String> getValues() {
+                    return Collections.emptyList();
+                }
+            };
+        }
+        final ValueMatcher matcher = compileRegexOrEquals(inputSelector);
+        final HashSet<String> list = new HashSet<String>(Arrays.asList(inputSelector.split(",")));
+        return new ValueMatcher() {
+            boolean matches(final String value) {
+                return null != value && !"".equals(value.trim()) && (matcher.matches(value) || list.contains(value));
+            }
+
+            Collection<String> getValues() {
+                final Collection<String> matched = matcher.getValues();
+                if (null == matched) {
+                    return null;
+                }
+                final HashSet<String> values = new HashSet<String>(matched);
+                for (final String value : list) {
+                    if (!"".equals(value.trim())) {
+                        values.add(value);
+                    }
+                }
+                return values;
+            }
+        };
+    }
+
+    /**
+     * Return a matcher for an item, as defined by {@link NodeSet#matchRegexOrEquals(String, String)}.  If the
+     * selector is an explicit regular expression which is not valid, the exception is thrown when a value is matched.
+     */
+    static ValueMatcher compileRegexOrEquals(final String inputSelector) {
+        if (inputSelector.length() >= 2 && inputSelector.indexOf('/') == 0
+            && inputSelector.lastIndexOf('/') == inputSelector.length() - 1) {
+            final String regex = inputSelector.substring(1, inputSelector.length() - 1).trim();
+            final Pattern pattern;
+            try {
+                pattern = Pattern.compile(regex);
+            } catch (final PatternSyntaxException e) {
+                return new ValueMatcher() {
+                    boolean matches(final String value) {
+                        throw e;
+                    }
+                };
+            }
+            return new ValueMatcher() {
+                boolean matches(final String value) {
+                    return pattern.matcher(value).matches();
+                }
+            };
+        }
+        final String literal = inputSelector.trim();
+        if (isLiteral(literal)) {
+            return new ValueMatcher() {
+                boolean matches(final String value) {
+                    return literal.equals(value);
+                }
+
+                Collection<String> getValues() {
+                    return Collections.singleton(literal);
+                }
+            };
+        }
+        Pattern compiled = null;
+        try {
+            compiled = Pattern.compile(literal);
+        } catch (PatternSyntaxException e) {
+        }
+        final Pattern pattern = compiled;
+        return new ValueMatcher() {
+            boolean matches(final String value) {
+                return null != pattern && pattern.matcher(value).matches() || literal.equals(value);
+            }
+        };
+    }
+
+    /**
+     * Return true if the string contains no regular expression characters, so that it only matches itself
+     */
+    static boolean isLiteral(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (REGEX_CHARS.indexOf(value.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Matches a set of tags, as defined by {@link NodeSet#matchesInputSet(String, Collection)}: the selector is a
+     * list of clauses separated by ",", and matches if all of the "+" separated tags of any clause match.
+     */
+    static class TagSetMatcher extends Matcher {
+        private final String[][] literals;
+        private final ValueMatcher[][] patterns;
+        private final boolean indexed;
+
+        TagSetMatcher(final String[][] literals, final ValueMatcher[][] patterns) {
+            this.literals = literals;
+            this.patterns = patterns;
+            boolean allLiteral = true;
+            for (final ValueMatcher[] clause : patterns) {
+                for (final ValueMatcher pattern : clause) {
+                    if (null != pattern) {
+                        allLiteral = false;
+                    }
+                }
+            }
+            this.indexed = allLiteral;
+        }
+
+        boolean matches(final INodeEntry entry) {
+            return matches((Collection<String>) entry.getTags());
+        }
+
+        boolean matches(final Collection<String> tags) {
+            if (null == tags || tags.size() < 1) {
+                return false;
+            }
+            for (int i = 0; i < literals.length; i++) {
+                if (matchesClause(literals[i], patterns[i], tags)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matchesClause(final String[] literals, final ValueMatcher[] patterns,
+                                      final Collection<String> tags) {
+            for (int j = 0; j < literals.length; j++) {
+                if (tags.contains(literals[j])) {
+                    continue;
+                }
+                if (null == patterns[j]) {
+                    return false;
+                }
+                boolean found = false;
+                for (final String tag : tags) {
+                    if (patterns[j].matches(tag)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * If all tags are literal, return the union of the intersection of the tag postings of each clause
+         */
+        BitSet lookup(final IndexedNodeSet nodes) {
+            if (!indexed) {
+                return null;
+            }
+            final BitSet result = new BitSet();
+            for (final String[] clause : literals) {
+                final BitSet found = nodes.findTag(clause[0]);
+                for (int j = 1; j < clause.length; j++) {
+                    found.and(nodes.findTag(clause[j]));
+                }
+                result.or(found);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Return a matcher for a set of tags.  Tags which contain no regular expression characters are matched by set
+     * membership only.
+     */
+    static TagSetMatcher compileInputSet(final String inputSelector) {
+        if (!inputSelector.contains("+") && !inputSelector.contains(",")) {
+            //the selector is a single tag, which is also matched without trimming by set membership
+            final boolean literal = isLiteral(inputSelector) && !inputSelector.startsWith("/")
+                                    && inputSelector.equals(inputSelector.trim());
+            return new TagSetMatcher(new String[][]{{inputSelector}},
+                new ValueMatcher[][]{{literal ? null : compileRegexOrEquals(inputSelector)}});
+        }
+        final LinkedHashSet<String> orSet = new LinkedHashSet<String>(Arrays.asList(inputSelector.split(",")));
+        final String[] clauses = orSet.toArray(new String[orSet.size()]);
+        final String[][] literals = new String[clauses.length][];
+        final ValueMatcher[][] patterns = new ValueMatcher[clauses.length][];
+        for (int i = 0; i < clauses.length; i++) {
+            final LinkedHashSet<String> andSet = new LinkedHashSet<String>(Arrays.asList(clauses[i].split("\\+")));
+            final String[] tags = andSet.toArray(new String[andSet.size()]);
+            literals[i] = new String[tags.length];
+            patterns[i] = new ValueMatcher[tags.length];
+            for (int j = 0; j < tags.length; j++) {
+                literals[i][j] = tags[j].trim();
+                if (!isLiteral(tags[j].trim()) || tags[j].trim().startsWith("/")) {
+                    patterns[i][j] = compileRegexOrEquals(tags[j]);
+                }
+            }
+        }
+        return new TagSetMatcher(literals, patterns);
+    }
+
+    public String toString() {
+        return "CompiledNodeFilter{" +
+               (null != singleNodeName ? "singleNode=" + singleNodeName : "") +
+               (null != include ? "include, " : "") +
+               (null != exclude ? "exclude, " : "") +
+               "includeDominant=" + includeDominant +
+               '}';
+    }
+}
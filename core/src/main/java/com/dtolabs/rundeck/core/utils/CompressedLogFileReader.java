@@ -0,0 +1,450 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * CompressedLogFileReader reads entries from a log file written by {@link CompressedLogFileWriter}, starting at any log
+ * offset.  Only the block containing the offset and the blocks following it are decompressed.
+ * <p/>
+ * The blocks of the file are located using the block index file if present, and by reading the block headers of any
+ * blocks following the indexed blocks.  Blocks which have not been completely written to the file are ignored, so the
+ * file can be read while it is being written.
+ */
+public class CompressedLogFileReader {
+    private final File file;
+    private final RandomAccessFile raf;
+    private final String[] fields;
+    private final List<Block> blocks = new ArrayList<Block>();
+    private final List<String> dictionary = new ArrayList<String>();
+    private final Inflater inflater = new Inflater();
+    private long nextBlockOffset;
+    private byte[] compressed = new byte[8192];
+    private byte[] data = new byte[CompressedLogFileWriter.DEFAULT_BLOCK_SIZE];
+    private int blockIndex = -1;
+    private int dataLength;
+    private int pos;
+    private long skipBefore;
+    private long offset;
+    private boolean complete;
+
+    /**
+     * @param file the log file
+     *
+     * @throws IOException if the file cannot be read, or is not in the compressed format
+     */
+    public CompressedLogFileReader(final File file) throws IOException {
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "r");
+        try {
+            final byte[] magic = new byte[CompressedLogFileWriter.MAGIC.length];
+            raf.readFully(magic);
+            for (int i = 0; i < magic.length; i++) {
+                if (magic[i] != CompressedLogFileWriter.MAGIC[i]) {
+                    throw new IOException("Not a compressed log file: " + file);
+                }
+            }
+            final int version = raf.readUnsignedByte();
+            if (version != CompressedLogFileWriter.VERSION) {
+                throw new IOException("Unsupported compressed log version " + version + ": " + file);
+            }
+            fields = new String[readVarInt(raf)];
+            for (int i = 0; i < fields.length; i++) {
+                final byte[] bytes = new byte[readVarInt(raf)];
+                raf.readFully(bytes);
+                fields[i] = new String(bytes, "UTF-8");
+            }
+            nextBlockOffset = raf.getFilePointer();
+            loadIndex();
+            loadBlocks();
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Return the names of the context fields
+     */
+    public String[] getFields() {
+        return fields;
+    }
+
+    /**
+     * Return the size of the log data in the complete blocks of the file
+     */
+    public long getSize() {
+        if (blocks.isEmpty()) {
+            return 0;
+        }
+        final Block last = blocks.get(blocks.size() - 1);
+        return last.start + last.length;
+    }
+
+    /**
+     * Return the number of entries in the complete blocks of the file
+     */
+    public long getEntryCount() {
+        if (blocks.isEmpty()) {
+            return 0;
+        }
+        final Block last = blocks.get(blocks.size() - 1);
+        return last.firstEntry + last.entries;
+    }
+
+    /**
+     * Return the log offset following the last entry read
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Return true if the end of the log has been read
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Read the block index entries of blocks written to the file
+     */
+    private void loadIndex() throws IOException {
+        final File indexFile = CompressedLogFileWriter.getBlockIndexFile(file);
+        if (!indexFile.isFile()) {
+            return;
+        }
+        final long fileLength = raf.length();
+        final long first = nextBlockOffset;
+        final RandomAccessFile index = new RandomAccessFile(indexFile, "r");
+        try {
+            final byte[] bytes = new byte[(int) (index.length() - index.length()
+                                                                   % CompressedLogFileWriter.BLOCK_INDEX_ENTRY_SIZE)];
+            index.readFully(bytes);
+            final ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) {
+                final Block block = new Block(buf.getLong(), buf.getInt(), buf.getInt(), buf.getInt(), buf.getLong(),
+                    buf.getLong());
+                //the index is not valid if it does not match the file
+                if (block.fileOffset != nextBlockOffset || block.end() > fileLength) {
+                    blocks.clear();
+                    nextBlockOffset = first;
+                    return;
+                }
+                blocks.add(block);
+                nextBlockOffset = block.end();
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Read the headers of complete blocks following the known blocks
+     *
+     * @return true if any blocks were added
+     */
+    private boolean loadBlocks() throws IOException {
+        final long fileLength = raf.length();
+        boolean added = false;
+        while (nextBlockOffset + CompressedLogFileWriter.BLOCK_HEADER_SIZE <= fileLength) {
+            raf.seek(nextBlockOffset);
+            final Block block = new Block(nextBlockOffset, raf.readInt(), raf.readInt(), raf.readInt(),
+                raf.readLong(), raf.readLong());
+            if (block.end() > fileLength) {
+                break;
+            }
+            blocks.add(block);
+            nextBlockOffset = block.end();
+            added = true;
+        }
+        return added;
+    }
+
+    /**
+     * Position the reader at the log offset, the next entry read will be the first entry starting at or after the
+     * offset
+     *
+     * @param logOffset the log offset
+     *
+     * @throws IOException on io error
+     */
+    public void seek(final long logOffset) throws IOException {
+        skipBefore = logOffset;
+        offset = logOffset;
+        complete = false;
+        dataLength = 0;
+        pos = 0;
+        blockIndex = findBlock(logOffset) - 1;
+    }
+
+    /**
+     * Return the index of the block containing the log offset, or the number of blocks if it is beyond the last
+     * block
+     */
+    private int findBlock(final long logOffset) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final Block block = blocks.get(mid);
+            if (logOffset < block.start) {
+                high = mid - 1;
+            } else if (logOffset >= block.start + block.length) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Return the log offset of the start of the given number of entries before the last entry of the log, and position
+     * the reader at that offset.  If the log has fewer entries, 0 is returned.
+     *
+     * @param count number of entries from the end
+     *
+     * @throws IOException on io error
+     */
+    public long seekLastEntries(final long count) throws IOException {
+        final long logOffset = findLastEntries(count);
+        seek(logOffset);
+        return logOffset;
+    }
+
+    private long findLastEntries(final long count) throws IOException {
+        final long total = getEntryCount();
+        if (count >= total) {
+            return 0;
+        }
+        final long target = total - Math.max(0, count);
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (blocks.get(mid).firstEntry <= target) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        final Block block = blocks.get(low);
+        decodeBlock(low);
+        long entry = block.firstEntry;
+        while (pos < dataLength) {
+            final int start = pos;
+            if (data[pos] == CompressedLogFileWriter.FRAME_ENTRY) {
+                if (entry == target) {
+                    return block.start + start;
+                }
+                entry++;
+            }
+            readFrame();
+        }
+        return getSize();
+    }
+
+    /**
+     * Read the next entry
+     *
+     * @return the entry, or null if the end of the log or of the complete blocks in the file has been reached
+     *
+     * @throws IOException on io error
+     */
+    public LogEntry next() throws IOException {
+        while (!complete) {
+            if (pos >= dataLength) {
+                if (blockIndex + 1 >= blocks.size() && !loadBlocks()) {
+                    return null;
+                }
+                decodeBlock(blockIndex + 1);
+                continue;
+            }
+            final long start = blocks.get(blockIndex).start + pos;
+            final LogEntry entry = readFrame();
+            final long end = blocks.get(blockIndex).start + pos;
+            if (start < skipBefore) {
+                continue;
+            }
+            if (null != entry || complete) {
+                offset = end;
+                if (null != entry) {
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decompress the block
+     */
+    private void decodeBlock(final int index) throws IOException {
+        final Block block = blocks.get(index);
+        if (compressed.length < block.compressedLength) {
+            compressed = new byte[block.compressedLength];
+        }
+        if (data.length < block.length) {
+            data = new byte[block.length];
+        }
+        raf.seek(block.fileOffset + CompressedLogFileWriter.BLOCK_HEADER_SIZE);
+        raf.readFully(compressed, 0, block.compressedLength);
+        inflater.reset();
+        inflater.setInput(compressed, 0, block.compressedLength);
+        try {
+            int len = 0;
+            while (len < block.length && !inflater.finished()) {
+                final int c = inflater.inflate(data, len, block.length - len);
+                if (c < 1 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                len += c;
+            }
+            if (len != block.length) {
+                throw new IOException("Invalid block at " + block.fileOffset + " in: " + file);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid block at " + block.fileOffset + " in: " + file + ": " + e.getMessage());
+        }
+        blockIndex = index;
+        dataLength = block.length;
+        pos = 0;
+        dictionary.clear();
+    }
+
+    /**
+     * Read the frame at the current position of the block data
+     *
+     * @return the entry if it is an entry frame, otherwise null
+     */
+    private LogEntry readFrame() throws IOException {
+        final byte type = data[pos++];
+        if (type == CompressedLogFileWriter.FRAME_DICTIONARY) {
+            final int id = readVarInt();
+            final String value = readString();
+            while (dictionary.size() < id) {
+                dictionary.add(null);
+            }
+            dictionary.set(id - 1, value);
+            return null;
+        } else if (type == CompressedLogFileWriter.FRAME_ENTRY) {
+            long time = 0;
+            for (int i = 0; i < 8; i++) {
+                time = (time << 8) | (data[pos++] & 0xff);
+            }
+            final String level = lookup(readVarInt());
+            Map<String, String> values = null;
+            if (data[pos++] != 0) {
+                values = new HashMap<String, String>();
+                for (final String field : fields) {
+                    final String value = lookup(readVarInt());
+                    if (null != value) {
+                        values.put(field, value);
+                    }
+                }
+            }
+            return new LogEntry(level, time, values, readString());
+        } else if (type == CompressedLogFileWriter.FRAME_END) {
+            complete = true;
+            return null;
+        }
+        throw new IOException("Invalid frame type " + type + " in: " + file);
+    }
+
+    private String lookup(final int id) throws IOException {
+        if (id == 0) {
+            return null;
+        }
+        if (id > dictionary.size()) {
+            throw new IOException("Invalid dictionary reference " + id + " in: " + file);
+        }
+        return dictionary.get(id - 1);
+    }
+
+    private int readVarInt() {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private String readString() throws IOException {
+        final int len = readVarInt();
+        final String value = new String(data, pos, len, "UTF-8");
+        pos += len;
+        return value;
+    }
+
+    private static int readVarInt(final RandomAccessFile raf) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = raf.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public void close() throws IOException {
+        inflater.end();
+        raf.close();
+    }
+
+    /**
+     * Location of a block in the file and in the log
+     */
+    private static class Block {
+        final long fileOffset;
+        final int compressedLength;
+        final int length;
+        final int entries;
+        final long start;
+        final long firstEntry;
+
+        Block(final long fileOffset, final int compressedLength, final int length, final int entries,
+              final long start, final long firstEntry) {
+            this.fileOffset = fileOffset;
+            this.compressedLength = compressedLength;
+            this.length = length;
+            this.entries = entries;
+            this.start = start;
+            this.firstEntry = firstEntry;
+        }
+
+        long end() {
+            return fileOffset + CompressedLogFileWriter.BLOCK_HEADER_SIZE + compressedLength;
+        }
+    }
+}
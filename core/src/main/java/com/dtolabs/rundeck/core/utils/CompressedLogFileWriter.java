@@ -0,0 +1,417 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimerTask;
+import java.util.zip.Deflater;
+
+/**
+ * CompressedLogFileWriter writes execution log entries in a binary format of compressed blocks.
+ * <p/>
+ * The file starts with a header containing the {@link #MAGIC} bytes, the format version, and the names of the context
+ * fields.  It is followed by blocks, each with a header of {@link #BLOCK_HEADER_SIZE} bytes: the compressed length,
+ * uncompressed length, number of entries, the log offset of the block, and the number of entries preceding the
+ * block, followed by the deflated block data.  The uncompressed data of a block is a sequence of frames:
+ * <ul>
+ * <li>{@link #FRAME_DICTIONARY}: a string value which subsequent frames in the block refer to by id, starting at
+ * 1</li>
+ * <li>{@link #FRAME_ENTRY}: the time, the dictionary id of the level, a flag if context fields are present followed by
+ * the dictionary id of each field value (0 for no value), and the length-prefixed message</li>
+ * <li>{@link #FRAME_END}: the end of the log</li>
+ * </ul>
+ * Integers other than the time are written as variable length values, and strings are UTF-8 encoded with a variable
+ * length prefix.  The dictionary starts empty in each block, so any block can be decoded independently.
+ * <p/>
+ * Log offsets count bytes of the uncompressed frame data, so an offset identifies a frame within the log regardless of
+ * compression.  A block is written when the uncompressed data reaches the block size, when the flush interval has
+ * passed since the last block was written, or when the writer is flushed or closed.  While a reader is waiting for
+ * new data, entries are still collected into blocks, which are written at most every {@link #WAITING_FLUSH_INTERVAL}
+ * milliseconds so that a followed execution log remains compressed.  If an index file is given, the block header and
+ * file offset of each block is also written to it, see {@link CompressedLogFileReader}.
+ */
+public class CompressedLogFileWriter implements LogEntryWriter {
+    public static final String FILE_EXTENSION = ".rdlog";
+    public static final String BLOCK_INDEX_FILE_EXTENSION = ".blocks";
+    public static final byte[] MAGIC = {'R', 'D', 'L', 'Z'};
+    public static final int VERSION = 1;
+    public static final int BLOCK_HEADER_SIZE = 28;
+    public static final int BLOCK_INDEX_ENTRY_SIZE = 8 + BLOCK_HEADER_SIZE;
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    public static final byte FRAME_DICTIONARY = 'D';
+    public static final byte FRAME_ENTRY = 'E';
+    public static final byte FRAME_END = 'Z';
+    /**
+     * Minimum time in milliseconds between blocks written for a waiting reader
+     */
+    public static final long WAITING_FLUSH_INTERVAL = 250;
+
+    private final FileOutputStream fileOutputStream;
+    private final FileChannel channel;
+    private final FileOutputStream indexOutputStream;
+    private final FileChannel indexChannel;
+    private final String[] fields;
+    private final int blockSize;
+    private final long flushInterval;
+    private final String path;
+    private final TimerTask flushTask;
+    private final BlockBuffer block = new BlockBuffer();
+    private final DataOutputStream blockOutput = new DataOutputStream(block);
+    private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+    private final Deflater deflater = new Deflater();
+    private final ByteBuffer header = ByteBuffer.allocate(BLOCK_INDEX_ENTRY_SIZE);
+    private byte[] compressed = new byte[8192];
+    private int blockEntries;
+    private long entries;
+    private long written;
+    private long fileOffset;
+    private long lastFlush;
+    private boolean closed;
+    private int waiting;
+    private IOException flushError;
+
+    /**
+     * Create a writer with a block index, and the default block size and flush interval
+     *
+     * @param file   the output file
+     * @param fields names of the context fields written for each entry that has context data
+     *
+     * @throws IOException if the files cannot be opened
+     */
+    public CompressedLogFileWriter(final File file, final String[] fields) throws IOException {
+        this(file, getBlockIndexFile(file), fields, DEFAULT_BLOCK_SIZE, BufferedLogFileWriter.DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * @param file          the output file
+     * @param indexFile     the block index file, or null
+     * @param fields        names of the context fields written for each entry that has context data
+     * @param blockSize     uncompressed size of a block in bytes
+     * @param flushInterval maximum time in milliseconds to retain entries before writing a block, 0 to write a block
+     *                      after every entry, or a negative value to write blocks only when full or flushed
+     *
+     * @throws IOException if the files cannot be opened
+     */
+    public CompressedLogFileWriter(final File file, final File indexFile, final String[] fields, final int blockSize,
+                                   final long flushInterval) throws IOException {
+        this.fields = fields;
+        this.blockSize = blockSize;
+        this.flushInterval = flushInterval;
+        this.path = file.getAbsolutePath();
+        this.fileOutputStream = new FileOutputStream(file);
+        this.channel = fileOutputStream.getChannel();
+        if (null != indexFile) {
+            this.indexOutputStream = new FileOutputStream(indexFile);
+            this.indexChannel = indexOutputStream.getChannel();
+        } else {
+            this.indexOutputStream = null;
+            this.indexChannel = null;
+        }
+        writeFileHeader();
+        this.lastFlush = System.currentTimeMillis();
+        if (flushInterval > 0) {
+            flushTask = new TimerTask() {
+                public void run() {
+                    flushIdle();
+                }
+            };
+            BufferedLogFileWriter.getFlushTimer().schedule(flushTask, flushInterval, flushInterval);
+        } else {
+            flushTask = null;
+        }
+        BufferedLogFileWriter.registerWriter(path, this);
+    }
+
+    /**
+     * Return true if the file name has the extension of the compressed format
+     */
+    public static boolean isCompressedLogFile(final File file) {
+        return file.getName().endsWith(FILE_EXTENSION);
+    }
+
+    /**
+     * Return the block index file for the log file
+     */
+    public static File getBlockIndexFile(final File logFile) {
+        return new File(logFile.getParentFile(), logFile.getName() + BLOCK_INDEX_FILE_EXTENSION);
+    }
+
+    private void writeFileHeader() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        writeVarInt(out, fields.length);
+        for (final String field : fields) {
+            writeString(out, field);
+        }
+        out.flush();
+        final ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        fileOffset = bytes.size();
+    }
+
+    public synchronized void write(final String level, final long time, final Map<String, String> data,
+                                   final String message) throws IOException {
+        if (closed || null == message) {
+            return;
+        }
+        int len = message.length();
+        while (len > 0 && message.charAt(len - 1) == '\r') {
+            len--;
+        }
+        final int levelId = lookup(level);
+        int[] values = null;
+        if (null != data) {
+            values = new int[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                values[i] = lookup(data.get(fields[i]));
+            }
+        }
+        blockOutput.writeByte(FRAME_ENTRY);
+        blockOutput.writeLong(time);
+        writeVarInt(blockOutput, levelId);
+        if (null != values) {
+            blockOutput.writeByte(1);
+            for (final int value : values) {
+                writeVarInt(blockOutput, value);
+            }
+        } else {
+            blockOutput.writeByte(0);
+        }
+        writeString(blockOutput, len < message.length() ? message.substring(0, len) : message);
+        blockEntries++;
+        if (block.size() >= blockSize || flushInterval == 0
+            || flushInterval > 0 && System.currentTimeMillis() - lastFlush >= flushInterval) {
+            writeBlock();
+        } else if (waiting > 0 && blockEntries == 1) {
+            //wake waiting readers to schedule writing the block
+            notifyAll();
+        }
+    }
+
+    /**
+     * Return the dictionary id of the value in the current block, adding a dictionary frame if it is new
+     */
+    private int lookup(final String value) throws IOException {
+        if (null == value) {
+            return 0;
+        }
+        final Integer id = dictionary.get(value);
+        if (null != id) {
+            return id;
+        }
+        final int newId = dictionary.size() + 1;
+        dictionary.put(value, newId);
+        blockOutput.writeByte(FRAME_DICTIONARY);
+        writeVarInt(blockOutput, newId);
+        writeString(blockOutput, value);
+        return newId;
+    }
+
+    /**
+     * Compress and write the current block to the file, followed by its block index entry
+     */
+    private void writeBlock() throws IOException {
+        final int length = block.size();
+        if (length < 1) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(block.getBuffer(), 0, length);
+        deflater.finish();
+        int clen = 0;
+        while (!deflater.finished()) {
+            if (clen == compressed.length) {
+                final byte[] ncompressed = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, ncompressed, 0, clen);
+                compressed = ncompressed;
+            }
+            clen += deflater.deflate(compressed, clen, compressed.length - clen);
+        }
+        header.clear();
+        header.putLong(fileOffset);
+        header.putInt(clen);
+        header.putInt(length);
+        header.putInt(blockEntries);
+        header.putLong(written);
+        header.putLong(entries);
+        header.flip();
+        header.position(8);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        final ByteBuffer data = ByteBuffer.wrap(compressed, 0, clen);
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        if (null != indexChannel) {
+            header.rewind();
+            while (header.hasRemaining()) {
+                indexChannel.write(header);
+            }
+        }
+        fileOffset += BLOCK_HEADER_SIZE + clen;
+        written += length;
+        entries += blockEntries;
+        blockEntries = 0;
+        block.reset();
+        dictionary.clear();
+        lastFlush = System.currentTimeMillis();
+        notifyAll();
+    }
+
+    public synchronized void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (null != flushError) {
+            final IOException e = flushError;
+            flushError = null;
+            throw e;
+        }
+        writeBlock();
+    }
+
+    private synchronized void flushIdle() {
+        if (closed || block.size() < 1 || System.currentTimeMillis() - lastFlush < flushInterval) {
+            return;
+        }
+        try {
+            writeBlock();
+        } catch (IOException e) {
+            flushError = e;
+        }
+    }
+
+    /**
+     * Wait until the file contains data beyond the log offset, the writer is closed, or the timeout elapses.  While
+     * waiting, buffered entries are written to the file once {@link #WAITING_FLUSH_INTERVAL} has passed since the last
+     * block was written.
+     *
+     * @param offset  log offset
+     * @param timeout maximum time to wait in milliseconds
+     *
+     * @return true if data beyond the offset is available, or the writer is closed
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized boolean awaitData(final long offset, final long timeout) throws InterruptedException {
+        final long end = System.currentTimeMillis() + timeout;
+        waiting++;
+        try {
+            while (!closed && written <= offset) {
+                final long now = System.currentTimeMillis();
+                final long flushDelay = lastFlush + WAITING_FLUSH_INTERVAL - now;
+                if (block.size() > 0 && flushDelay <= 0) {
+                    try {
+                        flush();
+                    } catch (IOException e) {
+                        return true;
+                    }
+                    continue;
+                }
+                long remaining = end - now;
+                if (remaining <= 0) {
+                    break;
+                }
+                if (block.size() > 0) {
+                    remaining = Math.min(remaining, flushDelay);
+                }
+                wait(remaining);
+            }
+        } finally {
+            waiting--;
+        }
+        return closed || written > offset;
+    }
+
+    /**
+     * Return the size of the uncompressed log data written to the file
+     */
+    public synchronized long getWrittenSize() {
+        return written;
+    }
+
+    /**
+     * Write the end frame, and close the file
+     *
+     * @throws IOException on io error
+     */
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (null != flushTask) {
+            flushTask.cancel();
+        }
+        try {
+            blockOutput.writeByte(FRAME_END);
+            flush();
+        } finally {
+            closed = true;
+            BufferedLogFileWriter.unregisterWriter(path, this);
+            notifyAll();
+            deflater.end();
+            fileOutputStream.close();
+            if (null != indexOutputStream) {
+                indexOutputStream.close();
+            }
+        }
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    static void writeVarInt(final DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes("UTF-8");
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Exposes the buffer of the block data for compression
+     */
+    private static class BlockBuffer extends ByteArrayOutputStream {
+        BlockBuffer() {
+            super(DEFAULT_BLOCK_SIZE + 1024);
+        }
+
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
+}
@@ -31,14 +31,16 @@ import java.util.Map;
 
 /**
  * FormattedOutputStream buffers the output data and then outputs each line after reformatting the line using the
- * specified Reformatter.  Context Data can be set via {@link #setContext(String, String)}.
+ * specified Reformatter.  Context Data can be set via {@link #setContext(String, String)}.  If the sink is a {@link
+ * StructuredLogSink} and the reformatter is a {@link LogReformatter}, each line is passed to the sink with its context
+ * data instead of being formatted.
  *
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  * @version $Revision$
  */
 public class FormattedOutputStream extends FilterOutputStream {
     Reformatter reformatter;
-    StringBuffer buffer;
+    private final LineDecoder decoder;
     private final OutputStream originalSink;
     private HashMap<String, String> context;
 
@@ -52,7 +54,11 @@ public class FormattedOutputStream extends FilterOutputStream {
         super(sink);
         this.originalSink=sink;
         this.reformatter = reformatter;
-        buffer = new StringBuffer();
+        decoder = new LineDecoder(new LineDecoder.LineHandler() {
+            public void handleLine(final String line) throws IOException {
+                writeLine(line);
+            }
+        }, false);
         context = new HashMap<String, String>();
     }
 
@@ -76,12 +82,29 @@ public class FormattedOutputStream extends FilterOutputStream {
      * @throws IOException
      */
     public void write(final int b) throws IOException {
-        if (b == '\n') {
-            writeBufferedData();
+        decoder.write(b);
+    }
+
+    /**
+     * Overrides the FilterOutputStream method to buffer the data without writing each byte separately.
+     */
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        decoder.write(b, off, len);
+    }
+
+    /**
+     * Reformat and write a non-empty line to the output stream.
+     */
+    private void writeLine(final String line) throws IOException {
+        if (line.length() < 1) {
+            return;
+        }
+        if (out instanceof StructuredLogSink && reformatter instanceof LogReformatter) {
+            ((StructuredLogSink) out).writeLine(((LogReformatter) reformatter).createContext(context), line);
         } else {
-            buffer.append((char) b);
+            out.write(formatMessage(line).getBytes());
+            out.write('\n');
         }
-
     }
 
     /**
@@ -89,11 +112,7 @@ public class FormattedOutputStream extends FilterOutputStream {
      * @throws IOException
      */
     private void writeBufferedData() throws IOException {
-        if (buffer.length() > 0) {
-            out.write(formatMessage(buffer.toString()).getBytes());
-            out.write('\n');
-            buffer = new StringBuffer();
-        }
+        decoder.flush();
     }
 
     @Override
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * LineDecoder collects written bytes into lines, and passes each complete line to a {@link LineHandler}.  Lines end
+ * with "\n" or "\r\n", and optionally with a lone "\r".  Bytes are copied in bulk into a single reusable buffer, and
+ * each line is decoded with the platform default charset.
+ */
+public class LineDecoder {
+    /**
+     * Receives each decoded line
+     */
+    public static interface LineHandler {
+        /**
+         * Handle a line, without the line ending
+         *
+         * @param line the line
+         *
+         * @throws IOException on io error
+         */
+        public void handleLine(String line) throws IOException;
+    }
+
+    private static final int INITIAL_SIZE = 256;
+    private final LineHandler handler;
+    private final boolean carriageReturnEndsLine;
+    private final Charset charset;
+    private byte[] buf = new byte[INITIAL_SIZE];
+    private int count;
+    private boolean pendingCarriageReturn;
+
+    /**
+     * Create a LineDecoder which ends lines at "\n", "\r\n", or a lone "\r"
+     *
+     * @param handler the line handler
+     */
+    public LineDecoder(final LineHandler handler) {
+        this(handler, true);
+    }
+
+    /**
+     * @param handler                the line handler
+     * @param carriageReturnEndsLine if true, a "\r" not followed by "\n" ends a line, otherwise it is retained in the
+     *                               line
+     */
+    public LineDecoder(final LineHandler handler, final boolean carriageReturnEndsLine) {
+        this.handler = handler;
+        this.carriageReturnEndsLine = carriageReturnEndsLine;
+        this.charset = Charset.defaultCharset();
+    }
+
+    /**
+     * Write a single byte
+     */
+    public void write(final int b) throws IOException {
+        if (pendingCarriageReturn) {
+            pendingCarriageReturn = false;
+            if (b == '\n') {
+                endLine();
+                return;
+            }
+            endLine();
+        }
+        if (b == '\n') {
+            endLine();
+        } else if (b == '\r' && carriageReturnEndsLine) {
+            pendingCarriageReturn = true;
+        } else {
+            ensureCapacity(count + 1);
+            buf[count++] = (byte) b;
+        }
+    }
+
+    /**
+     * Write a range of bytes, copying each run of bytes between line endings at once
+     */
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        final int end = off + len;
+        int start = off;
+        int i = off;
+        if (pendingCarriageReturn && i < end) {
+            pendingCarriageReturn = false;
+            endLine();
+            if (b[i] == '\n') {
+                i++;
+                start = i;
+            }
+        }
+        for (; i < end; i++) {
+            final byte c = b[i];
+            if (c == '\n' || c == '\r' && carriageReturnEndsLine) {
+                append(b, start, i - start);
+                if (c == '\n') {
+                    endLine();
+                } else if (i + 1 < end) {
+                    endLine();
+                    if (b[i + 1] == '\n') {
+                        i++;
+                    }
+                } else {
+                    pendingCarriageReturn = true;
+                }
+                start = i + 1;
+            }
+        }
+        append(b, start, end - start);
+    }
+
+    /**
+     * Pass any buffered partial line to the handler
+     */
+    public void flush() throws IOException {
+        if (pendingCarriageReturn || count > 0) {
+            pendingCarriageReturn = false;
+            endLine();
+        }
+    }
+
+    /**
+     * Return true if a partial line is buffered
+     */
+    public boolean hasPartialLine() {
+        return pendingCarriageReturn || count > 0;
+    }
+
+    private void append(final byte[] b, final int off, final int len) {
+        if (len > 0) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+    }
+
+    private void endLine() throws IOException {
+        final String line = new String(buf, 0, count, charset.name());
+        count = 0;
+        handler.handleLine(line);
+    }
+
+    private void ensureCapacity(final int size) {
+        if (size > buf.length) {
+            final byte[] nbuf = new byte[Math.max(size, buf.length * 2)];
+            System.arraycopy(buf, 0, nbuf, 0, count);
+            buf = nbuf;
+        }
+    }
+}
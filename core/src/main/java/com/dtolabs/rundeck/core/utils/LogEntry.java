@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import java.util.Map;
+
+/**
+ * LogEntry is a single entry read from an execution log file.
+ */
+public class LogEntry {
+    private final String level;
+    private final long time;
+    private final Map<String, String> data;
+    private final String message;
+
+    /**
+     * @param level   level name
+     * @param time    time of the entry
+     * @param data    context fields of the entry, or null if it has none
+     * @param message the message
+     */
+    public LogEntry(final String level, final long time, final Map<String, String> data, final String message) {
+        this.level = level;
+        this.time = time;
+        this.data = data;
+        this.message = message;
+    }
+
+    public String getLevel() {
+        return level;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Return the context fields, or null if the entry has none
+     */
+    public Map<String, String> getData() {
+        return data;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String toString() {
+        return "LogEntry{" +
+               "level='" + level + '\'' +
+               ", time=" + time +
+               ", data=" + data +
+               ", message='" + message + '\'' +
+               '}';
+    }
+}
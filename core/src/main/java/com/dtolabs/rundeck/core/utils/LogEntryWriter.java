@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * LogEntryWriter writes execution log entries to a log file in some storage format.
+ */
+public interface LogEntryWriter {
+    /**
+     * Write an entry with the context fields
+     *
+     * @param level   level name
+     * @param time    time of the entry
+     * @param data    context data containing the fields, or null to write the entry without the context fields
+     * @param message the message
+     *
+     * @throws IOException on io error
+     */
+    public void write(String level, long time, Map<String, String> data, String message) throws IOException;
+
+    /**
+     * Write any buffered entries to the file
+     *
+     * @throws IOException on io error
+     */
+    public void flush() throws IOException;
+
+    /**
+     * Wait until the file contains data beyond the offset, the writer is closed, or the timeout elapses.
+     *
+     * @param offset  offset in the log, as used by the reader of the format
+     * @param timeout maximum time to wait in milliseconds
+     *
+     * @return true if data beyond the offset is available, or the writer is closed
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitData(long offset, long timeout) throws InterruptedException;
+
+    /**
+     * Return the size of the log data readable from the file, as used by the reader of the format
+     */
+    public long getWrittenSize();
+
+    /**
+     * Write the end of the log, and close the file
+     *
+     * @throws IOException on io error
+     */
+    public void close() throws IOException;
+
+    public boolean isClosed();
+}
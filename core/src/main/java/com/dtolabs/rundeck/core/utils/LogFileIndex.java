@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * LogFileIndex reads the entry index file written alongside a log file by {@link BufferedLogFileWriter}.  The index
+ * contains the byte offset of the start of each log entry as an 8 byte value, so the offset of any entry can be read
+ * without scanning the log file.
+ */
+public class LogFileIndex {
+    public static final String INDEX_FILE_EXTENSION = ".index";
+    static final int ENTRY_SIZE = 8;
+
+    /**
+     * Return the index file for the log file
+     */
+    public static File getIndexFile(final File logFile) {
+        return new File(logFile.getParentFile(), logFile.getName() + INDEX_FILE_EXTENSION);
+    }
+
+    /**
+     * Return the number of indexed entries for the log file, or -1 if there is no index
+     *
+     * @param logFile the log file
+     *
+     * @throws IOException on io error
+     */
+    public static long getEntryCount(final File logFile) throws IOException {
+        final File indexFile = getIndexFile(logFile);
+        if (!indexFile.isFile()) {
+            return -1;
+        }
+        return indexFile.length() / ENTRY_SIZE;
+    }
+
+    /**
+     * Return the byte offset of the start of the given number of entries before the last indexed entry of the log
+     * file.  If the log has fewer entries, the offset of the first entry is returned.
+     *
+     * @param logFile the log file
+     * @param count   number of entries from the end
+     *
+     * @return byte offset, or -1 if there is no valid index for the log file
+     *
+     * @throws IOException on io error
+     */
+    public static long seekLastEntries(final File logFile, final long count) throws IOException {
+        final long total = getEntryCount(logFile);
+        if (total < 0) {
+            return -1;
+        }
+        if (total == 0 || count >= total) {
+            return 0;
+        }
+        return getEntryOffset(logFile, total - Math.max(0, count));
+    }
+
+    /**
+     * Return the byte offset of the entry at the given index
+     *
+     * @param logFile the log file
+     * @param entry   index of the entry, starting at 0
+     *
+     * @return byte offset of the entry, or -1 if there is no valid index entry
+     *
+     * @throws IOException on io error
+     */
+    public static long getEntryOffset(final File logFile, final long entry) throws IOException {
+        final File indexFile = getIndexFile(logFile);
+        if (!indexFile.isFile() || entry < 0) {
+            return -1;
+        }
+        final RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+        try {
+            if ((entry + 1) * ENTRY_SIZE > raf.length()) {
+                return -1;
+            }
+            raf.seek(entry * ENTRY_SIZE);
+            final long offset = raf.readLong();
+            //the index is not valid if it refers past the end of the log file
+            if (offset < 0 || offset > logFile.length()) {
+                return -1;
+            }
+            return offset;
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LogFormatConverter converts execution log files between the text format written by {@link BufferedLogFileWriter}
+ * and the compressed format written by {@link CompressedLogFileWriter}.
+ * <p/>
+ * The text format records the time of each entry only as "hh:mm:ss", so a log converted from text to the compressed
+ * format contains times on the first day of the epoch, which are written back in the same form when converted to
+ * text.
+ */
+public class LogFormatConverter {
+    /**
+     * Receives the entries read from a log file
+     */
+    public static interface EntryHandler {
+        public void handleEntry(LogEntry entry) throws IOException;
+    }
+
+    /**
+     * Convert a text log file to the compressed format, with a block index
+     *
+     * @param textFile the text log file
+     * @param encoding character encoding of the text file, or null to use the platform default
+     * @param fields   names of the context fields in the text file
+     * @param outFile  the compressed output file
+     *
+     * @throws IOException on io error
+     */
+    public static void convertToCompressed(final File textFile, final String encoding, final String[] fields,
+                                           final File outFile) throws IOException {
+        final CompressedLogFileWriter writer = new CompressedLogFileWriter(outFile,
+            CompressedLogFileWriter.getBlockIndexFile(outFile), fields, CompressedLogFileWriter.DEFAULT_BLOCK_SIZE, -1);
+        try {
+            readTextLog(textFile, encoding, fields, new EntryHandler() {
+                public void handleEntry(final LogEntry entry) throws IOException {
+                    writer.write(entry.getLevel(), entry.getTime(), entry.getData(), entry.getMessage());
+                }
+            });
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Convert a compressed log file to the text format, with an entry index
+     *
+     * @param compressedFile the compressed log file
+     * @param outFile        the text output file
+     *
+     * @throws IOException on io error
+     */
+    public static void convertToText(final File compressedFile, final File outFile) throws IOException {
+        final CompressedLogFileReader reader = new CompressedLogFileReader(compressedFile);
+        try {
+            final BufferedLogFileWriter writer = new BufferedLogFileWriter(outFile, LogFileIndex.getIndexFile(
+                outFile), reader.getFields());
+            try {
+                LogEntry entry;
+                while (null != (entry = reader.next())) {
+                    writer.write(entry.getLevel(), entry.getTime(), entry.getData(), entry.getMessage());
+                }
+            } finally {
+                writer.close();
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Read the entries of a text log file.  Context field values which are empty are not included in the entry data.
+     *
+     * @param textFile the text log file
+     * @param encoding character encoding of the text file, or null to use the platform default
+     * @param fields   names of the context fields in the text file
+     * @param handler  receives each entry
+     *
+     * @throws IOException on io error
+     */
+    public static void readTextLog(final File textFile, final String encoding, final String[] fields,
+                                   final EntryHandler handler) throws IOException {
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("hh:mm:ss");
+        final int sequenceSize = fields.length + 2;
+        final OffsetLineReader reader = new OffsetLineReader(textFile, 0, encoding);
+        try {
+            String level = null;
+            long time = 0;
+            Map<String, String> data = null;
+            StringBuilder message = null;
+            String line;
+            while (null != (line = reader.readLine())) {
+                if (line.startsWith(BufferedLogFileWriter.END_MARKER)) {
+                    break;
+                }
+                if (line.startsWith(BufferedLogFileWriter.DELIMITER)) {
+                    if (null != message) {
+                        handler.handleEntry(new LogEntry(level, time, data, message.toString()));
+                        message = null;
+                    }
+                    String temp = line.substring(3);
+                    boolean full = false;
+                    if (temp.endsWith(BufferedLogFileWriter.DELIMITER) || "".equals(temp)) {
+                        if (temp.length() >= 3) {
+                            temp = temp.substring(0, temp.length() - 3);
+                        }
+                        full = true;
+                    }
+                    final String[] arr = temp.split("\\|", sequenceSize + 1);
+                    if (arr.length < 3) {
+                        continue;
+                    }
+                    time = parseTime(dateFormat, arr[0].trim());
+                    level = arr[1].trim();
+                    data = null;
+                    message = new StringBuilder();
+                    if (arr.length >= sequenceSize) {
+                        data = new HashMap<String, String>();
+                        for (int i = 0; i < fields.length; i++) {
+                            final String value = arr[i + 2].trim();
+                            if (!"".equals(value)) {
+                                data.put(fields[i], value);
+                            }
+                        }
+                        if (arr.length > sequenceSize) {
+                            message.append(arr[sequenceSize]);
+                        }
+                    } else {
+                        for (int i = 2; i < arr.length; i++) {
+                            if (i > 2) {
+                                message.append('|');
+                            }
+                            message.append(arr[i].trim());
+                        }
+                    }
+                    if (full) {
+                        handler.handleEntry(new LogEntry(level, time, data, message.toString()));
+                        message = null;
+                    }
+                } else if (null != message) {
+                    final boolean full = line.endsWith(BufferedLogFileWriter.DELIMITER);
+                    message.append('\n').append(full ? line.substring(0, line.length() - 3) : line);
+                    if (full) {
+                        handler.handleEntry(new LogEntry(level, time, data, message.toString()));
+                        message = null;
+                    }
+                }
+            }
+            if (null != message) {
+                handler.handleEntry(new LogEntry(level, time, data, message.toString()));
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static long parseTime(final SimpleDateFormat dateFormat, final String time) {
+        try {
+            return dateFormat.parse(time).getTime();
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+}
@@ -87,15 +87,7 @@ public class LogReformatter implements Reformatter {
      * @return reformatted message string
      */
     public String reformat(final Map<String, String> context, final String message) {
-        final HashMap<String, String> tokens = new HashMap<String, String>();
-        if (null != context) {
-            tokens.putAll(context);
-        }
-        if (null != generator) {
-            tokens.putAll(generator.getMap());
-        } else if(null!=data) {
-            tokens.putAll(data);
-        }
+        final Map<String, String> tokens = createContext(context);
         final String[] arr = {
             null!= tokens.get("user")? tokens.get("user"):"",
             null != tokens.get("node") ? tokens.get("node") : "",
@@ -107,4 +99,27 @@ public class LogReformatter implements Reformatter {
             return messageFormat.format(arr);
         }
     }
+
+    /**
+     * Combines the context data with the local static or dynamic context data
+     *
+     * @param context input data
+     *
+     * @return combined context data
+     */
+    public Map<String, String> createContext(final Map<String, String> context) {
+        final HashMap<String, String> tokens = new HashMap<String, String>();
+        if (null != context) {
+            tokens.putAll(context);
+        }
+        if (null != generator) {
+            final Map<String, String> map = generator.getMap();
+            if (null != map) {
+                tokens.putAll(map);
+            }
+        } else if(null!=data) {
+            tokens.putAll(data);
+        }
+        return tokens;
+    }
 }
@@ -39,6 +39,7 @@ public class NodeSet  implements NodesSelector {
     public static final String OS_VERSION = "os-version";
 
     private String singleNodeName;
+    private volatile CompiledNodeFilter compiledFilter;
 
     /**
      * default constructor
@@ -84,6 +85,7 @@ public class NodeSet  implements NodesSelector {
 
     public void setSingleNodeName(final String singleNodeName) {
         this.singleNodeName = singleNodeName;
+        filterChanged();
     }
 
     public boolean acceptNode(final INodeEntry entry) {
@@ -168,6 +170,7 @@ public class NodeSet  implements NodesSelector {
             throw new IllegalStateException("only one include is allowed");
         }
         includes = new Include();
+        filterChanged();
         return includes;
     }
 
@@ -176,6 +179,7 @@ public class NodeSet  implements NodesSelector {
             throw new IllegalStateException("only one exclude is allowed");
         }
         excludes = new Exclude();
+        filterChanged();
         return excludes;
     }
 
@@ -187,13 +191,41 @@ public class NodeSet  implements NodesSelector {
         return excludes;
     }
 
+    /**
+     * Return the compiled form of the current filters, which is reused until the filters are changed.
+     * @return the compiled filter
+     */
+    public CompiledNodeFilter getCompiledFilter() {
+        CompiledNodeFilter filter = compiledFilter;
+        if (null == filter) {
+            filter = CompiledNodeFilter.compile(this);
+            compiledFilter = filter;
+        }
+        return filter;
+    }
+
+    private void filterChanged() {
+        compiledFilter = null;
+    }
+
     /**
      * Return true if the node entry should be excluded based on the includes and excludes parameters.
      * When both include and exclude patterns match the node, it will be excluded based on which filterset is dominant.
+     * The filters are evaluated in their compiled form, see {@link #getCompiledFilter()}.
      * @param entry node descriptor entry
      * @return true if the node should be excluded.
      */
     public boolean shouldExclude(final INodeEntry entry) {
+        return getCompiledFilter().shouldExclude(entry);
+    }
+
+    /**
+     * Return true if the node entry should be excluded, by evaluating the selector strings of the filters for the
+     * entry.
+     * @param entry node descriptor entry
+     * @return true if the node should be excluded.
+     */
+    boolean shouldExcludeUncompiled(final INodeEntry entry) {
         if(null!=getSingleNodeName()) {
             return !getSingleNodeName().equals(entry.getNodename());
         }
@@ -509,11 +541,12 @@ public class NodeSet  implements NodesSelector {
         private Map<String,String> attributesMap;
 
         protected SetSelector() {
-            attributesMap = new HashMap<String, String>();
+            attributesMap = new FilterAttributes();
         }
 
         public void setHostname(String hostname) {
             this.hostname = hostname;
+            filterChanged();
         }
 
         public String getHostname() {
@@ -601,6 +634,7 @@ public class NodeSet  implements NodesSelector {
 
         public void setOsfamily(String osfamily) {
             this.osfamily = osfamily;
+            filterChanged();
         }
 
         public String getOsarch() {
@@ -609,6 +643,7 @@ public class NodeSet  implements NodesSelector {
 
         public void setOsarch(String osarch) {
             this.osarch = osarch;
+            filterChanged();
         }
 
         public String getOsname() {
@@ -617,6 +652,7 @@ public class NodeSet  implements NodesSelector {
 
         public void setOsname(String osname) {
             this.osname = osname;
+            filterChanged();
         }
 
         public String getTags() {
@@ -625,6 +661,7 @@ public class NodeSet  implements NodesSelector {
 
         public void setTags(String tags) {
             this.tags = tags;
+            filterChanged();
         }
 
         public String getOsversion() {
@@ -633,6 +670,7 @@ public class NodeSet  implements NodesSelector {
 
         public void setOsversion(String osversion) {
             this.osversion = osversion;
+            filterChanged();
         }
 
         public String getName() {
@@ -641,6 +679,7 @@ public class NodeSet  implements NodesSelector {
 
         public void setName(String name) {
             this.name = name;
+            filterChanged();
         }
 
         public boolean isDominant() {
@@ -649,6 +688,7 @@ public class NodeSet  implements NodesSelector {
 
         public void setDominant(boolean dominant) {
             this.dominant = dominant;
+            filterChanged();
         }
 
 
@@ -661,8 +701,19 @@ public class NodeSet  implements NodesSelector {
             return attributesMap;
         }
 
+        /**
+         * Set the attribute selectors.  The map is copied, and changes to the map returned by {@link
+         * #getAttributesMap()} are applied to the filter.
+         */
         public void setAttributesMap(Map<String, String> attributesMap) {
-            this.attributesMap = attributesMap;
+            if (null != attributesMap) {
+                final FilterAttributes attributes = new FilterAttributes();
+                attributes.putAll(attributesMap);
+                this.attributesMap = attributes;
+            } else {
+                this.attributesMap = null;
+            }
+            filterChanged();
         }
 
         @Override
@@ -722,6 +773,35 @@ public class NodeSet  implements NodesSelector {
         }
     }
 
+    /**
+     * Map of attribute selectors which resets the compiled filter when it is modified
+     */
+    private class FilterAttributes extends HashMap<String, String> {
+        @Override
+        public String put(final String key, final String value) {
+            filterChanged();
+            return super.put(key, value);
+        }
+
+        @Override
+        public void putAll(final Map<? extends String, ? extends String> map) {
+            filterChanged();
+            super.putAll(map);
+        }
+
+        @Override
+        public String remove(final Object key) {
+            filterChanged();
+            return super.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            filterChanged();
+            super.clear();
+        }
+    }
+
     public class Include extends SetSelector {
 
     }
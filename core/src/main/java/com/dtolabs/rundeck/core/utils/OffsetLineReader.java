@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * OffsetLineReader reads lines from a file through a single buffer, and tracks the byte offset in the file following
+ * each line read.  Lines end with "\n", "\r\n" or "\r", and the final line of the file may have no line ending.
+ */
+public class OffsetLineReader {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    private final FileInputStream stream;
+    private final String charset;
+    private final byte[] buf;
+    private int pos;
+    private int limit;
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private long offset;
+
+    /**
+     * @param file     the file
+     * @param offset   byte offset to start reading at
+     * @param encoding character encoding, or null to use the platform default
+     *
+     * @throws IOException if the file cannot be read
+     */
+    public OffsetLineReader(final File file, final long offset, final String encoding) throws IOException {
+        this.stream = new FileInputStream(file);
+        this.charset = null != encoding ? Charset.forName(encoding).name() : Charset.defaultCharset().name();
+        this.buf = new byte[DEFAULT_BUFFER_SIZE];
+        if (offset > 0) {
+            stream.getChannel().position(offset);
+        }
+        this.offset = offset;
+    }
+
+    /**
+     * Read the next line
+     *
+     * @return the line without the line ending, or null if the end of the file has been reached
+     *
+     * @throws IOException on io error
+     */
+    public String readLine() throws IOException {
+        lineLength = 0;
+        boolean read = false;
+        while (true) {
+            if (pos >= limit && !fill()) {
+                return read ? createLine() : null;
+            }
+            read = true;
+            final int start = pos;
+            while (pos < limit) {
+                final byte c = buf[pos];
+                if (c == '\n' || c == '\r') {
+                    append(start, pos - start);
+                    pos++;
+                    offset += pos - start;
+                    if (c == '\r') {
+                        if (pos < limit || fill()) {
+                            if (buf[pos] == '\n') {
+                                pos++;
+                                offset++;
+                            }
+                        }
+                    }
+                    return createLine();
+                }
+                pos++;
+            }
+            append(start, pos - start);
+            offset += pos - start;
+        }
+    }
+
+    /**
+     * Return the byte offset in the file following the last line read
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    private boolean fill() throws IOException {
+        pos = 0;
+        limit = 0;
+        final int c = stream.read(buf);
+        if (c > 0) {
+            limit = c;
+            return true;
+        }
+        return false;
+    }
+
+    private void append(final int start, final int len) {
+        if (len > 0) {
+            if (lineLength + len > line.length) {
+                final byte[] nline = new byte[Math.max(lineLength + len, line.length * 2)];
+                System.arraycopy(line, 0, nline, 0, lineLength);
+                line = nline;
+            }
+            System.arraycopy(buf, start, line, lineLength, len);
+            lineLength += len;
+        }
+    }
+
+    private String createLine() throws IOException {
+        return new String(line, 0, lineLength, charset);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * StructuredLogSink can be implemented by an OutputStream to receive lines of output along with their context data,
+ * instead of receiving the text formatted by a {@link Reformatter}.
+ * @see FormattedOutputStream
+ */
+public interface StructuredLogSink {
+    /**
+     * Write a line of output
+     *
+     * @param context context data, such as "user", "node", "command" and "level"
+     * @param message the line, without line ending
+     *
+     * @throws IOException on io error
+     */
+    public void writeLine(Map<String, String> context, String message) throws IOException;
+}
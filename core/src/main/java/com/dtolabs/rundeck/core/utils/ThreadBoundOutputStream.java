@@ -124,6 +124,18 @@ public class ThreadBoundOutputStream extends FilterOutputStream {
         }
     }
 
+    /**
+     * Write the bytes to the thread's OutputStream at once, rather than one byte at a time
+     */
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        final OutputStream out = getThreadLocalOutputStream();
+        if (out == null || out == this) {
+            sink.write(b, off, len);
+        } else {
+            out.write(b, off, len);
+        }
+    }
+
     private static PrintStream origSystemOut;
     private static ThreadBoundPrintStream boundOutPrint;
 
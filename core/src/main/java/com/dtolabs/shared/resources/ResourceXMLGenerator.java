@@ -29,25 +29,20 @@ import static com.dtolabs.shared.resources.ResourceXMLConstants.*;
 
 import com.dtolabs.utils.XMLChar;
 import org.apache.log4j.Logger;
-import org.dom4j.Document;
-import org.dom4j.DocumentFactory;
-import org.dom4j.Element;
-import org.dom4j.io.OutputFormat;
-import org.dom4j.io.XMLWriter;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
+import java.io.*;
 import java.util.*;
 
 /**
- * ResourceXMLGenerator can generate a resources.xml file given a set of entities or INodeEntry objects.
+ * ResourceXMLGenerator can generate a resources.xml file given a set of entities or INodeEntry objects.  The XML is
+ * written directly to the output without building a document in memory, see {@link #generate(java.util.Collection)}
+ * to write a large set of nodes.
  *
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
  */
 public class ResourceXMLGenerator implements NodesFileGenerator {
     static Logger log4j = Logger.getLogger(ResourceXMLGenerator.class.getName());
+    private static final String ENCODING = "UTF-8";
 
     private File file;
     private OutputStream output;
@@ -167,84 +162,133 @@ public class ResourceXMLGenerator implements NodesFileGenerator {
      * @throws IOException
      */
     public void generate() throws IOException {
-        final Document doc = DocumentFactory.getInstance().createDocument();
-        final Element root = doc.addElement("project");
-        //iterate through entities in correct order
-        for (final ResourceXMLParser.Entity entity : entities) {
-            if (NODE_ENTITY_TAG.equals(entity.getResourceType())) {
-                final Element ent = genEntityCommon(root, entity);
-                genNode(ent, entity);
-            }
-        }
+        generate(null);
+    }
 
+    /**
+     * Generate and store the XML file, containing the added entities followed by the given nodes.  The document is
+     * written to the output as it is generated, and the nodes are converted and written one at a time without being
+     * retained, so a large set of nodes can be written without building the document in memory.
+     *
+     * @param nodes the nodes to write after the added entities, or null
+     *
+     * @throws IOException
+     */
+    public void generate(final Collection<? extends INodeEntry> nodes) throws IOException {
         if (null != file) {
             FileOutputStream out=new FileOutputStream(file);
             try{
-                serializeDocToStream(out, doc);
+                generate(out, nodes);
             }finally{
                 out.close();
             }
         } else if (null != output) {
-            serializeDocToStream(output, doc);
+            generate(output, nodes);
         }
     }
 
-    /**
-     * Generate resources section and resource references
-     *
-     * @param ent
-     * @param entity
-     */
-    private void genAttributes(final Element ent, final ResourceXMLParser.Entity entity) {
-        if (null == entity.getProperties() ) {
-            return;
+    private void generate(final OutputStream out, final Collection<? extends INodeEntry> nodes) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, ENCODING));
+        writer.write("<?xml version=\"1.0\" encoding=\"" + ENCODING + "\"?>\n\n<project>\n");
+        //iterate through entities in correct order
+        for (final ResourceXMLParser.Entity entity : entities) {
+            if (NODE_ENTITY_TAG.equals(entity.getResourceType())) {
+                genNode(writer, entity);
+            }
         }
-        for (final String key:entity.getProperties().stringPropertyNames()){
-            if (!ResourceXMLConstants.allPropSet.contains(key)) {
-                //test attribute name is a valid XML attribute name
-                if(XMLChar.isValidName(key)){
-                    ent.addAttribute(key, entity.getProperties().getProperty(key));
-                }else {
-                    //add sub element
-                    final Element atelm = ent.addElement(ATTRIBUTE_TAG);
-                    atelm.addAttribute(ATTRIBUTE_NAME_ATTR, key);
-                    atelm.addAttribute(ATTRIBUTE_VALUE_ATTR, entity.getProperties().getProperty(key));
-                }
+        if (null != nodes) {
+            for (final INodeEntry node : nodes) {
+                genNode(writer, createEntity(node));
             }
         }
-
+        writer.write("</project>\n");
+        writer.flush();
     }
 
     /**
-     * Gen "node" tag contents
+     * Write the "node" tag, with the common and node attributes, any other attributes with valid XML names, and
+     * "attribute" sub elements for the remaining attributes
      *
-     * @param ent
+     * @param writer
      * @param entity
      */
-    private void genNode(final Element ent, final ResourceXMLParser.Entity entity) {
+    private void genNode(final Writer writer, final ResourceXMLParser.Entity entity) throws IOException {
+        writer.write("  <");
+        writer.write(entity.getResourceType());
+        genAttribute(writer, COMMON_NAME, entity.getName());
+        genAttribute(writer, COMMON_DESCRIPTION, notNull(entity.getProperty(COMMON_DESCRIPTION)));
+        genAttribute(writer, COMMON_TAGS, notNull(entity.getProperty(COMMON_TAGS)));
         for (final String nodeProp : nodeProps) {
-            ent.addAttribute(nodeProp, notNull(entity.getProperty(nodeProp)));
+            genAttribute(writer, nodeProp, notNull(entity.getProperty(nodeProp)));
+        }
+        List<String> subAttributes = null;
+        if (null != entity.getProperties()) {
+            for (final String key : entity.getProperties().stringPropertyNames()) {
+                if (!ResourceXMLConstants.allPropSet.contains(key)) {
+                    //test attribute name is a valid XML attribute name
+                    if (XMLChar.isValidName(key)) {
+                        genAttribute(writer, key, entity.getProperties().getProperty(key));
+                    } else {
+                        if (null == subAttributes) {
+                            subAttributes = new ArrayList<String>();
+                        }
+                        subAttributes.add(key);
+                    }
+                }
+            }
+        }
+        if (null == subAttributes) {
+            writer.write("/>\n");
+            return;
+        }
+        writer.write(">\n");
+        for (final String key : subAttributes) {
+            writer.write("    <");
+            writer.write(ATTRIBUTE_TAG);
+            genAttribute(writer, ATTRIBUTE_NAME_ATTR, key);
+            genAttribute(writer, ATTRIBUTE_VALUE_ATTR, entity.getProperties().getProperty(key));
+            writer.write("/>\n");
         }
-        genAttributes(ent, entity);
+        writer.write("  </");
+        writer.write(entity.getResourceType());
+        writer.write(">\n");
     }
 
-
-
-
     /**
-     * Create entity tag based on resourceType of entity, and add common attributes
-     *
-     * @param root
-     * @param entity
-     *
-     * @return
+     * Write an XML attribute, escaping the value
      */
-    private Element genEntityCommon(final Element root, final ResourceXMLParser.Entity entity) {
-        final Element tag = root.addElement(entity.getResourceType());
-        tag.addAttribute(COMMON_NAME, entity.getName());
-        tag.addAttribute(COMMON_DESCRIPTION, notNull(entity.getProperty(COMMON_DESCRIPTION)));
-        tag.addAttribute(COMMON_TAGS, notNull(entity.getProperty(COMMON_TAGS)));
-        return tag;
+    private static void genAttribute(final Writer writer, final String name, final String value) throws IOException {
+        if (null == value) {
+            return;
+        }
+        writer.write(' ');
+        writer.write(name);
+        writer.write("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '"':
+                    writer.write("&quot;");
+                    break;
+                default:
+                    if (c < 32) {
+                        //preserve whitespace characters from attribute value normalization
+                        writer.write("&#" + (int) c + ";");
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
     }
 
     /**
@@ -260,19 +304,4 @@ public class ResourceXMLGenerator implements NodesFileGenerator {
         }
         return s;
     }
-
-    /**
-     * Write Document to a file
-     *
-     * @param file
-     * @param doc
-     *
-     * @throws IOException
-     */
-    private static void serializeDocToStream(final OutputStream output, final Document doc) throws IOException {
-        final OutputFormat format = OutputFormat.createPrettyPrint();
-        final XMLWriter writer = new XMLWriter(output, format);
-        writer.write(doc);
-        writer.flush();
-    }
 }
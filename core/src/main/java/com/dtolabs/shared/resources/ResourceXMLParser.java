@@ -25,12 +25,17 @@ package com.dtolabs.shared.resources;
 
 import static com.dtolabs.shared.resources.ResourceXMLConstants.*;
 
-import org.dom4j.*;
-import org.dom4j.io.SAXReader;
+import org.xml.sax.Attributes;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 import org.apache.log4j.Logger;
 
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
 import java.io.*;
 import java.util.*;
 
@@ -42,10 +47,10 @@ import java.util.*;
  * object. One should be set using {@link
  * #setReceiver(ResourceXMLReceiver)} to receive parsed entities or the entire entity set.
  * <p/>
- * The default entityXpath property value is set to match all entity types in the resource xml
- * <code>(node|setting|package|deployment)</code>, but this can be set to any Xpath to limit the entities that are
- * parsed from the document. (e.g. "<code>node|package</code>" or "<code>node[@name='mynode']</code>").
- * See {@link #setEntityXpath(String)}.
+ * The document is read with a SAX parser, and each entity is passed to the receiver as soon as its element has been
+ * parsed, so the document is never held in memory as a whole.  By default the parsed entities are also collected into
+ * the EntitySet given to the receiver at the end of the document, see {@link #setRetainEntities(boolean)} to disable
+ * this when parsing large documents.
  * <p/>
  *
  * @author Greg Schueler <a href="mailto:greg@dtosolutions.com">greg@dtosolutions.com</a>
@@ -58,7 +63,7 @@ public class ResourceXMLParser {
     private InputStream input;
     private ResourceXMLReceiver receiver;
     public static final String DEFAULT_ENTITY_XPATH = NODE_ENTITY_TAG ;
-    private String entityXpath = DEFAULT_ENTITY_XPATH;
+    private boolean retainEntities = true;
 
     /**
      * Constructor for the ResourceXMLParser
@@ -86,50 +91,45 @@ public class ResourceXMLParser {
      */
     public void parse() throws ResourceXMLParserException, IOException {
         final EntityResolver resolver = createEntityResolver();
-        final SAXReader reader = new SAXReader(false);
-        reader.setEntityResolver(resolver);
-
+        final InputStream in;
+        if (null != file) {
+            in = new FileInputStream(file);
+        } else {
+            in = input;
+        }
         try {
-
-            final InputStream in;
-            if(null!=file){
-                in = new FileInputStream(file);
-            }else{
-                in = input;
+            final SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setValidating(false);
+            final XMLReader reader = factory.newSAXParser().getXMLReader();
+            final EntityHandler handler = new EntityHandler();
+            reader.setEntityResolver(resolver);
+            reader.setContentHandler(handler);
+            try {
+                reader.parse(new InputSource(in));
+            } catch (StopParsingException e) {
+                //receiver requested to stop
             }
-            try{
-                final Document doc = reader.read(in);
-                final EntitySet set = new EntitySet();
-                final Element root = doc.getRootElement();
-
-                final List list = root.selectNodes(entityXpath);
-                for (final Object n : list) {
-                    final Node node = (Node) n;
-                    final Entity ent = parseEnt(node, set);
-                    if (null != receiver) {
-                        if (!receiver.resourceParsed(ent)) {
-                            break;
-                        }
-                    }
-                }
-                if (null != receiver) {
-                    receiver.resourcesParsed(set);
-                }
-            }finally{
-                if(null!=file){
-                    in.close();
-                }
+            if (null != receiver) {
+                receiver.resourcesParsed(handler.set);
             }
-
-        } catch (DocumentException e) {
+        } catch (ParserConfigurationException e) {
             throw new ResourceXMLParserException(e);
+        } catch (SAXException e) {
+            if (e.getException() instanceof ResourceXMLParserException) {
+                throw (ResourceXMLParserException) e.getException();
+            }
+            throw new ResourceXMLParserException(e);
+        } finally {
+            if (null != file) {
+                in.close();
+            }
         }
     }
 
     public static EntityResolver createEntityResolver() {
         return new EntityResolver() {
             public InputSource resolveEntity(final String publicId, final String systemId) {
-                if (publicId.equals(DTD_PROJECT_DOCUMENT_1_0_EN)) {
+                if (DTD_PROJECT_DOCUMENT_1_0_EN.equals(publicId)) {
                     final InputStream in = ResourceXMLParser.class.getClassLoader().getResourceAsStream(
                         PROJECT_DTD_RESOURCE_PATH);
                     if (null != in) {
@@ -154,44 +154,6 @@ public class ResourceXMLParser {
         };
     }
 
-    /**
-     * Given xml Node and EntitySet, parse the entity defined in the Node
-     *
-     * @param node DOM node
-     * @param set  entity set holder
-     *
-     * @return parsed Entity object
-     *
-     * @throws ResourceXMLParserException if entity definition was previously found, or another error occurs
-     */
-    private Entity parseEnt(final Node node, final EntitySet set) throws ResourceXMLParserException {
-        final Entity ent = parseResourceRef(set, node);
-        ent.setResourceType(node.getName());
-        parseEntProperties(ent, node);
-        parseEntSubAttributes(ent, node);
-        return ent;
-    }
-
-
-    /**
-     * Parse a simple resource/entity node for the type/name attributes, returning a new or existing Entity
-     *
-     * @param set entity set
-     * @param n   entity DOM node
-     *
-     * @return new or existing Entity
-     *
-     * @throws ResourceXMLParserException if the ndoe is missing the required attributes
-     */
-    private Entity parseResourceRef(final EntitySet set, final Node n) throws ResourceXMLParserException {
-        final Node node2 = n.selectSingleNode("@" + COMMON_NAME);
-        if (null == node2) {
-            throw new ResourceXMLParserException("@" + COMMON_NAME + " required: " + reportNodeErrorLocation(n));
-        }
-        final String rname = node2.getStringValue();
-        return set.getOrCreateEntity( rname);
-    }
-
     private static final HashMap<String, String[]> entityProperties = new HashMap<String, String[]>();
 
     static {
@@ -199,74 +161,131 @@ public class ResourceXMLParser {
     }
 
     /**
-     * Parse the DOM attributes as properties for the particular entity node type
-     *
-     * @param ent  Entity object
-     * @param node entity DOM node
-     *
-     * @throws ResourceXMLParserException if the DOM node is an unexpected tag name
+     * Thrown within the SAX handler when the receiver returns false from {@link
+     * ResourceXMLReceiver#resourceParsed(com.dtolabs.shared.resources.ResourceXMLParser.Entity)}
      */
-    private void parseEntProperties(final Entity ent, final Node node) throws ResourceXMLParserException {
-        if (null == entityProperties.get(node.getName())) {
-            throw new ResourceXMLParserException(
-                "Unexpected entity declaration: " + node.getName() + ": " + reportNodeErrorLocation(node));
-        }
-        final Element node1 = (Element) node;
-        //load all element attributes as properties
-        for (final Object o : node1.attributes()) {
-            final Attribute attr = (Attribute) o;
-            ent.properties.setProperty(attr.getName(), attr.getStringValue());
+    private static class StopParsingException extends SAXException {
+        StopParsingException() {
+            super("stop parsing");
         }
     }
 
     /**
-     * Parse the DOM attributes as properties for the particular entity node type
-     *
-     * @param ent  Entity object
-     * @param node entity DOM node
-     *
-     * @throws ResourceXMLParserException if the DOM node is an unexpected tag name
+     * SAX handler which builds one entity at a time from the entity elements directly within the root element, and
+     * their embedded "attribute" elements.  Other elements are ignored.
      */
-    private void parseEntSubAttributes(final Entity ent, final Node node) throws ResourceXMLParserException {
-        final Element node1 = (Element) node;
-        //load all sub elements called "attribute" as properties
-        for (final Object attribute : node1.selectNodes(ATTRIBUTE_TAG)) {
-            Element attr=(Element) attribute;
-            if(null==attr.selectSingleNode("@" + ATTRIBUTE_NAME_ATTR)) {
-                throw new ResourceXMLParserException(
-                    ATTRIBUTE_TAG + " element has no '" + ATTRIBUTE_NAME_ATTR + "' attribute: "
-                    + reportNodeErrorLocation(attr));
+    private class EntityHandler extends DefaultHandler {
+        private final EntitySet set = new EntitySet();
+        private Locator locator;
+        private int depth;
+        private Entity entity;
+        private String attrname;
+        private String attrvalue;
+        private StringBuilder text;
+
+        @Override
+        public void setDocumentLocator(final Locator locator) {
+            this.locator = locator;
+        }
+
+        @Override
+        public void startElement(final String uri, final String localName, final String qName,
+                                 final Attributes attributes) throws SAXException {
+            depth++;
+            if (depth == 2 && null != entityProperties.get(qName)) {
+                entity = parseResourceRef(qName, attributes);
+                entity.setResourceType(qName);
+                //load all element attributes as properties
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    entity.properties.setProperty(attributes.getQName(i), attributes.getValue(i));
+                }
+            } else if (depth == 3 && null != entity && ATTRIBUTE_TAG.equals(qName)) {
+                attrname = attributes.getValue(ATTRIBUTE_NAME_ATTR);
+                if (null == attrname) {
+                    throw error(ATTRIBUTE_TAG + " element has no '" + ATTRIBUTE_NAME_ATTR + "' attribute: "
+                                + reportErrorLocation());
+                }
+                attrvalue = attributes.getValue(ATTRIBUTE_VALUE_ATTR);
+                if (null == attrvalue) {
+                    //use text content
+                    text = new StringBuilder();
+                }
+            }
+        }
+
+        @Override
+        public void characters(final char[] ch, final int start, final int length) {
+            if (null != text && depth == 3) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName, final String qName) throws SAXException {
+            if (depth == 3 && null != attrname) {
+                entity.properties.setProperty(attrname, null != text ? text.toString() : attrvalue);
+                attrname = null;
+                attrvalue = null;
+                text = null;
+            } else if (depth == 2 && null != entity) {
+                final Entity ent = entity;
+                entity = null;
+                if (null != receiver && !receiver.resourceParsed(ent)) {
+                    throw new StopParsingException();
+                }
+            }
+            depth--;
+        }
+
+        /**
+         * Return a new or existing Entity for the name attribute of the entity element
+         */
+        private Entity parseResourceRef(final String tag, final Attributes attributes) throws SAXException {
+            final String rname = attributes.getValue(COMMON_NAME);
+            if (null == rname) {
+                throw error("@" + COMMON_NAME + " required: " + tag + " " + reportErrorLocation());
             }
-            String attrname = attr.selectSingleNode("@" + ATTRIBUTE_NAME_ATTR).getStringValue();
-
-            String attrvalue;
-            //look for "value" attribute
-            if(null!=attr.selectSingleNode("@"+ATTRIBUTE_VALUE_ATTR)) {
-                attrvalue = attr.selectSingleNode("@" + ATTRIBUTE_VALUE_ATTR).getStringValue();
-            }else if(null!= attr.getText()) {
-                //look for text content
-                attrvalue = attr.getText();
-            }else {
-                throw new ResourceXMLParserException(
-                    ATTRIBUTE_TAG + " element has no '" + ATTRIBUTE_VALUE_ATTR + "' attribute or text content: "
-                    + reportNodeErrorLocation(attr));
+            if (retainEntities) {
+                return set.getOrCreateEntity(rname);
             }
+            final Entity ent = new Entity();
+            ent.setName(rname);
+            return ent;
+        }
 
-            ent.properties.setProperty(attrname, attrvalue);
+        private SAXException error(final String message) {
+            return new SAXException(new ResourceXMLParserException(message));
+        }
+
+        /**
+         * Return a String describing the current location in the document
+         */
+        private String reportErrorLocation() {
+            if (null == locator) {
+                return "";
+            }
+            return "at line " + locator.getLineNumber() + ", column " + locator.getColumnNumber();
         }
     }
 
     /**
-     * Return a String describing the DOM node's location and parent type name
-     *
-     * @param e the node
-     *
-     * @return string describing xpath location and parent "type" element name
+     * Return true if parsed entities are collected into the EntitySet passed to the receiver
      */
-    protected static String reportNodeErrorLocation(final Node e) {
-        return "at xpath " + e.getUniquePath();
+    public boolean isRetainEntities() {
+        return retainEntities;
     }
 
+    /**
+     * Set whether parsed entities are collected into the EntitySet passed to the receiver at the end of the document,
+     * default true.  If false, the entities are only passed to the receiver as they are parsed and the EntitySet will
+     * be empty, so that memory use does not grow with the size of the document.  In that case an entity declared more
+     * than once in the document is passed to the receiver once for each declaration, rather than merged.
+     *
+     * @param retainEntities true to collect the entities
+     */
+    public void setRetainEntities(final boolean retainEntities) {
+        this.retainEntities = retainEntities;
+    }
 
     /**
      * Return the ResourceXMLReceiver
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.authorization;
+
+import com.dtolabs.rundeck.core.utils.FileUtils;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Tests the per-user caching of {@link AclsAuthorizationCache}, and its invalidation when the policy files change
+ */
+public class TestAclsAuthorizationCache extends TestCase {
+    File testDir;
+    int created;
+
+    public void setUp() throws Exception {
+        testDir = new File("target/test-acls-cache");
+        testDir.mkdirs();
+        FileUtils.copyFileStreams(new File("src/test/resources/com/dtolabs/rundeck/core/authorization/admintest.aclpolicy"),
+            new File(testDir, "admintest.aclpolicy"));
+        created = 0;
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDir(testDir);
+    }
+
+    private AclsAuthorizationCache.AuthorizationFactory factory(final String user, final String[] roles) {
+        return new AclsAuthorizationCache.AuthorizationFactory() {
+            public LegacyAuthorization createAuthorization(final Authorization policies) {
+                created++;
+                return new BaseAclsAuthorization(null, testDir, policies) {
+                    public String[] determineUserRoles(final String username) {
+                        return user.equals(username) ? roles : new String[0];
+                    }
+                };
+            }
+        };
+    }
+
+    public void testCreateKeySortsRoles() {
+        assertEquals(AclsAuthorizationCache.createKey("bob", Arrays.asList("b", "a")),
+            AclsAuthorizationCache.createKey("bob", Arrays.asList("a", "b")));
+        assertFalse(AclsAuthorizationCache.createKey("bob", Arrays.asList("a")).equals(
+            AclsAuthorizationCache.createKey("bob", Arrays.asList("a", "b"))));
+        assertFalse(AclsAuthorizationCache.createKey("bob", Arrays.asList("a")).equals(
+            AclsAuthorizationCache.createKey("alice", Arrays.asList("a"))));
+    }
+
+    public void testCachedByUserAndRoles() throws Exception {
+        final AclsAuthorizationCache cache = new AclsAuthorizationCache(testDir);
+        final String[] roles = {"admin", "user"};
+        final LegacyAuthorization auth1 = cache.getAuthorization("bob", Arrays.asList(roles), factory("bob", roles));
+        final LegacyAuthorization auth2 = cache.getAuthorization("bob", Arrays.asList("user", "admin"), factory("bob",
+            roles));
+        assertSame(auth1, auth2);
+        assertEquals(1, created);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        final LegacyAuthorization auth3 = cache.getAuthorization("bob", Arrays.asList("user"), factory("bob",
+            new String[]{"user"}));
+        assertNotSame(auth1, auth3);
+        assertEquals(2, created);
+        assertEquals(2, cache.getSize());
+    }
+
+    public void testSharedPolicies() throws Exception {
+        final AclsAuthorizationCache cache = new AclsAuthorizationCache(testDir);
+        final BaseAclsAuthorization auth1 = (BaseAclsAuthorization) cache.getAuthorization("bob", Arrays.asList(
+            "admin"), factory("bob", new String[]{"admin"}));
+        final BaseAclsAuthorization auth2 = (BaseAclsAuthorization) cache.getAuthorization("alice", Arrays.asList(
+            "user"), factory("alice", new String[]{"user"}));
+        assertNotSame(auth1, auth2);
+        assertSame(cache.getPolicies(), cache.getPolicies());
+    }
+
+    public void testInvalidateOnPolicyChange() throws Exception {
+        final AclsAuthorizationCache cache = new AclsAuthorizationCache(testDir);
+        final String[] roles = {"admin"};
+        final LegacyAuthorization auth1 = cache.getAuthorization("bob", Arrays.asList(roles), factory("bob", roles));
+        assertSame(auth1, cache.getAuthorization("bob", Arrays.asList(roles), factory("bob", roles)));
+
+        FileUtils.copyFileStreams(new File("src/test/resources/com/dtolabs/rundeck/core/authorization/test1.aclpolicy"),
+            new File(testDir, "test1.aclpolicy"));
+        final LegacyAuthorization auth2 = cache.getAuthorization("bob", Arrays.asList(roles), factory("bob", roles));
+        assertNotSame(auth1, auth2);
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals(2, created);
+
+        new File(testDir, "test1.aclpolicy").delete();
+        assertNotSame(auth2, cache.getAuthorization("bob", Arrays.asList(roles), factory("bob", roles)));
+        assertEquals(2, cache.getInvalidationCount());
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.authorization;
+
+import com.dtolabs.rundeck.core.authentication.Group;
+import com.dtolabs.rundeck.core.authentication.Username;
+import com.dtolabs.rundeck.core.authorization.providers.SAREAuthorization;
+import com.dtolabs.rundeck.core.utils.FileUtils;
+import junit.framework.TestCase;
+
+import javax.security.auth.Subject;
+import java.io.File;
+import java.io.FileWriter;
+import java.net.URI;
+import java.util.*;
+
+/**
+ * Tests the decisions cached by {@link CachingAuthorization}, their expiry, size limit and invalidation
+ */
+public class TestCachingAuthorization extends TestCase {
+    static class TestAuthorization implements Authorization {
+        int evaluated;
+        int batches;
+
+        public Decision evaluate(final Map<String, String> resource, final Subject subject, final String action,
+                                 final Set<Attribute> environment) {
+            evaluated++;
+            return new TestDecision(resource, subject, action, environment);
+        }
+
+        public Set<Decision> evaluate(final Set<Map<String, String>> resources, final Subject subject,
+                                      final Set<String> actions, final Set<Attribute> environment) {
+            batches++;
+            final HashSet<Decision> decisions = new HashSet<Decision>();
+            for (final Map<String, String> resource : resources) {
+                for (final String action : actions) {
+                    decisions.add(evaluate(resource, subject, action, environment));
+                }
+            }
+            return decisions;
+        }
+    }
+
+    static class TestDecision implements Decision {
+        final Map<String, String> resource;
+        final Subject subject;
+        final String action;
+        final Set<Attribute> environment;
+
+        TestDecision(final Map<String, String> resource, final Subject subject, final String action,
+                     final Set<Attribute> environment) {
+            this.resource = resource;
+            this.subject = subject;
+            this.action = action;
+            this.environment = environment;
+        }
+
+        public boolean isAuthorized() {
+            return "read".equals(action);
+        }
+
+        public Explanation explain() {
+            return null;
+        }
+
+        public long evaluationDuration() {
+            return 0;
+        }
+
+        public Map<String, String> getResource() {
+            return resource;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public Set<Attribute> getEnvironment() {
+            return environment;
+        }
+
+        public Subject getSubject() {
+            return subject;
+        }
+    }
+
+    private Subject createSubject(final String user, final String... groups) {
+        final Subject subject = new Subject();
+        subject.getPrincipals().add(new Username(user));
+        for (final String group : groups) {
+            subject.getPrincipals().add(new Group(group));
+        }
+        return subject;
+    }
+
+    private Map<String, String> resource(final String... keyvals) {
+        final LinkedHashMap<String, String> map = new LinkedHashMap<String, String>();
+        for (int i = 0; i < keyvals.length; i += 2) {
+            map.put(keyvals[i], keyvals[i + 1]);
+        }
+        return map;
+    }
+
+    private Set<Attribute> env(final String project) {
+        return Collections.singleton(new Attribute(URI.create("http://dtolabs.com/rundeck/env/project"), project));
+    }
+
+    public void testCreateKeyCanonical() {
+        final Subject subject1 = createSubject("bob", "a", "b");
+        final Subject subject2 = createSubject("bob", "b", "a");
+        assertEquals(CachingAuthorization.createKey(resource("type", "job", "name", "x"), subject1, "read", env("p")),
+            CachingAuthorization.createKey(resource("name", "x", "type", "job"), subject2, "read", env("p")));
+        assertFalse(CachingAuthorization.createKey(resource("type", "job", "name", "x"), subject1, "read", env("p"))
+            .equals(CachingAuthorization.createKey(resource("type", "job", "name", "x"), subject1, "run", env("p"))));
+        assertFalse(CachingAuthorization.createKey(resource("type", "job", "name", "x"), subject1, "read", env("p"))
+            .equals(CachingAuthorization.createKey(resource("type", "job", "name", "x"), subject1, "read", env("q"))));
+        assertFalse(CachingAuthorization.createKey(resource("type", "job", "name", "x"), subject1, "read", env("p"))
+            .equals(CachingAuthorization.createKey(resource("type", "job", "name", "x"), createSubject("bob", "a"),
+                "read", env("p"))));
+        assertFalse(CachingAuthorization.createResourceKey(resource("a", "b=c")).equals(
+            CachingAuthorization.createResourceKey(resource("a=b", "c"))));
+    }
+
+    public void testEvaluateCached() {
+        final TestAuthorization test = new TestAuthorization();
+        final CachingAuthorization cache = new CachingAuthorization(test);
+        final Subject subject = createSubject("bob", "admin");
+        final Decision decision = cache.evaluate(resource("type", "job", "name", "x"), subject, "read", env("p"));
+        assertTrue(decision.isAuthorized());
+        assertSame(decision, cache.evaluate(resource("name", "x", "type", "job"), createSubject("bob", "admin"),
+            "read", env("p")));
+        assertEquals(1, test.evaluated);
+        assertFalse(cache.evaluate(resource("type", "job", "name", "x"), subject, "run", env("p")).isAuthorized());
+        assertEquals(2, test.evaluated);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1.0 / 3, cache.getHitRatio(), 0.001);
+        assertEquals(2, cache.getSize());
+    }
+
+    public void testEvaluateBatchUsesCachedDecisions() {
+        final TestAuthorization test = new TestAuthorization();
+        final CachingAuthorization cache = new CachingAuthorization(test);
+        final Subject subject = createSubject("bob", "admin");
+        cache.evaluate(resource("type", "node", "nodename", "a"), subject, "read", env("p"));
+        cache.evaluate(resource("type", "node", "nodename", "a"), subject, "run", env("p"));
+        cache.evaluate(resource("type", "node", "nodename", "b"), subject, "read", env("p"));
+        assertEquals(3, test.evaluated);
+
+        final HashSet<Map<String, String>> resources = new HashSet<Map<String, String>>();
+        resources.add(resource("type", "node", "nodename", "a"));
+        resources.add(resource("type", "node", "nodename", "b"));
+        resources.add(resource("type", "node", "nodename", "c"));
+        final Set<Decision> decisions = cache.evaluate(resources, subject, new HashSet<String>(Arrays.asList("read",
+            "run")), env("p"));
+        assertEquals(6, decisions.size());
+        //only b and c are evaluated
+        assertEquals(7, test.evaluated);
+        assertEquals(1, test.batches);
+
+        cache.evaluate(resources, subject, new HashSet<String>(Arrays.asList("read", "run")), env("p"));
+        assertEquals(7, test.evaluated);
+        assertEquals(1, test.batches);
+    }
+
+    public void testExpiry() throws Exception {
+        final TestAuthorization test = new TestAuthorization();
+        final CachingAuthorization cache = new CachingAuthorization(test, 100, 20);
+        final Subject subject = createSubject("bob", "admin");
+        cache.evaluate(resource("type", "job"), subject, "read", env("p"));
+        cache.evaluate(resource("type", "job"), subject, "read", env("p"));
+        assertEquals(1, test.evaluated);
+        Thread.sleep(40);
+        cache.evaluate(resource("type", "job"), subject, "read", env("p"));
+        assertEquals(2, test.evaluated);
+    }
+
+    public void testMaxSize() {
+        final TestAuthorization test = new TestAuthorization();
+        final CachingAuthorization cache = new CachingAuthorization(test, 2, 10000);
+        final Subject subject = createSubject("bob", "admin");
+        cache.evaluate(resource("type", "job", "name", "a"), subject, "read", env("p"));
+        cache.evaluate(resource("type", "job", "name", "b"), subject, "read", env("p"));
+        cache.evaluate(resource("type", "job", "name", "c"), subject, "read", env("p"));
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        cache.evaluate(resource("type", "job", "name", "a"), subject, "read", env("p"));
+        assertEquals(4, test.evaluated);
+    }
+
+    public void testInvalidateOnPolicyChange() throws Exception {
+        final File dir = new File("target/test-caching-authorization");
+        dir.mkdirs();
+        try {
+            writePolicy(new File(dir, "test.aclpolicy"), "read");
+            final SAREAuthorization sare = new SAREAuthorization(dir);
+            final CachingAuthorization cache = new CachingAuthorization(sare);
+            cache.setPolicyCheckInterval(0);
+            final Subject subject = createSubject("bob", "admin");
+            final Map<String, String> resource = resource("type", "job", "name", "x", "group", "");
+            assertTrue(cache.evaluate(resource, subject, "read", env("p")).isAuthorized());
+            assertFalse(cache.evaluate(resource, subject, "run", env("p")).isAuthorized());
+            assertTrue(cache.evaluate(resource, subject, "read", env("p")).isAuthorized());
+            assertEquals(1, cache.getHitCount());
+            assertEquals(0, cache.getInvalidationCount());
+
+            final File file2 = new File(dir, "test2.aclpolicy");
+            writePolicy(file2, "run");
+            assertTrue(cache.evaluate(resource, subject, "run", env("p")).isAuthorized());
+            assertEquals(1, cache.getInvalidationCount());
+
+            file2.delete();
+            assertFalse(cache.evaluate(resource, subject, "run", env("p")).isAuthorized());
+            assertEquals(2, cache.getInvalidationCount());
+        } finally {
+            FileUtils.deleteDir(dir);
+        }
+    }
+
+    private void writePolicy(final File file, final String action) throws Exception {
+        final FileWriter writer = new FileWriter(file);
+        try {
+            writer.write("description: test\n"
+                         + "context:\n  project: '.*'\n"
+                         + "for:\n  job:\n    - allow: [" + action + "]\n"
+                         + "by:\n  group: [admin]\n");
+        } finally {
+            writer.close();
+        }
+    }
+}
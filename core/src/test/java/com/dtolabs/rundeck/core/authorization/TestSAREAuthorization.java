@@ -326,6 +326,85 @@ public class TestSAREAuthorization extends TestCase {
         throw new Exception();
     }
     
+    public void testBatchEvaluateNodes() throws Exception {
+        final File dir = new File("target/test-batch-acls");
+        dir.mkdirs();
+        final StringBuilder policy = new StringBuilder();
+        policy.append("description: node rules\n");
+        policy.append("context:\n  project: 'test'\n");
+        policy.append("for:\n  node:\n");
+        for (int i = 0; i < 50; i++) {
+            policy.append("    - equals:\n        nodename: node").append(i * 100).append("\n");
+            policy.append("      allow: [run]\n");
+        }
+        policy.append("    - match:\n        nodename: 'node.*'\n      allow: [read]\n");
+        policy.append("    - contains:\n        tags: denied\n      deny: '*'\n");
+        policy.append("by:\n  group: [ops]\n");
+        final File file = new File(dir, "nodes.aclpolicy");
+        final java.io.FileWriter writer = new java.io.FileWriter(file);
+        try {
+            writer.write(policy.toString());
+        } finally {
+            writer.close();
+        }
+        try {
+            final SAREAuthorization nodeAuthorization = new SAREAuthorization(dir);
+            final Subject subject = createSubject("bob", "ops");
+            final Set<Attribute> env = new HashSet<Attribute>();
+            env.add(new Attribute(URI.create("http://dtolabs.com/rundeck/env/project"), "test"));
+
+            final int nodeCount = 10000;
+            final Set<Map<String, String>> resources = new HashSet<Map<String, String>>();
+            for (int i = 0; i < nodeCount; i++) {
+                final Map<String, String> resource = new HashMap<String, String>();
+                resource.put("type", "node");
+                resource.put("nodename", "node" + i);
+                resource.put("hostname", "host" + i + ".example.com");
+                resource.put("tags", i == 1000 ? "web,denied" : "web");
+                resources.add(resource);
+            }
+            final Set<String> actions = new HashSet<String>();
+            actions.add("read");
+            actions.add("run");
+
+            final long start = System.currentTimeMillis();
+            final Set<Decision> decisions = nodeAuthorization.evaluate(resources, subject, actions, env);
+            final long duration = System.currentTimeMillis() - start;
+            System.out.println("Evaluated " + decisions.size() + " decisions in " + duration + "ms ("
+                               + (decisions.size() * 1000L / Math.max(1, duration)) + " decisions/second)");
+
+            assertEquals(nodeCount * 2, decisions.size());
+            int read = 0;
+            int run = 0;
+            for (final Decision decision : decisions) {
+                final String nodename = decision.getResource().get("nodename");
+                if ("node1000".equals(nodename)) {
+                    assertFalse(decision.isAuthorized());
+                    assertEquals(Code.REJECTED_DENIED, decision.explain().getCode());
+                } else if (decision.isAuthorized() && "read".equals(decision.getAction())) {
+                    read++;
+                } else if (decision.isAuthorized() && "run".equals(decision.getAction())) {
+                    run++;
+                    assertEquals(0, Integer.parseInt(nodename.substring(4)) % 100);
+                }
+            }
+            assertEquals(nodeCount - 1, read);
+            assertEquals(49, run);
+
+            //single evaluation produces the same result
+            final Map<String, String> resource = new HashMap<String, String>();
+            resource.put("type", "node");
+            resource.put("nodename", "node200");
+            resource.put("tags", "web");
+            assertTrue(nodeAuthorization.evaluate(resource, subject, "run", env).isAuthorized());
+            resource.put("nodename", "node201");
+            assertFalse(nodeAuthorization.evaluate(resource, subject, "run", env).isAuthorized());
+        } finally {
+            file.delete();
+            dir.delete();
+        }
+    }
+
     public void off_testNodeTarget() throws Exception {
         createJobResource("adhocScript", "foo/bar");
         String action = "READ";
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.common;
+
+import java.util.ArrayList;
+
+/**
+ * CompactNodeEntryBenchmark compares the heap used by nodes with many attributes as {@link NodeEntryImpl} and as
+ * {@link CompactNodeEntry} instances.  The measurement depends on the garbage collector, so run it with a fixed heap
+ * size.  Run the main method with optional arguments: number of nodes, number of attributes.
+ */
+public class CompactNodeEntryBenchmark {
+
+    private static long usedMemory() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        final int attributes = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        final long baseline = usedMemory();
+        final ArrayList<INodeEntry> nodes = new ArrayList<INodeEntry>(count);
+        for (int i = 0; i < count; i++) {
+            nodes.add(TestCompactNodeEntry.createNode(i, attributes));
+        }
+        final long mutable = usedMemory() - baseline;
+
+        final CompactNodeFactory factory = new CompactNodeFactory();
+        final ArrayList<INodeEntry> compact = new ArrayList<INodeEntry>(count);
+        for (int i = 0; i < count; i++) {
+            compact.add(factory.create(nodes.get(i)));
+            nodes.set(i, null);
+        }
+        final long compacted = usedMemory() - baseline;
+        System.out.println(count + " nodes with " + attributes + " attributes, " + compact.size() + " compacted");
+        System.out.println("NodeEntryImpl:    " + mutable / 1024 + " KB");
+        System.out.println("CompactNodeEntry: " + compacted / 1024 + " KB");
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.common;
+
+import com.dtolabs.rundeck.core.utils.NodeSet;
+
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * IndexedNodeSetBenchmark compares filtering a large node set by testing each node against filtering an {@link
+ * IndexedNodeSet} of the same nodes, and reports the time to build the index.  Run the main method with optional
+ * arguments: number of nodes, number of iterations.
+ */
+public class IndexedNodeSetBenchmark {
+
+    static int runFilter(final NodeSet nodeSet, final INodeSet nodes, final int iterations) {
+        int selected = 0;
+        for (int i = 0; i < iterations; i++) {
+            selected = NodeFilter.filterNodes(nodeSet, nodes).getNodes().size();
+        }
+        return selected;
+    }
+
+    public static void main(final String[] args) {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        final NodeSetImpl nodes = TestIndexedNodeSet.createNodes(new Random(4321), count);
+        long start = System.nanoTime();
+        final IndexedNodeSet indexed = new IndexedNodeSet(nodes);
+        final long indexTime = System.nanoTime() - start;
+
+        final NodeSet nodeSet = TestIndexedNodeSet.createNodeSet("tags", "a+b,web+db", "name", "node1,node2", false);
+        nodeSet.getInclude().setOsfamily("unix");
+        nodeSet.getInclude().setAttributesMap(Collections.singletonMap("attr1", "value2,value4"));
+        final int selected = runFilter(nodeSet, indexed, 1);
+        if (runFilter(nodeSet, nodes, 1) != selected) {
+            throw new IllegalStateException("results differ");
+        }
+        //warm up
+        runFilter(nodeSet, nodes, iterations);
+        runFilter(nodeSet, indexed, iterations);
+
+        start = System.nanoTime();
+        runFilter(nodeSet, nodes, iterations);
+        final long scanTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        runFilter(nodeSet, indexed, iterations);
+        final long indexedTime = System.nanoTime() - start;
+        System.out.println(count + " nodes, " + selected + " matched, index built in " + indexTime / 1000000 + " ms");
+        System.out.println("scanned: " + scanTime / iterations / 1000 + " us/filter");
+        System.out.println("indexed: " + indexedTime / iterations / 1000 + " us/filter");
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.common;
+
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Tests creating {@link CompactNodeEntry} instances, and the sharing of attribute names and values between them
+ */
+public class TestCompactNodeEntry extends TestCase {
+
+    static NodeEntryImpl createNode(final int i, final int attributes) {
+        final NodeEntryImpl node = new NodeEntryImpl("host" + i + ".example.com", "node" + i);
+        node.setOsFamily("unix");
+        node.setOsName("Linux");
+        node.setOsArch("x86_64");
+        node.setOsVersion("2.6." + (i % 4));
+        node.setUsername("admin");
+        node.setDescription("a node");
+        node.setTags(new HashSet<String>(Arrays.asList("web", "zone" + (i % 3))));
+        for (int j = 0; j < attributes; j++) {
+            //new string instances, as a parser would create
+            node.setAttribute(new String("attr" + j), new String("value" + (j % 2 == 0 ? i % 10 : j)));
+        }
+        return node;
+    }
+
+    public void testCreate() throws Exception {
+        final NodeEntryImpl node = createNode(1, 3);
+        node.setFrameworkProject("project1");
+        final CompactNodeEntry compact = new CompactNodeFactory().create(node);
+        assertEquals("node1", compact.getNodename());
+        assertEquals("host1.example.com", compact.getHostname());
+        assertEquals("unix", compact.getOsFamily());
+        assertEquals("Linux", compact.getOsName());
+        assertEquals("x86_64", compact.getOsArch());
+        assertEquals("2.6.1", compact.getOsVersion());
+        assertEquals("admin", compact.getUsername());
+        assertEquals("admin", compact.extractUserName());
+        assertEquals("a node", compact.getDescription());
+        assertEquals("project1", compact.getFrameworkProject());
+        assertEquals(node.getTags(), compact.getTags());
+        assertEquals(node.getAttributes(), compact.getAttributes());
+        assertEquals(compact.getAttributes(), node.getAttributes());
+        assertEquals("value1", compact.getAttribute("attr0"));
+        assertNull(compact.getAttribute("attr3"));
+        assertEquals(node.getAttributes().size(), compact.getAttributes().size());
+        assertEquals(node, compact);
+        assertEquals(compact, node);
+        assertEquals(node.hashCode(), compact.hashCode());
+        try {
+            compact.getAttributes().put("attr0", "x");
+            fail("expected exception");
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            compact.getTags().add("x");
+            fail("expected exception");
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+    public void testShared() throws Exception {
+        final CompactNodeFactory factory = new CompactNodeFactory();
+        final CompactNodeEntry node1 = factory.create(createNode(1, 3));
+        final CompactNodeEntry node2 = factory.create(createNode(4, 3));
+        final CompactNodeEntry node3 = factory.create(createNode(11, 3));
+        assertSame(node1.getTags(), node2.getTags());
+        assertNotSame(node1.getTags(), node3.getTags());
+        assertSame(node1.getAttribute("attr1"), node2.getAttribute("attr1"));
+        assertSame(node1.getAttribute("attr0"), node3.getAttribute("attr0"));
+        assertEquals("value4", node2.getAttribute("attr0"));
+    }
+
+    /**
+     * Nodes which do not store their properties as attributes
+     */
+    public void testCreateFromProperties() throws Exception {
+        final NodeEntryImpl node2 = new NodeEntryImpl() {
+            @Override
+            public String getNodename() {
+                return "node2";
+            }
+        };
+        final CompactNodeEntry compact2 = new CompactNodeFactory().create(node2);
+        assertEquals("node2", compact2.getNodename());
+        assertEquals("node2", compact2.getAttributes().get(NodeEntryImpl.NAME));
+    }
+}
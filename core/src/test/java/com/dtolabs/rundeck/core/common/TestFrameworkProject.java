@@ -534,8 +534,18 @@ public class TestFrameworkProject extends AbstractBaseTest {
     static class testSource implements ResourceModelSource {
         INodeSet returnNodes;
         int called=0;
+        long delay;
         public INodeSet getNodes() throws ResourceModelSourceException {
-            called++;
+            synchronized (this) {
+                called++;
+            }
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    throw new ResourceModelSourceException(e);
+                }
+            }
             return returnNodes;
         }
     }
@@ -696,4 +706,65 @@ public class TestFrameworkProject extends AbstractBaseTest {
         assertNotNull(nodeSet.getNode("set3node1"));
         projectPropsFile.delete();
     }
+
+    /**
+     * Sources are invoked concurrently, and a source which does not finish within its timeout is skipped
+     */
+    public void testLoadNodesProvidersParallel() throws Exception {
+
+        final ResourceModelSourceService service = ResourceModelSourceService.getInstanceForFramework(
+            getFrameworkInstance());
+        testSource provider1 = new testSource();
+        final NodeSetImpl set1 = new NodeSetImpl();
+        set1.putNode(new NodeEntryImpl("set1node1"));
+        provider1.returnNodes = set1;
+        provider1.delay = 500;
+        testFactory factory1 = new testFactory();
+        factory1.returnProvider = provider1;
+
+        testSource provider2 = new testSource();
+        final NodeSetImpl set2 = new NodeSetImpl();
+        set2.putNode(new NodeEntryImpl("set2node1"));
+        provider2.returnNodes = set2;
+        provider2.delay = 500;
+        testFactory factory2 = new testFactory();
+        factory2.returnProvider = provider2;
+
+        testSource provider3 = new testSource();
+        final NodeSetImpl set3 = new NodeSetImpl();
+        set3.putNode(new NodeEntryImpl("set3node1"));
+        provider3.returnNodes = set3;
+        provider3.delay = 5000;
+        testFactory factory3 = new testFactory();
+        factory3.returnProvider = provider3;
+
+        service.registerInstance("file", factory1);
+        service.registerInstance("url", factory2);
+        service.registerInstance("directory", factory3);
+
+        Properties props1 = new Properties();
+        props1.setProperty(FrameworkProject.RESOURCES_SOURCE_PROP_PREFIX + ".1.type", "file");
+        props1.setProperty(FrameworkProject.RESOURCES_SOURCE_PROP_PREFIX + ".1.config.file", "/test/file/path");
+        props1.setProperty(FrameworkProject.RESOURCES_SOURCE_PROP_PREFIX + ".2.type", "url");
+        props1.setProperty(FrameworkProject.RESOURCES_SOURCE_PROP_PREFIX + ".2.config.url", "http://example.com/test2");
+        props1.setProperty(FrameworkProject.RESOURCES_SOURCE_PROP_PREFIX + ".3.type", "directory");
+        props1.setProperty(FrameworkProject.RESOURCES_SOURCE_PROP_PREFIX + ".3.config.directory", "/test/file/path3");
+        props1.setProperty(FrameworkProject.RESOURCES_SOURCE_PROP_PREFIX + ".3.timeout", "2");
+        projectPropsFile.getParentFile().mkdirs();
+        writeProps(props1,projectPropsFile);
+
+        FrameworkProject project = FrameworkProject.create(PROJECT_NAME, new File(getFrameworkProjectsBase()), getFrameworkInstance().getFrameworkProjectMgr());
+        final long start = System.currentTimeMillis();
+        final INodeSet nodeSet = project.getNodeSet();
+        final long duration = System.currentTimeMillis() - start;
+        assertTrue("took " + duration + "ms", duration < 4000);
+        assertEquals(1, provider3.called);
+
+        assertEquals(2, nodeSet.getNodes().size());
+        assertNotNull(nodeSet.getNode("set1node1"));
+        assertNotNull(nodeSet.getNode("set2node1"));
+        assertEquals(1, project.getResourceModelSourceExceptions().size());
+        assertTrue(project.getResourceModelSourceExceptions().get(0).getMessage().startsWith("Timed out"));
+        projectPropsFile.delete();
+    }
 }
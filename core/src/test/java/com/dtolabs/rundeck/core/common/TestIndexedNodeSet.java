@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.common;
+
+import com.dtolabs.rundeck.core.utils.NodeSet;
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Tests that filtering an {@link IndexedNodeSet} selects the same nodes as filtering without the index
+ */
+public class TestIndexedNodeSet extends TestCase {
+    static final String[] SELECTORS = {
+        "node1", "node1,node2", "node1, node2", " node3 ", "node.*", "/node1.*/", "/node[12]/", "host2.local",
+        "a", "b", "a+b", "a,b", "a + c", "a+b,c", "/a|c/", "/a|c/+b", ".*", "a,,", "+a", "linux", "Linux", "lin.*",
+        "value1", "value1,value3", "web+db", "",
+    };
+    private final Random random = new Random(4321);
+
+    static NodeSetImpl createNodes(final Random random, final int count) {
+        final NodeSetImpl nodes = new NodeSetImpl();
+        final String[] tags = {"a", "b", "c", "d", "web", "db"};
+        for (int i = 0; i < count; i++) {
+            final NodeEntryImpl node = new NodeEntryImpl("host" + i + ".local", "node" + i);
+            final HashSet<String> nodeTags = new HashSet<String>();
+            for (final String tag : tags) {
+                if (random.nextInt(3) == 0) {
+                    nodeTags.add(tag);
+                }
+            }
+            node.setTags(nodeTags);
+            node.setOsFamily(i % 2 == 0 ? "unix" : "windows");
+            node.setOsName(i % 3 == 0 ? "Linux" : "Darwin");
+            node.setOsArch("x86_64");
+            node.setOsVersion("1." + (i % 10));
+            node.setAttribute("attr1", "value" + (i % 5));
+            nodes.putNode(node);
+        }
+        return nodes;
+    }
+
+    static NodeSet createNodeSet(final String incKey, final String incValue, final String excKey,
+                                 final String excValue, final boolean dominant) {
+        final NodeSet nodeSet = new NodeSet();
+        if (null != incKey) {
+            final HashMap<String, String> map = new HashMap<String, String>();
+            map.put(incKey, incValue);
+            nodeSet.createInclude(map).setDominant(dominant);
+        }
+        if (null != excKey) {
+            final HashMap<String, String> map = new HashMap<String, String>();
+            map.put(excKey, excValue);
+            nodeSet.createExclude(map);
+        }
+        return nodeSet;
+    }
+
+    public void testIndex() throws Exception {
+        final NodeSetImpl nodes = createNodes(random, 20);
+        final IndexedNodeSet indexed = new IndexedNodeSet(nodes);
+        assertEquals(20, indexed.size());
+        assertEquals(nodes.getNodeNames(), new HashSet<String>(indexed.getNodeNames()));
+        assertSame(nodes.getNode("node3"), indexed.getNode("node3"));
+        assertNull(indexed.getNode("node30"));
+        assertEquals(indexed.allNodes(), indexed.findProperty(NodeSet.OS_ARCH, "x86_64"));
+        assertEquals(1, indexed.findProperty(NodeSet.HOSTNAME, "host3.local").cardinality());
+        assertEquals(4, indexed.findAttribute("attr1", "value1").cardinality());
+        assertTrue(indexed.findAttribute("attr2", "value1").isEmpty());
+        assertTrue(indexed.findTag("x").isEmpty());
+        try {
+            indexed.getNodes().clear();
+            fail("expected exception");
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+    /**
+     * Filtering the indexed set gives the same result as testing each node
+     */
+    public void testFilterEquivalence() throws Exception {
+        final NodeSetImpl nodes = createNodes(random, 40);
+        final IndexedNodeSet indexed = new IndexedNodeSet(nodes);
+        final String[] keys = {"name", "hostname", "tags", "os-name", "os-family", "attr1"};
+        for (int i = 0; i < 2000; i++) {
+            final NodeSet nodeSet = createNodeSet(keys[random.nextInt(keys.length)],
+                SELECTORS[random.nextInt(SELECTORS.length)],
+                random.nextBoolean() ? keys[random.nextInt(keys.length)] : null,
+                SELECTORS[random.nextInt(SELECTORS.length)], random.nextBoolean());
+            if (random.nextInt(4) == 0) {
+                nodeSet.getInclude().setAttributesMap(Collections.singletonMap("attr1",
+                    SELECTORS[random.nextInt(SELECTORS.length)]));
+            }
+            assertEquals(nodeSet.toString(), NodeFilter.filterNodes(nodeSet, nodes).getNodeNames(),
+                new HashSet<String>(NodeFilter.filterNodes(nodeSet, indexed).getNodeNames()));
+        }
+        final NodeSet single = new NodeSet();
+        single.setSingleNodeName("node5");
+        assertEquals(Collections.singleton("node5"), NodeFilter.filterNodes(single, indexed).getNodeNames());
+    }
+}
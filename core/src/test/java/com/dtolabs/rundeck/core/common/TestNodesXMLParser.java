@@ -28,6 +28,7 @@ import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -160,4 +161,32 @@ public class TestNodesXMLParser extends TestCase {
             assertEquals("TestRemoteUrl3", node2.getAttributes().get(ResourceXMLConstants.NODE_REMOTE_URL));
         }
     }
-}
\ No newline at end of file
+
+    public void testParseDuplicateNodeMerged() throws Exception {
+        final String xml = "<project>\n"
+                           + "<node name=\"test1\" hostname=\"host1\" osFamily=\"unix\" tags=\"a,b\" editUrl=\"url1\">\n"
+                           + "<attribute name=\"custom1\" value=\"value1\"/>\n"
+                           + "</node>\n"
+                           + "<node name=\"test2\" hostname=\"host2\"/>\n"
+                           + "<node name=\"test1\" hostname=\"host1b\" description=\"second\">\n"
+                           + "<attribute name=\"custom2\" value=\"value2\"/>\n"
+                           + "</node>\n"
+                           + "</project>";
+        final nodeReceiver receiver = new nodeReceiver();
+        nodesXMLParser = new NodesXMLParser(new ByteArrayInputStream(xml.getBytes("UTF-8")), receiver);
+        nodesXMLParser.parse();
+        assertEquals("wrong number of nodes parsed", 2, receiver.map.size());
+
+        final INodeEntry node1 = receiver.map.get("test1");
+        assertEquals("test1", node1.getNodename());
+        assertEquals("host1b", node1.getHostname());
+        assertEquals("unix", node1.getOsFamily());
+        assertEquals("second", node1.getDescription());
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b")), node1.getTags());
+        assertEquals("url1", node1.getAttributes().get(ResourceXMLConstants.NODE_EDIT_URL));
+        assertEquals("value1", node1.getAttributes().get("custom1"));
+        assertEquals("value2", node1.getAttributes().get("custom2"));
+
+        assertEquals("host2", receiver.map.get("test2").getHostname());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.dispatcher;
+
+import com.dtolabs.rundeck.core.utils.Converter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * DataContextTemplateBenchmark compares rendering the arguments of a step for many nodes with {@link
+ * DataContextTemplate} against the previous regular expression implementation of {@link
+ * DataContextUtils#replaceDataReferences(String, java.util.Map)}.  Run the main method with optional arguments: number
+ * of nodes, number of iterations.
+ */
+public class DataContextTemplateBenchmark {
+    static final String[] ARGS = {
+        "-name", "${node.name}",
+        "-host", "${node.hostname}",
+        "-user", "${job.username}",
+        "--", "deploy ${option.version} to ${node.name} as ${option.user}",
+        "-nothing", "plain argument without references",
+    };
+
+    /**
+     * The regular expression implementation of replaceDataReferences, for comparison
+     */
+    static String regexReplaceDataReferences(final String input, final Map<String, Map<String, String>> data,
+                                             final Converter<String, String> converter,
+                                             final boolean failOnUnexpanded) {
+        if (null == data) {
+            return input;
+        }
+        final Pattern p = Pattern.compile("\\$\\{([^\\s.]+)\\.([^\\s}]+)\\}");
+        final Matcher m = p.matcher(input);
+        final StringBuffer sb = new StringBuffer();
+        while (m.find()) {
+            final String key = m.group(1);
+            final String nm = m.group(2);
+            if (null != key && null != nm && null != data.get(key) && null != data.get(key).get(nm)) {
+                String value = data.get(key).get(nm);
+                if (null != converter) {
+                    value = converter.convert(value);
+                }
+                m.appendReplacement(sb, Matcher.quoteReplacement(value));
+            } else if (failOnUnexpanded && null != key && null != nm && (null == data.get(key) || null == data.get(
+                key).get(nm))) {
+                throw new DataContextUtils.UnresolvedDataReferenceException(input, m.group());
+            } else {
+                String value = m.group(0);
+                if (null != converter) {
+                    value = converter.convert(value);
+                }
+                m.appendReplacement(sb, Matcher.quoteReplacement(value));
+            }
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    static Map<String, Map<String, String>>[] createNodeContexts(final int nodes) {
+        final HashMap<String, String> job = new HashMap<String, String>();
+        job.put("username", "admin");
+        final HashMap<String, String> option = new HashMap<String, String>();
+        option.put("version", "1.2.3");
+        option.put("user", "deploy");
+        final Map<String, Map<String, String>>[] contexts = new Map[nodes];
+        for (int i = 0; i < nodes; i++) {
+            final HashMap<String, String> node = new HashMap<String, String>();
+            node.put("name", "node" + i);
+            node.put("hostname", "node" + i + ".example.com");
+            final HashMap<String, Map<String, String>> context = new HashMap<String, Map<String, String>>();
+            context.put("job", job);
+            context.put("option", option);
+            context.put("node", node);
+            contexts[i] = context;
+        }
+        return contexts;
+    }
+
+    static long runRegex(final Map<String, Map<String, String>>[] contexts) {
+        long length = 0;
+        for (final Map<String, Map<String, String>> context : contexts) {
+            for (final String arg : ARGS) {
+                length += regexReplaceDataReferences(arg, context, null, false).length();
+            }
+        }
+        return length;
+    }
+
+    static long runTemplate(final Map<String, Map<String, String>>[] contexts) {
+        long length = 0;
+        for (final Map<String, Map<String, String>> context : contexts) {
+            for (final String arg : ARGS) {
+                length += DataContextUtils.replaceDataReferences(arg, context).length();
+            }
+        }
+        return length;
+    }
+
+    public static void main(final String[] args) {
+        final int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        final Map<String, Map<String, String>>[] contexts = createNodeContexts(nodes);
+        if (runRegex(contexts) != runTemplate(contexts)) {
+            throw new IllegalStateException("results differ");
+        }
+        //warm up
+        for (int i = 0; i < iterations; i++) {
+            runRegex(contexts);
+            runTemplate(contexts);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            runRegex(contexts);
+        }
+        final long regexTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            runTemplate(contexts);
+        }
+        final long templateTime = System.nanoTime() - start;
+        final long renders = (long) iterations * nodes * ARGS.length;
+        System.out.println(
+            "regex:    " + regexTime / renders + " ns/arg (" + regexTime / 1000000 + " ms total)");
+        System.out.println(
+            "template: " + templateTime / renders + " ns/arg (" + templateTime / 1000000 + " ms total)");
+    }
+}
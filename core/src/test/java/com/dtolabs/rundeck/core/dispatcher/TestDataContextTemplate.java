@@ -0,0 +1,121 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.dispatcher;
+
+import com.dtolabs.rundeck.core.utils.Converter;
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests that {@link DataContextTemplate} renders the same result as the regular expression replacement
+ */
+public class TestDataContextTemplate extends TestCase {
+    Map<String, Map<String, String>> data;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        data = new HashMap<String, Map<String, String>>();
+        final HashMap<String, String> node = new HashMap<String, String>();
+        node.put("name", "node1");
+        node.put("a.b", "dotted");
+        node.put("dollar", "$1 \\2");
+        data.put("node", node);
+        final HashMap<String, String> option = new HashMap<String, String>();
+        option.put("opt1", "value1");
+        data.put("option", option);
+        data.put("x}y", option);
+    }
+
+    static final String[] INPUTS = {
+        "",
+        "plain",
+        "${node.name}",
+        "a ${node.name} b ${option.opt1} c",
+        "${node.name}${option.opt1}",
+        "${node.missing} ${missing.name}",
+        "${node.a.b}",
+        "${node.dollar}",
+        "${x}y.opt1}",
+        "${${node.name}",
+        "$${node.name}}",
+        "${node.}",
+        "${.name}",
+        "${node name}",
+        "${node.na me}",
+        "${node.name",
+        "${node",
+        "${",
+        "$",
+        "${node.\tname}",
+        "${node\n.name}",
+    };
+
+    public void testRenderMatchesRegex() throws Exception {
+        for (final String input : INPUTS) {
+            assertEquals(input,
+                DataContextTemplateBenchmark.regexReplaceDataReferences(input, data, null, false),
+                DataContextTemplate.parse(input).render(data));
+            assertEquals(input,
+                DataContextTemplateBenchmark.regexReplaceDataReferences(input, data, null, false),
+                DataContextUtils.replaceDataReferences(input, data));
+        }
+    }
+
+    public void testRenderConverter() throws Exception {
+        final Converter<String, String> converter = new Converter<String, String>() {
+            public String convert(final String s) {
+                return "[" + s + "]";
+            }
+        };
+        for (final String input : INPUTS) {
+            assertEquals(input,
+                DataContextTemplateBenchmark.regexReplaceDataReferences(input, data, converter, false),
+                DataContextTemplate.compile(input).render(data, converter, false));
+        }
+    }
+
+    public void testFailOnUnexpanded() throws Exception {
+        assertEquals("node1", DataContextTemplate.compile("${node.name}").render(data, null, true));
+        try {
+            DataContextTemplate.compile("a ${node.missing} b").render(data, null, true);
+            fail("expected exception");
+        } catch (DataContextUtils.UnresolvedDataReferenceException e) {
+            assertEquals("a ${node.missing} b", e.getTemplate());
+            assertEquals("${node.missing}", e.getReferenceName());
+        }
+    }
+
+    public void testCompileCached() throws Exception {
+        final DataContextTemplate template = DataContextTemplate.compile("a ${node.name}");
+        assertTrue(template.hasReferences());
+        assertSame(template, DataContextTemplate.compile("a ${node.name}"));
+        assertFalse(DataContextTemplate.compile("plain").hasReferences());
+        assertEquals("plain", DataContextTemplate.compile("plain").render(data));
+    }
+
+    public void testRenderNodes() throws Exception {
+        final Map<String, Map<String, String>>[] contexts = DataContextTemplateBenchmark.createNodeContexts(10);
+        assertEquals(DataContextTemplateBenchmark.runRegex(contexts),
+            DataContextTemplateBenchmark.runTemplate(contexts));
+        final DataContextTemplate template = DataContextTemplate.compile("${node.name}: ${option.version}");
+        assertEquals("node3: 1.2.3", template.render(contexts[3]));
+        assertEquals("node7: 1.2.3", template.render(contexts[7]));
+    }
+}
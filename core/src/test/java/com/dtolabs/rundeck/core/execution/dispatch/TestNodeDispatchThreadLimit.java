@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.execution.dispatch;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests reserving and releasing node dispatch threads with {@link NodeDispatchThreadLimit}
+ */
+public class TestNodeDispatchThreadLimit extends TestCase {
+    public void testReserve() {
+        final NodeDispatchThreadLimit limit = new NodeDispatchThreadLimit(10);
+        assertEquals(4, limit.reserve(4));
+        assertEquals(4, limit.getActiveCount());
+        assertEquals(6, limit.reserve(99));
+        assertEquals(0, limit.reserve(1));
+        assertEquals(10, limit.getActiveCount());
+        limit.release(4);
+        assertEquals(4, limit.reserve(5));
+        limit.release(10);
+        assertEquals(0, limit.getActiveCount());
+    }
+
+    public void testReserveNone() {
+        final NodeDispatchThreadLimit limit = new NodeDispatchThreadLimit(10);
+        assertEquals(0, limit.reserve(0));
+        assertEquals(0, limit.reserve(-1));
+        assertEquals(0, limit.getActiveCount());
+    }
+
+    public void testReduceMaxThreads() {
+        final NodeDispatchThreadLimit limit = new NodeDispatchThreadLimit(10);
+        assertEquals(8, limit.reserve(8));
+        limit.setMaxThreads(5);
+        assertEquals(0, limit.reserve(1));
+        limit.release(8);
+        assertEquals(5, limit.reserve(8));
+    }
+}
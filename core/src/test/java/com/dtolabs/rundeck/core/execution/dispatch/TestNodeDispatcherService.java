@@ -23,18 +23,25 @@
 */
 package com.dtolabs.rundeck.core.execution.dispatch;
 
+import com.dtolabs.rundeck.core.authorization.*;
 import com.dtolabs.rundeck.core.common.Framework;
 import com.dtolabs.rundeck.core.common.FrameworkProject;
+import com.dtolabs.rundeck.core.common.INodeEntry;
 import com.dtolabs.rundeck.core.execution.ExecutionContext;
 import com.dtolabs.rundeck.core.execution.ExecutionContextImpl;
 import com.dtolabs.rundeck.core.execution.ExecutionListener;
+import com.dtolabs.rundeck.core.execution.ExecutionListenerOverride;
+import com.dtolabs.rundeck.core.execution.ExecutionListenerOverrideBase;
+import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepResult;
+import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepResultImpl;
 import com.dtolabs.rundeck.core.tools.AbstractBaseTest;
 import com.dtolabs.rundeck.core.utils.FileUtils;
 import com.dtolabs.rundeck.core.utils.NodeSet;
 
+import javax.security.auth.Subject;
 import java.io.File;
 import java.io.IOException;
-import java.util.Map;
+import java.util.*;
 
 /**
  * TestNodeDispatcherService is ...
@@ -214,4 +221,128 @@ public class TestNodeDispatcherService extends AbstractBaseTest {
             assertTrue(nodeDispatcher instanceof ParallelNodeDispatcher);
         }
     }
+
+    /**
+     * Authorization which allows actions only for one node
+     */
+    static class singleNodeAuthorization implements LegacyAuthorization {
+        final String nodename;
+
+        singleNodeAuthorization(final String nodename) {
+            this.nodename = nodename;
+        }
+
+        public Decision evaluate(final Map<String, String> resource, final Subject subject, final String action,
+                                 final Set<Attribute> environment) {
+            final boolean authorized = nodename.equals(resource.get("nodename"));
+            return new Decision() {
+                public boolean isAuthorized() {
+                    return authorized;
+                }
+
+                public Explanation explain() {
+                    return null;
+                }
+
+                public long evaluationDuration() {
+                    return 0;
+                }
+
+                public Map<String, String> getResource() {
+                    return resource;
+                }
+
+                public String getAction() {
+                    return action;
+                }
+
+                public Set<Attribute> getEnvironment() {
+                    return environment;
+                }
+
+                public Subject getSubject() {
+                    return subject;
+                }
+            };
+        }
+
+        public Set<Decision> evaluate(final Set<Map<String, String>> resources, final Subject subject,
+                                      final Set<String> actions, final Set<Attribute> environment) {
+            final HashSet<Decision> decisions = new HashSet<Decision>();
+            for (final Map<String, String> resource : resources) {
+                for (final String action : actions) {
+                    decisions.add(evaluate(resource, subject, action, environment));
+                }
+            }
+            return decisions;
+        }
+
+        public boolean authorizeScript(final String user, final String project, final String adhocScript) {
+            return true;
+        }
+
+        public String[] getMatchedRoles() {
+            return new String[0];
+        }
+
+        public String listMatchedRoles() {
+            return "";
+        }
+    }
+
+    static class testListener extends ExecutionListenerOverrideBase {
+        testListener() {
+            super(null, false, null);
+        }
+
+        public void log(final int level, final String message) {
+        }
+
+        public ExecutionListenerOverride createOverride() {
+            return this;
+        }
+    }
+
+    /**
+     * A Framework for a user, created from the shared Framework, dispatches only to the nodes the user is authorized
+     * for
+     */
+    public void testDispatchUserAuthorizedNodes() throws Exception {
+        final Framework shared = getFrameworkInstance();
+        //services of the shared framework use its authorization
+        NodeDispatcherService.getInstanceForFramework(shared);
+        final Framework userFramework = Framework.getInstanceWithAuthorization(shared, null,
+            new singleNodeAuthorization("test1"));
+        assertSame(shared.getPluginManager(), userFramework.getPluginManager());
+        assertNotSame(NodeDispatcherService.getInstanceForFramework(shared),
+            NodeDispatcherService.getInstanceForFramework(userFramework));
+
+        for (final int threadCount : new int[]{1, 2}) {
+            final NodeSet nodeSet = new NodeSet();
+            nodeSet.createInclude().setName(".*");
+            nodeSet.setThreadCount(threadCount);
+            nodeSet.setKeepgoing(true);
+            final ExecutionContextImpl context = ExecutionContextImpl.builder()
+                .frameworkProject(PROJ_NAME)
+                .framework(userFramework)
+                .user("blah")
+                .executionListener(new testListener())
+                .nodeSelector(nodeSet)
+                .nodes(shared.filterNodeSet(nodeSet, PROJ_NAME, null))
+                .threadCount(nodeSet.getThreadCount())
+                .keepgoing(nodeSet.isKeepgoing())
+                .build();
+            assertEquals(2, context.getNodes().getNodeNames().size());
+
+            final Set<String> dispatched = Collections.synchronizedSet(new HashSet<String>());
+            final NodeDispatcher nodeDispatcher = userFramework.getNodeDispatcherForContext(context);
+            nodeDispatcher.dispatch(context, new Dispatchable() {
+                public NodeStepResult dispatch(final ExecutionContext context, final INodeEntry node) {
+                    dispatched.add(node.getNodename());
+                    return new NodeStepResultImpl(true, node);
+                }
+            });
+            assertEquals(Collections.singleton("test1"), dispatched);
+        }
+    }
 }
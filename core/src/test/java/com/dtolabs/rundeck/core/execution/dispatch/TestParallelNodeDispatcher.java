@@ -0,0 +1,189 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.execution.dispatch;
+
+import com.dtolabs.rundeck.core.NodesetFailureException;
+import com.dtolabs.rundeck.core.common.INodeEntry;
+import com.dtolabs.rundeck.core.common.NodeEntryImpl;
+import com.dtolabs.rundeck.core.common.NodeSetImpl;
+import com.dtolabs.rundeck.core.execution.ExecutionContext;
+import com.dtolabs.rundeck.core.execution.ExecutionContextImpl;
+import com.dtolabs.rundeck.core.execution.ExecutionListenerOverride;
+import com.dtolabs.rundeck.core.execution.ExecutionListenerOverrideBase;
+import com.dtolabs.rundeck.core.execution.ServiceThreadBase;
+import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepResult;
+import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepResultImpl;
+import com.dtolabs.rundeck.core.tools.AbstractBaseTest;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests cancellation of {@link ParallelNodeDispatcher} when a node fails or the execution is aborted.
+ */
+public class TestParallelNodeDispatcher extends AbstractBaseTest {
+    private static final String PROJ_NAME = "TestParallelNodeDispatcher";
+    private static final int NODES = 10;
+
+    public TestParallelNodeDispatcher(String name) {
+        super(name);
+    }
+
+    static class testListener extends ExecutionListenerOverrideBase {
+        testListener() {
+            super(null, false, null);
+        }
+
+        public void log(final int level, final String message) {
+        }
+
+        public ExecutionListenerOverride createOverride() {
+            return this;
+        }
+    }
+
+    /**
+     * Counts dispatched nodes, sleeping for each node and returning the configured result
+     */
+    static class testDispatchable implements Dispatchable {
+        final AtomicInteger count = new AtomicInteger();
+        final boolean success;
+        final long sleep;
+        final boolean restoreInterrupt;
+
+        testDispatchable(final boolean success, final long sleep, final boolean restoreInterrupt) {
+            this.success = success;
+            this.sleep = sleep;
+            this.restoreInterrupt = restoreInterrupt;
+        }
+
+        public NodeStepResult dispatch(final ExecutionContext context, final INodeEntry node) {
+            count.incrementAndGet();
+            try {
+                Thread.sleep(sleep);
+            } catch (InterruptedException e) {
+                if (restoreInterrupt) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new NodeStepResultImpl(success, node);
+        }
+    }
+
+    private ExecutionContextImpl createContext(final boolean keepgoing) {
+        final NodeSetImpl nodes = new NodeSetImpl();
+        for (int i = 0; i < NODES; i++) {
+            nodes.putNode(new NodeEntryImpl("host" + i, "node" + i));
+        }
+        return ExecutionContextImpl.builder()
+            .frameworkProject(PROJ_NAME)
+            .framework(getFrameworkInstance())
+            .user("blah")
+            .executionListener(new testListener())
+            .nodes(nodes)
+            .threadCount(2)
+            .keepgoing(keepgoing)
+            .build();
+    }
+
+    public void testKeepgoing() throws Exception {
+        final testDispatchable dispatchable = new testDispatchable(false, 0, false);
+        try {
+            new ParallelNodeDispatcher(getFrameworkInstance()).dispatch(createContext(true), dispatchable);
+            fail("expected failure");
+        } catch (NodesetFailureException e) {
+            assertEquals(NODES, e.getNodeFailures().size());
+        }
+        assertEquals(NODES, dispatchable.count.get());
+    }
+
+    public void testNoKeepgoingCancelsRemainingNodes() throws Exception {
+        final testDispatchable dispatchable = new testDispatchable(false, 0, false);
+        try {
+            new ParallelNodeDispatcher(getFrameworkInstance()).dispatch(createContext(false), dispatchable);
+            fail("expected failure");
+        } catch (NodesetFailureException e) {
+            assertTrue(e.getNodeFailures().size() > 0);
+        }
+        //each of the two threads stops after its first failed node
+        assertTrue("dispatched: " + dispatchable.count.get(), dispatchable.count.get() <= 2);
+    }
+
+    public void testSuccess() throws Exception {
+        final testDispatchable dispatchable = new testDispatchable(true, 0, false);
+        final DispatcherResult result = new ParallelNodeDispatcher(getFrameworkInstance()).dispatch(
+            createContext(false), dispatchable);
+        assertEquals(NODES, result.getResults().size());
+        assertEquals(NODES, dispatchable.count.get());
+    }
+
+    /**
+     * Thread running the dispatch, recording the exception and interrupt status
+     */
+    static class dispatchThread extends ServiceThreadBase {
+        final ParallelNodeDispatcher dispatcher;
+        final ExecutionContextImpl context;
+        final Dispatchable dispatchable;
+        volatile Exception caught;
+        volatile boolean interruptedAfter;
+
+        dispatchThread(final ParallelNodeDispatcher dispatcher, final ExecutionContextImpl context,
+                       final Dispatchable dispatchable) {
+            this.dispatcher = dispatcher;
+            this.context = context;
+            this.dispatchable = dispatchable;
+        }
+
+        public void run() {
+            try {
+                dispatcher.dispatch(context, dispatchable);
+            } catch (Exception e) {
+                caught = e;
+            }
+            interruptedAfter = isInterrupted();
+        }
+    }
+
+    public void testInterruptCancelsRemainingNodes() throws Exception {
+        final testDispatchable dispatchable = new testDispatchable(true, 200, true);
+        final dispatchThread thread = new dispatchThread(new ParallelNodeDispatcher(getFrameworkInstance()),
+            createContext(true), dispatchable);
+        thread.start();
+        Thread.sleep(100);
+        thread.interrupt();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertTrue("" + thread.caught, thread.caught instanceof DispatcherException);
+        assertTrue(thread.interruptedAfter);
+        assertTrue("dispatched: " + dispatchable.count.get(), dispatchable.count.get() < NODES);
+    }
+
+    /**
+     * Aborting the execution thread stops dispatch even if a node step clears the interrupt status
+     */
+    public void testAbortCancelsRemainingNodes() throws Exception {
+        final testDispatchable dispatchable = new testDispatchable(true, 200, false);
+        final dispatchThread thread = new dispatchThread(new ParallelNodeDispatcher(getFrameworkInstance()),
+            createContext(true), dispatchable);
+        thread.start();
+        Thread.sleep(100);
+        thread.abort();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertTrue("" + thread.caught, thread.caught instanceof DispatcherException);
+        assertTrue("dispatched: " + dispatchable.count.get(), dispatchable.count.get() < NODES);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.execution.impl.jsch;
+
+import com.dtolabs.rundeck.core.cli.CLIUtils;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Tests the remote script command line built by {@link JschNodeExecutor}.
+ */
+public class TestJschNodeExecutor extends TestCase {
+
+    public void testQuoteShell() {
+        assertEquals("'abc'", JschNodeExecutor.quoteShell("abc"));
+        assertEquals("'a b'", JschNodeExecutor.quoteShell("a b"));
+        assertEquals("'it'\\''s'", JschNodeExecutor.quoteShell("it's"));
+    }
+
+    public void testBuildRemoteScriptCommand() {
+        final String[] command = JschNodeExecutor.buildRemoteScriptCommand(new String[]{"/tmp/a.sh", "x y"},
+            "/tmp/a.sh");
+        assertEquals(Arrays.asList("sh", "-c",
+            "'chmod +x '\\''/tmp/a.sh'\\'' && /tmp/a.sh '\\''x y'\\'' ; rc=$? ; rm -f '\\''/tmp/a.sh'\\'' ; exit $rc'"),
+            Arrays.asList(command));
+    }
+
+    /**
+     * Run the command line as the remote login shell would, and check the result code and removed script file
+     */
+    public void testRemoteScriptCommandResult() throws Exception {
+        if (System.getProperty("os.name").toLowerCase().contains("windows")) {
+            return;
+        }
+        final File dir = File.createTempFile("test jsch", "dir");
+        dir.delete();
+        dir.mkdirs();
+        final File script = new File(dir, "a script.sh");
+        final FileWriter writer = new FileWriter(script);
+        try {
+            writer.write("#!/bin/sh\necho \"$1\"\nexit 3\n");
+        } finally {
+            writer.close();
+        }
+        final String argline = CLIUtils.generateArgline(null,
+            JschNodeExecutor.buildRemoteScriptCommand(new String[]{script.getAbsolutePath(), "a  b"},
+                script.getAbsolutePath()));
+
+        final Process process = new ProcessBuilder("/bin/sh", "-c", argline).redirectErrorStream(true).start();
+        final InputStream in = process.getInputStream();
+        final StringBuilder output = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0) {
+            output.append((char) c);
+        }
+        assertEquals(output.toString(), 3, process.waitFor());
+        assertEquals("a  b\n", output.toString());
+        assertFalse(script.exists());
+        dir.delete();
+    }
+}
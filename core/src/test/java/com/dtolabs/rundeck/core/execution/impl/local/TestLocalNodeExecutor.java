@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.execution.impl.local;
+
+import com.dtolabs.rundeck.core.Constants;
+import com.dtolabs.rundeck.core.common.NodeEntryImpl;
+import com.dtolabs.rundeck.core.execution.ExecutionContextImpl;
+import com.dtolabs.rundeck.core.execution.ExecutionListenerOverride;
+import com.dtolabs.rundeck.core.execution.ExecutionListenerOverrideBase;
+import com.dtolabs.rundeck.core.execution.service.NodeExecutorResult;
+import com.dtolabs.rundeck.core.tools.AbstractBaseTest;
+
+import java.util.*;
+
+/**
+ * Tests the command, output, result code, environment, timeout and interruption of the local node executor
+ */
+public class TestLocalNodeExecutor extends AbstractBaseTest {
+    LocalNodeExecutor executor;
+    NodeEntryImpl node;
+    testListener listener;
+    ExecutionContextImpl context;
+
+    public TestLocalNodeExecutor(String name) {
+        super(name);
+    }
+
+    static class testListener extends ExecutionListenerOverrideBase {
+        final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+
+        testListener() {
+            super(null, false, null);
+        }
+
+        public void log(final int level, final String message) {
+            messages.add(level + ":" + message);
+        }
+
+        public ExecutionListenerOverride createOverride() {
+            return this;
+        }
+    }
+
+    protected void setUp() {
+        super.setUp();
+        executor = new LocalNodeExecutor(getFrameworkInstance());
+        node = new NodeEntryImpl(localNodeHostname, localNodeHostname);
+        node.setOsFamily("unix");
+        listener = new testListener();
+        final Map<String, Map<String, String>> dataContext = new HashMap<String, Map<String, String>>();
+        final HashMap<String, String> options = new HashMap<String, String>();
+        options.put("opt1", "value 1");
+        dataContext.put("option", options);
+        context = ExecutionContextImpl.builder()
+            .framework(getFrameworkInstance())
+            .executionListener(listener)
+            .dataContext(dataContext)
+            .build();
+    }
+
+    private boolean isWindows() {
+        return System.getProperty("os.name").toLowerCase().contains("windows");
+    }
+
+    public void testBuildCommand() throws Exception {
+        assertEquals(Arrays.asList("/bin/sh", "-c", "echo 'a b' c"),
+            LocalNodeExecutor.buildCommand(node, new String[]{"echo", "a b", "c"}));
+        node.setOsFamily("windows");
+        assertEquals(Arrays.asList("cmd.exe", "/c", "echo", "a b", "c"),
+            LocalNodeExecutor.buildCommand(node, new String[]{"echo", "a b", "c"}));
+    }
+
+    public void testExecuteOutput() throws Exception {
+        if (isWindows()) {
+            return;
+        }
+        final NodeExecutorResult result = executor.executeCommand(context,
+            new String[]{"echo", "hello", ";", "echo", "error", ">&2", ";", "printf", "'no newline'"}, node);
+        assertTrue(result.isSuccess());
+        assertEquals(0, result.getResultCode());
+        assertTrue(listener.messages.toString(), listener.messages.contains(Constants.INFO_LEVEL + ":hello"));
+        assertTrue(listener.messages.toString(), listener.messages.contains(Constants.WARN_LEVEL + ":error"));
+        assertTrue(listener.messages.toString(), listener.messages.contains(Constants.INFO_LEVEL + ":no newline"));
+    }
+
+    public void testExecuteResultCode() throws Exception {
+        if (isWindows()) {
+            return;
+        }
+        final NodeExecutorResult result = executor.executeCommand(context, new String[]{"exit", "3"}, node);
+        assertFalse(result.isSuccess());
+        assertEquals(3, result.getResultCode());
+    }
+
+    public void testExecuteEnvironment() throws Exception {
+        if (isWindows()) {
+            return;
+        }
+        final NodeExecutorResult result = executor.executeCommand(context,
+            new String[]{"echo", "\"$RD_OPTION_OPT1\""}, node);
+        assertTrue(result.isSuccess());
+        assertTrue(listener.messages.toString(), listener.messages.contains(Constants.INFO_LEVEL + ":value 1"));
+    }
+
+    public void testExecuteTimeout() throws Exception {
+        if (isWindows()) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        final NodeExecutorResult result = executor.execute(context, new String[]{"sleep", "10"}, node, 200);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertFalse(result.isSuccess());
+        assertEquals(-1, result.getResultCode());
+    }
+
+    public void testExecuteInterrupted() throws Exception {
+        if (isWindows()) {
+            return;
+        }
+        final NodeExecutorResult[] result = new NodeExecutorResult[1];
+        final Thread thread = new Thread() {
+            public void run() {
+                result[0] = executor.execute(context, new String[]{"sleep", "10"}, node, 0);
+            }
+        };
+        final long start = System.currentTimeMillis();
+        thread.start();
+        Thread.sleep(200);
+        thread.interrupt();
+        thread.join(5000);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertNotNull(result[0]);
+        assertFalse(result[0].isSuccess());
+    }
+
+    /**
+     * Listener which records the thread-local context of the thread logging each message, as the workflow listener
+     * records the current node and step
+     */
+    static class contextListener extends testListener {
+        final InheritableThreadLocal<String> localContext = new InheritableThreadLocal<String>();
+
+        public void log(final int level, final String message) {
+            messages.add(localContext.get() + ":" + message);
+        }
+    }
+
+    public void testExecuteOutputInheritsContext() throws Exception {
+        if (isWindows()) {
+            return;
+        }
+        final contextListener listener = new contextListener();
+        final ExecutionContextImpl context = ExecutionContextImpl.builder()
+            .framework(getFrameworkInstance())
+            .executionListener(listener)
+            .build();
+        for (final String name : Arrays.asList("step1", "step2")) {
+            final Thread thread = new Thread() {
+                public void run() {
+                    listener.localContext.set(name);
+                    executor.execute(context, new String[]{"echo", name, ";", "echo", name, ">&2"}, node, 0);
+                }
+            };
+            thread.start();
+            thread.join(5000);
+        }
+        assertEquals(listener.messages.toString(), 2, Collections.frequency(listener.messages, "step1:step1"));
+        assertEquals(listener.messages.toString(), 2, Collections.frequency(listener.messages, "step2:step2"));
+    }
+}
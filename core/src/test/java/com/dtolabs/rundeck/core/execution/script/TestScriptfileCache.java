@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.execution.script;
+
+import com.dtolabs.rundeck.core.common.Framework;
+import com.dtolabs.rundeck.core.tools.AbstractBaseTest;
+import com.dtolabs.rundeck.core.utils.FileUtils;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests reuse of the script files written by {@link ScriptfileCache}
+ */
+public class TestScriptfileCache extends AbstractBaseTest {
+    Framework framework;
+    Map<String, Map<String, String>> dataContext;
+
+    public TestScriptfileCache(String name) {
+        super(name);
+    }
+
+    protected void setUp() {
+        super.setUp();
+        framework = getFrameworkInstance();
+        dataContext = new HashMap<String, Map<String, String>>();
+        final HashMap<String, String> options = new HashMap<String, String>();
+        options.put("opt1", "value1");
+        dataContext.put("option", options);
+    }
+
+    private Map<String, String> nodeData(final String name) {
+        final HashMap<String, String> data = new HashMap<String, String>();
+        data.put("name", name);
+        return data;
+    }
+
+    private String readFile(final File file) throws IOException {
+        final BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            final StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line).append("\n");
+            }
+            return sb.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testScriptWithoutNodeTokens() throws Exception {
+        final ScriptfileCache cache = new ScriptfileCache();
+        final String script = "echo @option.opt1@\n";
+        final File file1 = cache.getScriptfile(framework, script, dataContext, nodeData("node1"));
+        final File file2 = cache.getScriptfile(framework, script, dataContext, nodeData("node2"));
+        assertSame(file1, file2);
+        assertEquals(1, cache.size());
+        assertEquals("echo value1\n", readFile(file1));
+
+        //different data context
+        dataContext.get("option").put("opt1", "value2");
+        final File file3 = cache.getScriptfile(framework, script, dataContext, nodeData("node1"));
+        assertNotSame(file1, file3);
+        assertEquals("echo value2\n", readFile(file3));
+
+        cache.cleanup();
+        assertFalse(file1.exists());
+        assertFalse(file3.exists());
+        assertEquals(0, cache.size());
+    }
+
+    public void testScriptWithNodeTokens() throws Exception {
+        final ScriptfileCache cache = new ScriptfileCache();
+        final String script = "echo @node.name@ @option.opt1@\n";
+        final File file1 = cache.getScriptfile(framework, script, dataContext, nodeData("node1"));
+        final File file2 = cache.getScriptfile(framework, script, dataContext, nodeData("node2"));
+        final File file3 = cache.getScriptfile(framework, script, dataContext, nodeData("node1"));
+        assertNotSame(file1, file2);
+        assertSame(file1, file3);
+        assertEquals(2, cache.size());
+        assertEquals("echo node1 value1\n", readFile(file1));
+        assertEquals("echo node2 value1\n", readFile(file2));
+        cache.cleanup();
+        assertFalse(file1.exists());
+        assertFalse(file2.exists());
+    }
+
+    public void testFileCopy() throws Exception {
+        final File testdir = new File("build/TestScriptfileCache");
+        FileUtils.deleteDir(testdir);
+        assertTrue(testdir.mkdirs());
+        try {
+            final File original = new File(testdir, "test.sh");
+            final FileWriter writer = new FileWriter(original);
+            try {
+                writer.write("echo @node.name@\n");
+            } finally {
+                writer.close();
+            }
+            final ScriptfileCache cache = new ScriptfileCache();
+            final File file1 = cache.getFileCopy(framework, original);
+            assertSame(file1, cache.getFileCopy(framework, original));
+            //tokens are not replaced
+            assertEquals("echo @node.name@\n", readFile(file1));
+            cache.cleanup();
+            assertFalse(file1.exists());
+            assertTrue(original.exists());
+        } finally {
+            FileUtils.deleteDir(testdir);
+        }
+    }
+}
@@ -141,6 +141,74 @@ public class TestScriptFileNodeStepExecutor extends AbstractBaseTest {
 
     }
 
+    public static class remoteScriptTestNodeExecutor extends multiTestNodeExecutor
+        implements RemoteScriptNodeExecutor {
+        List<String> testFilepath = new ArrayList<String>();
+
+        public NodeExecutorResult executeRemoteScript(ExecutionContext context, String[] command, String filepath,
+                                                      INodeEntry node) throws ExecutionException {
+            this.testFilepath.add(filepath);
+            return executeCommand(context, command, node);
+        }
+    }
+
+    /**
+     * Unix target node with a RemoteScriptNodeExecutor will copy using file copier, then execute the filepath with a
+     * single call
+     */
+    public void testInterpretCommandScriptContentRemoteScriptExecutor() throws Exception {
+        final Framework frameworkInstance = getFrameworkInstance();
+        ScriptFileNodeStepExecutor interpret = new ScriptFileNodeStepExecutor(getFrameworkInstance());
+
+        //setup nodeexecutor for local node
+        remoteScriptTestNodeExecutor testexec = new remoteScriptTestNodeExecutor();
+        NodeExecutorService service = NodeExecutorService.getInstanceForFramework(getFrameworkInstance());
+        service.registerInstance("local", testexec);
+
+        testFileCopier testcopier = new testFileCopier();
+        FileCopierService copyservice = FileCopierService.getInstanceForFramework(getFrameworkInstance());
+        copyservice.registerInstance("local", testcopier);
+
+        //execute command interpreter on local node
+        final NodeEntryImpl test1 = new NodeEntryImpl("testhost1", "test1");
+        test1.setOsFamily("unix");
+        final StepExecutionContext context = ExecutionContextImpl.builder()
+            .frameworkProject(PROJ_NAME)
+            .framework(frameworkInstance)
+            .user("blah")
+            .threadCount(1)
+            .build();
+        final String testScript = "a script";
+
+        ScriptFileCommand command = new ScriptFileCommandBase()  {
+            public String getScript() {
+                return testScript;
+            }
+
+            public String[] getArgs() {
+                return new String[]{"-arg", "value"};
+            }
+        };
+        {
+            final ArrayList<NodeExecutorResult> nodeExecutorResults = new ArrayList<NodeExecutorResult>();
+            nodeExecutorResults.add(new NodeExecutorResultImpl(true, null, 0));
+            testexec.testResult = nodeExecutorResults;
+            testcopier.testResult = "/test/file/path";
+            final NodeStepResult interpreterResult = interpret.executeNodeStep(context, command, test1);
+
+            assertNotNull(interpreterResult);
+            assertTrue(interpreterResult.isSuccess());
+            assertEquals(interpreterResult, nodeExecutorResults.get(0));
+
+            //test nodeexecutor was called once
+            assertEquals(1, testexec.index);
+            assertEquals(Arrays.asList("/test/file/path"), testexec.testFilepath);
+            final String[] strings = testexec.testCommand.get(0);
+            assertEquals(Arrays.asList("/test/file/path", "-arg", "value"), Arrays.asList(strings));
+            assertEquals(test1, testexec.testNode.get(0));
+        }
+    }
+
     /**
      * Unix target node will copy using file copier, then exec "chmod +x [destfile]", then execute the
      * filepath
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.plugins;
+
+import com.dtolabs.rundeck.core.utils.FileUtils;
+import com.dtolabs.rundeck.core.utils.cache.FileCache;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests loading and concurrent lookup of plugin providers through the file plugin cache
+ */
+public class TestFilePluginCache extends TestCase {
+    File testdir;
+    FilePluginCache cache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        testdir = new File("build/TestFilePluginCache");
+        FileUtils.deleteDir(testdir);
+        testdir.mkdirs();
+        final FileCache<ProviderLoader> filecache = new FileCache<ProviderLoader>();
+        cache = new FilePluginCache(filecache, 50);
+        cache.addScanner(new TestDirPluginScanner.test(testdir, filecache, 0));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        FileUtils.deleteDir(testdir);
+    }
+
+    /**
+     * Wait for the background rescan to resolve the ident to a loader, or to no loader
+     */
+    private ProviderLoader waitForLoader(final ProviderIdent ident, final boolean exists) throws Exception {
+        final long start = System.currentTimeMillis();
+        ProviderLoader loader = cache.getLoaderForIdent(ident);
+        while ((null != loader) != exists && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(20);
+            loader = cache.getLoaderForIdent(ident);
+        }
+        return loader;
+    }
+
+    public void testGetLoaderForIdent() throws Exception {
+        assertTrue(new File(testdir, "svc_a").createNewFile());
+        final ProviderIdent identA = new ProviderIdent("svc", "a");
+        final ProviderIdent identB = new ProviderIdent("svc", "b");
+
+        final ProviderLoader loader = cache.getLoaderForIdent(identA);
+        assertNotNull(loader);
+        assertTrue(loader.isLoaderFor(identA));
+        assertSame(loader, cache.getLoaderForIdent(identA));
+
+        //missing provider
+        assertNull(cache.getLoaderForIdent(identB));
+        assertNull(cache.getLoaderForIdent(identB));
+
+        //new file is found by the background rescan
+        assertTrue(new File(testdir, "svc_b").createNewFile());
+        final ProviderLoader loaderB = waitForLoader(identB, true);
+        assertNotNull(loaderB);
+        assertTrue(loaderB.isLoaderFor(identB));
+        //unchanged file retains the loader
+        assertSame(loader, cache.getLoaderForIdent(identA));
+
+        //removed file
+        assertTrue(new File(testdir, "svc_a").delete());
+        assertNull(waitForLoader(identA, false));
+        assertSame(loaderB, cache.getLoaderForIdent(identB));
+    }
+
+    public void testConcurrentLookup() throws Exception {
+        assertTrue(new File(testdir, "svc_a-svc_b").createNewFile());
+        final ProviderIdent identA = new ProviderIdent("svc", "a");
+        final ProviderIdent identB = new ProviderIdent("svc", "b");
+        final ProviderIdent identC = new ProviderIdent("svc", "c");
+        final ProviderLoader loader = cache.getLoaderForIdent(identA);
+        assertNotNull(loader);
+
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 1000; j++) {
+                            assertSame(loader, cache.getLoaderForIdent(identA));
+                            assertSame(loader, cache.getLoaderForIdent(identB));
+                            assertNull(cache.getLoaderForIdent(identC));
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            });
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(errors.toString(), 0, errors.size());
+    }
+
+    /**
+     * Caches share a single rescan thread
+     */
+    public void testSharedRescanThread() throws Exception {
+        assertTrue(new File(testdir, "svc_a").createNewFile());
+        final ProviderIdent identA = new ProviderIdent("svc", "a");
+        for (int i = 0; i < 5; i++) {
+            final FileCache<ProviderLoader> filecache = new FileCache<ProviderLoader>();
+            final FilePluginCache other = new FilePluginCache(filecache, 50);
+            other.addScanner(new TestDirPluginScanner.test(testdir, filecache, 0));
+            assertNotNull(other.getLoaderForIdent(identA));
+        }
+        assertNotNull(cache.getLoaderForIdent(identA));
+        int count = 0;
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if ("FilePluginCache rescan".equals(thread.getName())) {
+                count++;
+            }
+        }
+        assertEquals(1, count);
+    }
+}
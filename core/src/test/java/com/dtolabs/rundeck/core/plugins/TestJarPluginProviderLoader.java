@@ -535,7 +535,37 @@ public class TestJarPluginProviderLoader extends AbstractBaseTest {
     }
 
     public void testIsLoaderFor() throws Exception {
+        final Class[] classes = {testProvider1.class, testProvider2.class};
 
+        final Map<String, String> entries = new HashMap<String, String>();
+        entries.put(JarPluginProviderLoader.RUNDECK_PLUGIN_ARCHIVE, "true");
+        entries.put(JarPluginProviderLoader.RUNDECK_PLUGIN_VERSION, CURRENT_PLUGIN_VERSION);
+        entries.put(JarPluginProviderLoader.RUNDECK_PLUGIN_CLASSNAMES, classnameString(classes));
+
+        final File testJar11 = createTestJar(entries, null, classes);
+        try {
+            final JarPluginProviderLoader loader = new JarPluginProviderLoader(testJar11, testCachedir);
+            assertTrue(loader.isLoaderFor(new ProviderIdent(TEST_SERVICE, "test1")));
+            assertTrue(loader.isLoaderFor(new ProviderIdent(TEST_SERVICE, "test2")));
+            assertFalse(loader.isLoaderFor(new ProviderIdent(TEST_SERVICE, "testX")));
+
+            //provider idents are recorded in the plugin index
+            final PluginIndex.Entry entry = PluginIndex.forCacheDir(testCachedir).get(testJar11);
+            assertNotNull(entry);
+            assertEquals(new HashSet<ProviderIdent>(Arrays.asList(new ProviderIdent(TEST_SERVICE, "test1"),
+                new ProviderIdent(TEST_SERVICE, "test2"))), new HashSet<ProviderIdent>(entry.getProviders()));
+
+            //a new loader lists the providers from the index
+            final JarPluginProviderLoader loader2 = new JarPluginProviderLoader(testJar11, testCachedir);
+            assertEquals(new HashSet<ProviderIdent>(entry.getProviders()),
+                new HashSet<ProviderIdent>(loader2.listProviders()));
+
+            //expiring the loader removes the entry
+            loader2.expire();
+            assertNull(PluginIndex.forCacheDir(testCachedir).get(testJar11));
+        } finally {
+            testJar11.delete();
+        }
     }
 
     public static class testService1 implements PluggableService<JarTestType1> {
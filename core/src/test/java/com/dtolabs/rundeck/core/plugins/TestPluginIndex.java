@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.plugins;
+
+import com.dtolabs.rundeck.core.utils.FileUtils;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests storing and checksum validation of the entries of {@link PluginIndex}
+ */
+public class TestPluginIndex extends TestCase {
+    File testdir;
+    File cachedir;
+    File pluginFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        testdir = new File("build/TestPluginIndex");
+        FileUtils.deleteDir(testdir);
+        cachedir = new File(testdir, "cache");
+        assertTrue(cachedir.mkdirs());
+        pluginFile = new File(testdir, "test-plugin.zip");
+        writeFile(pluginFile, "plugin content");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        FileUtils.deleteDir(testdir);
+    }
+
+    private void writeFile(final File file, final String content) throws Exception {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    public void testPutGet() throws Exception {
+        final File expanded = new File(cachedir, "test-plugin");
+        assertTrue(expanded.mkdirs());
+        final PluginIndex index = new PluginIndex(cachedir);
+        assertNull(index.get(pluginFile));
+
+        index.put(pluginFile, Arrays.asList(new ProviderIdent("svc", "a"), new ProviderIdent("svc", "b")),
+            Collections.singleton(expanded));
+        assertTrue(new File(cachedir, PluginIndex.INDEX_FILE_NAME).isFile());
+
+        //read by a new instance
+        final PluginIndex.Entry entry = new PluginIndex(cachedir).get(pluginFile);
+        assertNotNull(entry);
+        assertEquals(Arrays.asList(new ProviderIdent("svc", "a"), new ProviderIdent("svc", "b")),
+            entry.getProviders());
+        assertEquals(Arrays.asList(expanded.getAbsoluteFile()), entry.getFiles());
+
+        //extracted file removed
+        FileUtils.deleteDir(expanded);
+        assertNull(index.get(pluginFile));
+        assertNull(new PluginIndex(cachedir).get(pluginFile));
+    }
+
+    public void testChecksum() throws Exception {
+        final PluginIndex index = new PluginIndex(cachedir);
+        index.put(pluginFile, Arrays.asList(new ProviderIdent("svc", "a")), Collections.<File>emptyList());
+
+        //modification time changed, same content
+        assertTrue(pluginFile.setLastModified(pluginFile.lastModified() - 10000));
+        assertNotNull(new PluginIndex(cachedir).get(pluginFile));
+
+        //content changed
+        writeFile(pluginFile, "plugin content2");
+        assertNull(new PluginIndex(cachedir).get(pluginFile));
+    }
+
+    public void testRemove() throws Exception {
+        final PluginIndex index = new PluginIndex(cachedir);
+        index.put(pluginFile, Arrays.asList(new ProviderIdent("svc", "a")), Collections.<File>emptyList());
+        assertNotNull(index.get(pluginFile));
+        index.remove(pluginFile);
+        assertNull(index.get(pluginFile));
+        assertNull(new PluginIndex(cachedir).get(pluginFile));
+    }
+}
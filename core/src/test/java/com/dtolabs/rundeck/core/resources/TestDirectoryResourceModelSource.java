@@ -546,4 +546,61 @@ public class TestDirectoryResourceModelSource extends AbstractBaseTest {
 
         FileUtils.deleteDir(directory);
     }
+
+    public void testGetNodesUnchangedFilesNotReloaded() throws Exception {
+        File directory = new File(frameworkProject.getBaseDir(), "testGetNodesUnchangedFilesNotReloaded");
+        directory.mkdirs();
+        assertTrue(directory.isDirectory());
+
+        File file1 = new File(directory, "test1.xml");
+        FileUtils.copyFileStreams(new File("src/test/resources/com/dtolabs/rundeck/core/common/test-nodes1.xml"),
+            file1);
+        File file2 = new File(directory, "test1.yaml");
+        final BufferedWriter bufferedWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+            (file2))));
+        bufferedWriter.write("testyaml1: \n"
+                             + "  hostname: test\n"
+                             + "  description: a description\n");
+        bufferedWriter.close();
+        //set modification times in the past
+        final long past = System.currentTimeMillis() - 60000;
+        assertTrue(file1.setLastModified(past));
+        assertTrue(file2.setLastModified(past));
+        assertTrue(directory.setLastModified(past));
+
+        Properties props = new Properties();
+        props.setProperty("project", PROJ_NAME);
+        props.setProperty("directory", directory.getAbsolutePath());
+        DirectoryResourceModelSource.Configuration config = new DirectoryResourceModelSource.Configuration(props);
+        final DirectoryResourceModelSource directoryNodesProvider = new DirectoryResourceModelSource(getFrameworkInstance());
+        directoryNodesProvider.configure(config);
+
+        final INodeSet nodes = directoryNodesProvider.getNodes();
+        assertEquals(3, nodes.getNodes().size());
+        //unchanged files return the same node set
+        assertSame(nodes, directoryNodesProvider.getNodes());
+
+        //modify one file with the same modification time, the changed size is detected
+        final BufferedWriter bufferedWriter2 = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+            (file2))));
+        bufferedWriter2.write("testyaml1: \n"
+                              + "  hostname: test\n"
+                              + "  description: a new description\n");
+        bufferedWriter2.close();
+        assertTrue(file2.setLastModified(past));
+
+        final INodeSet nodes2 = directoryNodesProvider.getNodes();
+        assertNotSame(nodes, nodes2);
+        assertEquals("a new description", nodes2.getNode("testyaml1").getDescription());
+        //the unchanged file was not parsed again
+        assertSame(nodes.getNode("test1"), nodes2.getNode("test1"));
+        assertSame(nodes2, directoryNodesProvider.getNodes());
+
+        //remove a file
+        assertTrue(file1.delete());
+        final INodeSet nodes3 = directoryNodesProvider.getNodes();
+        assertEquals(1, nodes3.getNodes().size());
+        assertNull(nodes3.getNode("test1"));
+        FileUtils.deleteDir(directory);
+    }
 }
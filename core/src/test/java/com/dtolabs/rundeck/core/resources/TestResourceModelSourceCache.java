@@ -0,0 +1,136 @@
+/*
+ * Copyright 2011 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.resources;
+
+import com.dtolabs.rundeck.core.common.INodeSet;
+import com.dtolabs.rundeck.core.common.NodeEntryImpl;
+import com.dtolabs.rundeck.core.common.NodeSetImpl;
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests caching, background refresh and failure handling of {@link ResourceModelSourceCache}
+ */
+public class TestResourceModelSourceCache extends TestCase {
+    ResourceModelSourceCache cache;
+
+    protected void setUp() throws Exception {
+        cache = new ResourceModelSourceCache(60000);
+    }
+
+    /**
+     * Returns a new node set with the count of calls, or fails if the failure is set
+     */
+    static class TestSource implements ResourceModelSource {
+        int calls;
+        ResourceModelSourceException failure;
+        long delay;
+
+        public synchronized INodeSet getNodes() throws ResourceModelSourceException {
+            calls++;
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    throw new ResourceModelSourceException(e);
+                }
+            }
+            if (null != failure) {
+                throw failure;
+            }
+            final NodeSetImpl nodes = new NodeSetImpl();
+            for (int i = 0; i < calls; i++) {
+                nodes.putNode(new NodeEntryImpl("host" + i, "node" + i));
+            }
+            return nodes;
+        }
+
+        synchronized int getCalls() {
+            return calls;
+        }
+    }
+
+    private void awaitCalls(final TestSource source, final int calls) throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        while (source.getCalls() < calls && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        assertEquals(calls, source.getCalls());
+    }
+
+    public void testCached() throws Exception {
+        final TestSource source = new TestSource();
+        final INodeSet nodes = cache.getNodes("test", 60000, source);
+        assertEquals(1, nodes.getNodes().size());
+        assertSame(nodes, cache.getNodes("test", 60000, source));
+        //a new source instance with the same key uses the entry
+        assertSame(nodes, new CachingResourceModelSource(cache, "test", 60000, new TestSource()).getNodes());
+        assertEquals(1, source.getCalls());
+        assertNotSame(nodes, cache.getNodes("test2", 60000, source));
+        assertEquals(2, source.getCalls());
+    }
+
+    /**
+     * Stale nodes are returned while the source is refreshed in the background
+     */
+    public void testStaleWhileRefreshing() throws Exception {
+        final TestSource source = new TestSource();
+        final INodeSet nodes = cache.getNodes("test", 0, source);
+        source.delay = 100;
+        assertSame(nodes, cache.getNodes("test", 0, source));
+        assertSame(nodes, cache.getNodes("test", 0, source));
+        awaitCalls(source, 2);
+        Thread.sleep(200);
+        assertEquals(2, source.getCalls());
+        final INodeSet refreshed = cache.getNodes("test", 60000, source);
+        assertNotSame(nodes, refreshed);
+        assertEquals(2, refreshed.getNodes().size());
+    }
+
+    /**
+     * The last nodes are returned if the refresh fails
+     */
+    public void testFailure() throws Exception {
+        final TestSource source = new TestSource();
+        source.failure = new ResourceModelSourceException("test failure");
+        try {
+            cache.getNodes("test", 0, source);
+            fail("expected exception");
+        } catch (ResourceModelSourceException e) {
+            assertSame(source.failure, e);
+        }
+        source.failure = null;
+        final INodeSet nodes = cache.getNodes("test", 0, source);
+        assertNull(cache.getLastError("test"));
+
+        source.failure = new ResourceModelSourceException("test failure");
+        assertSame(nodes, cache.getNodes("test", 0, source));
+        awaitCalls(source, 3);
+        Thread.sleep(50);
+        assertSame(nodes, cache.getNodes("test", 60000, source));
+        assertSame(source.failure, cache.getLastError("test"));
+
+        final List<ResourceModelSourceCache.Stats> stats = cache.getStats();
+        assertEquals(1, stats.size());
+        assertEquals("test", stats.get(0).getKey());
+        assertEquals(2, stats.get(0).getNodeCount());
+        assertEquals(3, stats.get(0).getRefreshCount());
+        assertEquals(2, stats.get(0).getFailureCount());
+        assertEquals("test failure", stats.get(0).getLastError());
+    }
+}
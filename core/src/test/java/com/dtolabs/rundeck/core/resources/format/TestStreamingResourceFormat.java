@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.resources.format;
+
+import com.dtolabs.rundeck.core.common.INodeEntry;
+import com.dtolabs.rundeck.core.common.NodeEntryImpl;
+import com.dtolabs.rundeck.core.common.NodeReceiver;
+import com.dtolabs.rundeck.core.common.NodeSetImpl;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.*;
+
+/**
+ * TestStreamingResourceFormat tests the streaming format parsers and generators with large node sets.
+ */
+public class TestStreamingResourceFormat extends TestCase {
+    static final int COUNT = 20000;
+    File testFile;
+
+    protected void setUp() throws Exception {
+        new File("target").mkdirs();
+        testFile = new File("target/test-streaming-resources");
+    }
+
+    protected void tearDown() throws Exception {
+        testFile.delete();
+    }
+
+    private NodeSetImpl createNodes() {
+        final NodeSetImpl nodes = new NodeSetImpl();
+        for (int i = 0; i < COUNT; i++) {
+            final NodeEntryImpl node = new NodeEntryImpl("host" + i, "node" + i);
+            node.setOsFamily("unix");
+            node.setDescription("node <" + i + "> & \"quoted\"");
+            node.setTags(new HashSet<String>(Arrays.asList("tag" + (i % 10), "all")));
+            node.setAttribute("rack", "rack" + (i % 50));
+            node.setAttribute("-invalid name", "value " + i);
+            nodes.putNode(node);
+        }
+        return nodes;
+    }
+
+    /**
+     * Generate the nodes to the test file and parse it with a receiver that does not retain the nodes
+     */
+    private void roundtrip(final ResourceFormatGenerator generator, final StreamingResourceFormatParser parser)
+        throws Exception {
+        final FileOutputStream out = new FileOutputStream(testFile);
+        try {
+            generator.generateDocument(createNodes(), out);
+        } finally {
+            out.close();
+        }
+        final int[] count = new int[]{0};
+        final HashMap<String, INodeEntry> sample = new HashMap<String, INodeEntry>();
+        parser.parseDocument(testFile, new NodeReceiver() {
+            public void putNode(final INodeEntry node) {
+                count[0]++;
+                if ("node123".equals(node.getNodename())) {
+                    sample.put(node.getNodename(), node);
+                }
+            }
+        });
+        assertEquals(COUNT, count[0]);
+        final INodeEntry node = sample.get("node123");
+        assertNotNull(node);
+        assertEquals("host123", node.getHostname());
+        assertEquals("unix", node.getOsFamily());
+        assertEquals("node <123> & \"quoted\"", node.getDescription());
+        assertEquals(new HashSet<String>(Arrays.asList("tag3", "all")), node.getTags());
+        assertEquals("rack23", node.getAttributes().get("rack"));
+        assertEquals("value 123", node.getAttributes().get("-invalid name"));
+    }
+
+    public void testXMLRoundtrip() throws Exception {
+        roundtrip(new ResourceXMLFormatGenerator(), new ResourceXMLFormatParser());
+    }
+
+    public void testYamlRoundtrip() throws Exception {
+        roundtrip(new ResourceYamlFormatGenerator(), new ResourceYamlFormatParser());
+    }
+
+    public void testXMLRepeatedNode() throws Exception {
+        final String xml = "<project>\n"
+                           + "  <node name=\"test1\" hostname=\"host1\" a=\"b\"/>\n"
+                           + "  <node name=\"test2\" hostname=\"host2\">\n"
+                           + "    <attribute name=\"text\">text value</attribute>\n"
+                           + "  </node>\n"
+                           + "  <node name=\"test1\" hostname=\"host3\"/>\n"
+                           + "</project>";
+        final NodeSetImpl nodes = (NodeSetImpl) new ResourceXMLFormatParser().parseDocument(
+            new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        assertEquals(2, nodes.getNodes().size());
+        assertEquals("host3", nodes.getNode("test1").getHostname());
+        assertEquals("b", nodes.getNode("test1").getAttributes().get("a"));
+        assertEquals("text value", nodes.getNode("test2").getAttributes().get("text"));
+    }
+
+    public void testYamlAnchorsAndMerge() throws Exception {
+        final String yaml = "defaults: &defaults\n"
+                            + "  hostname: defaulthost\n"
+                            + "  osFamily: unix\n"
+                            + "  port: 22\n"
+                            + "test1:\n"
+                            + "  <<: *defaults\n"
+                            + "  hostname: host1\n"
+                            + "  enabled: true\n"
+                            + "  empty: ~\n"
+                            + "test2:\n"
+                            + "  <<: [*defaults]\n"
+                            + "  tags: [a, b]\n";
+        final NodeSetImpl nodes = (NodeSetImpl) new ResourceYamlFormatParser().parseDocument(
+            new ByteArrayInputStream(yaml.getBytes("UTF-8")));
+        assertEquals(3, nodes.getNodes().size());
+        final INodeEntry test1 = nodes.getNode("test1");
+        assertEquals("host1", test1.getHostname());
+        assertEquals("unix", test1.getOsFamily());
+        assertEquals("22", test1.getAttributes().get("port"));
+        assertEquals("true", test1.getAttributes().get("enabled"));
+        assertNull(test1.getAttributes().get("empty"));
+        final INodeEntry test2 = nodes.getNode("test2");
+        assertEquals("defaulthost", test2.getHostname());
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b")), test2.getTags());
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.tasks.net;
+
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import junit.framework.TestCase;
+
+import java.lang.reflect.Field;
+
+/**
+ * Tests the keys, limits and eviction of sessions in {@link SSHSessionPool}
+ */
+public class TestSSHSessionPool extends TestCase {
+
+    public void testCreateKey() {
+        final String key1 = SSHSessionPool.createKey("1", "user", "host", 22, "/path/key", null, null);
+        assertTrue(key1.startsWith("1|user@host:22|key:/path/key:"));
+        assertEquals(key1, SSHSessionPool.createKey("1", "user", "host", 22, "/path/key", null, null));
+        assertFalse(key1.equals(SSHSessionPool.createKey("2", "user", "host", 22, "/path/key", null, null)));
+        assertFalse(key1.equals(SSHSessionPool.createKey("1", "user", "host", 2222, "/path/key", null, null)));
+        assertFalse(key1.equals(SSHSessionPool.createKey("1", "user", "host", 22, "/path/key", "phrase", null)));
+        assertTrue(SSHSessionPool.createKey(null, "user", "host", 22, "/path/key", null, null).startsWith(
+            SSHSessionPool.SHARED_SCOPE + "|"));
+    }
+
+    public void testCreateKeyPasswordDigest() {
+        final String key1 = SSHSessionPool.createKey("1", "user", "host", 22, null, null, "secret");
+        assertEquals(-1, key1.indexOf("secret"));
+        assertFalse(key1.equals(SSHSessionPool.createKey("1", "user", "host", 22, null, null, "secret2")));
+    }
+
+    public void testAcquireFactoryFailureReleasesHostSlot() throws Exception {
+        final SSHSessionPool pool = new SSHSessionPool();
+        pool.setMaxSessionsPerHost(1);
+        pool.setAcquireTimeout(100);
+        for (int i = 0; i < 3; i++) {
+            try {
+                pool.acquire("key", "host", new SSHSessionPool.SessionFactory() {
+                    public Session openSession() throws JSchException {
+                        throw new JSchException("failed");
+                    }
+                });
+                fail("should throw");
+            } catch (JSchException e) {
+                assertEquals("failed", e.getMessage());
+            }
+        }
+        assertEquals(3, pool.getMissCount());
+        assertEquals(0, pool.getWaitCount());
+    }
+
+    public void testDisconnectedSessionNotReused() throws Exception {
+        final SSHSessionPool pool = new SSHSessionPool();
+        final JSch jsch = new JSch();
+        final SSHSessionPool.SessionFactory factory = new SSHSessionPool.SessionFactory() {
+            public Session openSession() throws JSchException {
+                return jsch.getSession("user", "host", 22);
+            }
+        };
+        final Session session = pool.acquire("key", "host", factory);
+        assertEquals(1, pool.getSessionCount());
+        pool.release(session);
+        assertEquals(0, pool.getSessionCount());
+
+        final Session session2 = pool.acquire("key", "host", factory);
+        assertNotSame(session, session2);
+        assertEquals(0, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+        pool.release(session2);
+    }
+
+    public void testAcquireTimeoutAtHostLimit() throws Exception {
+        final SSHSessionPool pool = new SSHSessionPool();
+        pool.setMaxSessionsPerHost(1);
+        pool.setAcquireTimeout(50);
+        final JSch jsch = new JSch();
+        final SSHSessionPool.SessionFactory factory = new SSHSessionPool.SessionFactory() {
+            public Session openSession() throws JSchException {
+                return jsch.getSession("user", "host", 22);
+            }
+        };
+        final Session session = pool.acquire("key", "host", factory);
+        try {
+            pool.acquire("key2", "host", factory);
+            fail("should timeout");
+        } catch (JSchException e) {
+            assertTrue(e.getMessage().startsWith("timeout:"));
+        }
+        assertEquals(1, pool.getWaitCount());
+        pool.release(session);
+        pool.release(pool.acquire("key2", "host", factory));
+    }
+
+    /**
+     * Return an unconnected session which reports that it is connected, so that it is kept in the pool when released
+     */
+    private static Session connectedSession(final JSch jsch) throws Exception {
+        final Session session = jsch.getSession("user", "host", 22);
+        final Field field = Session.class.getDeclaredField("isConnected");
+        field.setAccessible(true);
+        field.setBoolean(session, true);
+        return session;
+    }
+
+    public void testAcquireEvictsIdleSessionsOfOtherKeysAtHostLimit() throws Exception {
+        final SSHSessionPool pool = new SSHSessionPool();
+        pool.setMaxSessionsPerHost(2);
+        pool.setAcquireTimeout(50);
+        final JSch jsch = new JSch();
+        final SSHSessionPool.SessionFactory factory = new SSHSessionPool.SessionFactory() {
+            public Session openSession() throws JSchException {
+                try {
+                    return connectedSession(jsch);
+                } catch (Exception e) {
+                    throw new JSchException(e.getMessage());
+                }
+            }
+        };
+        final Session session1 = pool.acquire("key1", "host", factory);
+        final Session session2 = pool.acquire("key2", "host", factory);
+        pool.release(session1);
+        pool.release(session2);
+        assertEquals(2, pool.getSessionCount());
+
+        //more keys than the host limit: idle sessions are disconnected instead of waiting
+        final Session session3 = pool.acquire("key3", "host", factory);
+        assertFalse(session1.isConnected());
+        assertTrue(session2.isConnected());
+        final Session session4 = pool.acquire("key4", "host", factory);
+        assertFalse(session2.isConnected());
+        assertEquals(2, pool.getSessionCount());
+        assertEquals(2, pool.getEvictionCount());
+        assertEquals(0, pool.getWaitCount());
+
+        //no idle sessions remain for the host
+        try {
+            pool.acquire("key5", "host", factory);
+            fail("should timeout");
+        } catch (JSchException e) {
+            assertTrue(e.getMessage().startsWith("timeout:"));
+        }
+
+        //sessions for other hosts are not evicted
+        pool.release(session3);
+        final Session other = pool.acquire("key1", "otherhost", factory);
+        assertTrue(session3.isConnected());
+        assertEquals(3, pool.getSessionCount());
+
+        pool.closeScope(SSHSessionPool.SHARED_SCOPE);
+        pool.release(session4);
+        pool.release(other);
+    }
+}
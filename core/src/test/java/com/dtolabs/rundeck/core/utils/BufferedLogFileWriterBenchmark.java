@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+
+/**
+ * BufferedLogFileWriterBenchmark compares writing chatty output through the formatting stream to a {@link
+ * BufferedLogFileWriter} against formatting each line as text and printing it to an unbuffered stream.  Run the main
+ * method with optional arguments: number of lines, output file.
+ */
+public class BufferedLogFileWriterBenchmark {
+
+    static long runText(final File file, final byte[] chunk, final int chunks,
+                        final HashMap<String, String> nodeContext) throws IOException {
+        final long start = System.nanoTime();
+        final PrintStream printStream = new PrintStream(new FileOutputStream(file));
+        final FormattedOutputStream textOut = new FormattedOutputStream(new LogReformatter(
+            "[%user@%node %command][%level] %message", nodeContext), new OutputStream() {
+            final StringBuffer sb = new StringBuffer();
+
+            public void write(final int b) {
+                if (b == '\n') {
+                    printStream.println("^^^" + new SimpleDateFormat("hh:mm:ss").format(new Date()) + "|INFO|"
+                                        + sb.toString() + "^^^");
+                    sb.setLength(0);
+                } else {
+                    sb.append((char) b);
+                }
+            }
+        });
+        for (int i = 0; i < chunks; i++) {
+            for (final byte b : chunk) {
+                textOut.write(b);
+            }
+        }
+        textOut.close();
+        printStream.close();
+        return System.nanoTime() - start;
+    }
+
+    static long runBuffered(final File file, final byte[] chunk, final int chunks,
+                            final HashMap<String, String> nodeContext) throws IOException {
+        final long start = System.nanoTime();
+        final BufferedLogFileWriter writer = new BufferedLogFileWriter(file, TestBufferedLogFileWriter.FIELDS);
+        final FormattedOutputStream out = new FormattedOutputStream(new LogReformatter(
+            "[%user@%node %command][%level] %message", nodeContext), new TestBufferedLogFileWriter.SinkStream(writer));
+        out.setContext("level", "INFO");
+        for (int i = 0; i < chunks; i++) {
+            out.write(chunk, 0, chunk.length);
+        }
+        out.close();
+        writer.close();
+        return System.nanoTime() - start;
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        final File file = new File(args.length > 1 ? args[1] : "target/buffered-log-writer-benchmark.log");
+        final byte[] chunk = TestBufferedLogFileWriter.createOutput(100);
+        final HashMap<String, String> nodeContext = new HashMap<String, String>();
+        nodeContext.put("user", "bob");
+        nodeContext.put("node", "node1");
+        nodeContext.put("command", "1-exec");
+        try {
+            //warm up
+            runText(file, chunk, count / 100, nodeContext);
+            runBuffered(file, chunk, count / 100, nodeContext);
+
+            final long textTime = runText(file, chunk, count / 100, nodeContext);
+            final long bufferedTime = runBuffered(file, chunk, count / 100, nodeContext);
+            System.out.println(
+                "unbuffered text:     " + textTime / 1000000 + " ms (" + count * 1000000000L / textTime + " lines/s)");
+            System.out.println(
+                "buffered structured: " + bufferedTime / 1000000 + " ms (" + count * 1000000000L / bufferedTime
+                + " lines/s)");
+        } finally {
+            file.delete();
+            LogFileIndex.getIndexFile(file).delete();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import com.dtolabs.rundeck.core.common.INodeEntry;
+import com.dtolabs.rundeck.core.common.NodeFilter;
+import com.dtolabs.rundeck.core.common.NodeSetImpl;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * CompiledNodeFilterBenchmark compares filtering a large node set with the compiled node filter against evaluating the
+ * selector strings for each node.  Run the main method with optional arguments: number of nodes, number of
+ * iterations.
+ */
+public class CompiledNodeFilterBenchmark {
+
+    static int runUncompiled(final NodeSet nodeSet, final List<INodeEntry> nodes) {
+        int matched = 0;
+        for (final INodeEntry node : nodes) {
+            if (!nodeSet.shouldExcludeUncompiled(node)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    static int runCompiled(final NodeSet nodeSet, final NodeSetImpl nodes) {
+        return NodeFilter.filterNodes(nodeSet, nodes).getNodes().size();
+    }
+
+    public static void main(final String[] args) {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        final List<INodeEntry> nodes = TestCompiledNodeFilter.createNodes(new Random(1234), count);
+        final NodeSetImpl nodeSetImpl = new NodeSetImpl();
+        for (final INodeEntry node : nodes) {
+            nodeSetImpl.putNode(node);
+        }
+        final NodeSet nodeSet = TestCompiledNodeFilter.createNodeSet("tags", "a+b,web+db", "name", "/node1.*/", false);
+        nodeSet.getInclude().setOsfamily("unix");
+        nodeSet.getInclude().getAttributesMap().put("attr1", "value1,value2,value3");
+        final int matched = runCompiled(nodeSet, nodeSetImpl);
+        if (runUncompiled(nodeSet, nodes) != matched) {
+            throw new IllegalStateException("results differ");
+        }
+        //warm up
+        for (int i = 0; i < iterations; i++) {
+            runUncompiled(nodeSet, nodes);
+            runCompiled(nodeSet, nodeSetImpl);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            runUncompiled(nodeSet, nodes);
+        }
+        final long uncompiledTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            runCompiled(nodeSet, nodeSetImpl);
+        }
+        final long compiledTime = System.nanoTime() - start;
+        System.out.println(count + " nodes, " + matched + " matched");
+        System.out.println("uncompiled: " + uncompiledTime / iterations / 1000000 + " ms/filter");
+        System.out.println("compiled:   " + compiledTime / iterations / 1000000 + " ms/filter");
+    }
+}
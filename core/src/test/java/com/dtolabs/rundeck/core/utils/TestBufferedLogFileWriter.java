@@ -0,0 +1,254 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import junit.framework.TestCase;
+
+import java.io.*;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Tests the output format, buffering, index and flushing of {@link BufferedLogFileWriter}
+ */
+public class TestBufferedLogFileWriter extends TestCase {
+    static final String[] FIELDS = {"user", "module", "command", "node", "context"};
+    static final String lSep = System.getProperty("line.separator");
+    File testFile;
+
+    protected void setUp() throws Exception {
+        new File("target").mkdirs();
+        testFile = new File("target/test-buffered-log-writer.log");
+    }
+
+    protected void tearDown() throws Exception {
+        testFile.delete();
+    }
+
+    private String readFile(final File file) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            final byte[] buf = new byte[8192];
+            int c;
+            while ((c = in.read(buf)) > 0) {
+                baos.write(buf, 0, c);
+            }
+        } finally {
+            in.close();
+        }
+        return baos.toString();
+    }
+
+    public void testFormat() throws Exception {
+        final BufferedLogFileWriter writer = new BufferedLogFileWriter(testFile, FIELDS);
+        final long time = System.currentTimeMillis();
+        final String date = new SimpleDateFormat("hh:mm:ss").format(new Date(time));
+        final HashMap<String, String> data = new HashMap<String, String>();
+        data.put("user", "user1");
+        data.put("command", "barge");
+        data.put("node", "pilf");
+        data.put("level", "INFO");
+        writer.write("INFO", time, null, "test1");
+        writer.write("WARNING", time, data, "test2\r\r");
+        writer.close();
+        assertTrue(writer.isClosed());
+        assertEquals("^^^" + date + "|INFO|test1^^^" + lSep
+                     + "^^^" + date + "|WARNING|user1||barge|pilf||test2^^^" + lSep
+                     + "^^^END^^^" + lSep, readFile(testFile));
+    }
+
+    public void testBuffered() throws Exception {
+        final BufferedLogFileWriter writer = new BufferedLogFileWriter(testFile, null, FIELDS, 1024, 60000);
+        try {
+            writer.write("INFO", System.currentTimeMillis(), null, "test1");
+            assertEquals(0, testFile.length());
+            writer.flush();
+            assertTrue(testFile.length() > 0);
+
+            //larger than the buffer
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 3000; i++) {
+                sb.append('x');
+            }
+            writer.write("INFO", System.currentTimeMillis(), null, sb.toString());
+            writer.flush();
+            assertTrue(readFile(testFile).contains(sb.toString() + "^^^"));
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void testIndex() throws Exception {
+        final File indexFile = LogFileIndex.getIndexFile(testFile);
+        final BufferedLogFileWriter writer = new BufferedLogFileWriter(testFile, indexFile, FIELDS, 1024, 60000);
+        try {
+            for (int i = 0; i < 100; i++) {
+                writer.write("INFO", System.currentTimeMillis(), null, "message " + i + (i % 10 == 0 ? lSep
+                                                                                                    + "more" : ""));
+            }
+            writer.flush();
+            assertEquals(100, LogFileIndex.getEntryCount(testFile));
+            assertEquals(0, LogFileIndex.getEntryOffset(testFile, 0));
+            assertEquals(0, LogFileIndex.seekLastEntries(testFile, 200));
+
+            final OffsetLineReader reader = new OffsetLineReader(testFile, LogFileIndex.seekLastEntries(testFile, 10),
+                null);
+            try {
+                assertTrue(reader.readLine().endsWith("|INFO|message 90"));
+                assertEquals("more^^^", reader.readLine());
+                assertTrue(reader.readLine().endsWith("|INFO|message 91^^^"));
+            } finally {
+                reader.close();
+            }
+            assertEquals(-1, LogFileIndex.getEntryOffset(testFile, 100));
+        } finally {
+            writer.close();
+            indexFile.delete();
+        }
+        assertEquals(-1, LogFileIndex.seekLastEntries(testFile, 10));
+    }
+
+    public void testAwaitData() throws Exception {
+        final BufferedLogFileWriter writer = new BufferedLogFileWriter(testFile, null, FIELDS, 1024, 60000);
+        try {
+            assertSame(writer, BufferedLogFileWriter.getActiveWriter(new File(testFile.getAbsolutePath())));
+            assertFalse(writer.awaitData(0, 10));
+
+            //buffered data is written for a waiting reader
+            writer.write("INFO", System.currentTimeMillis(), null, "test1");
+            assertEquals(0, testFile.length());
+            assertTrue(writer.awaitData(0, 10));
+            final long offset = writer.getWrittenSize();
+            assertEquals(offset, testFile.length());
+
+            final Thread thread = new Thread() {
+                public void run() {
+                    try {
+                        Thread.sleep(50);
+                        writer.write("INFO", System.currentTimeMillis(), null, "test2");
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            };
+            thread.start();
+            assertTrue(writer.awaitData(offset, 5000));
+            assertTrue(testFile.length() > offset);
+            thread.join();
+        } finally {
+            writer.close();
+        }
+        assertNull(BufferedLogFileWriter.getActiveWriter(testFile));
+        assertTrue(writer.awaitData(0, 10));
+    }
+
+    public void testPeriodicFlush() throws Exception {
+        final BufferedLogFileWriter writer = new BufferedLogFileWriter(testFile, null, FIELDS, 1024, 50);
+        try {
+            writer.write("INFO", System.currentTimeMillis(), null, "test1");
+            final long start = System.currentTimeMillis();
+            while (testFile.length() < 1 && System.currentTimeMillis() - start < 5000) {
+                Thread.sleep(10);
+            }
+            assertTrue(readFile(testFile).contains("test1"));
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Write output through a FormattedOutputStream, as node output is written during an execution
+     */
+    public void testStructuredOutput() throws Exception {
+        final BufferedLogFileWriter writer = new BufferedLogFileWriter(testFile, FIELDS);
+        final HashMap<String, String> nodeContext = new HashMap<String, String>();
+        nodeContext.put("user", "bob");
+        nodeContext.put("node", "node1");
+        nodeContext.put("command", "1-exec");
+        final FormattedOutputStream out = new FormattedOutputStream(new LogReformatter(
+            "[%user@%node %command][%level] %message", nodeContext), new SinkStream(writer));
+        out.setContext("level", "INFO");
+        out.write("  indented [line]\r\nsecond|line\n".getBytes());
+        out.close();
+        writer.close();
+        final String[] lines = readFile(testFile).split(lSep);
+        assertEquals(3, lines.length);
+        assertTrue(lines[0], lines[0].endsWith("|INFO|bob||1-exec|node1||  indented [line]^^^"));
+        assertTrue(lines[1], lines[1].endsWith("|INFO|bob||1-exec|node1||second|line^^^"));
+    }
+
+    /**
+     * Chatty output written through the formatting stream produces one log line per output line
+     */
+    public void testFormattedOutput() throws Exception {
+        final int count = 1000;
+        final byte[] chunk = createOutput(100);
+        final HashMap<String, String> nodeContext = new HashMap<String, String>();
+        nodeContext.put("user", "bob");
+        nodeContext.put("node", "node1");
+        nodeContext.put("command", "1-exec");
+
+        final BufferedLogFileWriter writer = new BufferedLogFileWriter(testFile, FIELDS);
+        final FormattedOutputStream out = new FormattedOutputStream(new LogReformatter(
+            "[%user@%node %command][%level] %message", nodeContext), new SinkStream(writer));
+        out.setContext("level", "INFO");
+        for (int i = 0; i < count / 100; i++) {
+            out.write(chunk, 0, chunk.length);
+        }
+        out.close();
+        writer.close();
+
+        final BufferedReader reader = new BufferedReader(new FileReader(testFile));
+        int lines = 0;
+        try {
+            while (null != reader.readLine()) {
+                lines++;
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(count + 1, lines);
+    }
+
+    static byte[] createOutput(final int lines) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            sb.append("output line ").append(i).append(" of some chatty command with a typical length\n");
+        }
+        return sb.toString().getBytes();
+    }
+
+    /**
+     * Writes structured lines to the writer
+     */
+    static class SinkStream extends OutputStream implements StructuredLogSink {
+        final BufferedLogFileWriter writer;
+
+        SinkStream(final BufferedLogFileWriter writer) {
+            this.writer = writer;
+        }
+
+        public void write(final int b) throws IOException {
+            throw new IOException("unexpected unstructured output");
+        }
+
+        public void writeLine(final Map<String, String> context, final String message) throws IOException {
+            writer.write(context.get("level"), System.currentTimeMillis(), context, message);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import com.dtolabs.rundeck.core.common.INodeEntry;
+import com.dtolabs.rundeck.core.common.NodeEntryImpl;
+import com.dtolabs.rundeck.core.common.NodeFilter;
+import com.dtolabs.rundeck.core.common.NodeSetImpl;
+import junit.framework.TestCase;
+
+import java.util.*;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Tests that {@link CompiledNodeFilter} selects the same nodes as the uncompiled node filter
+ */
+public class TestCompiledNodeFilter extends TestCase {
+    static final String[] SELECTORS = {
+        "node1", "node1,node2", "node1, node2", " node3 ", "node.*", "/node1.*/", "/node[12]/", "node[", "host2.local",
+        "a", "b", "a+b", "a,b", "a + c", "a+b,c", "/a|c/", "/a|c/+b", ".*", "x+", "a,,", "+a", "linux", "Linux",
+        "lin.*", "value1", "value1,value3",
+    };
+    private final Random random = new Random(1234);
+
+    static List<INodeEntry> createNodes(final Random random, final int count) {
+        final ArrayList<INodeEntry> nodes = new ArrayList<INodeEntry>();
+        final String[] tags = {"a", "b", "c", "d", "web", "db"};
+        for (int i = 0; i < count; i++) {
+            final NodeEntryImpl node = new NodeEntryImpl("host" + i + ".local", "node" + i);
+            final HashSet<String> nodeTags = new HashSet<String>();
+            for (final String tag : tags) {
+                if (random.nextInt(3) == 0) {
+                    nodeTags.add(tag);
+                }
+            }
+            node.setTags(nodeTags);
+            node.setOsFamily(i % 2 == 0 ? "unix" : "windows");
+            node.setOsName(i % 3 == 0 ? "Linux" : "Darwin");
+            node.setOsArch("x86_64");
+            node.setOsVersion("1." + (i % 10));
+            node.setAttribute("attr1", "value" + (i % 5));
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    static NodeSet createNodeSet(final String incKey, final String incValue, final String excKey,
+                                 final String excValue, final boolean dominant) {
+        final NodeSet nodeSet = new NodeSet();
+        if (null != incKey) {
+            final HashMap<String, String> map = new HashMap<String, String>();
+            map.put(incKey, incValue);
+            nodeSet.createInclude(map).setDominant(dominant);
+        }
+        if (null != excKey) {
+            final HashMap<String, String> map = new HashMap<String, String>();
+            map.put(excKey, excValue);
+            nodeSet.createExclude(map);
+        }
+        return nodeSet;
+    }
+
+    /**
+     * The compiled filter gives the same result as evaluating the selector strings
+     */
+    public void testEquivalence() throws Exception {
+        final List<INodeEntry> nodes = createNodes(random, 30);
+        final String[] keys = {"name", "hostname", "tags", "os-name", "os-family", "attr1"};
+        int checked = 0;
+        for (int i = 0; i < 2000; i++) {
+            final NodeSet nodeSet = createNodeSet(keys[random.nextInt(keys.length)],
+                SELECTORS[random.nextInt(SELECTORS.length)],
+                random.nextBoolean() ? keys[random.nextInt(keys.length)] : null,
+                SELECTORS[random.nextInt(SELECTORS.length)], random.nextBoolean());
+            for (final INodeEntry node : nodes) {
+                boolean expected;
+                try {
+                    expected = nodeSet.shouldExcludeUncompiled(node);
+                } catch (PatternSyntaxException e) {
+                    continue;
+                }
+                assertEquals(nodeSet + ": " + node, expected, nodeSet.shouldExclude(node));
+                checked++;
+            }
+        }
+        assertTrue(checked > 0);
+    }
+
+    public void testReuse() throws Exception {
+        final NodeSet nodeSet = createNodeSet("tags", "a+b", null, null, false);
+        final CompiledNodeFilter filter = nodeSet.getCompiledFilter();
+        assertSame(filter, nodeSet.getCompiledFilter());
+
+        final NodeEntryImpl node = new NodeEntryImpl("host1", "node1");
+        node.setTags(new HashSet<String>(Arrays.asList("a", "b")));
+        assertTrue(nodeSet.acceptNode(node));
+
+        nodeSet.getInclude().setTags("a+c");
+        assertNotSame(filter, nodeSet.getCompiledFilter());
+        assertFalse(nodeSet.acceptNode(node));
+
+        nodeSet.getInclude().setTags("");
+        nodeSet.getInclude().getAttributesMap().put("attr1", "x");
+        assertFalse(nodeSet.acceptNode(node));
+        node.setAttribute("attr1", "x");
+        assertTrue(nodeSet.acceptNode(node));
+        nodeSet.getInclude().getAttributesMap().put("attr1", "y");
+        assertFalse(nodeSet.acceptNode(node));
+
+        nodeSet.setSingleNodeName("node1");
+        assertTrue(nodeSet.acceptNode(node));
+    }
+
+    public void testInvalidRegex() throws Exception {
+        final NodeSet nodeSet = createNodeSet("name", "/node[/", null, null, false);
+        try {
+            nodeSet.shouldExclude(new NodeEntryImpl("host1", "node1"));
+            fail("expected exception");
+        } catch (PatternSyntaxException e) {
+        }
+        //not an explicit regex, matched by equality
+        final NodeSet nodeSet2 = createNodeSet("name", "node[", null, null, false);
+        assertFalse(nodeSet2.shouldExclude(new NodeEntryImpl("host1", "node[")));
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Tests reading, seeking and converting the log files written by {@link CompressedLogFileWriter}
+ */
+public class TestCompressedLogFileWriter extends TestCase {
+    static final String[] FIELDS = {"user", "module", "command", "node", "context"};
+    File testFile;
+    File indexFile;
+    File textFile;
+
+    protected void setUp() throws Exception {
+        new File("target").mkdirs();
+        testFile = new File("target/test-compressed-log-writer" + CompressedLogFileWriter.FILE_EXTENSION);
+        indexFile = CompressedLogFileWriter.getBlockIndexFile(testFile);
+        textFile = new File("target/test-compressed-log-writer.txt");
+    }
+
+    protected void tearDown() throws Exception {
+        testFile.delete();
+        indexFile.delete();
+        textFile.delete();
+        LogFileIndex.getIndexFile(textFile).delete();
+    }
+
+    private HashMap<String, String> context(final String node) {
+        final HashMap<String, String> data = new HashMap<String, String>();
+        data.put("user", "bob");
+        data.put("command", "1-exec");
+        data.put("node", node);
+        return data;
+    }
+
+    private CompressedLogFileWriter writeEntries(final int count, final int blockSize) throws Exception {
+        final CompressedLogFileWriter writer = new CompressedLogFileWriter(testFile, indexFile, FIELDS, blockSize, -1);
+        for (int i = 0; i < count; i++) {
+            writer.write("INFO", 1000L * i, i % 2 == 0 ? context("node" + (i % 5)) : null, "message " + i);
+        }
+        return writer;
+    }
+
+    private List<LogEntry> readAll(final CompressedLogFileReader reader) throws Exception {
+        final ArrayList<LogEntry> entries = new ArrayList<LogEntry>();
+        LogEntry entry;
+        while (null != (entry = reader.next())) {
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    public void testReadWrite() throws Exception {
+        final CompressedLogFileWriter writer = new CompressedLogFileWriter(testFile, FIELDS);
+        writer.write("INFO", 1234L, null, "test1");
+        writer.write("WARNING", 5678L, context("pilf"), "test2\r\r");
+        writer.write("ERROR", 9999L, context("pilf"), "multi\nline|message");
+        writer.close();
+        assertTrue(writer.isClosed());
+        assertTrue(CompressedLogFileWriter.isCompressedLogFile(testFile));
+
+        final CompressedLogFileReader reader = new CompressedLogFileReader(testFile);
+        try {
+            final List<LogEntry> entries = readAll(reader);
+            assertEquals(3, entries.size());
+            assertTrue(reader.isComplete());
+            assertEquals(reader.getSize(), reader.getOffset());
+            assertEquals(3, reader.getEntryCount());
+
+            assertEquals("INFO", entries.get(0).getLevel());
+            assertEquals(1234L, entries.get(0).getTime());
+            assertNull(entries.get(0).getData());
+            assertEquals("test1", entries.get(0).getMessage());
+
+            assertEquals("WARNING", entries.get(1).getLevel());
+            assertEquals(context("pilf"), entries.get(1).getData());
+            assertEquals("test2", entries.get(1).getMessage());
+
+            assertEquals("multi\nline|message", entries.get(2).getMessage());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Offsets returned after each entry can be used to resume reading in a new reader, across blocks
+     */
+    public void testSeekOffsets() throws Exception {
+        writeEntries(1000, 1024).close();
+        final ArrayList<Long> offsets = new ArrayList<Long>();
+        final CompressedLogFileReader reader = new CompressedLogFileReader(testFile);
+        try {
+            LogEntry entry;
+            while (null != (entry = reader.next())) {
+                offsets.add(reader.getOffset());
+            }
+            assertEquals(1000, offsets.size());
+        } finally {
+            reader.close();
+        }
+        for (final int i : new int[]{0, 1, 57, 500, 998}) {
+            final CompressedLogFileReader reader2 = new CompressedLogFileReader(testFile);
+            try {
+                reader2.seek(offsets.get(i));
+                final LogEntry entry = reader2.next();
+                assertEquals("message " + (i + 1), entry.getMessage());
+                assertEquals(offsets.get(i + 1), Long.valueOf(reader2.getOffset()));
+            } finally {
+                reader2.close();
+            }
+        }
+    }
+
+    public void testSeekLastEntries() throws Exception {
+        writeEntries(1000, 1024).close();
+        //without the block index, the blocks are found from the block headers
+        for (final boolean withIndex : new boolean[]{true, false}) {
+            if (!withIndex) {
+                assertTrue(indexFile.delete());
+            }
+            final CompressedLogFileReader reader = new CompressedLogFileReader(testFile);
+            try {
+                assertEquals(1000, reader.getEntryCount());
+                assertEquals(0, reader.seekLastEntries(2000));
+                final long offset = reader.seekLastEntries(10);
+                assertTrue(offset > 0);
+                final List<LogEntry> entries = readAll(reader);
+                assertEquals(10, entries.size());
+                assertEquals("message 990", entries.get(0).getMessage());
+                assertEquals("node0", entries.get(0).getData().get("node"));
+                assertTrue(reader.isComplete());
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Entries are readable as blocks are written, and the reader continues with blocks written after it was opened
+     */
+    public void testReadWhileWriting() throws Exception {
+        final CompressedLogFileWriter writer = writeEntries(10, 64 * 1024);
+        try {
+            final CompressedLogFileReader reader = new CompressedLogFileReader(testFile);
+            try {
+                assertNull(reader.next());
+                assertEquals(0, reader.getSize());
+                writer.flush();
+                assertEquals(10, readAll(reader).size());
+                final long offset = reader.getOffset();
+                assertEquals(writer.getWrittenSize(), offset);
+                assertFalse(reader.isComplete());
+
+                writer.write("INFO", 0, null, "more");
+                assertTrue(writer.awaitData(offset, 5000));
+                final List<LogEntry> entries = readAll(reader);
+                assertEquals(1, entries.size());
+                assertEquals("more", entries.get(0).getMessage());
+                writer.close();
+                assertNull(reader.next());
+                assertTrue(reader.isComplete());
+            } finally {
+                reader.close();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Entries written while a reader is waiting are collected into one block
+     */
+    public void testBatchedWhileWaiting() throws Exception {
+        final CompressedLogFileWriter writer = writeEntries(1, 64 * 1024);
+        try {
+            writer.flush();
+            final long offset = writer.getWrittenSize();
+            final boolean[] result = new boolean[1];
+            final Thread waiter = new Thread() {
+                public void run() {
+                    try {
+                        result[0] = writer.awaitData(offset, 5000);
+                    } catch (InterruptedException e) {
+                        //fail below
+                    }
+                }
+            };
+            waiter.start();
+            while (waiter.getState() != Thread.State.TIMED_WAITING) {
+                Thread.sleep(10);
+            }
+            for (int i = 0; i < 20; i++) {
+                writer.write("INFO", 0, context("node1"), "more " + i);
+            }
+            waiter.join(5000);
+            assertTrue(result[0]);
+            assertEquals(2, indexFile.length() / CompressedLogFileWriter.BLOCK_INDEX_ENTRY_SIZE);
+            final CompressedLogFileReader reader = new CompressedLogFileReader(testFile);
+            try {
+                assertEquals(21, readAll(reader).size());
+            } finally {
+                reader.close();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void testConvert() throws Exception {
+        final long time = System.currentTimeMillis();
+        final String date = new SimpleDateFormat("hh:mm:ss").format(new Date(time));
+        final BufferedLogFileWriter textWriter = new BufferedLogFileWriter(textFile, FIELDS);
+        textWriter.write("INFO", time, null, "test1");
+        textWriter.write("WARNING", time, context("pilf"), "test2|with|pipes");
+        textWriter.write("ERROR", time, context("pilf"), "multi\nline");
+        textWriter.close();
+        final String text = readText(textFile);
+
+        LogFormatConverter.convertToCompressed(textFile, null, FIELDS, testFile);
+        final CompressedLogFileReader reader = new CompressedLogFileReader(testFile);
+        try {
+            final List<LogEntry> entries = readAll(reader);
+            assertEquals(3, entries.size());
+            assertEquals(date, new SimpleDateFormat("hh:mm:ss").format(new Date(entries.get(0).getTime())));
+            assertNull(entries.get(0).getData());
+            assertEquals("test2|with|pipes", entries.get(1).getMessage());
+            assertEquals(context("pilf"), entries.get(1).getData());
+            assertEquals("multi\nline", entries.get(2).getMessage());
+        } finally {
+            reader.close();
+        }
+
+        assertTrue(textFile.delete());
+        LogFormatConverter.convertToText(testFile, textFile);
+        assertEquals(text, readText(textFile));
+        assertEquals(3, LogFileIndex.getEntryCount(textFile));
+    }
+
+    /**
+     * Chatty output is at least four times smaller in the compressed format than as text
+     */
+    public void testSize() throws Exception {
+        final BufferedLogFileWriter textWriter = new BufferedLogFileWriter(textFile, FIELDS);
+        final CompressedLogFileWriter writer = new CompressedLogFileWriter(testFile, FIELDS);
+        final long time = System.currentTimeMillis();
+        for (int i = 0; i < 20000; i++) {
+            final HashMap<String, String> data = context("node" + (i % 20));
+            textWriter.write("INFO", time + i, data, "output line " + i + " of some chatty command");
+            writer.write("INFO", time + i, data, "output line " + i + " of some chatty command");
+        }
+        textWriter.close();
+        writer.close();
+        assertTrue(testFile.length() * 4 < textFile.length());
+    }
+
+    private String readText(final File file) throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        final OffsetLineReader reader = new OffsetLineReader(file, 0, null);
+        try {
+            String line;
+            while (null != (line = reader.readLine())) {
+                sb.append(line).append('\n');
+            }
+        } finally {
+            reader.close();
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the line endings, offsets and line length handling of {@link LineDecoder}
+ */
+public class TestLineDecoder extends TestCase {
+    final List<String> lines = new ArrayList<String>();
+    final LineDecoder.LineHandler handler = new LineDecoder.LineHandler() {
+        public void handleLine(final String line) {
+            lines.add(line);
+        }
+    };
+
+    protected void setUp() throws Exception {
+        lines.clear();
+    }
+
+    private void writeBytes(final LineDecoder decoder, final String text) throws Exception {
+        for (final byte b : text.getBytes()) {
+            decoder.write(b);
+        }
+    }
+
+    private void writeBulk(final LineDecoder decoder, final String text) throws Exception {
+        final byte[] bytes = text.getBytes();
+        decoder.write(bytes, 0, bytes.length);
+    }
+
+    public void testLineEndings() throws Exception {
+        final String text = "a\nb\r\nc\rd\n\ne";
+        final List<String> expected = Arrays.asList("a", "b", "c", "d", "", "e");
+
+        final LineDecoder decoder = new LineDecoder(handler);
+        writeBytes(decoder, text);
+        assertTrue(decoder.hasPartialLine());
+        decoder.flush();
+        assertEquals(expected, lines);
+
+        lines.clear();
+        final LineDecoder decoder2 = new LineDecoder(handler);
+        writeBulk(decoder2, text);
+        decoder2.flush();
+        assertFalse(decoder2.hasPartialLine());
+        assertEquals(expected, lines);
+    }
+
+    public void testCarriageReturnSplitAcrossWrites() throws Exception {
+        final LineDecoder decoder = new LineDecoder(handler);
+        writeBulk(decoder, "abc\r");
+        assertEquals(0, lines.size());
+        writeBulk(decoder, "\ndef\r");
+        assertEquals(Arrays.asList("abc"), lines);
+        writeBulk(decoder, "ghi\n");
+        assertEquals(Arrays.asList("abc", "def", "ghi"), lines);
+    }
+
+    public void testCarriageReturnRetained() throws Exception {
+        final LineDecoder decoder = new LineDecoder(handler, false);
+        writeBulk(decoder, "a\rb\nc\r\n");
+        assertEquals(Arrays.asList("a\rb", "c\r"), lines);
+    }
+
+    public void testOffsetAndLength() throws Exception {
+        final LineDecoder decoder = new LineDecoder(handler);
+        final byte[] bytes = "xxabc\ndefxx".getBytes();
+        decoder.write(bytes, 2, 7);
+        decoder.flush();
+        assertEquals(Arrays.asList("abc", "def"), lines);
+    }
+
+    public void testLongLine() throws Exception {
+        final LineDecoder decoder = new LineDecoder(handler);
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        writeBulk(decoder, sb.toString());
+        writeBulk(decoder, sb.toString() + "\n");
+        assertEquals(Arrays.asList(sb.toString() + sb.toString()), lines);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.dtolabs.rundeck.core.utils;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * Tests the lines, offsets and encoding read by {@link OffsetLineReader}
+ */
+public class TestOffsetLineReader extends TestCase {
+    File testFile;
+
+    protected void setUp() throws Exception {
+        new File("target").mkdirs();
+        testFile = new File("target/test-offset-line-reader.txt");
+    }
+
+    protected void tearDown() throws Exception {
+        testFile.delete();
+    }
+
+    private void writeFile(final byte[] data) throws Exception {
+        final FileOutputStream out = new FileOutputStream(testFile);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    public void testReadLines() throws Exception {
+        writeFile("abc\ndef\r\nghi\rjkl".getBytes("UTF-8"));
+        final OffsetLineReader reader = new OffsetLineReader(testFile, 0, null);
+        try {
+            assertEquals("abc", reader.readLine());
+            assertEquals(4, reader.getOffset());
+            assertEquals("def", reader.readLine());
+            assertEquals(9, reader.getOffset());
+            assertEquals("ghi", reader.readLine());
+            assertEquals(13, reader.getOffset());
+            assertEquals("jkl", reader.readLine());
+            assertEquals(16, reader.getOffset());
+            assertNull(reader.readLine());
+            assertEquals(16, reader.getOffset());
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testStartOffset() throws Exception {
+        writeFile("abc\ndef\n".getBytes("UTF-8"));
+        final OffsetLineReader reader = new OffsetLineReader(testFile, 4, null);
+        try {
+            assertEquals("def", reader.readLine());
+            assertEquals(8, reader.getOffset());
+            assertNull(reader.readLine());
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testEncoding() throws Exception {
+        writeFile("caf\u00e9\n\u00fcber\n".getBytes("UTF-8"));
+        final OffsetLineReader reader = new OffsetLineReader(testFile, 0, "UTF-8");
+        try {
+            assertEquals("caf\u00e9", reader.readLine());
+            assertEquals(6, reader.getOffset());
+            assertEquals("\u00fcber", reader.readLine());
+            assertEquals(12, reader.getOffset());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Offsets match those of RandomAccessFile.readLine for lines spanning the buffer boundary
+     */
+    public void testOffsetsAcrossBuffer() throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("line ").append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        writeFile(sb.toString().getBytes("UTF-8"));
+        final OffsetLineReader reader = new OffsetLineReader(testFile, 0, null);
+        final RandomAccessFile raf = new RandomAccessFile(testFile, "r");
+        try {
+            String line;
+            int count = 0;
+            while (null != (line = reader.readLine())) {
+                assertEquals(raf.readLine(), line);
+                assertEquals(raf.getFilePointer(), reader.getOffset());
+                count++;
+            }
+            assertEquals(2000, count);
+            assertNull(raf.readLine());
+        } finally {
+            raf.close();
+            reader.close();
+        }
+    }
+}
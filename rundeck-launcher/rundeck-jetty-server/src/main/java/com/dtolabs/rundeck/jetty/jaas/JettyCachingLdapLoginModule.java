@@ -20,10 +20,17 @@ import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.naming.Context;
 import javax.naming.NamingEnumeration;
@@ -84,9 +91,22 @@ import org.mortbay.log.Log;
  *    roleObjectClass="groupOfUniqueNames"
  *    rolePrefix="rundeck"
  *    cacheDurationMillis="500"
+ *    roleCacheDurationMillis="500"
+ *    cacheMaxSize="1000"
+ *    connectionPool="true"
  *    reportStatistics="true";
  *    };
  * </pre>
+ * <p/>
+ * With forceBindingLogin, successful logins are cached for cacheDurationMillis, in a cache holding at most
+ * cacheMaxSize users.  Expired entries are evicted in the background.  The role membership of a cached user is
+ * refreshed in the background once it is older than roleCacheDurationMillis (default: cacheDurationMillis), while the
+ * login proceeds with the previous roles.
+ * <p/>
+ * If connectionPool is true (the default), the JNDI LDAP provider pools the connections of the root context, and the
+ * root context is only connected when a login requires a directory lookup.  Contexts bound as the user are never
+ * pooled, so that each login binds against the directory.  The pool is configured with the
+ * com.sun.jndi.ldap.connect.pool.* system properties.
  * 
  * @author Jesse McConnell <jesse@codehaus.org>
  * @author Frederic Nizery <frederic.nizery@alcatel-lucent.fr>
@@ -110,6 +130,16 @@ public class JettyCachingLdapLoginModule extends AbstractLoginModule {
      */
     private int _cacheDuration = 0;
 
+    /**
+     * Duration of the cached role membership of a user, before it is refreshed. Defaults to the cache duration.
+     */
+    private int _roleCacheDuration = -1;
+
+    /**
+     * Use pooled connections for the root context
+     */
+    private boolean _connectionPool = true;
+
     /**
      * hostname of the ldap server
      */
@@ -211,18 +241,38 @@ public class JettyCachingLdapLoginModule extends AbstractLoginModule {
 
     private boolean _reportStatistics;
 
-    private static final ConcurrentHashMap<String, CachedUserInfo> USERINFOCACHE = 
-        new ConcurrentHashMap<String, CachedUserInfo>();
-    
+    /**
+     * Maximum number of cached users, the least recently used users are removed from the cache first.
+     */
+    private static volatile int cacheMaxSize = 1000;
+
+    /**
+     * Cache of logged in users, by access order.  Access must be synchronized on the map.
+     */
+    private static final LinkedHashMap<String, CachedUserInfo> USERINFOCACHE =
+        new LinkedHashMap<String, CachedUserInfo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CachedUserInfo> eldest) {
+                return size() > cacheMaxSize;
+            }
+        };
+
+    /**
+     * Executor for cache eviction and role refresh
+     */
+    private static ScheduledExecutorService cacheExecutor;
+
+    private static boolean evictionScheduled;
+
     /**
      * The number of cache hits for UserInfo objects.
      */
-    private static long userInfoCacheHits;
+    private static final AtomicLong userInfoCacheHits = new AtomicLong();
     
     /**
      * The number of login attempts for this particular module.
      */
-    private static long loginAttempts;
+    private static final AtomicLong loginAttempts = new AtomicLong();
 
     /**
      * get the available information about the user
@@ -248,7 +298,7 @@ public class JettyCachingLdapLoginModule extends AbstractLoginModule {
         pwdCredential = convertCredentialLdapToJetty(pwdCredential);
 
         Credential credential = Credential.getCredential(pwdCredential);
-        List roles = getUserRoles(_rootContext, username);
+        List roles = getUserRoles(getRootContext(), username);
 
         return new UserInfo(username, credential, roles);
     }
@@ -294,26 +344,7 @@ public class JettyCachingLdapLoginModule extends AbstractLoginModule {
     private String getUserCredentials(String username) throws LoginException {
         String ldapCredential = null;
 
-        SearchControls ctls = new SearchControls();
-        ctls.setCountLimit(1);
-        ctls.setDerefLinkFlag(true);
-        ctls.setSearchScope(SearchControls.SUBTREE_SCOPE);
-
-        String filter = "(&(objectClass={0})({1}={2}))";
-
-//        Log.debug("Searching for users with filter: \'" + filter + "\'" + " from base dn: " + _userBaseDn);
-
         try {
-            Object[] filterArguments = { _userObjectClass, _userIdAttribute, username };
-            NamingEnumeration results = _rootContext.search(_userBaseDn, filter, filterArguments,
-                    ctls);
-
-            Log.debug("Found user?: " + results.hasMoreElements());
-
-            if (!results.hasMoreElements()) {
-                throw new LoginException("User not found.");
-            }
-
             SearchResult result = findUser(username);
 
             Attributes attributes = result.getAttributes();
@@ -446,13 +477,14 @@ public class JettyCachingLdapLoginModule extends AbstractLoginModule {
                 return isAuthenticated();
             }
 
-            loginAttempts++;
+            final long attempts = loginAttempts.incrementAndGet();
             
             if(_reportStatistics)
             {
+                final long hits = userInfoCacheHits.get();
                 DecimalFormat percentHit = new DecimalFormat("#.##");
-                Log.info("Login attempts: " + loginAttempts + ", Hits: " + userInfoCacheHits + 
-                        ", Ratio: " + percentHit.format((double)userInfoCacheHits / loginAttempts * 100f) + "%.");
+                Log.info("Login attempts: " + attempts + ", Hits: " + hits +
+                        ", Ratio: " + percentHit.format((double)hits / attempts * 100f) + "%.");
             }
             
             if (_forceBindingLogin) {
@@ -517,18 +549,23 @@ public class JettyCachingLdapLoginModule extends AbstractLoginModule {
             NamingException {
         final String cacheToken = Credential.MD5.digest(username + ":" + password.toString());
         if (_cacheDuration > 0) { // only worry about caching if there is a cacheDuration set.
-            CachedUserInfo cached = USERINFOCACHE.get(cacheToken);
+            CachedUserInfo cached = getCachedUserInfo(cacheToken);
             if (cached != null) {
-                if (System.currentTimeMillis() < cached.expires) {
+                final long now = System.currentTimeMillis();
+                if (now < cached.expires) {
                     Log.debug("Cache Hit for " + username + ".");
-                    userInfoCacheHits++;
+                    userInfoCacheHits.incrementAndGet();
+                    if (now >= cached.rolesExpire) {
+                        // use the cached roles while they are refreshed
+                        refreshRoles(cacheToken, cached, password);
+                    }
                     
                     setCurrentUser(new JAASUserInfo(cached.userInfo));
                     setAuthenticated(true);
                     return true;
                 } else {
                     Log.info("Cache Eviction for " + username + ".");
-                    USERINFOCACHE.remove(cacheToken);
+                    removeCachedUserInfo(cacheToken, cached);
                 }
             } else {
                 Log.debug("Cache Miss for " + username + ".");
@@ -541,31 +578,164 @@ public class JettyCachingLdapLoginModule extends AbstractLoginModule {
 
         Log.info("Attempting authentication: " + userDn);
 
-        Hashtable environment = getEnvironment();
-        environment.put(Context.SECURITY_PRINCIPAL, userDn);
-        environment.put(Context.SECURITY_CREDENTIALS, password);
-
-        DirContext dirContext = new InitialDirContext(environment);
-
-        // use _rootContext to find roles, if configured to doso
-        if ( _forceBindingLoginUseRootContextForRoles ) {
-            dirContext = _rootContext;
-            Log.debug("Using _rootContext for role lookup.");
+        DirContext userContext = new InitialDirContext(getUserEnvironment(userDn, password));
+        List roles;
+        try {
+            DirContext dirContext = userContext;
+            // use _rootContext to find roles, if configured to doso
+            if ( _forceBindingLoginUseRootContextForRoles ) {
+                dirContext = getRootContext();
+                Log.debug("Using _rootContext for role lookup.");
+            }
+            roles = getUserRolesByDn(dirContext, userDn, username);
+        } finally {
+            closeContext(userContext);
         }
-        List roles = getUserRolesByDn(dirContext, userDn, username);
 
         UserInfo userInfo = new UserInfo(username, null, roles);
         if (_cacheDuration > 0) {
-            USERINFOCACHE.put(cacheToken,
-                new CachedUserInfo(userInfo,
-                    System.currentTimeMillis() + _cacheDuration));
-            Log.debug("Adding " + username + " set to expire: " + System.currentTimeMillis() + _cacheDuration);
+            final long now = System.currentTimeMillis();
+            putCachedUserInfo(cacheToken, new CachedUserInfo(userInfo, userDn, now + _cacheDuration,
+                now + getRoleCacheDuration()));
+            Log.debug("Adding " + username + " set to expire: " + (now + _cacheDuration));
         }
         setCurrentUser(new JAASUserInfo(userInfo));
         setAuthenticated(true);
         return true;
     }
 
+    /**
+     * Return the duration of cached role membership
+     */
+    private int getRoleCacheDuration() {
+        return _roleCacheDuration >= 0 ? _roleCacheDuration : _cacheDuration;
+    }
+
+    /**
+     * Look up the roles of a cached user in the background, and replace the cache entry with the result. Only one
+     * refresh is performed at a time for a cache entry.
+     */
+    @SuppressWarnings("unchecked")
+    private void refreshRoles(final String cacheToken, final CachedUserInfo cached, final Object password) {
+        if (!cached.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        final String username = cached.userInfo.getUserName();
+        Log.debug("Refreshing roles for " + username + ".");
+        getCacheExecutor().execute(new Runnable() {
+            public void run() {
+                try {
+                    final DirContext dirContext;
+                    if (_forceBindingLoginUseRootContextForRoles) {
+                        dirContext = new InitialDirContext(getEnvironment());
+                    } else {
+                        dirContext = new InitialDirContext(getUserEnvironment(cached.userDn, password));
+                    }
+                    final List roles;
+                    try {
+                        roles = getUserRolesByDn(dirContext, cached.userDn, username);
+                    } finally {
+                        closeContext(dirContext);
+                    }
+                    final CachedUserInfo refreshed = new CachedUserInfo(new UserInfo(username, null, roles),
+                        cached.userDn, cached.expires, System.currentTimeMillis() + getRoleCacheDuration());
+                    synchronized (USERINFOCACHE) {
+                        if (USERINFOCACHE.get(cacheToken) == cached) {
+                            USERINFOCACHE.put(cacheToken, refreshed);
+                        }
+                    }
+                } catch (Exception e) {
+                    Log.warn("Unable to refresh roles for " + username + ": " + e.getMessage());
+                    cached.refreshing.set(false);
+                }
+            }
+        });
+    }
+
+    private static CachedUserInfo getCachedUserInfo(final String cacheToken) {
+        synchronized (USERINFOCACHE) {
+            return USERINFOCACHE.get(cacheToken);
+        }
+    }
+
+    private static void putCachedUserInfo(final String cacheToken, final CachedUserInfo cached) {
+        synchronized (USERINFOCACHE) {
+            USERINFOCACHE.put(cacheToken, cached);
+        }
+    }
+
+    private static void removeCachedUserInfo(final String cacheToken, final CachedUserInfo cached) {
+        synchronized (USERINFOCACHE) {
+            if (USERINFOCACHE.get(cacheToken) == cached) {
+                USERINFOCACHE.remove(cacheToken);
+            }
+        }
+    }
+
+    /**
+     * Remove expired entries from the cache
+     */
+    private static void evictExpired() {
+        final long now = System.currentTimeMillis();
+        synchronized (USERINFOCACHE) {
+            final Iterator<CachedUserInfo> iterator = USERINFOCACHE.values().iterator();
+            while (iterator.hasNext()) {
+                if (now >= iterator.next().expires) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the executor for cache tasks, creating it if necessary
+     */
+    private static synchronized ScheduledExecutorService getCacheExecutor() {
+        if (null == cacheExecutor) {
+            cacheExecutor = Executors.newScheduledThreadPool(1, new ThreadFactory() {
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "JettyCachingLdapLoginModule cache");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return cacheExecutor;
+    }
+
+    /**
+     * Schedule the eviction of expired cache entries, if it is not already scheduled
+     */
+    private static synchronized void scheduleEviction(final long intervalMillis) {
+        if (evictionScheduled) {
+            return;
+        }
+        evictionScheduled = true;
+        getCacheExecutor().scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                evictExpired();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Return the root context, connecting it if necessary
+     */
+    private DirContext getRootContext() throws NamingException {
+        if (null == _rootContext) {
+            _rootContext = new InitialDirContext(getEnvironment());
+        }
+        return _rootContext;
+    }
+
+    private static void closeContext(final DirContext context) {
+        try {
+            context.close();
+        } catch (NamingException e) {
+            Log.debug("error closing context: " + e.getMessage());
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private SearchResult findUser(String username) throws NamingException, LoginException {
         SearchControls ctls = new SearchControls();
@@ -579,7 +749,7 @@ public class JettyCachingLdapLoginModule extends AbstractLoginModule {
                 + _userBaseDn);
 
         Object[] filterArguments = new Object[] { _userObjectClass, _userIdAttribute, username };
-        NamingEnumeration results = _rootContext.search(_userBaseDn, filter, filterArguments, ctls);
+        NamingEnumeration results = getRootContext().search(_userBaseDn, filter, filterArguments, ctls);
 
         Log.debug("Found user?: " + results.hasMoreElements());
 
@@ -642,32 +812,66 @@ public class JettyCachingLdapLoginModule extends AbstractLoginModule {
                         ". Using default: " + _cacheDuration, e);
             }
         }
+        String roleCacheDurationSetting = (String) options.get("roleCacheDurationMillis");
+        if (roleCacheDurationSetting != null) {
+            try {
+                _roleCacheDuration = Integer.parseInt(roleCacheDurationSetting);
+            } catch (NumberFormatException e) {
+                Log.warn("Unable to parse roleCacheDurationMillis to a number: " + roleCacheDurationSetting,
+                        ". Using cacheDurationMillis", e);
+            }
+        }
+        String cacheMaxSizeSetting = (String) options.get("cacheMaxSize");
+        if (cacheMaxSizeSetting != null) {
+            try {
+                cacheMaxSize = Integer.parseInt(cacheMaxSizeSetting);
+            } catch (NumberFormatException e) {
+                Log.warn("Unable to parse cacheMaxSize to a number: " + cacheMaxSizeSetting,
+                        ". Using default: " + cacheMaxSize, e);
+            }
+        }
+        _connectionPool = Boolean.parseBoolean(String.valueOf(getOption(options, "connectionPool", Boolean
+                .toString(_connectionPool))));
 
-        try {
-            _rootContext = new InitialDirContext(getEnvironment());
-        } catch (NamingException ex) {
-            throw new IllegalStateException("Unable to establish root context", ex);
+        if (_cacheDuration > 0) {
+            scheduleEviction(Math.max(1000, Math.min(_cacheDuration, 60000)));
+        }
+
+        if (!_connectionPool) {
+            try {
+                _rootContext = new InitialDirContext(getEnvironment());
+            } catch (NamingException ex) {
+                throw new IllegalStateException("Unable to establish root context", ex);
+            }
         }
     }
 
     public boolean commit() throws LoginException {
-        try {
-            _rootContext.close();
-        } catch (NamingException e) {
-            throw new LoginException("error closing root context: " + e.getMessage());
-        }
+        closeRootContext();
 
         return super.commit();
     }
 
     public boolean abort() throws LoginException {
+        closeRootContext();
+
+        return super.abort();
+    }
+
+    /**
+     * Close the root context if it was connected, returning a pooled connection to the pool
+     */
+    private void closeRootContext() throws LoginException {
+        if (null == _rootContext) {
+            return;
+        }
         try {
             _rootContext.close();
         } catch (NamingException e) {
             throw new LoginException("error closing root context: " + e.getMessage());
+        } finally {
+            _rootContext = null;
         }
-
-        return super.abort();
     }
 
     @SuppressWarnings("unchecked")
@@ -717,9 +921,26 @@ public class JettyCachingLdapLoginModule extends AbstractLoginModule {
             env.put(Context.SECURITY_CREDENTIALS, _bindPassword);
         }
 
+        if (_connectionPool) {
+            env.put("com.sun.jndi.ldap.connect.pool", "true");
+        }
+
         return env;
     }
 
+    /**
+     * get the context for binding as the user.  The connection is not pooled: a pooled connection matching the user
+     * and password would be reused without binding again.
+     */
+    @SuppressWarnings("unchecked")
+    private Hashtable getUserEnvironment(String userDn, Object password) {
+        Hashtable environment = getEnvironment();
+        environment.remove("com.sun.jndi.ldap.connect.pool");
+        environment.put(Context.SECURITY_PRINCIPAL, userDn);
+        environment.put(Context.SECURITY_CREDENTIALS, password);
+        return environment;
+    }
+
 
     private static String convertCredentialLdapToJetty(String encryptedPassword) {
         if (encryptedPassword == null) {
@@ -741,11 +962,16 @@ public class JettyCachingLdapLoginModule extends AbstractLoginModule {
 
     private static final class CachedUserInfo {
         public final long expires;
+        public final long rolesExpire;
         public final UserInfo userInfo;
+        public final String userDn;
+        public final AtomicBoolean refreshing = new AtomicBoolean(false);
 
-        public CachedUserInfo(UserInfo userInfo, long expires) {
+        public CachedUserInfo(UserInfo userInfo, String userDn, long expires, long rolesExpire) {
             this.userInfo = userInfo;
+            this.userDn = userDn;
             this.expires = expires;
+            this.rolesExpire = rolesExpire;
         }
     }
 }
@@ -1,6 +1,12 @@
 package rundeck.controllers
 
 import com.dtolabs.rundeck.core.common.Framework
+import com.dtolabs.rundeck.core.utils.BufferedLogFileWriter
+import com.dtolabs.rundeck.core.utils.CompressedLogFileReader
+import com.dtolabs.rundeck.core.utils.CompressedLogFileWriter
+import com.dtolabs.rundeck.core.utils.LogEntry
+import com.dtolabs.rundeck.core.utils.LogFileIndex
+import com.dtolabs.rundeck.core.utils.OffsetLineReader
 import java.text.SimpleDateFormat
 
 import com.dtolabs.client.utils.Constants
@@ -317,7 +323,8 @@ class ExecutionController {
             }
             return;
         }
-        def totsize = file.length()
+        def compressed = CompressedLogFileWriter.isCompressedLogFile(file)
+        def totsize = getOutputSize(file)
 
         def Long offset = 0
         if(params.offset){
@@ -337,6 +344,38 @@ class ExecutionController {
             }
         }
 
+        def Long maxWait = 0
+        if(params.maxWait){
+            try {
+                maxWait = Long.parseLong(params.maxWait)
+            } catch (NumberFormatException exc) {
+                reqError = true
+            }
+            if(maxWait<0){
+                reqError=true
+            }
+            if(reqError){
+                request.error = g.message(code: 'api.error.parameter.invalid', args: [params.maxWait, 'maxWait', 'Not a millisecond wait time'])
+                apiError()
+                return
+            }
+            maxWait = Math.min(maxWait, MAX_OUTPUT_WAIT)
+        }
+        //if the log is being written by this server, wait for entries beyond the offset
+        def waited = false
+        if (maxWait > 0 && !jobcomplete) {
+            def writer = BufferedLogFileWriter.getActiveWriter(file)
+            if (null != writer) {
+                try {
+                    writer.awaitData(offset, maxWait)
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt()
+                }
+                waited = true
+                totsize = getOutputSize(file)
+            }
+        }
+
 
         if(params.lastmod){
             def ll = 0
@@ -372,6 +411,9 @@ class ExecutionController {
                     delegate.lastModified(lastmodl.toString())
                     delegate.execDuration(execDuration)
                     delegate.totalSize(totsize)
+                    if (waited) {
+                        delegate.maxWait(maxWait)
+                    }
                     delegate.entries() {
                     }
                 }
@@ -391,6 +433,9 @@ class ExecutionController {
                     text {
                         response.addHeader('X-Rundeck-ExecOutput-Message', 'Unmodified')
                         response.addHeader('X-Rundeck-ExecOutput-Unmodified', 'true')
+                        if (waited) {
+                            response.addHeader('X-Rundeck-ExecOutput-MaxWait', maxWait.toString())
+                        }
                         response.addHeader('X-Rundeck-ExecOutput-Offset', params.offset ? params.offset.toString() : "0")
                         response.addHeader('X-Rundeck-ExecOutput-Completed', jobcomplete.toString())
                         response.addHeader('X-Rundeck-Exec-Completed', jobcomplete.toString())
@@ -413,21 +458,40 @@ class ExecutionController {
         def max= 0
         def String lSep = System.getProperty("line.separator") ;
         if(params.lastlines){
-            //load only the last X lines of the file, by going to the end and searching backwards for the
-            //line-end textual format X times, then reset the offset to that point.
-            //we actually search for X+1 line-ends to find the one prior to the Xth line back
-            //and we add 1 more to account for the final ^^^END^^^\n line.
-            //TODO: modify seekBack to allow rewind beyond the ^^^END^^^\n at the end prior to doing reverse search
+            //load only the last X lines of the file.
             lastlines=Integer.parseInt(params.lastlines)
-            def seekoffset = com.dtolabs.rundeck.core.utils.Utility.seekBack(file,lastlines+2,"^^^${lSep}")
-            if(seekoffset>=0){
-                //we found X+2 line ends.  now skip past the line-end at seekoffset, to get to the start
-                //of the next line (Xth message).
-                if(seekoffset>0){
-                    seekoffset+="^^^${lSep}".length()
+            //use the entry index written with the file if it exists, to find the start of the Xth entry back.
+            //the index has no entry for the final ^^^END^^^ line, which is read after the Xth entry
+            def indexoffset
+            if (compressed) {
+                def reader = new CompressedLogFileReader(file)
+                try {
+                    indexoffset = reader.seekLastEntries(lastlines)
+                } finally {
+                    reader.close()
+                }
+            } else {
+                indexoffset = LogFileIndex.seekLastEntries(file, lastlines)
+            }
+            if (indexoffset >= 0) {
+                offset = indexoffset
+                max = lastlines
+            } else {
+                //otherwise go to the end and search backwards for the
+                //line-end textual format X times, then reset the offset to that point.
+                //we actually search for X+1 line-ends to find the one prior to the Xth line back
+                //and we add 1 more to account for the final ^^^END^^^\n line.
+                //TODO: modify seekBack to allow rewind beyond the ^^^END^^^\n at the end prior to doing reverse search
+                def seekoffset = com.dtolabs.rundeck.core.utils.Utility.seekBack(file,lastlines+2,"^^^${lSep}")
+                if(seekoffset>=0){
+                    //we found X+2 line ends.  now skip past the line-end at seekoffset, to get to the start
+                    //of the next line (Xth message).
+                    if(seekoffset>0){
+                        seekoffset+="^^^${lSep}".length()
+                    }
+                    offset=seekoffset
+                    max=lastlines+1
                 }
-                offset=seekoffset
-                max=lastlines+1
             }
         }else if(null!= params.maxlines){
             max=Integer.parseInt(params.maxlines)
@@ -491,6 +555,9 @@ class ExecutionController {
             delegate.execDuration(execDuration)
             delegate.percentLoaded(percent)
             delegate.totalSize(totsize)
+            if (waited) {
+                delegate.maxWait(maxWait)
+            }
 
             delegate.entries(){
                 entry.each{
@@ -538,6 +605,9 @@ class ExecutionController {
                 response.addHeader('X-Rundeck-Exec-Duration', execDuration.toString())
                 response.addHeader('X-Rundeck-ExecOutput-LastModifed', lastmodl.toString())
                 response.addHeader('X-Rundeck-ExecOutput-TotalSize', totsize.toString())
+                if (waited) {
+                    response.addHeader('X-Rundeck-ExecOutput-MaxWait', maxWait.toString())
+                }
                 render(contentType:"text/plain"){
                     entry.each{
                         out<<it.mesg?.trim() + lSep
@@ -556,7 +626,9 @@ class ExecutionController {
      * @return Map containing two keys, 'storeoffset': next offset to start at, if buffersize is defined, and 'completed': boolean value if the log file has been completely read
      */
      public Map parseOutput ( File file, Long offset, Long bufsize = -1 ,def String encoding=null, Closure callback){
-
+        if (CompressedLogFileWriter.isCompressedLogFile(file)) {
+            return parseCompressedOutput(file, offset, bufsize, callback)
+        }
 
         def initoffset=offset
         def lastoff=offset
@@ -569,34 +641,16 @@ class ExecutionController {
         def lines=0
         def chars=0;
         def tot=file.length()
+
         //start at offset byte.
+        //the reader decodes lines with the encoding and records the byte-oriented offset of each line
+        def OffsetLineReader reader = new OffsetLineReader(file, offset, encoding)
 
-         //we use RandomAccessFile to call readLine and record the byte-oriented offset
-        RandomAccessFile raf = new RandomAccessFile(file,'r')
-
-         //we use InputStreamReader to read bytes to chars given encoding option
-         //in this case readLine may buffer bytes for decoding purposes, so the offset is not correct
-        final FileInputStream stream = new FileInputStream(file)
-        InputStreamReader fr
-         if(null!=encoding){
-             fr= new InputStreamReader(stream,encoding)
-         }else{
-             //use default encoding
-             fr= new InputStreamReader(stream)
-         }
-
-        def totsize = stream.getChannel().size()
-        def size = stream.getChannel().size()
-        if(offset>0){
-            stream.getChannel().position(offset)
-            raf.seek(offset)
-        }
+        def totsize = file.length()
+        def size = totsize
 //        log.info("starting tailExecutionOutput: offset: "+offset+", completed: "+completed)
         def String lSep = System.getProperty("line.separator");
-        def tstart=System.currentTimeMillis();
-        def String line = fr.readLine()
-        def oline=raf.readLine() //discarded content
-        def diff = System.currentTimeMillis()-tstart;
+        def String line = reader.readLine()
 
         if(bufsize > 0  && size-offset > bufsize){
             size = offset+bufsize
@@ -605,8 +659,8 @@ class ExecutionController {
         while(offset<size && null != line  && !done){
 //            log.info("readLine waited: "+diff);
             lastoff=offset
-            offset=raf.getFilePointer()
-            if(line =~ /^\^\^\^END\^\^\^/){
+            offset=reader.getOffset()
+            if(line.startsWith('^^^END^^^')){
                 completed=true;
                 storeoffset=offset;
                 if(msgbuf){
@@ -618,7 +672,7 @@ class ExecutionController {
                     msgbuf=[:]
                 }
             }
-            if (line =~ /^\^\^\^/){
+            if (line.startsWith('^^^')){
                 if(msgbuf){
                     msgbuf.mesg+=buf.toString()
                     if(!callback(msgbuf)){
@@ -629,7 +683,7 @@ class ExecutionController {
                 }
                 def temp = line.substring(3,line.length())
                 def boolean full=false;
-                if(temp =~ /\^\^\^$/ || temp == ""){
+                if(temp.endsWith('^^^') || temp == ""){
                     if(temp.length()>=3){
                         temp = temp.substring(0,temp.length()-3)
                     }
@@ -685,7 +739,7 @@ class ExecutionController {
                 if(full){
                     storeoffset=offset
                 }
-            }else if(line=~/\^\^\^$/ && msgbuf){
+            }else if(line.endsWith('^^^') && msgbuf){
                 def temp = line.substring(0,line.length()-3)
                 buf << temp + "\n"
                 msgbuf.mesg+=buf.toString()
@@ -698,13 +752,14 @@ class ExecutionController {
             }else{
                 buf << line + "\n"
             }
-            tstart=System.currentTimeMillis();
-            line = fr.readLine()//kept
-            oline=raf.readLine()//discarded
-            diff=System.currentTimeMillis()-tstart;
+            line = reader.readLine()
+        }
+        if(done && !completed && null != line && line.startsWith('^^^END^^^')){
+            //the end of the log directly follows the last entry read
+            completed=true
+            storeoffset=reader.getOffset()
         }
-        fr.close()
-        raf.close()
+        reader.close()
         if(msgbuf){
             //incomplete message entry.  We leave it until next time unless completed==true
             if(completed){
@@ -717,6 +772,60 @@ class ExecutionController {
         return [storeoffset:storeoffset> totsize? totsize:storeoffset, completed:completed]
     }
 
+    /**
+     * parseCompressedOutput reads entries from a log file in the compressed format, as for {@link #parseOutput}.
+     * Offsets and sizes are positions in the uncompressed log data.
+     */
+    public Map parseCompressedOutput(File file, Long offset, Long bufsize, Closure callback) {
+        def fields = ExecutionService.EXEC_FORMAT_SEQUENCE[2..-1]
+        def dateFormat = new SimpleDateFormat("hh:mm:ss")
+        def CompressedLogFileReader reader = new CompressedLogFileReader(file)
+        try {
+            def totsize = reader.getSize()
+            def size = totsize
+            if (bufsize > 0 && size - offset > bufsize) {
+                size = offset + bufsize
+            }
+            reader.seek(offset)
+            def Long storeoffset = offset
+            def LogEntry logEntry
+            boolean done = false
+            while (!done && storeoffset < size && null != (logEntry = reader.next())) {
+                def msgbuf = [time: dateFormat.format(new Date(logEntry.time)), level: logEntry.level,
+                    mesg: logEntry.message + "\n"]
+                if (null != logEntry.data) {
+                    fields.each {
+                        msgbuf[it] = logEntry.data[it] ?: ''
+                    }
+                }
+                storeoffset = reader.getOffset()
+                done = !callback(msgbuf)
+            }
+            if (done && !reader.isComplete()) {
+                //the end of the log may directly follow the last entry read
+                reader.next()
+            }
+            return [storeoffset: reader.isComplete() ? reader.getOffset() : storeoffset, completed: reader.isComplete()]
+        } finally {
+            reader.close()
+        }
+    }
+
+    /**
+     * Return the size of the log data in the output file, used for offsets and the percentage loaded
+     */
+    private long getOutputSize(File file) {
+        if (CompressedLogFileWriter.isCompressedLogFile(file)) {
+            def reader = new CompressedLogFileReader(file)
+            try {
+                return reader.getSize()
+            } finally {
+                reader.close()
+            }
+        }
+        return file.length()
+    }
+
 
 
     /**
@@ -802,6 +911,10 @@ class ExecutionController {
         return renderApiExecutionListResultXML([e])
     }
 
+    /**
+     * Maximum time in milliseconds to wait for new output in the tailExecutionOutput action
+     */
+    public static final long MAX_OUTPUT_WAIT = 30000
     public static String ABORT_PENDING="pending"
     public static String ABORT_ABORTED="aborted"
     public static String ABORT_FAILED="failed"
@@ -3,6 +3,7 @@ package rundeck.controllers
 import com.dtolabs.client.utils.Constants
 import com.dtolabs.rundeck.core.common.Framework
 import com.dtolabs.rundeck.core.common.FrameworkProject
+import com.dtolabs.rundeck.core.resources.ResourceModelSourceCache
 import grails.converters.JSON
 import groovy.xml.MarkupBuilder
 import java.lang.management.ManagementFactory
@@ -505,6 +506,9 @@ class MenuController {
         def memfree = Runtime.getRuntime().freeMemory()
         def memtotal = Runtime.getRuntime().totalMemory()
         def schedulerRunningCount = quartzScheduler.getCurrentlyExecutingJobs().size()
+        def authStats = FrameworkService.getAuthorizationCache(frameworkService.getRundeckBase()).getStatistics()
+        def sourceStats = ResourceModelSourceCache.getInstance().getStats()
+        def sourceRefreshes = sourceStats.sum { it.refreshCount } ?: 0
         def info = [
             nowDate: nowDate,
             nodeName: nodeName,
@@ -525,7 +529,10 @@ class MenuController {
             memmax: memmax,
             memfree: memfree,
             memtotal: memtotal,
-            schedulerRunningCount: schedulerRunningCount
+            schedulerRunningCount: schedulerRunningCount,
+            authStats: authStats,
+            sourceStats: sourceStats,
+            sourceRefreshes: sourceRefreshes
         ]
         return [systemInfo: [
 
@@ -565,6 +572,31 @@ class MenuController {
             ["stats: threads":
             [active: info.threadActiveCount]
             ],
+            ["stats: authorization cache":
+            [
+                size: info.authStats['decisions.size'] ?: 0,
+                hits: info.authStats['decisions.hits'] ?: 0,
+                misses: info.authStats['decisions.misses'] ?: 0,
+                hitRatio: info.authStats['decisions.hitRatio'] ?: 0,
+                'hitRatio.unit': 'ratio',
+                evictions: info.authStats['decisions.evictions'] ?: 0,
+                invalidations: info.authStats['decisions.invalidations'] ?: 0,
+                users: info.authStats['size'],
+            ]
+            ],
+            ["stats: resource model source cache":
+            [
+                sources: info.sourceStats.size(),
+                nodes: info.sourceStats.sum { it.nodeCount > 0 ? it.nodeCount : 0 } ?: 0,
+                refreshes: info.sourceRefreshes,
+                failures: info.sourceStats.sum { it.failureCount } ?: 0,
+                failing: info.sourceStats.count { it.lastError },
+                'failing.info': 'Number of Sources whose most recent refresh failed',
+                averageRefreshDuration: info.sourceRefreshes ?
+                    (long) (info.sourceStats.sum { it.averageRefreshDuration * it.refreshCount } / info.sourceRefreshes) : 0,
+                'averageRefreshDuration.unit': 'ms',
+            ]
+            ],
             [timestamp: [
 //                epoch: info.nowDate.getTime(), 'epoch.unit': 'ms',
                 datetime: g.w3cDateValue(date: info.nowDate)
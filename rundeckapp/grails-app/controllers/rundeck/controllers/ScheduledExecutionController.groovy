@@ -6,24 +6,14 @@ import com.dtolabs.rundeck.core.common.Framework
 
 import org.springframework.web.multipart.MultipartHttpServletRequest
 import java.util.regex.Pattern
-import org.apache.commons.httpclient.HttpClient
-import org.apache.commons.httpclient.HttpMethod
-import org.apache.commons.httpclient.methods.GetMethod
-import org.apache.commons.httpclient.params.HttpClientParams
 
-import org.codehaus.groovy.grails.web.json.JSONElement
 import com.dtolabs.rundeck.core.utils.NodeSet
 import groovy.xml.MarkupBuilder
 import com.dtolabs.client.utils.Constants
 import org.apache.log4j.Logger
 
-import org.apache.commons.httpclient.util.DateUtil
-import org.apache.commons.httpclient.util.DateParseException
 import org.apache.log4j.MDC
 
-import org.apache.commons.httpclient.auth.AuthScope
-import org.apache.commons.httpclient.UsernamePasswordCredentials
-
 import javax.security.auth.Subject
 import com.dtolabs.rundeck.server.authorization.AuthConstants
 import com.dtolabs.rundeck.core.authentication.Group
@@ -41,6 +31,7 @@ import rundeck.CommandExec
 import rundeck.services.ExecutionService
 import rundeck.services.ExecutionServiceException
 import rundeck.services.FrameworkService
+import rundeck.services.OptionValuesService
 import rundeck.services.ScheduledExecutionService
 import rundeck.filters.ApiRequestFilters
 
@@ -49,6 +40,7 @@ class ScheduledExecutionController  {
     def ExecutionService executionService
     def FrameworkService frameworkService
     def ScheduledExecutionService scheduledExecutionService
+    def OptionValuesService optionValuesService
 
  
     def index = { redirect(controller:'menu',action:'jobs',params:params) }
@@ -443,18 +435,7 @@ class ScheduledExecutionController  {
 
     /**
      * Make a remote URL request and return the parsed JSON data and statistics for http requests in a map.
-     * if an error occurs, a map with a single 'error' entry will be returned.
-     * the stats data contains:
-     *
-     * url: requested url
-     * startTime: start time epoch ms
-     * httpStatusCode: http status code (int)
-     * httpStatusText: http status text
-     * finishTime: finish time epoch ms
-     * durationTime: duration time in ms
-     * contentLength: response content length bytes (long)
-     * lastModifiedDate: Last-Modified header (Date)
-     * contentSHA1: SHA1 hash of the content
+     * Results for http URLs are cached, see {@link OptionValuesService#getRemoteJSON(String, int)}
      *
      * @param url URL to request
      * @param timeout request timeout in seconds
@@ -462,135 +443,7 @@ class ScheduledExecutionController  {
      *
      */
     def Object getRemoteJSON(String url, int timeout){
-        //attempt to get the URL JSON data
-        def stats=[:]
-        if(url.startsWith("http:") || url.startsWith("https:")){
-            final HttpClientParams params = new HttpClientParams()
-            params.setConnectionManagerTimeout(timeout*1000)
-            params.setSoTimeout(timeout*1000)
-            def HttpClient client= new HttpClient(params)
-            def URL urlo
-            def AuthScope authscope=null
-            def UsernamePasswordCredentials cred=null
-            boolean doauth=false
-            String cleanUrl = url.replaceAll("^(https?://)([^:@/]+):[^@/]*@", '$1$2:****@');
-            try{
-                urlo = new URL(url)
-                if(urlo.userInfo){
-                    doauth = true
-                    authscope = new AuthScope(urlo.host,urlo.port>0? urlo.port:urlo.defaultPort,AuthScope.ANY_REALM,"BASIC")
-                    cred = new UsernamePasswordCredentials(urlo.userInfo)
-                    url = new URL(urlo.protocol, urlo.host, urlo.port, urlo.file).toExternalForm()
-                }
-            }catch(MalformedURLException e){
-                throw new Exception("Failed to configure base URL for authentication: "+e.getMessage(),e)
-            }
-            if(doauth){
-                client.getParams().setAuthenticationPreemptive(true);
-                client.getState().setCredentials(authscope,cred)
-            }
-            def HttpMethod method = new GetMethod(url)
-            method.setFollowRedirects(true)
-            method.setRequestHeader("Accept","application/json")
-            stats.url = cleanUrl;
-            stats.startTime = System.currentTimeMillis();
-            def resultCode = client.executeMethod(method);
-            stats.httpStatusCode = resultCode
-            stats.httpStatusText = method.getStatusText()
-            stats.finishTime = System.currentTimeMillis()
-            stats.durationTime=stats.finishTime-stats.startTime
-            stats.contentLength = method.getResponseContentLength()
-            final header = method.getResponseHeader("Last-Modified")
-            if(null!=header){
-                try {
-                    stats.lastModifiedDate= DateUtil.parseDate(header.getValue())
-                } catch (DateParseException e) {
-                }
-            }else{
-                stats.lastModifiedDate=""
-                stats.lastModifiedDateTime=""
-            }
-            try{
-                def reasonCode = method.getStatusText();
-                if(resultCode>=200 && resultCode<=300){
-                    def expectedContentType="application/json"
-                    def resultType=''
-                    if (null != method.getResponseHeader("Content-Type")) {
-                        resultType = method.getResponseHeader("Content-Type").getValue();
-                    }
-                    String type = resultType;
-                    if (type.indexOf(";") > 0) {
-                        type = type.substring(0, type.indexOf(";")).trim();
-                    }
-
-                    if (expectedContentType.equals(type)) {
-                        final stream = method.getResponseBodyAsStream()
-                        final writer = new StringWriter()
-                        int len=copyToWriter(new BufferedReader(new InputStreamReader(stream, method.getResponseCharSet())),writer)
-                        stream.close()
-                        writer.flush()
-                        final string = writer.toString()
-                        def json=grails.converters.JSON.parse(string)
-                        if(string){
-                            stats.contentSHA1=string.encodeAsSHA1()
-                            if(stats.contentLength<0){
-                                stats.contentLength= len
-                            }
-                        }else{
-                            stats.contentSHA1=""
-                        }
-                        return [json:json,stats:stats]
-                    }else{
-                        return [error:"Unexpected content type received: "+resultType,stats:stats]
-                    }
-                }else{
-                    stats.contentSHA1 = ""
-                    return [error:"Server returned an error response: ${resultCode} ${reasonCode}",stats:stats]
-                }
-            } finally {
-                method.releaseConnection();
-            }
-        }else if (url.startsWith("file:")) {
-            stats.url=url
-            def File srfile = new File(new URI(url))
-            final writer = new StringWriter()
-            final stream= new FileInputStream(srfile)
-
-            stats.startTime = System.currentTimeMillis();
-            int len = copyToWriter(new BufferedReader(new InputStreamReader(stream)), writer)
-            stats.finishTime = System.currentTimeMillis()
-            stats.durationTime = stats.finishTime - stats.startTime
-            stream.close()
-            writer.flush()
-            final string = writer.toString()
-            final JSONElement parse = grails.converters.JSON.parse(string)
-            if(!parse ){
-                throw new Exception("JSON was empty")
-            }
-            if (string) {
-                stats.contentSHA1 = string.encodeAsSHA1()
-            }else{
-                stats.contentSHA1 = ""
-            }
-            stats.contentLength=srfile.length()
-            stats.lastModifiedDate=new Date(srfile.lastModified())
-            stats.lastModifiedDateTime=srfile.lastModified()
-            return [json:parse,stats:stats]
-        } else {
-            throw new Exception("Unsupported protocol: " + url)
-        }
-    }
-
-    static int copyToWriter(Reader read, Writer writer){
-        char[] chars = new char[1024];
-        int len=0;
-        int size=read.read(chars,0,chars.length)
-        while(-1!=size){
-            len+=size;
-            writer.write(chars,0,size)
-            size = read.read(chars, 0, chars.length)
-        }
-        return len;
+        return optionValuesService.getRemoteJSON(url, timeout)
     }
 
     /**
@@ -15,6 +15,12 @@ import com.dtolabs.rundeck.core.execution.ExecutionListener
 import com.dtolabs.rundeck.core.execution.WorkflowExecutionServiceThread
 import com.dtolabs.rundeck.core.utils.NodeSet
 import com.dtolabs.rundeck.core.utils.ThreadBoundOutputStream
+import com.dtolabs.rundeck.core.utils.BufferedLogFileWriter
+import com.dtolabs.rundeck.core.utils.CompressedLogFileWriter
+import com.dtolabs.rundeck.core.utils.LineDecoder
+import com.dtolabs.rundeck.core.utils.LogEntryWriter
+import com.dtolabs.rundeck.core.utils.LogFileIndex
+import com.dtolabs.rundeck.core.utils.StructuredLogSink
 import com.dtolabs.rundeck.execution.ExecutionItemFactory
 
 import com.dtolabs.rundeck.execution.JobExecutionItem
@@ -65,6 +71,7 @@ import com.dtolabs.rundeck.core.execution.workflow.steps.StepExecutionResult
 import rundeck.PluginStep
 import rundeck.controllers.ExecutionController
 import com.dtolabs.rundeck.core.common.INodeSet
+import com.dtolabs.rundeck.core.tasks.net.SSHSessionPool
 
 /**
  * Coordinates Command executions via Ant Project objects
@@ -581,9 +588,10 @@ class ExecutionService implements ApplicationContextAware, StepExecutor{
      * and if that does not exist then based on execution type and context.
      */
     def String createOutputFilepathForExecution(Execution execution, Framework framework){
-        def String name=(execution.adhocExecution?'run':(execution.workflow?'workflow':execution.command))+"-"+generateTimestamp()+"_"+generateUniqueId()+".txt"
+        def String ext = getOutputFileExtension(execution.project, framework)
+        def String name=(execution.adhocExecution?'run':(execution.workflow?'workflow':execution.command))+"-"+generateTimestamp()+"_"+generateUniqueId()+ext
         if(execution.id){
-            name=execution.id.toString()+".txt"
+            name=execution.id.toString()+ext
         }
         if(execution.scheduledExecution){
             return new File(maybeCreateJobLogDir(execution.scheduledExecution,framework),name).getAbsolutePath()
@@ -807,6 +815,8 @@ class ExecutionService implements ApplicationContextAware, StepExecutor{
         }else{
             log.info("Execution successful: " + execMap.execution.id )
         }
+        //disconnect any pooled SSH sessions used by this execution
+        SSHSessionPool.getInstance().closeScope(execMap.execution.id.toString())
         sysThreadBoundOut.removeThreadStream()
         sysThreadBoundErr.removeThreadStream()
         loghandler.close()
@@ -1582,6 +1592,16 @@ class ExecutionService implements ApplicationContextAware, StepExecutor{
         return sprintf("%x",uIdCounter)
     }
 
+    /**
+     * Return the output file extension for the log storage format configured for the project, by the
+     * "project.execution.log.format" property: "compressed" for the compressed format, otherwise the text format.
+     */
+    def String getOutputFileExtension(String project, Framework framework){
+        def fproject = project ? frameworkService.getFrameworkProject(project, framework) : null
+        def format = fproject?.hasProperty(EXECUTION_LOG_FORMAT_PROPERTY) ? fproject.getProperty(EXECUTION_LOG_FORMAT_PROPERTY) : null
+        return EXECUTION_LOG_FORMAT_COMPRESSED == format ? CompressedLogFileWriter.FILE_EXTENSION : '.txt'
+    }
+
     def File maybeCreateAdhocLogDir(Execution execution, Framework framework) {
         return maybeCreateAdhocLogDir(execution.project,framework)
     }
@@ -1713,6 +1733,8 @@ class ExecutionService implements ApplicationContextAware, StepExecutor{
         return total
     }
     def public static EXEC_FORMAT_SEQUENCE=['time','level','user','module','command','node','context']
+    public static final String EXECUTION_LOG_FORMAT_PROPERTY = "project.execution.log.format"
+    public static final String EXECUTION_LOG_FORMAT_COMPRESSED = "compressed"
 
     @Override
     public boolean isNodeDispatchStep(StepExecutionItem item) {
@@ -1953,52 +1975,52 @@ interface LogHandler {
     public OutputStream createLoggerStream(Level level, String prefix);
     public int getMessageOutputLevel()
 }
-class LogOutputStream extends OutputStream{
+/**
+ * Decodes output into lines for the HtTableLogger.  Lines written with context data by a FormattedOutputStream are
+ * logged directly with that data.
+ */
+class LogOutputStream extends OutputStream implements StructuredLogSink {
     HtTableLogger logger;
     Level level;
     String prefix;
-    StringBuffer sb;
+    LineDecoder decoder;
     def LogOutputStream(HtTableLogger logger, Level level, String prefix){
         this.logger=logger;
         this.level=level;
         this.prefix=prefix;
-        sb = new StringBuffer();
+        decoder = new LineDecoder({ String line ->
+            logger.logOOB(level, null == prefix ? line : prefix + line);
+        } as LineDecoder.LineHandler)
     }
-    def boolean crchar=false;
 
     public void write(final int b) {
-        if(b=='\n' ){
-            logger.logOOB(level,null==prefix?sb.toString():prefix+sb.toString());
-            sb = new StringBuffer()
-            crchar=false;
-        }else if(b=='\r'){
-            crchar=true;
-        }else{
-            if (crchar){
-                logger.logOOB(level,null==prefix?sb.toString():prefix+sb.toString());
-                sb = new StringBuffer()
-                crchar=false;
-            }
-            sb.append((char)b)
-        }
+        decoder.write(b)
+    }
+
+    public void write(final byte[] b, final int off, final int len) {
+        decoder.write(b, off, len)
+    }
 
+    public void writeLine(final Map<String, String> context, final String message) {
+        decoder.flush()
+        logger.logContext(level, context, message)
     }
+
     public void flush(){
-        if(sb.size()>0){
-            logger.logOOB(level,null==prefix?sb.toString():prefix+sb.toString());
-        }
+        decoder.flush()
     }
 }
 /**
   * HtTableLogger
   */
 class HtTableLogger extends Handler implements LogHandler, BuildLogger, CLIToolLogger, ContextLogger {
-    def PrintStream printstream
+    def LogEntryWriter writer
     def String namespace
     def File outfile
     def boolean closed=false
     def int msgOutputLevel
     def long startTime
+    private int outputLevel
     def Map defaultEntries=[:]
 
     def HtTableLogger(final String namespace, File outfile, int msglevel) {
@@ -2010,8 +2032,13 @@ class HtTableLogger extends Handler implements LogHandler, BuildLogger, CLIToolL
         if(null!=defaultEntries){
             this.defaultEntries=new HashMap(defaultEntries)
         }
-        printstream = new PrintStream(new FileOutputStream(outfile))
-        msgOutputLevel=msglevel
+        def String[] fields = ExecutionService.EXEC_FORMAT_SEQUENCE[2..-1] as String[]
+        if (CompressedLogFileWriter.isCompressedLogFile(outfile)) {
+            writer = new CompressedLogFileWriter(outfile, fields)
+        } else {
+            writer = new BufferedLogFileWriter(outfile, LogFileIndex.getIndexFile(outfile), fields)
+        }
+        setMessageOutputLevel(msglevel)
         def Logger logger = Logger.getLogger(namespace)
         logger.addHandler(this);
         setFormatter(new HtFormatter())
@@ -2019,7 +2046,7 @@ class HtTableLogger extends Handler implements LogHandler, BuildLogger, CLIToolL
 
     void setMessageOutputLevel(int i){
         msgOutputLevel = i;
-
+        outputLevel = getLevelForPriority(i).intValue()
     }
     public int getMessageOutputLevel(){
         return msgOutputLevel;
@@ -2221,7 +2248,7 @@ class HtTableLogger extends Handler implements LogHandler, BuildLogger, CLIToolL
         String xmessage=message
         Level xlevel=level
         // log the message
-        def Map data = parseLogDetail(message)
+        def Map data = message.startsWith('[') ? parseLogDetail(message) : null
         if(data){
             xmessage=data.rest
             if(data.level){
@@ -2243,6 +2270,25 @@ class HtTableLogger extends Handler implements LogHandler, BuildLogger, CLIToolL
 
     }
 
+    /**
+     * Logs a line of output with context data from the execution, the level is determined by the "level" entry if
+     * present.
+     *
+     * @param level the default level
+     * @param context the context data
+     * @param message the message
+     */
+    public void logContext(final Level level, final Map<String, String> context, final String message) {
+        if (message == null) {
+            return;
+        }
+        def Level xlevel = context?.level ? getLevelForString(context.level) : level
+        if (xlevel.intValue() < outputLevel || closed) {
+            return
+        }
+        write(xlevel, System.currentTimeMillis(), context ?: defaultEntries ?: null, message)
+    }
+
     public static String makeContextId(final Map data){
         return "${data.level}:${data.user}:${data.node}:${data.context}:${data.command}"
     }
@@ -2278,8 +2324,8 @@ class HtTableLogger extends Handler implements LogHandler, BuildLogger, CLIToolL
         if(closed){
             return;
         }
-        if(lr.getLevel().intValue()>=getLevelForPriority(msgOutputLevel).intValue()){
-            printstream.println(getFormatter().format(lr))
+        if(lr.getLevel().intValue()>=outputLevel){
+            write(lr.getLevel(), lr.getMillis(), null, lr.getMessage())
         }
     }
     public void publish(final LogRecord lr,final Map data) {
@@ -2289,8 +2335,15 @@ class HtTableLogger extends Handler implements LogHandler, BuildLogger, CLIToolL
         if(closed){
             return;
         }
-        if(lr.getLevel().intValue()>=getLevelForPriority(msgOutputLevel).intValue()){
-            printstream.println(getHtFormatter().format(lr,data))
+        if(lr.getLevel().intValue()>=outputLevel){
+            write(lr.getLevel(), lr.getMillis(), data, lr.getMessage())
+        }
+    }
+    private void write(final Level level, final long time, final Map data, final String message) {
+        try {
+            writer.write(level.toString(), time, data, message)
+        } catch (IOException e) {
+            reportError(null, e, java.util.logging.ErrorManager.WRITE_FAILURE)
         }
     }
     public HtFormatter getHtFormatter(){
@@ -2299,18 +2352,21 @@ class HtTableLogger extends Handler implements LogHandler, BuildLogger, CLIToolL
     public void close() {
         if(!closed ){
             closed=true;
-            if(null!=getFormatter()){
-                printstream.println (getFormatter().getTail(this))
+            try {
+                writer.close()
+            } catch (IOException e) {
+                reportError(null, e, java.util.logging.ErrorManager.CLOSE_FAILURE)
             }
-            flush()
-
-            this.printstream.close()
             def Logger logger = Logger.getLogger(namespace)
             logger.removeHandler(this);
         }
     }
     public void flush() {
-        this.printstream.flush()
+        try {
+            writer.flush()
+        } catch (IOException e) {
+            reportError(null, e, java.util.logging.ErrorManager.FLUSH_FAILURE)
+        }
     }
 
     public void error(String s) {
@@ -331,9 +331,7 @@ class FrameworkService implements ApplicationContextAware {
 
     def getFrameworkNodeName() {
         def rdbase= getRundeckBase()
-        def Framework fw = Framework.getInstance(rdbase)
-        fw.setAuthorizationMgr(new DenyAuthorization(fw, new File(Constants.getFrameworkConfigDir(rdbase))))
-        return fw.getFrameworkNodeName()
+        return getSharedFramework(rdbase).getFrameworkNodeName()
     }
 
     def getFrameworkRoles() {
@@ -355,8 +353,49 @@ class FrameworkService implements ApplicationContextAware {
     def getFrameworkForUserAndRoles(String user, List rolelist){
         return getFrameworkForUserAndRoles(user, rolelist, getRundeckBase())
     }
+    /**
+     * Shared Framework instances by rundeck base dir, with the framework.properties modification time
+     */
+    private static Map<String, Map> sharedFrameworks = new HashMap<String, Map>()
+    /**
+     * Authorization caches by acl policy directory
+     */
+    private static Map<String, AclsAuthorizationCache> authorizationCaches = new HashMap<String, AclsAuthorizationCache>()
+
+    /**
+     * Return the initialized Framework shared by all users for the rundeck base dir. It is reloaded if the
+     * framework.properties file is modified.
+     */
+    public static Framework getSharedFramework(String rundeckbase){
+        def File propfile = new File(Constants.getFrameworkConfigDir(rundeckbase), "framework.properties")
+        synchronized (sharedFrameworks){
+            def entry = sharedFrameworks.get(rundeckbase)
+            if (!entry || entry.modified != propfile.lastModified()) {
+                entry = [framework: Framework.getInstance(rundeckbase), modified: propfile.lastModified()]
+                sharedFrameworks.put(rundeckbase, entry)
+            }
+            return entry.framework
+        }
+    }
+
+    /**
+     * Return the authorization cache for the acl policy directory of the rundeck base dir
+     */
+    public static AclsAuthorizationCache getAuthorizationCache(String rundeckbase){
+        def String configDir = Constants.getFrameworkConfigDir(rundeckbase)
+        synchronized (authorizationCaches){
+            def cache = authorizationCaches.get(configDir)
+            if (!cache) {
+                cache = new AclsAuthorizationCache(new File(configDir))
+                authorizationCaches.put(configDir, cache)
+            }
+            return cache
+        }
+    }
+
     public static Framework getFrameworkForUserAndRoles(String user, List rolelist, String rundeckbase){
-        def Framework fw = Framework.getInstance(rundeckbase)
+        def Framework shared = getSharedFramework(rundeckbase)
+        def Framework fw = shared
         if(null!=user && null != rolelist){
             //create fake subject
             Subject subject = new Subject()
@@ -365,9 +404,11 @@ class FrameworkService implements ApplicationContextAware {
                 subject.getPrincipals().add(new Group(s))
             }
             def authen = new SingleUserAuthentication(user,subject)
-            def author = new SingleUserAclsAuthorization(fw,new File(Constants.getFrameworkConfigDir(rundeckbase)), user, rolelist.toArray(new String[0]))
-            fw.setAuthenticationMgr(authen)
-            fw.setAuthorizationMgr(author)
+            def cache = getAuthorizationCache(rundeckbase)
+            def author = cache.getAuthorization(user, rolelist, { policies ->
+                new SingleUserAclsAuthorization(shared, cache.aclBasedir, policies, user, rolelist.toArray(new String[0]))
+            } as AclsAuthorizationCache.AuthorizationFactory)
+            fw = Framework.getInstanceWithAuthorization(shared, authen, author)
         }else{
             System.err.println("getFrameworkForUserAndRoles: No user/subject authorization")
             throw new RuntimeException("Cannot get framework without user, roles: ${user}, ${rolelist}")
@@ -375,12 +416,16 @@ class FrameworkService implements ApplicationContextAware {
         return fw
     }
     public static Framework getFrameworkForUserAndSubject(String user, Subject subject, String rundeckbase){
-        def Framework fw = Framework.getInstance(rundeckbase)
+        def Framework shared = getSharedFramework(rundeckbase)
+        def Framework fw = shared
         if(null!=user && null!=subject){
             def authen = new SingleUserAuthentication(user,subject)
-            def author = new UserSubjectAuthorization(fw,new File(Constants.getFrameworkConfigDir(rundeckbase)), user, subject)
-            fw.setAuthenticationMgr(authen)
-            fw.setAuthorizationMgr(author)
+            def roles = subject.getPrincipals(Group.class).collect {it.name}
+            def cache = getAuthorizationCache(rundeckbase)
+            def author = cache.getAuthorization(user, roles, { policies ->
+                new UserSubjectAuthorization(shared, cache.aclBasedir, policies, user, subject)
+            } as AclsAuthorizationCache.AuthorizationFactory)
+            fw = Framework.getInstanceWithAuthorization(shared, authen, author)
         } else {
             System.err.println("getFrameworkForUserAndSubject: No user/subject authorization")
             throw new RuntimeException("Cannot get framework without user, subject: ${user}, ${subject}")
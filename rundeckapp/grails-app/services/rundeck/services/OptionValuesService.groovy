@@ -0,0 +1,395 @@
+package rundeck.services
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.FutureTask
+import org.apache.commons.httpclient.HttpClient
+import org.apache.commons.httpclient.HttpMethod
+import org.apache.commons.httpclient.HttpState
+import org.apache.commons.httpclient.HttpStatus
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager
+import org.apache.commons.httpclient.UsernamePasswordCredentials
+import org.apache.commons.httpclient.auth.AuthScope
+import org.apache.commons.httpclient.methods.GetMethod
+import org.apache.commons.httpclient.util.DateParseException
+import org.apache.commons.httpclient.util.DateUtil
+import org.codehaus.groovy.grails.web.json.JSONElement
+import org.springframework.beans.factory.DisposableBean
+
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+/**
+ * Loads remote option values for Job options with a "valuesUrl". HTTP requests share a pooled connection manager, and
+ * the results are cached by the expanded URL for a configurable time. When a cached result expires, the request is
+ * made with the ETag/Last-Modified values of the cached response, and a "304 Not Modified" response reuses the cached
+ * content. Concurrent requests for the same URL share a single remote request.
+ *
+ * Configuration properties in rundeck-config.properties:
+ *
+ * rundeck.jobs.options.remoteUrlCache.ttl: seconds to use a cached result without a request, 0 to always make a
+ * conditional request (default 30)
+ * rundeck.jobs.options.remoteUrlCache.maxEntries: maximum number of cached URLs (default 500)
+ * rundeck.jobs.options.remoteUrlConnections: maximum pooled connections per host (default 10)
+ */
+class OptionValuesService implements DisposableBean {
+    public static final String E_TAG = "ETag"
+    public static final String IF_NONE_MATCH = "If-None-Match"
+    public static final String LAST_MODIFIED = "Last-Modified"
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since"
+    public static final long DEFAULT_CACHE_TTL = 30
+    public static final int DEFAULT_CACHE_MAX_ENTRIES = 500
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 10
+
+    boolean transactional = false
+    def grailsApplication
+
+    private MultiThreadedHttpConnectionManager connectionManager
+    private HttpClient httpClient
+    private Map<String, CachedValues> cache
+    private final ConcurrentHashMap<String, FutureTask> pending = new ConcurrentHashMap<String, FutureTask>()
+
+    /**
+     * Cached response for a URL
+     */
+    static class CachedValues {
+        String content
+        String etag
+        String lastModified
+        Map stats
+        long fetchTime
+    }
+
+    void destroy() {
+        synchronized (this) {
+            if (null != connectionManager) {
+                connectionManager.shutdown()
+                connectionManager = null
+                httpClient = null
+            }
+        }
+    }
+
+    /**
+     * Least recently used map of cached responses
+     */
+    static class CacheMap extends LinkedHashMap<String, CachedValues> {
+        int maxEntries
+
+        CacheMap(int maxEntries) {
+            super(16, 0.75f, true)
+            this.maxEntries = maxEntries
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<String, CachedValues> eldest) {
+            return size() > maxEntries
+        }
+    }
+
+    /**
+     * Return the shared client, creating it with the given timeout in seconds if necessary
+     */
+    private synchronized HttpClient getClient(int timeout) {
+        if (null == httpClient) {
+            connectionManager = new MultiThreadedHttpConnectionManager()
+            final int maxPerHost = configInt('remoteUrlConnections', DEFAULT_MAX_CONNECTIONS_PER_HOST)
+            connectionManager.params.defaultMaxConnectionsPerHost = maxPerHost
+            connectionManager.params.maxTotalConnections = 2 * maxPerHost
+            connectionManager.params.connectionTimeout = timeout * 1000
+            httpClient = new HttpClient(connectionManager)
+            httpClient.params.connectionManagerTimeout = timeout * 1000
+        }
+        return httpClient
+    }
+
+    protected synchronized Map<String, CachedValues> getCache() {
+        if (null == cache) {
+            cache = Collections.synchronizedMap(
+                new CacheMap(configInt('remoteUrlCache.maxEntries', DEFAULT_CACHE_MAX_ENTRIES)))
+        }
+        return cache
+    }
+
+    private Object configValue(String name) {
+        def value = grailsApplication?.config?.rundeck?.jobs?.options
+        name.split(/\./).each {
+            value = value instanceof Map ? value[it] : null
+        }
+        return value instanceof Map ? null : value
+    }
+
+    private int configInt(String name, int defval) {
+        def value = configValue(name)
+        try {
+            return null != value ? Integer.parseInt(value.toString().trim()) : defval
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for rundeck.jobs.options.${name}: ${value}")
+            return defval
+        }
+    }
+
+    /**
+     * Return the cache time to live in milliseconds
+     */
+    long getCacheTTL() {
+        return configInt('remoteUrlCache.ttl', (int) DEFAULT_CACHE_TTL) * 1000L
+    }
+
+    /**
+     * Discard all cached results
+     */
+    void clearCache() {
+        getCache().clear()
+    }
+
+    /**
+     * Make a remote URL request and return the parsed JSON data and statistics for http requests in a map.
+     * if an error occurs, a map with a single 'error' entry will be returned.
+     * the stats data contains:
+     *
+     * url: requested url
+     * startTime: start time epoch ms
+     * httpStatusCode: http status code (int)
+     * httpStatusText: http status text
+     * finishTime: finish time epoch ms
+     * durationTime: duration time in ms
+     * contentLength: response content length bytes (long)
+     * lastModifiedDate: Last-Modified header (Date)
+     * contentSHA1: SHA1 hash of the content
+     * cacheStatus: for http requests, 'hit' if the cached result was used without a request, 'revalidated' if the
+     * server responded "304 Not Modified", otherwise 'miss'
+     *
+     * @param url URL to request
+     * @param timeout request timeout in seconds
+     * @return Map of data, [json: parsed json or null, stats: stats data, error: error message]
+     *
+     */
+    def Object getRemoteJSON(String url, int timeout) {
+        if (url.startsWith("http:") || url.startsWith("https:")) {
+            return getCachedRemoteJSON(url, timeout)
+        } else if (url.startsWith("file:")) {
+            return getFileJSON(url)
+        } else {
+            throw new Exception("Unsupported protocol: " + url)
+        }
+    }
+
+    /**
+     * Return the result for the http URL from the cache if it has not expired, otherwise make a request, sharing the
+     * request with any other threads requesting the same URL.
+     */
+    private Object getCachedRemoteJSON(String url, int timeout) {
+        final long start = System.currentTimeMillis()
+        final CachedValues cached = getCache().get(url)
+        if (null != cached && start - cached.fetchTime < getCacheTTL()) {
+            final stats = new HashMap(cached.stats)
+            stats.startTime = start
+            stats.finishTime = System.currentTimeMillis()
+            stats.durationTime = stats.finishTime - stats.startTime
+            stats.cacheStatus = 'hit'
+            return [json: grails.converters.JSON.parse(cached.content), stats: stats]
+        }
+        FutureTask task = new FutureTask({ fetchRemoteJSON(url, timeout) } as Callable)
+        final FutureTask existing = pending.putIfAbsent(url, task)
+        if (null != existing) {
+            task = existing
+        } else {
+            try {
+                task.run()
+            } finally {
+                pending.remove(url, task)
+            }
+        }
+        Map result
+        try {
+            result = task.get()
+        } catch (ExecutionException e) {
+            throw e.cause instanceof Exception ? (Exception) e.cause : e
+        }
+        if (null != result.content) {
+            //parse separately for each caller, the cached content is shared
+            return [json: grails.converters.JSON.parse(result.content), stats: new HashMap(result.stats)]
+        }
+        return [error: result.error, stats: new HashMap(result.stats)]
+    }
+
+    /**
+     * Make the http request for the URL, using the ETag and Last-Modified values of any cached response, and update
+     * the cache.
+     * @return map with either [content: response content, stats: stats] or [error: message, stats: stats]
+     */
+    protected Map fetchRemoteJSON(String url, int timeout) {
+        final Map<String, CachedValues> cache = getCache()
+        final CachedValues cached = cache.get(url)
+        def stats = [:]
+        def HttpState state = new HttpState()
+        String cleanUrl = url.replaceAll("^(https?://)([^:@/]+):[^@/]*@", '$1$2:****@');
+        String urlToUse = url
+        try {
+            def URL urlo = new URL(url)
+            if (urlo.userInfo) {
+                state.setCredentials(
+                    new AuthScope(urlo.host, urlo.port > 0 ? urlo.port : urlo.defaultPort, AuthScope.ANY_REALM, "BASIC"),
+                    new UsernamePasswordCredentials(urlo.userInfo)
+                )
+                state.setAuthenticationPreemptive(true)
+                urlToUse = new URL(urlo.protocol, urlo.host, urlo.port, urlo.file).toExternalForm()
+            }
+        } catch (MalformedURLException e) {
+            throw new Exception("Failed to configure base URL for authentication: " + e.getMessage(), e)
+        }
+        def HttpMethod method = new GetMethod(urlToUse)
+        method.setFollowRedirects(true)
+        method.setRequestHeader("Accept", "application/json")
+        method.params.soTimeout = timeout * 1000
+        if (null != cached) {
+            if (cached.etag) {
+                method.setRequestHeader(IF_NONE_MATCH, cached.etag)
+            }
+            if (cached.lastModified) {
+                method.setRequestHeader(IF_MODIFIED_SINCE, cached.lastModified)
+            }
+        }
+        final HttpClient client = getClient(timeout)
+        stats.url = cleanUrl;
+        stats.startTime = System.currentTimeMillis();
+        try {
+            def resultCode = client.executeMethod(null, method, state);
+            stats.httpStatusCode = resultCode
+            stats.httpStatusText = method.getStatusText()
+            stats.finishTime = System.currentTimeMillis()
+            stats.durationTime = stats.finishTime - stats.startTime
+            if (null != cached && HttpStatus.SC_NOT_MODIFIED == resultCode) {
+                //reuse cached content
+                stats.contentLength = cached.stats.contentLength
+                stats.contentSHA1 = cached.stats.contentSHA1
+                stats.lastModifiedDate = cached.stats.lastModifiedDate
+                stats.cacheStatus = 'revalidated'
+                cache.put(url, new CachedValues(content: cached.content,
+                    etag: method.getResponseHeader(E_TAG)?.getValue() ?: cached.etag,
+                    lastModified: method.getResponseHeader(LAST_MODIFIED)?.getValue() ?: cached.lastModified,
+                    stats: stats,
+                    fetchTime: System.currentTimeMillis()))
+                return [content: cached.content, stats: stats]
+            }
+            stats.cacheStatus = 'miss'
+            stats.contentLength = method.getResponseContentLength()
+            final header = method.getResponseHeader(LAST_MODIFIED)
+            if (null != header) {
+                try {
+                    stats.lastModifiedDate = DateUtil.parseDate(header.getValue())
+                } catch (DateParseException e) {
+                }
+            } else {
+                stats.lastModifiedDate = ""
+                stats.lastModifiedDateTime = ""
+            }
+            def reasonCode = method.getStatusText();
+            if (resultCode >= 200 && resultCode <= 300) {
+                def expectedContentType = "application/json"
+                def resultType = ''
+                if (null != method.getResponseHeader("Content-Type")) {
+                    resultType = method.getResponseHeader("Content-Type").getValue();
+                }
+                String type = resultType;
+                if (type.indexOf(";") > 0) {
+                    type = type.substring(0, type.indexOf(";")).trim();
+                }
+
+                if (expectedContentType.equals(type)) {
+                    final stream = method.getResponseBodyAsStream()
+                    final writer = new StringWriter()
+                    int len = copyToWriter(new BufferedReader(new InputStreamReader(stream, method.getResponseCharSet())), writer)
+                    stream.close()
+                    writer.flush()
+                    final string = writer.toString()
+                    //fail before caching if the content is not valid
+                    grails.converters.JSON.parse(string)
+                    if (string) {
+                        stats.contentSHA1 = string.encodeAsSHA1()
+                        if (stats.contentLength < 0) {
+                            stats.contentLength = len
+                        }
+                    } else {
+                        stats.contentSHA1 = ""
+                    }
+                    cache.put(url, new CachedValues(content: string,
+                        etag: method.getResponseHeader(E_TAG)?.getValue(),
+                        lastModified: header?.getValue(),
+                        stats: stats,
+                        fetchTime: System.currentTimeMillis()))
+                    return [content: string, stats: stats]
+                } else {
+                    cache.remove(url)
+                    return [error: "Unexpected content type received: " + resultType, stats: stats]
+                }
+            } else {
+                cache.remove(url)
+                stats.contentSHA1 = ""
+                return [error: "Server returned an error response: ${resultCode} ${reasonCode}", stats: stats]
+            }
+        } finally {
+            method.releaseConnection();
+        }
+    }
+
+    /**
+     * Read the JSON content of a file URL
+     */
+    private Object getFileJSON(String url) {
+        def stats = [:]
+        stats.url = url
+        def File srfile = new File(new URI(url))
+        final writer = new StringWriter()
+        final stream = new FileInputStream(srfile)
+
+        stats.startTime = System.currentTimeMillis();
+        int len = copyToWriter(new BufferedReader(new InputStreamReader(stream)), writer)
+        stats.finishTime = System.currentTimeMillis()
+        stats.durationTime = stats.finishTime - stats.startTime
+        stream.close()
+        writer.flush()
+        final string = writer.toString()
+        final JSONElement parse = grails.converters.JSON.parse(string)
+        if (!parse) {
+            throw new Exception("JSON was empty")
+        }
+        if (string) {
+            stats.contentSHA1 = string.encodeAsSHA1()
+        } else {
+            stats.contentSHA1 = ""
+        }
+        stats.contentLength = srfile.length()
+        stats.lastModifiedDate = new Date(srfile.lastModified())
+        stats.lastModifiedDateTime = srfile.lastModified()
+        return [json: parse, stats: stats]
+    }
+
+    static int copyToWriter(Reader read, Writer writer) {
+        char[] chars = new char[1024];
+        int len = 0;
+        int size = read.read(chars, 0, chars.length)
+        while (-1 != size) {
+            len += size;
+            writer.write(chars, 0, size)
+            size = read.read(chars, 0, chars.length)
+        }
+        return len;
+    }
+}
@@ -15,6 +15,9 @@ import java.util.jar.Manifest
 import java.util.jar.Attributes
 import com.dtolabs.rundeck.app.support.BuilderUtil
 import com.dtolabs.rundeck.util.XmlParserUtil
+import com.dtolabs.rundeck.core.utils.CompressedLogFileWriter
+import com.dtolabs.rundeck.core.utils.LogFileIndex
+import com.dtolabs.rundeck.core.utils.LogFormatConverter
 import rundeck.ScheduledExecution
 import rundeck.BaseReport
 import rundeck.Execution
@@ -83,7 +86,21 @@ class ProjectService {
             builder.objToDom("executions", [execution:map], xml)
         }
         if (outfile && outfile.isFile()) {
-            zip.file "output-${exec.id}.txt", outfile
+            if (CompressedLogFileWriter.isCompressedLogFile(outfile)) {
+                //archives contain the text format
+                def textfile = File.createTempFile("output-${exec.id}", ".txt")
+                try {
+                    LogFormatConverter.convertToText(outfile, textfile)
+                    zip.file "output-${exec.id}.txt", textfile
+                } catch (IOException e) {
+                    throw new ProjectServiceException("Unable to convert output file for execution ${exec.id}: ${e.message}", e)
+                } finally {
+                    textfile.delete()
+                    LogFileIndex.getIndexFile(textfile).delete()
+                }
+            } else {
+                zip.file "output-${exec.id}.txt", outfile
+            }
         }
     }
 
@@ -376,7 +393,16 @@ class ProjectService {
                     //move to appropriate location and update outputfilepath
                     String filename=executionService.createOutputFilepathForExecution(e,framework)
                     File newfile = new File(filename)
-                    if(!oldfile.renameTo(newfile)){
+                    if(CompressedLogFileWriter.isCompressedLogFile(newfile)){
+                        //project uses the compressed format, convert the text log
+                        try{
+                            LogFormatConverter.convertToCompressed(oldfile, null,
+                                ExecutionService.EXEC_FORMAT_SEQUENCE[2..-1] as String[], newfile)
+                            e.outputfilepath=newfile.absolutePath
+                        }catch(IOException exc){
+                            log.error("Unable to convert temp log file to destination: ${newfile.absolutePath} (old id ${oldids[e]}): ${exc.message}")
+                        }
+                    }else if(!oldfile.renameTo(newfile)){
                         log.error("Unable to move temp log file to destination: ${newfile.absolutePath} (old id ${oldids[e]})")
                     }else{
                         e.outputfilepath=newfile.absolutePath
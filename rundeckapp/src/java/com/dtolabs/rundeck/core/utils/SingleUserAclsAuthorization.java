@@ -23,6 +23,7 @@
 */
 package com.dtolabs.rundeck.core.utils;
 
+import com.dtolabs.rundeck.core.authorization.Authorization;
 import com.dtolabs.rundeck.core.authorization.BaseAclsAuthorization;
 import com.dtolabs.rundeck.core.authorization.providers.PoliciesParseException;
 import com.dtolabs.rundeck.core.common.Framework;
@@ -48,6 +49,13 @@ public class SingleUserAclsAuthorization extends BaseAclsAuthorization {
         this.roles = roles;
     }
 
+    public SingleUserAclsAuthorization(final Framework framework, final File basedir,
+                                       final Authorization authorization, String username, String[] roles) {
+        super(framework, basedir, authorization);
+        this.username = username;
+        this.roles = roles;
+    }
+
     public String[] determineUserRoles(String user) {
         if(username.equals(user)){
             return roles;
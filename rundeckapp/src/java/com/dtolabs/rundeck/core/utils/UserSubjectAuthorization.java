@@ -24,6 +24,7 @@
 package com.dtolabs.rundeck.core.utils;
 
 import com.dtolabs.rundeck.core.authentication.Group;
+import com.dtolabs.rundeck.core.authorization.Authorization;
 import com.dtolabs.rundeck.core.authorization.BaseAclsAuthorization;
 import com.dtolabs.rundeck.core.authorization.providers.PoliciesParseException;
 import com.dtolabs.rundeck.core.common.Framework;
@@ -51,6 +52,13 @@ public class UserSubjectAuthorization extends BaseAclsAuthorization {
         this.subject = subject;
     }
 
+    public UserSubjectAuthorization(final Framework framework, final File basedir,
+                                    final Authorization authorization, String username, Subject subject) {
+        super(framework, basedir, authorization);
+        this.username = username;
+        this.subject = subject;
+    }
+
     private String[] determinedRoles;
 
     public String[] determineUserRoles(String user) {
@@ -0,0 +1,142 @@
+import grails.test.GrailsUnitTestCase
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import rundeck.services.OptionValuesService
+/*
+ * Copyright 2012 DTO Solutions, Inc. (http://dtosolutions.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+class OptionValuesServiceTests extends GrailsUnitTestCase {
+
+    /**
+     * Service which counts fetches instead of making http requests
+     */
+    static class testOptionValuesService extends OptionValuesService {
+        AtomicInteger fetches = new AtomicInteger()
+        CountDownLatch release
+        String content = '["a","b"]'
+        String error
+
+        protected Map fetchRemoteJSON(String url, int timeout) {
+            fetches.incrementAndGet()
+            if (null != release) {
+                release.await(5, TimeUnit.SECONDS)
+            }
+            if (null != error) {
+                return [error: error, stats: [url: url, httpStatusCode: 500]]
+            }
+            return [content: content, stats: [url: url, httpStatusCode: 200, cacheStatus: 'miss']]
+        }
+    }
+
+    protected void setUp() {
+        super.setUp()
+        loadCodec(org.codehaus.groovy.grails.plugins.codecs.SHA1Codec)
+    }
+
+    protected void tearDown() {
+        super.tearDown()
+    }
+
+    void testFetchResult() {
+        def service = new testOptionValuesService()
+        def result = service.getRemoteJSON('http://example.com/values.json', 10)
+        assertEquals(['a', 'b'], result.json as List)
+        assertEquals(200, result.stats.httpStatusCode)
+        assertEquals(1, service.fetches.get())
+    }
+
+    void testFetchError() {
+        def service = new testOptionValuesService()
+        service.error = 'failed'
+        def result = service.getRemoteJSON('http://example.com/values.json', 10)
+        assertNull(result.json)
+        assertEquals('failed', result.error)
+    }
+
+    void testCacheHit() {
+        def service = new testOptionValuesService()
+        def url = 'http://example.com/values.json'
+        service.cache.put(url, new OptionValuesService.CachedValues(content: '["c"]', etag: '"1"',
+            stats: [url: url, httpStatusCode: 200], fetchTime: System.currentTimeMillis()))
+        def result = service.getRemoteJSON(url, 10)
+        assertEquals(['c'], result.json as List)
+        assertEquals('hit', result.stats.cacheStatus)
+        assertEquals(0, service.fetches.get())
+    }
+
+    void testCacheExpired() {
+        def service = new testOptionValuesService()
+        def url = 'http://example.com/values.json'
+        service.cache.put(url, new OptionValuesService.CachedValues(content: '["c"]', etag: '"1"',
+            stats: [url: url, httpStatusCode: 200],
+            fetchTime: System.currentTimeMillis() - OptionValuesService.DEFAULT_CACHE_TTL * 1000 - 1))
+        def result = service.getRemoteJSON(url, 10)
+        assertEquals(['a', 'b'], result.json as List)
+        assertEquals(1, service.fetches.get())
+    }
+
+    void testFileUrl() {
+        def service = new testOptionValuesService()
+        def file = File.createTempFile('options', '.json')
+        file.deleteOnExit()
+        file.text = '["x","y"]'
+        def result = service.getRemoteJSON(file.toURI().toString(), 10)
+        assertEquals(['x', 'y'], result.json as List)
+        assertEquals(file.length(), result.stats.contentLength)
+        assertEquals(0, service.fetches.get())
+        file.delete()
+    }
+
+    void testUnsupportedProtocol() {
+        def service = new testOptionValuesService()
+        try {
+            service.getRemoteJSON('ftp://example.com/values.json', 10)
+            fail("expected exception")
+        } catch (Exception e) {
+            assertTrue(e.message.startsWith("Unsupported protocol"))
+        }
+    }
+
+    void testCoalesceConcurrentRequests() {
+        def service = new testOptionValuesService()
+        service.release = new CountDownLatch(1)
+        def results = Collections.synchronizedList([])
+        def threads = (1..5).collect {
+            Thread.start {
+                results << service.getRemoteJSON('http://example.com/values.json', 10)
+            }
+        }
+        Thread.sleep(200)
+        service.release.countDown()
+        threads*.join(5000)
+        assertEquals(5, results.size())
+        assertEquals(1, service.fetches.get())
+        results.each {
+            assertEquals(['a', 'b'], it.json as List)
+        }
+        //results are parsed for each caller
+        assertNotSame(results[0].json, results[1].json)
+    }
+
+    void testSeparateUrls() {
+        def service = new testOptionValuesService()
+        service.getRemoteJSON('http://example.com/values.json?a=1', 10)
+        service.getRemoteJSON('http://example.com/values.json?a=2', 10)
+        assertEquals(2, service.fetches.get())
+    }
+}
@@ -40,6 +40,7 @@ var FollowControl = Class.create({
     ctxGroupTbodies:{},
 
     taildelay: 1,
+    maxwait: 15000,
     isrunning: false,
     starttime:null,
     updatepagetitle:false,
@@ -536,9 +537,10 @@ var FollowControl = Class.create({
             return;
         } else {
             var obj=this;
+            //if the server waited for new output, request more immediately
             setTimeout(function() {
                 obj.loadMoreOutput(obj.runningcmd.id, obj.runningcmd.offset);
-            }, (this.tailmode && this.taildelay > 0) ? this.taildelay * 1000 : 50);
+            }, (!data.maxWait && this.tailmode && this.taildelay > 0) ? this.taildelay * 1000 : 50);
         }
         if (this.runningcmd.jobcompleted && !this.runningcmd.completed) {
             this.jobFinishStatus(this.runningcmd.jobstatus);
@@ -666,6 +668,7 @@ var FollowControl = Class.create({
         if(this.isrunning){
             new Ajax.Request(url, {
                 parameters: "id=" + id + "&offset=" + offset + ((this.tailmode && this.lastlines) ? "&lastlines=" + this.lastlines : "")
+                    + (offset > 0 && this.maxwait > 0 ? "&maxWait=" + this.maxwait : "")
                     + this.extraParams ,
                 onSuccess: function(transport) {
                     obj.appendCmdOutput(transport.responseText);